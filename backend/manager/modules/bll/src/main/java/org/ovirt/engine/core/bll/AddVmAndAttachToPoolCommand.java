@@ -86,6 +86,7 @@ public class AddVmAndAttachToPoolCommand<T extends AddVmAndAttachToPoolParameter
         parameters.setDiskOperatorAuthzPrincipalDbId(getParameters().getDiskOperatorAuthzPrincipalDbId());
         parameters.getGraphicsDevices().putAll(getParameters().getGraphicsDevices());
         parameters.setPoolId(getParameters().getPoolId());
+        parameters.setMacAddresses(getParameters().getMacAddresses());
 
         if (action == VdcActionType.AddVmFromScratch) {
             parameters.setDiskInfoList(getParameters().getDiskInfoList());
@@ -1087,12 +1087,31 @@ public class AddVmCommand<T extends AddVmParameters> extends VmManagementCommand
         return returnValue;
     }
 
+    /**
+     * @return the MACs allocated in advance for the VM, or newly allocated MACs if there are none or they don't match
+     * the interfaces
+     */
+    private List<String> getMacAddresses(int numberOfNics) {
+        List<String> macAddresses = getParameters().getMacAddresses();
+        if (macAddresses != null && macAddresses.size() == numberOfNics) {
+            return macAddresses;
+        }
+
+        if (macAddresses != null) {
+            log.warn("Allocated {} MACs in advance for VM '{}' which has {} interfaces, allocating new ones.",
+                    macAddresses.size(), getVmName(), numberOfNics);
+            getMacPool().freeMacs(macAddresses);
+            getParameters().setMacAddresses(null);
+        }
+        return getMacPool().allocateMacAddresses(numberOfNics);
+    }
+
     protected void addVmNetwork() {
         List<VmNic> nics = getVmInterfaces();
         VmInterfaceManager vmInterfaceManager = new VmInterfaceManager(getMacPool());
         vmInterfaceManager.sortVmNics(nics, getVmInterfaceDevices());
 
-        List<String> macAddresses = getMacPool().allocateMacAddresses(nics.size());
+        List<String> macAddresses = getMacAddresses(nics.size());
 
         // Add interfaces from template
         for (int i = 0; i < nics.size(); ++i) {
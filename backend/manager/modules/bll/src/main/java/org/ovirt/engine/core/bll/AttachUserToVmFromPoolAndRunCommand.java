@@ -379,6 +379,7 @@ VmPoolUserCommandBase<T> implements QuotaVdsDependent {
                             getVmId());
             if (perm != null) {
                 DbFacade.getInstance().getPermissionDao().remove(perm.getId());
+                getPermissionCache().invalidatePermissions();
             }
         }
     }
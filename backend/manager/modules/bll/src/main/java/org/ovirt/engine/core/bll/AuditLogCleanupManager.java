@@ -8,6 +8,7 @@ import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.compat.DateTime;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
+import org.ovirt.engine.core.dao.AuditLogDao;
 import org.ovirt.engine.core.di.Injector;
 import org.ovirt.engine.core.utils.timer.OnTimerMethodAnnotation;
 import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
@@ -17,6 +18,9 @@ import org.slf4j.LoggerFactory;
 public class AuditLogCleanupManager {
     private static final Logger log = LoggerFactory.getLogger(AuditLogCleanupManager.class);
 
+    private static final String NO_PARTITIONS = "none";
+    private static final int PARTITIONS_AHEAD = 3;
+
     private static final AuditLogCleanupManager instance = new AuditLogCleanupManager();
 
     public static AuditLogCleanupManager getInstance() {
@@ -32,6 +36,7 @@ public class AuditLogCleanupManager {
         String cronExpression = String.format("%d %d %d * * ?", calendar.get(Calendar.SECOND),
                 calendar.get(Calendar.MINUTE), calendar.get(Calendar.HOUR_OF_DAY));
 
+        createPartitions();
         log.info("Setting audit cleanup manager to run at '{}'", cronExpression);
         Injector.get(SchedulerUtilQuartzImpl.class).scheduleACronJob(this, "onTimer", new Class[] {}, new Object[] {},
                 cronExpression);
@@ -45,11 +50,41 @@ public class AuditLogCleanupManager {
             DateTime latestTimeToKeep = DateTime.getNow().addDays(
                     Config.<Integer>getValue(ConfigValues.AuditLogAgingThreshold)
                             * -1);
-            DbFacade.getInstance().getAuditLogDao().removeAllBeforeDate(latestTimeToKeep);
+            AuditLogDao auditLogDao = DbFacade.getInstance().getAuditLogDao();
+            boolean partitioned = isPartitioned();
+            if (!partitioned) {
+                auditLogDao.removeAllBeforeDate(latestTimeToKeep);
+            }
+            // Drops the expired partitions, including the ones left from before partitioning was disabled
+            if (partitioned || auditLogDao.hasPartitions()) {
+                auditLogDao.removePartitionsBeforeDate(latestTimeToKeep);
+            }
             log.info("Finished deleteAgedOutAuditLogs");
         } catch (RuntimeException e) {
             log.error("deleteAgedOutAuditLog failed with exception", e);
         }
+        createPartitions();
+    }
+
+    private static boolean isPartitioned() {
+        return !NO_PARTITIONS.equals(Config.<String> getValue(ConfigValues.AuditLogPartitionInterval));
+    }
+
+    /**
+     * Creates the partitions of the next few intervals, so the events are never logged before their partition exists
+     * even if the cleanup doesn't run for a while.
+     */
+    private void createPartitions() {
+        if (!isPartitioned()) {
+            return;
+        }
+        String interval = Config.<String> getValue(ConfigValues.AuditLogPartitionInterval);
+        int daysAhead = PARTITIONS_AHEAD * ("week".equals(interval) ? 7 : 1);
+        try {
+            DbFacade.getInstance().getAuditLogDao().createPartitions(interval, DateTime.getNow().addDays(daysAhead));
+        } catch (RuntimeException e) {
+            log.error("Failed to create the audit log partitions", e);
+        }
     }
 
 }
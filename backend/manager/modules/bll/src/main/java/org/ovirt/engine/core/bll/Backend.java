@@ -70,6 +70,7 @@ import org.ovirt.engine.core.common.utils.SimpleDependecyInjector;
 import org.ovirt.engine.core.common.utils.customprop.VmPropertiesUtils;
 import org.ovirt.engine.core.compat.DateTime;
 import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogWriter;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
 import org.ovirt.engine.core.dal.dbbroker.generic.DBConfigUtils;
 import org.ovirt.engine.core.dal.job.ExecutionMessageDirector;
@@ -211,6 +212,8 @@ public class Backend implements BackendInternal, BackendCommandObjectsHandler {
         loadService(CacheManager.class);
         // initialize configuration utils to use DB
         Config.setConfigUtils(new DBConfigUtils());
+        // write the audit log on its own thread, now that its configuration can be read
+        loadService(AuditLogWriter.class);
         // we need to initialize os-info before the compensations take place because of VmPoolCommandBase#osRepository
         initOsRepository();
 
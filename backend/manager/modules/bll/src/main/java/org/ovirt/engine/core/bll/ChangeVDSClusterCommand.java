@@ -284,6 +284,7 @@ public class ChangeVDSClusterCommand<T extends ChangeVDSClusterParameters> exten
                 getCompensationContext().snapshotEntity(staticData);
                 staticData.setVdsGroupId(targetClusterId);
                 DbFacade.getInstance().getVdsStaticDao().update(staticData);
+                getPermissionCache().invalidateHierarchy();
                 getCompensationContext().stateChanged();
                 // remove the server from resource manager and add it back
                 initializeVds();
@@ -97,6 +97,7 @@ public class ChangeVMClusterCommand<T extends ChangeVMClusterParameters> extends
         cpuProfileHelper.assignFirstCpuProfile(vm.getStaticData(), getUserId());
 
         getVmStaticDao().update(vm.getStaticData());
+        getPermissionCache().invalidateHierarchy();
 
         // change vm cluster should remove the vm from all associated affinity groups
         List<AffinityGroup> allAffinityGroupsByVmId =
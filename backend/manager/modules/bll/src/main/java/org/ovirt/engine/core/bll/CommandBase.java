@@ -132,6 +132,8 @@ public abstract class CommandBase<T extends VdcActionParametersBase>
 
     @Inject
     private QuotaManager quotaManager;
+    @Inject
+    private PermissionCache permissionCache;
     /** Indicates whether the acquired locks should be released after the execute method or not */
     private boolean releaseLocksAtEndOfExecute = true;
     /** Object which is representing a lock that some commands will acquire */
@@ -328,7 +330,7 @@ public abstract class CommandBase<T extends VdcActionParametersBase>
         defaultContext.setCommandType(getClass().getName());
         defaultContext.setBusinessEntitySnapshotDao(getBusinessEntitySnapshotDao());
         defaultContext.setSnapshotSerializer(
-                SerializationFactory.getSerializer());
+                SerializationFactory.getCompactSerializer());
         return defaultContext;
     }
 
@@ -529,7 +531,7 @@ public abstract class CommandBase<T extends VdcActionParametersBase>
             @Override
             public Object runInTransaction() {
                 Deserializer deserializer =
-                        SerializationFactory.getDeserializer();
+                        SerializationFactory.getCompactDeserializer();
                 List<BusinessEntitySnapshot> entitySnapshots =
                         getBusinessEntitySnapshotDao().getAllForCommandId(commandId);
                 log.debug("Command [id={}]: {} compensation data.", commandId,
@@ -1012,9 +1014,19 @@ public abstract class CommandBase<T extends VdcActionParametersBase>
             final ActionGroup actionGroup,
             final Guid object,
             final VdcObjectType type) {
-        // Grant if there is matching permission in the database:
-        final Guid permId =
-                getDbFacade().getPermissionDao().getEntityPermissions(userId, actionGroup, object, type);
+        // Grant if there is matching permission in the cache or in the database:
+        Guid permId = null;
+        if (getCurrentUser() != null && userId.equals(getCurrentUser().getId())) {
+            permId = getPermissionCache().getPermission(userId,
+                    getCurrentUser().getGroupIds(),
+                    actionGroup,
+                    object,
+                    type,
+                    false);
+        }
+        if (permId == null) {
+            permId = getDbFacade().getPermissionDao().getEntityPermissions(userId, actionGroup, object, type);
+        }
         if (permId != null) {
             if (log.isDebugEnabled()) {
                 log.debug("Found permission '{}' for user when running '{}', on '{}' with id '{}'",
@@ -1069,8 +1081,11 @@ public abstract class CommandBase<T extends VdcActionParametersBase>
                     object,
                     type.name());
         }
-        final Guid permId =
-                getPermissionDao().getEntityPermissionsForUserAndGroups(userId, StringUtils.join(groupIds, ","), actionGroup, object, type, ignoreEveryone);
+        Guid permId =
+                getPermissionCache().getPermission(userId, groupIds, actionGroup, object, type, ignoreEveryone);
+        if (permId == null) {
+            permId = getPermissionDao().getEntityPermissionsForUserAndGroups(userId, StringUtils.join(groupIds, ","), actionGroup, object, type, ignoreEveryone);
+        }
         if (permId != null) {
             if (log.isDebugEnabled()) {
                 log.debug("Found permission '{}' for user when running '{}', on '{}' with id '{}'",
@@ -2265,6 +2280,10 @@ public abstract class CommandBase<T extends VdcActionParametersBase>
         return quotaManager;
     }
 
+    protected PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
     protected List<SPMAsyncTaskHandler> getTaskHandlers() {
         return taskHandlers;
     }
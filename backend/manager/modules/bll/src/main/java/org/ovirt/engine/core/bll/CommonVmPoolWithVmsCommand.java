@@ -3,6 +3,7 @@ package org.ovirt.engine.core.bll;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,9 +38,11 @@ import org.ovirt.engine.core.common.businessentities.VmPool;
 import org.ovirt.engine.core.common.businessentities.VmRngDevice;
 import org.ovirt.engine.core.common.businessentities.VmStatic;
 import org.ovirt.engine.core.common.businessentities.VmTemplate;
+import org.ovirt.engine.core.common.businessentities.network.VmNic;
 import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
 import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.common.errors.EngineException;
 import org.ovirt.engine.core.common.errors.EngineMessage;
 import org.ovirt.engine.core.common.job.Step;
 import org.ovirt.engine.core.common.job.StepEnum;
@@ -166,33 +169,100 @@ public abstract class CommonVmPoolWithVmsCommand<T extends AddVmPoolWithVmsParam
         int subsequentFailedAttempts = 0;
         int vmPoolMaxSubsequentFailures = Config.<Integer> getValue(ConfigValues.VmPoolMaxSubsequentFailures);
 
-        for (int i=0; i<getParameters().getVmsCount(); i++) {
-            String currentVmName = generateUniqueVmName();
-            VdcReturnValueBase returnValue =
-                    runInternalAction(VdcActionType.AddVmAndAttachToPool,
-                            buildAddVmAndAttachToPoolParameters(poolId, currentVmName),
-                            createAddVmStepContext(currentVmName));
-
-            if (returnValue != null && !returnValue.getSucceeded() && !returnValue.getCanDoActionMessages().isEmpty()) {
-                for (String msg : returnValue.getCanDoActionMessages()) {
-                    if (!getReturnValue().getCanDoActionMessages().contains(msg)) {
-                        getReturnValue().getCanDoActionMessages().add(msg);
+        int nicsPerVm = getVmNicDao().getAllForTemplate(getVmTemplateId()).size();
+        LinkedList<String> macAddresses = allocateMacAddresses(getParameters().getVmsCount() * nicsPerVm);
+
+        try {
+            for (int i=0; i<getParameters().getVmsCount(); i++) {
+                String currentVmName = generateUniqueVmName();
+                AddVmAndAttachToPoolParameters parameters = buildAddVmAndAttachToPoolParameters(poolId, currentVmName);
+                if (!macAddresses.isEmpty()) {
+                    parameters.setMacAddresses(takeMacAddresses(macAddresses, nicsPerVm));
+                }
+                VdcReturnValueBase returnValue =
+                        runInternalAction(VdcActionType.AddVmAndAttachToPool,
+                                parameters,
+                                createAddVmStepContext(currentVmName));
+
+                if (returnValue == null || !returnValue.getSucceeded()) {
+                    freeUnusedMacAddresses(parameters);
+                }
+
+                if (returnValue != null && !returnValue.getSucceeded()
+                        && !returnValue.getCanDoActionMessages().isEmpty()) {
+                    for (String msg : returnValue.getCanDoActionMessages()) {
+                        if (!getReturnValue().getCanDoActionMessages().contains(msg)) {
+                            getReturnValue().getCanDoActionMessages().add(msg);
+                        }
                     }
+                    addVmsSucceeded = false;
+                    subsequentFailedAttempts++;
+                }
+                else { // Succeed on that , reset subsequentFailedAttempts.
+                    subsequentFailedAttempts = 0;
+                    vmsAdded = true;
+                }
+                // if subsequent attempts failure exceeds configuration value , abort the loop.
+                if (subsequentFailedAttempts == vmPoolMaxSubsequentFailures) {
+                    AuditLogableBase logable = new AuditLogableBase();
+                    auditLogDirector.log(logable, AuditLogType.USER_VM_POOL_MAX_SUBSEQUENT_FAILURES_REACHED);
+                    break;
                 }
-                addVmsSucceeded = false;
-                subsequentFailedAttempts++;
             }
-            else { // Succeed on that , reset subsequentFailedAttempts.
-                subsequentFailedAttempts = 0;
-                vmsAdded = true;
+        } finally {
+            // the MACs of the VMs which weren't added, whether the loop was aborted or failed
+            if (!macAddresses.isEmpty()) {
+                getMacPool().freeMacs(macAddresses);
             }
-            // if subsequent attempts failure exceeds configuration value , abort the loop.
-            if (subsequentFailedAttempts == vmPoolMaxSubsequentFailures) {
-                AuditLogableBase logable = new AuditLogableBase();
-                auditLogDirector.log(logable, AuditLogType.USER_VM_POOL_MAX_SUBSEQUENT_FAILURES_REACHED);
-                break;
+        }
+    }
+
+    /**
+     * Allocates the MACs of all the VMs of the pool at once, rather than one VM after the other.
+     *
+     * @return the allocated MACs, or an empty list if there are not enough of them for all the VMs, in which case each
+     * VM allocates its own MACs when it is added, as many VMs as the remaining MACs allow
+     */
+    private LinkedList<String> allocateMacAddresses(int numberOfMacs) {
+        if (numberOfMacs == 0) {
+            return new LinkedList<>();
+        }
+
+        try {
+            return new LinkedList<>(getMacPool().allocateMacAddresses(numberOfMacs));
+        } catch (EngineException e) {
+            log.warn("Failed to allocate {} MACs for the VMs of pool '{}': {}",
+                    numberOfMacs, getParameters().getVmPool().getName(), e.getMessage());
+            return new LinkedList<>();
+        }
+    }
+
+    private ArrayList<String> takeMacAddresses(LinkedList<String> macAddresses, int numberOfMacs) {
+        ArrayList<String> result = new ArrayList<>(numberOfMacs);
+        for (int i = 0; i < numberOfMacs; i++) {
+            result.add(macAddresses.removeFirst());
+        }
+        return result;
+    }
+
+    /**
+     * Returns to the pool the MACs allocated in advance for a VM which failed to be added, unless they were already
+     * given to its interfaces.
+     */
+    private void freeUnusedMacAddresses(AddVmAndAttachToPoolParameters parameters) {
+        List<String> macAddresses = parameters.getMacAddresses();
+        if (macAddresses == null || macAddresses.isEmpty()) {
+            return;
+        }
+
+        List<String> unusedMacAddresses = new ArrayList<>(macAddresses);
+        Guid vmId = parameters.getVmStaticData().getId();
+        if (vmId != null && !Guid.Empty.equals(vmId)) {
+            for (VmNic nic : getVmNicDao().getAllForVm(vmId)) {
+                unusedMacAddresses.remove(nic.getMacAddress());
             }
         }
+        getMacPool().freeMacs(unusedMacAddresses);
     }
 
     protected void onNoVmsAdded(Guid poolId) {
@@ -51,6 +51,7 @@ public class DetachActionGroupsFromRoleCommand<T extends ActionGroupsToRoleParam
             getRoleGroupMapDao().remove(group, getParameters().getRoleId());
             appendCustomValue("ActionGroup", group.toString(), ", ");
         }
+        getPermissionCache().invalidatePermissions();
 
         // If the role didn't allow viewing children in the first place, removing action groups won't change that
         Role role = getRole();
@@ -44,6 +44,7 @@ public class DetachUserFromVmFromPoolCommand<T extends DetachUserFromVmFromPoolP
                         getAdUserId(), getParameters().getVmId());
         if (perm != null) {
             DbFacade.getInstance().getPermissionDao().remove(perm.getId());
+            getPermissionCache().invalidatePermissions();
             if (getParameters().getIsRestoreStateless()) {
                 VM vm = DbFacade.getInstance().getVmDao().get(getParameters().getVmId());
                 if (vm != null) {
@@ -0,0 +1,20 @@
+package org.ovirt.engine.core.bll;
+
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+
+/**
+ * Returns the disks of each of the given VMs, mapped by VM id. Unlike {@link GetAllDisksByVmIdQuery}, the snapshots of
+ * the image disks are not loaded, since that would cost another query per disk.
+ */
+public class GetAllDisksByVmIdsQuery<P extends IdsQueryParameters> extends QueriesCommandBase<P> {
+
+    public GetAllDisksByVmIdsQuery(P parameters) {
+        super(parameters);
+    }
+
+    @Override
+    protected void executeQueryCommand() {
+        getQueryReturnValue().setReturnValue(getDbFacade().getDiskDao()
+                .getAllForVms(getParameters().getIds(), getUserID(), getParameters().isFiltered()));
+    }
+}
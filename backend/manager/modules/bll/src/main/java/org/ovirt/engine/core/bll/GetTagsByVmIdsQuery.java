@@ -0,0 +1,14 @@
+package org.ovirt.engine.core.bll;
+
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+
+public class GetTagsByVmIdsQuery<P extends IdsQueryParameters> extends QueriesCommandBase<P> {
+    public GetTagsByVmIdsQuery(P parameters) {
+        super(parameters);
+    }
+
+    @Override
+    protected void executeQueryCommand() {
+        getQueryReturnValue().setReturnValue(getDbFacade().getTagDao().getAllForVms(getParameters().getIds()));
+    }
+}
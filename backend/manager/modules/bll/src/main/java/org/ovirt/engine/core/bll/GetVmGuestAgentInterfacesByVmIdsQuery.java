@@ -0,0 +1,17 @@
+package org.ovirt.engine.core.bll;
+
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+
+public class GetVmGuestAgentInterfacesByVmIdsQuery<P extends IdsQueryParameters>
+        extends QueriesCommandBase<P> {
+
+    public GetVmGuestAgentInterfacesByVmIdsQuery(P parameters) {
+        super(parameters);
+    }
+
+    @Override
+    protected void executeQueryCommand() {
+        getQueryReturnValue().setReturnValue(getDbFacade().getVmGuestAgentInterfaceDao()
+                .getAllForVms(getParameters().getIds(), getUserID(), getParameters().isFiltered()));
+    }
+}
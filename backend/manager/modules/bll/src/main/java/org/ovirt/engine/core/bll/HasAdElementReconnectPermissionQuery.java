@@ -1,5 +1,9 @@
 package org.ovirt.engine.core.bll;
 
+import java.util.Collections;
+
+import javax.inject.Inject;
+
 import org.ovirt.engine.core.common.VdcObjectType;
 import org.ovirt.engine.core.common.businessentities.ActionGroup;
 import org.ovirt.engine.core.common.queries.HasAdElementReconnectPermissionParameters;
@@ -8,16 +12,27 @@ import org.ovirt.engine.core.compat.Guid;
 public class HasAdElementReconnectPermissionQuery<P extends HasAdElementReconnectPermissionParameters>
     extends QueriesCommandBase<P> {
 
+    @Inject
+    private PermissionCache permissionCache;
+
     public HasAdElementReconnectPermissionQuery(P parameters) {
         super(parameters);
     }
 
     @Override
     protected void executeQueryCommand() {
-        Guid perm = getDbFacade().getPermissionDao().getEntityPermissions(getParameters().getAdElementId(),
+        Guid perm = permissionCache.getPermission(getParameters().getAdElementId(),
+                Collections.<Guid> emptyList(),
                 ActionGroup.RECONNECT_TO_VM,
                 getParameters().getObjectId(),
-                VdcObjectType.VM);
+                VdcObjectType.VM,
+                false);
+        if (perm == null) {
+            perm = getDbFacade().getPermissionDao().getEntityPermissions(getParameters().getAdElementId(),
+                    ActionGroup.RECONNECT_TO_VM,
+                    getParameters().getObjectId(),
+                    VdcObjectType.VM);
+        }
 
         getQueryReturnValue().setReturnValue(perm != null);
     }
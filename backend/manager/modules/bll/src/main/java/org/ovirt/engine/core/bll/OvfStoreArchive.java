@@ -0,0 +1,264 @@
+package org.ovirt.engine.core.bll;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.ovirt.engine.core.common.businessentities.OvfEntityData;
+import org.ovirt.engine.core.common.constants.StorageConstants;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.VmAndTemplatesGenerationsDao;
+import org.ovirt.engine.core.utils.archivers.tar.StreamingTar;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
+
+/**
+ * The content of the OVF stores of a storage domain: a tar archive of the info file, of the OVFs of the VMs and
+ * templates of the domain and of its unregistered OVFs.
+ * <p>
+ * The archive isn't built in memory: each stream returned by {@link #open()} is fed through a bounded pipe by a writer
+ * thread, which loads the OVFs from the database batch by batch and encodes them straight into the tar. Only the sizes
+ * of the OVFs are loaded up front, so the size of the archive is known before its content, as the upload needs it.
+ * If an OVF is changed or removed after its size was loaded the stream fails rather than returning an archive of a
+ * different size, and the OVF store is updated again on the next OVF update. When there is no thread for the writer,
+ * the archive is written in memory instead.
+ * <p>
+ * The {@link #getContentHash() content hash} identifies the OVFs of the archive by their generation, as the OVF of a VM
+ * or template is only replaced together with its generation, so an OVF store holding an archive of the same hash
+ * doesn't have to be written again.
+ */
+public class OvfStoreArchive {
+    static final int PIPE_SIZE = 64 * 1024;
+
+    private static final String INFO_FILE_NAME = "info.json";
+    private static final String OVF_FILE_SUFFIX = ".ovf";
+
+    private final VmAndTemplatesGenerationsDao vmAndTemplatesGenerationsDao;
+    private final String infoFileData;
+    private final List<Guid> ovfIds = new ArrayList<>();
+    private final Map<Guid, Long> ovfSizes = new HashMap<>();
+    private final Map<Guid, Long> ovfGenerations = new HashMap<>();
+    private final List<Pair<Guid, String>> unregisteredOvfs = new ArrayList<>();
+    private final long size;
+
+    public OvfStoreArchive(VmAndTemplatesGenerationsDao vmAndTemplatesGenerationsDao,
+            String infoFileData,
+            List<Guid> vmAndTemplatesIds,
+            List<OvfEntityData> unregisteredOvfData) {
+        this.vmAndTemplatesGenerationsDao = vmAndTemplatesGenerationsDao;
+        this.infoFileData = infoFileData;
+
+        long entriesSize = StreamingTar.entrySize(StreamingTar.utf8Length(infoFileData));
+        for (List<Guid> ids : batches(new ArrayList<>(new LinkedHashSet<>(vmAndTemplatesIds)))) {
+            for (Pair<Guid, Long> ovfSize : vmAndTemplatesGenerationsDao.loadOvfSizesForIds(ids)) {
+                ovfIds.add(ovfSize.getFirst());
+                ovfSizes.put(ovfSize.getFirst(), ovfSize.getSecond());
+                entriesSize += StreamingTar.entrySize(ovfSize.getSecond());
+            }
+            for (Pair<Guid, Long> ovfGeneration : vmAndTemplatesGenerationsDao.loadOvfGenerationsForIds(ids)) {
+                ovfGenerations.put(ovfGeneration.getFirst(), ovfGeneration.getSecond());
+            }
+        }
+
+        // The unregistered OVFs are few and already loaded, they are kept as they are
+        for (OvfEntityData ovfEntityData : unregisteredOvfData) {
+            if (!ovfSizes.containsKey(ovfEntityData.getEntityId()) && ovfEntityData.getOvfData() != null) {
+                unregisteredOvfs.add(new Pair<>(ovfEntityData.getEntityId(), ovfEntityData.getOvfData()));
+                entriesSize += StreamingTar.entrySize(StreamingTar.utf8Length(ovfEntityData.getOvfData()));
+            }
+        }
+
+        size = StreamingTar.archiveSize(entriesSize);
+    }
+
+    /**
+     * @return the size in bytes of the archive
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * The hash of the OVFs of the archive: of the id, generation and size of the OVFs of the VMs and templates, and of
+     * the id and content of the unregistered OVFs. The info file isn't part of it, as it holds the time the archive
+     * was built.
+     *
+     * @return the content hash of the archive, as a hex string
+     */
+    public String getContentHash() {
+        List<Guid> sortedIds = new ArrayList<>(ovfIds);
+        Collections.sort(sortedIds);
+        StringBuilder content = new StringBuilder();
+        for (Guid id : sortedIds) {
+            content.append(id).append(':').append(ovfGenerations.get(id)).append(':').append(ovfSizes.get(id))
+                    .append('\n');
+        }
+        for (Pair<Guid, String> ovf : unregisteredOvfs) {
+            content.append(ovf.getFirst()).append(':').append(ovf.getSecond()).append('\n');
+        }
+        return DigestUtils.sha1Hex(content.toString());
+    }
+
+    /**
+     * Starts writing the archive. The returned stream must be closed, closing it before it was read to its end stops
+     * the writing.
+     *
+     * @return a stream of the {@link #getSize()} bytes of the archive
+     */
+    public InputStream open() throws IOException {
+        PipedInputStream input = new PipedInputStream(PIPE_SIZE);
+        ArchiveInputStream archiveInputStream = new ArchiveInputStream(input, new PipedOutputStream(input));
+        try {
+            startWriter(archiveInputStream.writer);
+        } catch (RejectedExecutionException e) {
+            input.close();
+            return openBuffered();
+        }
+        return archiveInputStream;
+    }
+
+    /**
+     * The writer runs on the storage IO pool: the threads of the commands pool may all be taken by commands waiting
+     * for the writers of their uploads.
+     */
+    protected void startWriter(FutureTask<Void> writer) {
+        ThreadPoolUtil.execute(ThreadPoolType.STORAGE_IO, writer);
+    }
+
+    private InputStream openBuffered() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StreamingTar tar = new StreamingTar(output);
+        write(tar);
+        tar.close();
+        if (output.size() != size) {
+            throw new IOException(String.format("The OVF store was written in %d of %d bytes", output.size(), size));
+        }
+        return new ByteArrayInputStream(output.toByteArray());
+    }
+
+    private void write(StreamingTar tar) throws IOException {
+        tar.addTarEntry(infoFileData, INFO_FILE_NAME);
+
+        int writtenOvfs = 0;
+        for (List<Guid> ids : batches(ovfIds)) {
+            for (Pair<Guid, String> ovf : vmAndTemplatesGenerationsDao.loadOvfDataForIds(ids)) {
+                if (ovf.getSecond() == null) {
+                    continue;
+                }
+                Long expectedSize = ovfSizes.get(ovf.getFirst());
+                if (expectedSize == null || expectedSize != StreamingTar.utf8Length(ovf.getSecond())) {
+                    throw new IOException(String.format("The OVF of '%s' changed while the OVF store was written",
+                            ovf.getFirst()));
+                }
+                tar.addTarEntry(ovf.getSecond(), ovf.getFirst() + OVF_FILE_SUFFIX);
+                writtenOvfs++;
+            }
+        }
+        if (writtenOvfs != ovfIds.size()) {
+            throw new IOException(String.format("%d OVFs were removed while the OVF store was written",
+                    ovfIds.size() - writtenOvfs));
+        }
+
+        for (Pair<Guid, String> ovf : unregisteredOvfs) {
+            tar.addTarEntry(ovf.getSecond(), ovf.getFirst() + OVF_FILE_SUFFIX);
+        }
+    }
+
+    private static List<List<Guid>> batches(List<Guid> ids) {
+        List<List<Guid>> batches = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += StorageConstants.OVF_MAX_ITEMS_PER_SQL_STATEMENT) {
+            batches.add(ids.subList(i, Math.min(i + StorageConstants.OVF_MAX_ITEMS_PER_SQL_STATEMENT, ids.size())));
+        }
+        return batches;
+    }
+
+    /**
+     * The read end of the pipe the archive is written into. A failure of the writer is thrown by the read which
+     * reaches the end of the pipe, so the reader never takes a truncated archive for a complete one.
+     */
+    private class ArchiveInputStream extends FilterInputStream {
+        private final PipedOutputStream output;
+        private final FutureTask<Void> writer;
+        private volatile Exception failure;
+        private long readBytes;
+
+        public ArchiveInputStream(PipedInputStream input, PipedOutputStream output) {
+            super(input);
+            this.output = output;
+            writer = new FutureTask<>(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    writeArchive();
+                    return null;
+                }
+            });
+        }
+
+        private void writeArchive() throws IOException {
+            try {
+                StreamingTar tar = new StreamingTar(output);
+                write(tar);
+                tar.close();
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                // Closing the pipe ends the stream, the reader checks whether it ended early
+                output.close();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            count(b == -1 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return count(super.read(b, off, len));
+        }
+
+        private int count(int bytes) throws IOException {
+            if (bytes != -1) {
+                readBytes += bytes;
+            } else if (failure != null) {
+                throw new IOException("Failed to write the OVF store", failure);
+            } else if (readBytes != size) {
+                throw new IOException(String.format("The OVF store ended after %d of %d bytes", readBytes, size));
+            }
+            return bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Closing the read end fails a writer which is still writing, waiting for it leaves no thread behind
+            super.close();
+            try {
+                writer.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the OVF store writer");
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to write the OVF store", e.getCause());
+            }
+        }
+    }
+}
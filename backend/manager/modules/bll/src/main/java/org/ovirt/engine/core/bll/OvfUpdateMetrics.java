@@ -0,0 +1,172 @@
+package org.ovirt.engine.core.bll;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.ovirt.engine.core.common.BackendService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the duration of the stages of the OVF update: finding the VMs and templates which changed since their OVF
+ * was generated, generating their OVFs, and rewriting the OVF stores of the storage domains.
+ */
+@Singleton
+public class OvfUpdateMetrics implements BackendService, OvfUpdateMonitorMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OvfUpdateMetrics.class);
+
+    private final Stage changeFeed = new Stage();
+    private final Stage regeneration = new Stage();
+    private final Stage storeWrite = new Stage();
+    private final AtomicLong skippedStoreWrites = new AtomicLong();
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
+    @PostConstruct
+    public void init() {
+        try {
+            objectName = new ObjectName("OvfUpdateMetrics:type=" + this.getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Failed to register the OVF update monitoring in JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregisterFromJMX() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            platformMBeanServer.unregisterMBean(objectName);
+        } catch (Exception e) {
+            log.warn("Failed to unregister the OVF update monitoring from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    /**
+     * Records the loading of the ids of the VMs and templates whose OVF has to be generated.
+     */
+    public void changeFeedLoaded(long nanos, int changedIds) {
+        changeFeed.record(nanos, changedIds);
+    }
+
+    /**
+     * Records the generation of a batch of OVFs.
+     */
+    public void ovfsRegenerated(long nanos, int ovfs) {
+        regeneration.record(nanos, ovfs);
+    }
+
+    /**
+     * Records the upload of the content of an OVF store.
+     */
+    public void storeWritten(long nanos) {
+        storeWrite.record(nanos, 1);
+    }
+
+    /**
+     * Records an OVF store which wasn't written because its content didn't change.
+     */
+    public void storeWriteSkipped() {
+        skippedStoreWrites.incrementAndGet();
+    }
+
+    @Override
+    public long getChangedItems() {
+        return changeFeed.items.get();
+    }
+
+    @Override
+    public double getAverageChangeFeedTimeMillis() {
+        return changeFeed.getAverageMillis();
+    }
+
+    @Override
+    public long getRegeneratedOvfs() {
+        return regeneration.items.get();
+    }
+
+    @Override
+    public double getAverageRegenerationTimeMillis() {
+        return regeneration.getAverageMillis();
+    }
+
+    @Override
+    public long getMaxRegenerationTimeMillis() {
+        return regeneration.getMaxMillis();
+    }
+
+    @Override
+    public long getStoreWrites() {
+        return storeWrite.items.get();
+    }
+
+    @Override
+    public long getSkippedStoreWrites() {
+        return skippedStoreWrites.get();
+    }
+
+    @Override
+    public double getAverageStoreWriteTimeMillis() {
+        return storeWrite.getAverageMillis();
+    }
+
+    @Override
+    public long getMaxStoreWriteTimeMillis() {
+        return storeWrite.getMaxMillis();
+    }
+
+    @Override
+    public void reset() {
+        changeFeed.reset();
+        regeneration.reset();
+        storeWrite.reset();
+        skippedStoreWrites.set(0);
+    }
+
+    private static class Stage {
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, int count) {
+            runs.incrementAndGet();
+            items.addAndGet(count);
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        double getAverageMillis() {
+            long count = runs.get();
+            return count == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(totalNanos.get()) / count / 1000;
+        }
+
+        long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        void reset() {
+            runs.set(0);
+            items.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+    }
+}
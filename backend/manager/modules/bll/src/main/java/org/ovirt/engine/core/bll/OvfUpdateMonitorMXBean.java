@@ -0,0 +1,57 @@
+package org.ovirt.engine.core.bll;
+
+/**
+ * The following interface is used as interface for JMX bean
+ */
+public interface OvfUpdateMonitorMXBean {
+
+    /**
+     * @return the number of VMs and templates found changed since their OVF was generated
+     */
+    long getChangedItems();
+
+    /**
+     * @return the average time it took to find the changed VMs and templates of a data center, in milliseconds
+     */
+    double getAverageChangeFeedTimeMillis();
+
+    /**
+     * @return the number of OVFs generated
+     */
+    long getRegeneratedOvfs();
+
+    /**
+     * @return the average time it took to generate a batch of OVFs, in milliseconds
+     */
+    double getAverageRegenerationTimeMillis();
+
+    /**
+     * @return the longest time it took to generate a batch of OVFs, in milliseconds
+     */
+    long getMaxRegenerationTimeMillis();
+
+    /**
+     * @return the number of OVF stores written
+     */
+    long getStoreWrites();
+
+    /**
+     * @return the number of OVF stores not written because their content didn't change
+     */
+    long getSkippedStoreWrites();
+
+    /**
+     * @return the average time it took to write an OVF store, in milliseconds
+     */
+    double getAverageStoreWriteTimeMillis();
+
+    /**
+     * @return the longest time it took to write an OVF store, in milliseconds
+     */
+    long getMaxStoreWriteTimeMillis();
+
+    /**
+     * The following method will allow to reset the counters via JMX console
+     */
+    void reset();
+}
@@ -0,0 +1,336 @@
+package org.ovirt.engine.core.bll;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang.StringUtils;
+import org.ovirt.engine.core.common.BackendService;
+import org.ovirt.engine.core.common.VdcObjectType;
+import org.ovirt.engine.core.common.businessentities.ActionGroup;
+import org.ovirt.engine.core.common.businessentities.Permission;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dal.dbbroker.DbFacade;
+import org.ovirt.engine.core.dao.PermissionDao;
+import org.ovirt.engine.core.utils.transaction.TransactionCompletionListener;
+import org.ovirt.engine.core.utils.transaction.TransactionSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Evaluates permissions in memory. For every user, set of groups and action group it keeps the objects on which the
+ * action group is granted, and for every object it keeps the objects whose permissions apply to it: the object itself
+ * and its parents up to the system root. Once both are loaded, a check is a lookup of the parents in the granted
+ * objects, without a database round trip.
+ * <p>
+ * The cache only grants permissions. When it doesn't find one, the caller checks the database, so a permission added
+ * after the cache was loaded is never missed. Commands that remove permissions, remove action groups from roles or
+ * move objects in the hierarchy invalidate the cache, so a permission that was taken away is never granted. The cache
+ * is invalidated again when the transaction of the change completes, as until it commits a concurrent load still reads
+ * the old permissions and would keep them after the first invalidation. Only the objects whose place in the hierarchy
+ * is changed by such commands are cached: VMs, hosts, VM pools, clusters, data centers and the system.
+ */
+@Singleton
+public class PermissionCache implements BackendService, PermissionCacheMonitorMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PermissionCache.class);
+
+    private static final Set<VdcObjectType> HIERARCHY_TYPES = EnumSet.of(VdcObjectType.System,
+            VdcObjectType.StoragePool,
+            VdcObjectType.VdsGroups,
+            VdcObjectType.VDS,
+            VdcObjectType.VM,
+            VdcObjectType.VmPool);
+
+    /** The number of objects, and of users, group sets and action groups, above which the cache is emptied **/
+    private static final int MAX_ENTRIES = 100000;
+
+    private final ConcurrentMap<GrantKey, Map<Guid, Guid>> grantedObjects = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Pair<Guid, VdcObjectType>, List<Guid>> parents = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented by every invalidation, so that the results of a load which overlapped an invalidation aren't kept
+     */
+    private final AtomicLong permissionsGeneration = new AtomicLong();
+    private final AtomicLong hierarchyGeneration = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
+    @PostConstruct
+    public void registerInJMX() {
+        try {
+            objectName = new ObjectName("PermissionCache:type=" + this.getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Failed to register the permission cache monitoring in JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregisterFromJMX() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            platformMBeanServer.unregisterMBean(objectName);
+        } catch (Exception e) {
+            log.warn("Failed to unregister the permission cache monitoring from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    /**
+     * This method is protected for testing use only
+     */
+    protected PermissionDao getPermissionDao() {
+        return DbFacade.getInstance().getPermissionDao();
+    }
+
+    /**
+     * Looks for a permission of the user, one of the given groups or, unless ignored, everyone, granting the action
+     * group on the object.
+     *
+     * @param userId
+     *            the user to check
+     * @param groupIds
+     *            the groups of the user
+     * @param actionGroup
+     *            the action group to check
+     * @param objectId
+     *            the object to check
+     * @param type
+     *            the type of the object to check
+     * @param ignoreEveryone
+     *            if true, the "everyone" will not be considered
+     * @return the id of the granting permission, or <code>null</code> if it isn't found in the cache, in which case the
+     *         caller has to check the database
+     */
+    public Guid getPermission(Guid userId,
+            Collection<Guid> groupIds,
+            ActionGroup actionGroup,
+            Guid objectId,
+            VdcObjectType type,
+            boolean ignoreEveryone) {
+        if (!HIERARCHY_TYPES.contains(type)) {
+            return null;
+        }
+
+        Map<Guid, Guid> granted = getGrantedObjects(new GrantKey(userId, groupIds, actionGroup, ignoreEveryone));
+        if (!granted.isEmpty()) {
+            for (Guid parentId : getParents(objectId, type)) {
+                Guid permissionId = granted.get(parentId);
+                if (permissionId != null) {
+                    hits.incrementAndGet();
+                    return permissionId;
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Drops the granted objects, to be called when permissions are removed or action groups are removed from roles.
+     * If called within a transaction they are dropped again once it completes.
+     */
+    public void invalidatePermissions() {
+        dropGrantedObjects();
+        registerCompletionListener(new TransactionCompletionListener() {
+            @Override
+            public void onSuccess() {
+                dropGrantedObjects();
+            }
+
+            @Override
+            public void onRollback() {
+                dropGrantedObjects();
+            }
+        });
+    }
+
+    /**
+     * Drops the parents of the objects, to be called when an object moves in the hierarchy. If called within a
+     * transaction they are dropped again once it completes.
+     */
+    public void invalidateHierarchy() {
+        dropParents();
+        registerCompletionListener(new TransactionCompletionListener() {
+            @Override
+            public void onSuccess() {
+                dropParents();
+            }
+
+            @Override
+            public void onRollback() {
+                dropParents();
+            }
+        });
+    }
+
+    /**
+     * This method is protected for testing use only
+     */
+    protected void registerCompletionListener(TransactionCompletionListener listener) {
+        if (TransactionSupport.current() != null) {
+            TransactionSupport.registerRollbackHandler(listener);
+        }
+    }
+
+    private void dropGrantedObjects() {
+        permissionsGeneration.incrementAndGet();
+        grantedObjects.clear();
+    }
+
+    private void dropParents() {
+        hierarchyGeneration.incrementAndGet();
+        parents.clear();
+    }
+
+    private Map<Guid, Guid> getGrantedObjects(GrantKey key) {
+        Map<Guid, Guid> granted = grantedObjects.get(key);
+        if (granted != null) {
+            return granted;
+        }
+
+        long generation = permissionsGeneration.get();
+        List<Permission> permissions = getPermissionDao().getAllGrantingActionGroupForUserAndGroups(key.userId,
+                StringUtils.join(key.groupIds, ","),
+                key.actionGroup,
+                key.ignoreEveryone);
+        granted = new HashMap<>();
+        for (Permission permission : permissions) {
+            if (!granted.containsKey(permission.getObjectId())) {
+                granted.put(permission.getObjectId(), permission.getId());
+            }
+        }
+
+        if (grantedObjects.size() >= MAX_ENTRIES) {
+            grantedObjects.clear();
+        }
+        grantedObjects.put(key, granted);
+        if (generation != permissionsGeneration.get()) {
+            // Invalidated while loading, the permissions may be stale:
+            grantedObjects.remove(key, granted);
+        }
+        return granted;
+    }
+
+    private List<Guid> getParents(Guid objectId, VdcObjectType type) {
+        Pair<Guid, VdcObjectType> key = new Pair<>(objectId, type);
+        List<Guid> objectParents = parents.get(key);
+        if (objectParents != null) {
+            return objectParents;
+        }
+
+        long generation = hierarchyGeneration.get();
+        objectParents = Collections.unmodifiableList(new ArrayList<>(getPermissionDao().getEntityParents(objectId,
+                type)));
+
+        if (parents.size() >= MAX_ENTRIES) {
+            parents.clear();
+        }
+        parents.put(key, objectParents);
+        if (generation != hierarchyGeneration.get()) {
+            // Invalidated while loading, the parents may be stale:
+            parents.remove(key, objectParents);
+        }
+        return objectParents;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        long currentHits = hits.get();
+        long total = currentHits + misses.get();
+        return total == 0 ? 0 : (double) currentHits / total;
+    }
+
+    @Override
+    public int getCachedGrants() {
+        return grantedObjects.size();
+    }
+
+    @Override
+    public int getCachedObjects() {
+        return parents.size();
+    }
+
+    @Override
+    public void clear() {
+        dropGrantedObjects();
+        dropParents();
+    }
+
+    private static class GrantKey {
+        private final Guid userId;
+        private final List<Guid> groupIds;
+        private final ActionGroup actionGroup;
+        private final boolean ignoreEveryone;
+
+        private GrantKey(Guid userId, Collection<Guid> groupIds, ActionGroup actionGroup, boolean ignoreEveryone) {
+            this.userId = userId;
+            this.groupIds = new ArrayList<>(groupIds);
+            // The same groups in a different order are the same key:
+            Collections.sort(this.groupIds);
+            this.actionGroup = actionGroup;
+            this.ignoreEveryone = ignoreEveryone;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + userId.hashCode();
+            result = prime * result + groupIds.hashCode();
+            result = prime * result + actionGroup.hashCode();
+            result = prime * result + (ignoreEveryone ? 1231 : 1237);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof GrantKey)) {
+                return false;
+            }
+            GrantKey other = (GrantKey) obj;
+            return userId.equals(other.userId)
+                    && groupIds.equals(other.groupIds)
+                    && actionGroup == other.actionGroup
+                    && ignoreEveryone == other.ignoreEveryone;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.ovirt.engine.core.bll;
+
+/**
+ * The following interface is used as interface for JMX bean
+ */
+public interface PermissionCacheMonitorMXBean {
+
+    /**
+     * @return the number of permission checks granted by the cache
+     */
+    long getHits();
+
+    /**
+     * @return the number of permission checks the cache couldn't grant, which were checked in the database
+     */
+    long getMisses();
+
+    /**
+     * @return the ratio of the permission checks granted by the cache
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of users, group sets and action groups whose granted objects are cached
+     */
+    int getCachedGrants();
+
+    /**
+     * @return the number of objects whose parents are cached
+     */
+    int getCachedObjects();
+
+    /**
+     * The following method will allow to clear the cache via JMX console
+     */
+    void clear();
+}
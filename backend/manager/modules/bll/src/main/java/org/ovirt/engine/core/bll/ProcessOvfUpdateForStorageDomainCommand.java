@@ -1,19 +1,18 @@
 package org.ovirt.engine.core.bll;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+
+import javax.inject.Inject;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
@@ -27,14 +26,12 @@ import org.ovirt.engine.core.common.action.LockProperties.Scope;
 import org.ovirt.engine.core.common.action.ProcessOvfUpdateForStorageDomainCommandParameters;
 import org.ovirt.engine.core.common.action.VdcActionType;
 import org.ovirt.engine.core.common.action.VdcReturnValueBase;
-import org.ovirt.engine.core.common.businessentities.OvfEntityData;
 import org.ovirt.engine.core.common.businessentities.StorageDomain;
 import org.ovirt.engine.core.common.businessentities.StorageDomainOvfInfo;
 import org.ovirt.engine.core.common.businessentities.StorageDomainOvfInfoStatus;
 import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
 import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
-import org.ovirt.engine.core.common.constants.StorageConstants;
 import org.ovirt.engine.core.common.errors.EngineException;
 import org.ovirt.engine.core.common.errors.EngineMessage;
 import org.ovirt.engine.core.common.locks.LockingGroup;
@@ -44,7 +41,6 @@ import org.ovirt.engine.core.common.vdscommands.VDSCommandType;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogableBase;
 import org.ovirt.engine.core.utils.JsonHelper;
-import org.ovirt.engine.core.utils.archivers.tar.InMemoryTar;
 import org.ovirt.engine.core.utils.ovf.OvfInfoFileConstants;
 
 @InternalCommandAttribute
@@ -57,6 +53,9 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
     private Date updateDate;
     private List<Guid> failedOvfDisks;
 
+    @Inject
+    private OvfUpdateMetrics ovfUpdateMetrics;
+
     public ProcessOvfUpdateForStorageDomainCommand(T parameters) {
         this(parameters, null);
     }
@@ -160,49 +159,16 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
         }
     }
 
-    private byte[] buildOvfInfoFileByteArray(List<Guid> vmAndTemplatesIds) {
-        ByteArrayOutputStream bufferedOutputStream = new ByteArrayOutputStream();
-        Set<Guid> processedIds = new HashSet<>();
-
-        try (InMemoryTar inMemoryTar = new InMemoryTar(bufferedOutputStream)) {
-            inMemoryTar.addTarEntry(generateInfoFileData().getBytes(),
-                    "info.json");
-            int i = 0;
-            while (i < vmAndTemplatesIds.size()) {
-                int size =
-                        Math.min(StorageConstants.OVF_MAX_ITEMS_PER_SQL_STATEMENT, vmAndTemplatesIds.size() - i);
-                List<Guid> idsToProcess = vmAndTemplatesIds.subList(i, i + size);
-                i += size;
-
-                List<Pair<Guid, String>> ovfs =
-                        getVmAndTemplatesGenerationsDao().loadOvfDataForIds(idsToProcess);
-                if (!ovfs.isEmpty()) {
-                    processedIds.addAll(buildFilesForOvfs(ovfs, inMemoryTar));
-                }
-            }
-
-            List<Pair<Guid, String>> unprocessedOvfData = retrieveUnprocessedUnregisteredOvfData(processedIds);
-            buildFilesForOvfs(unprocessedOvfData, inMemoryTar);
-        } catch (Exception e) {
-            throw new RuntimeException(String.format("Exception while building in memory tar of the OVFs of domain %s",
-                    getParameters().getStorageDomainId()), e);
-        }
-
-        return bufferedOutputStream.toByteArray();
+    protected OvfUpdateMetrics getOvfUpdateMetrics() {
+        return ovfUpdateMetrics;
     }
 
-    private List<Pair<Guid, String>> retrieveUnprocessedUnregisteredOvfData(Set<Guid> processedIds) {
-        List<OvfEntityData> ovfList = getUnregisteredOVFDataDao().getAllForStorageDomainByEntityType(
-                getParameters().getStorageDomainId(), null);
-        List<Pair<Guid, String>> ovfData = new LinkedList<>();
-        for (OvfEntityData ovfEntityData : ovfList) {
-            if (!processedIds.contains(ovfEntityData.getEntityId())) {
-                Pair<Guid, String> data = new Pair<>(ovfEntityData.getEntityId(), ovfEntityData.getOvfData());
-                ovfData.add(data);
-            }
-        }
-
-        return ovfData;
+    protected OvfStoreArchive buildOvfStoreArchive(List<Guid> vmAndTemplatesIds) {
+        return new OvfStoreArchive(getVmAndTemplatesGenerationsDao(),
+                generateInfoFileData(),
+                vmAndTemplatesIds,
+                getUnregisteredOVFDataDao().getAllForStorageDomainByEntityType(getParameters().getStorageDomainId(),
+                        null));
     }
 
     protected void updateOvfStoreContent() {
@@ -219,7 +185,7 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
 
         vmAndTemplatesIds.addAll(getVmStaticDao().getVmAndTemplatesIdsWithoutAttachedImageDisks(getParameters().getStoragePoolId(), false));
 
-        byte[] bytes = buildOvfInfoFileByteArray(vmAndTemplatesIds);
+        OvfStoreArchive archive = buildOvfStoreArchive(vmAndTemplatesIds);
 
         Pair<StorageDomainOvfInfo, DiskImage> lastOvfStoreForUpdate = domainOvfStoresInfoForUpdate.getLast();
 
@@ -238,7 +204,7 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
 
         for (Pair<StorageDomainOvfInfo, DiskImage> pair : domainOvfStoresInfoForUpdate) {
             shouldUpdateLastOvfStore |=
-                    performOvfUpdateForDomain(bytes,
+                    performOvfUpdateForDomain(archive,
                             pair.getFirst(),
                             pair.getSecond(),
                             vmAndTemplatesIds);
@@ -247,7 +213,7 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
         // if we successfully updated any ovf store, we can attempt to also update the one we kept for best effort
         // backup (if we did)
         if (shouldUpdateLastOvfStore && lastOvfStoreForUpdate != null) {
-            performOvfUpdateForDomain(bytes,
+            performOvfUpdateForDomain(archive,
                     lastOvfStoreForUpdate.getFirst(),
                     lastOvfStoreForUpdate.getSecond(),
                     vmAndTemplatesIds);
@@ -274,7 +240,7 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
         runVdsCommand(VDSCommandType.SetVolumeDescription, vdsCommandParameters);
     }
 
-    private boolean performOvfUpdateForDomain(byte[] ovfData,
+    private boolean performOvfUpdateForDomain(OvfStoreArchive archive,
             StorageDomainOvfInfo storageDomainOvfInfo,
             DiskImage ovfDisk,
             List<Guid> vmAndTemplatesIds) {
@@ -283,7 +249,19 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
         Guid diskId = ovfDisk.getId();
         Guid volumeId = ovfDisk.getImageId();
 
+        String contentHash = archive.getContentHash();
+        if (storageDomainOvfInfo.getLastUpdated() != null
+                && contentHash.equals(storageDomainOvfInfo.getContentHash())) {
+            // The OVF store already holds these OVFs, only its status has to be updated
+            storageDomainOvfInfo.setStatus(StorageDomainOvfInfoStatus.UPDATED);
+            storageDomainOvfInfo.setStoredOvfIds(vmAndTemplatesIds);
+            getStorageDomainOvfInfoDao().update(storageDomainOvfInfo);
+            getOvfUpdateMetrics().storeWriteSkipped();
+            return true;
+        }
+
         storageDomainOvfInfo.setStoredOvfIds(null);
+        storageDomainOvfInfo.setContentHash(null);
 
         try {
             setOvfVolumeDescription(storagePoolId,
@@ -294,29 +272,32 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
 
             getStorageDomainOvfInfoDao().update(storageDomainOvfInfo);
 
-            ByteArrayInputStream byteArrayInputStream =
-                    new ByteArrayInputStream(ovfData);
+            Long size = archive.getSize();
+            long start = System.nanoTime();
+            VdcReturnValueBase vdcReturnValueBase;
+            try (InputStream ovfData = archive.open()) {
+                UploadStreamParameters uploadStreamParameters =
+                        new UploadStreamParameters(storagePoolId, storageDomainId,
+                                diskId, volumeId, ovfData,
+                                size);
 
-            Long size = Long.valueOf(ovfData.length);
-            UploadStreamParameters uploadStreamParameters =
-                    new UploadStreamParameters(storagePoolId, storageDomainId,
-                            diskId, volumeId, byteArrayInputStream,
-                            size);
+                if (hasParentCommand()) {
+                    uploadStreamParameters.setParentCommand(getParameters().getParentCommand());
+                    uploadStreamParameters.setParentParameters(getParameters().getParentParameters());
+                } else {
+                    uploadStreamParameters.setParentCommand(getActionType());
+                    uploadStreamParameters.setParentParameters(getParameters());
+                }
 
-            if (hasParentCommand()) {
-                uploadStreamParameters.setParentCommand(getParameters().getParentCommand());
-                uploadStreamParameters.setParentParameters(getParameters().getParentParameters());
-            } else {
-                uploadStreamParameters.setParentCommand(getActionType());
-                uploadStreamParameters.setParentParameters(getParameters());
+                vdcReturnValueBase =
+                        runInternalActionWithTasksContext(VdcActionType.UploadStream, uploadStreamParameters);
             }
-
-            VdcReturnValueBase vdcReturnValueBase =
-                    runInternalActionWithTasksContext(VdcActionType.UploadStream, uploadStreamParameters);
             if (vdcReturnValueBase.getSucceeded()) {
+                getOvfUpdateMetrics().storeWritten(System.nanoTime() - start);
                 storageDomainOvfInfo.setStatus(StorageDomainOvfInfoStatus.UPDATED);
                 storageDomainOvfInfo.setStoredOvfIds(vmAndTemplatesIds);
                 storageDomainOvfInfo.setLastUpdated(updateDate);
+                storageDomainOvfInfo.setContentHash(contentHash);
                 setOvfVolumeDescription(storagePoolId, storageDomainId,
                         diskId, volumeId, getPostUpdateOvfStoreDescription(size));
                 getStorageDomainOvfInfoDao().update(storageDomainOvfInfo);
@@ -329,6 +310,9 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
             }
         } catch (EngineException e) {
             log.warn("failed to update domain '{}' ovf store disk '{}'", storageDomainId, diskId);
+        } catch (IOException e) {
+            log.warn("failed to update domain '{}' ovf store disk '{}': {}", storageDomainId, diskId, e.getMessage());
+            log.debug("Exception", e);
         }
 
         failedOvfDisks.add(diskId);
@@ -359,17 +343,6 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateF
         setSucceeded(true);
     }
 
-    protected Set<Guid> buildFilesForOvfs(List<Pair<Guid, String>> ovfs, InMemoryTar inMemoryTar) throws Exception {
-        Set<Guid> addedOvfIds = new HashSet<>();
-        for (Pair<Guid, String> pair : ovfs) {
-            if (pair.getSecond() != null) {
-                inMemoryTar.addTarEntry(pair.getSecond().getBytes(), pair.getFirst() + ".ovf");
-                addedOvfIds.add(pair.getFirst());
-            }
-        }
-        return addedOvfIds;
-    }
-
     @Override
     protected Map<String, Pair<String, String>> getExclusiveLocks() {
         Map<String, Pair<String, String>> lockMap = new HashMap<>();
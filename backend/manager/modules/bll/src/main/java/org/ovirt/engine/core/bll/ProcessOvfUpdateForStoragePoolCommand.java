@@ -8,6 +8,10 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
 
 import org.ovirt.engine.core.bll.context.CommandContext;
 import org.ovirt.engine.core.bll.storage.StorageHandlingCommandBase;
@@ -35,12 +39,18 @@ import org.ovirt.engine.core.common.locks.LockingGroup;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.compat.KeyValuePairCompat;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 
 @NonTransactiveCommandAttribute
 @InternalCommandAttribute
 public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdateForStoragePoolParameters> extends StorageHandlingCommandBase<T> {
 
+    @Inject
+    private OvfUpdateMetrics ovfUpdateMetrics;
+
     private int itemsCountPerUpdate;
+    private int parallelism;
     private List<Guid> proccessedIdsInfo;
     private List<Long> proccessedOvfGenerationsInfo;
     private List<String> proccessedOvfConfigurationsInfo;
@@ -68,9 +78,27 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdateFo
         return Config.<Integer> getValue(ConfigValues.OvfItemsCountPerUpdate);
     }
 
+    protected int loadParallelism() {
+        return Config.<Integer> getValue(ConfigValues.OvfUpdateParallelism);
+    }
+
+    protected OvfUpdateMetrics getOvfUpdateMetrics() {
+        return ovfUpdateMetrics;
+    }
+
+    /**
+     * Runs the given tasks on the parallel thread pool, returning their results in the order of the tasks. The
+     * command itself runs on the commands pool, so the tasks the parallel pool has no room for are run on the
+     * calling thread.
+     */
+    protected <R> List<R> invokeAll(List<Callable<R>> tasks) {
+        return ThreadPoolUtil.invokeAllOrRunOnCaller(ThreadPoolType.PARALLEL, tasks);
+    }
+
     @Override
     protected void executeCommand() {
         itemsCountPerUpdate = loadConfigValue();
+        parallelism = Math.max(1, loadParallelism());
         proccessedDomains = new HashSet<>();
         StoragePool pool = getStoragePool();
         if (ovfOnAnyDomainSupported(pool)) {
@@ -149,7 +177,9 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdateFo
      */
     protected void updateOvfForVmsOfStoragePool(StoragePool pool) {
         Guid poolId = pool.getId();
+        long start = System.nanoTime();
         List<Guid> vmsIdsForUpdate = getVmAndTemplatesGenerationsDao().getVmsIdsForOvfUpdate(poolId);
+        getOvfUpdateMetrics().changeFeedLoaded(System.nanoTime() - start, vmsIdsForUpdate.size());
         int i = 0;
         while (i < vmsIdsForUpdate.size()) {
             int size = Math.min(itemsCountPerUpdate, vmsIdsForUpdate.size() - i);
@@ -219,28 +249,102 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdateFo
      * Creates and returns a map containing valid templates metadata
      */
     protected Map<Guid, KeyValuePairCompat<String, List<Guid>>> populateTemplatesMetadataForOvfUpdate(List<Guid> idsToProcess) {
-        Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata = new HashMap<>();
+        long start = System.nanoTime();
+        final Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata = new ConcurrentHashMap<>();
         List<VmTemplate> templates = getVmTemplateDao().getVmTemplatesByIds(idsToProcess);
 
-        for (VmTemplate template : templates) {
-            if (VmTemplateStatus.Locked != template.getStatus()) {
-                updateTemplateDisksFromDb(template);
-                boolean verifyDisksNotLocked = verifyImagesStatus(template.getDiskList());
-                if (verifyDisksNotLocked) {
-                    getOvfUpdateProcessHelper().loadTemplateData(template);
-                    Long currentDbGeneration = getVmStaticDao().getDbGeneration(template.getId());
-                    // currentDbGeneration can be null in case that the template was deleted during the run of OvfDataUpdater.
-                    if (currentDbGeneration != null && template.getDbGeneration() == currentDbGeneration) {
-                        proccessedOvfConfigurationsInfo.add(getOvfUpdateProcessHelper().buildMetadataDictionaryForTemplate(template, vmsAndTemplateMetadata));
-                        proccessedIdsInfo.add(template.getId());
-                        proccessedOvfGenerationsInfo.add(template.getDbGeneration());
-                        proccessDisksDomains(template.getDiskList());
-                    }
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (final VmTemplate template : templates) {
+            tasks.add(new Callable<String>() {
+                @Override
+                public String call() {
+                    return buildTemplateOvf(template, vmsAndTemplateMetadata);
                 }
+            });
+        }
+        List<String> ovfs = invokeInParallel(tasks);
+
+        for (int i = 0; i < templates.size(); i++) {
+            VmTemplate template = templates.get(i);
+            if (ovfs.get(i) != null) {
+                proccessedOvfConfigurationsInfo.add(ovfs.get(i));
+                proccessedIdsInfo.add(template.getId());
+                proccessedOvfGenerationsInfo.add(template.getDbGeneration());
+                proccessDisksDomains(template.getDiskList());
             }
         }
 
-        return vmsAndTemplateMetadata;
+        getOvfUpdateMetrics().ovfsRegenerated(System.nanoTime() - start, vmsAndTemplateMetadata.size());
+        return new HashMap<>(vmsAndTemplateMetadata);
+    }
+
+    /**
+     * Generates the OVF of the given template and adds its metadata to the given map
+     *
+     * @return the OVF, or <code>null</code> if the template can't be updated now
+     */
+    private String buildTemplateOvf(VmTemplate template,
+            Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata) {
+        if (VmTemplateStatus.Locked == template.getStatus()) {
+            return null;
+        }
+        updateTemplateDisksFromDb(template);
+        boolean verifyDisksNotLocked = verifyImagesStatus(template.getDiskList());
+        if (!verifyDisksNotLocked) {
+            return null;
+        }
+        getOvfUpdateProcessHelper().loadTemplateData(template);
+        Long currentDbGeneration = getVmStaticDao().getDbGeneration(template.getId());
+        // currentDbGeneration can be null in case that the template was deleted during the run of OvfDataUpdater.
+        if (currentDbGeneration == null || template.getDbGeneration() != currentDbGeneration) {
+            return null;
+        }
+        return getOvfUpdateProcessHelper().buildMetadataDictionaryForTemplate(template, vmsAndTemplateMetadata);
+    }
+
+    /**
+     * Runs the given tasks on up to {@link ConfigValues#OvfUpdateParallelism} threads, each running a share of the
+     * tasks one after the other.
+     *
+     * @return the results of the tasks, in their order
+     */
+    private List<String> invokeInParallel(final List<Callable<String>> tasks) {
+        final int threads = Math.min(parallelism, tasks.size());
+        if (threads <= 1) {
+            return runAll(tasks, 0, 1);
+        }
+
+        List<Callable<List<String>>> shares = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int first = i;
+            shares.add(new Callable<List<String>>() {
+                @Override
+                public List<String> call() {
+                    return runAll(tasks, first, threads);
+                }
+            });
+        }
+
+        List<List<String>> results = invokeAll(shares);
+        List<String> ovfs = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            ovfs.add(results.get(i % threads).get(i / threads));
+        }
+        return ovfs;
+    }
+
+    private static List<String> runAll(List<Callable<String>> tasks, int first, int step) {
+        List<String> results = new ArrayList<>();
+        for (int i = first; i < tasks.size(); i += step) {
+            try {
+                results.add(tasks.get(i).call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return results;
     }
 
     protected void updateTemplateDisksFromDb(VmTemplate template) {
@@ -260,8 +364,10 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdateFo
      */
     protected void updateOvfForTemplatesOfStoragePool(StoragePool pool) {
         Guid poolId = pool.getId();
+        long start = System.nanoTime();
         List<Guid> templateIdsForUpdate =
                 getVmAndTemplatesGenerationsDao().getVmTemplatesIdsForOvfUpdate(poolId);
+        getOvfUpdateMetrics().changeFeedLoaded(System.nanoTime() - start, templateIdsForUpdate.size());
         int i = 0;
         while (i < templateIdsForUpdate.size()) {
             int size = Math.min(templateIdsForUpdate.size() - i, itemsCountPerUpdate);
@@ -305,40 +411,69 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdateFo
      * Create and returns map contains valid vms metadata
      */
     protected Map<Guid, KeyValuePairCompat<String, List<Guid>>> populateVmsMetadataForOvfUpdate(List<Guid> idsToProcess) {
-        Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata = new HashMap<>();
+        long start = System.nanoTime();
+        final Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata = new ConcurrentHashMap<>();
         List<VM> vms = getVmDao().getVmsByIds(idsToProcess);
-        for (VM vm : vms) {
-            if (VMStatus.ImageLocked != vm.getStatus()) {
-                updateVmDisksFromDb(vm);
-                if (!verifyImagesStatus(vm.getDiskList())) {
-                    continue;
-                }
-                ArrayList<DiskImage> vmImages = getOvfUpdateProcessHelper().getVmImagesFromDb(vm);
-                if (!verifyImagesStatus(vmImages)) {
-                    continue;
-                }
-                vm.setSnapshots(getSnapshotDao().getAllWithConfiguration(vm.getId()));
-                if (!verifySnapshotsStatus(vm.getSnapshots())) {
-                    continue;
-                }
 
-                getOvfUpdateProcessHelper().loadVmData(vm);
-                Long currentDbGeneration = getVmStaticDao().getDbGeneration(vm.getId());
-                if (currentDbGeneration == null) {
-                    log.warn("currentDbGeneration of VM (name: '{}', id: '{}') is null, probably because the VM was deleted during the run of OvfDataUpdater.",
-                            vm.getName(),
-                            vm.getId());
-                    continue;
-                }
-                if (vm.getStaticData().getDbGeneration() == currentDbGeneration) {
-                    proccessedOvfConfigurationsInfo.add(getOvfUpdateProcessHelper().buildMetadataDictionaryForVm(vm, vmsAndTemplateMetadata, vmImages));
-                    proccessedIdsInfo.add(vm.getId());
-                    proccessedOvfGenerationsInfo.add(vm.getStaticData().getDbGeneration());
-                    proccessDisksDomains(vm.getDiskList());
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (final VM vm : vms) {
+            tasks.add(new Callable<String>() {
+                @Override
+                public String call() {
+                    return buildVmOvf(vm, vmsAndTemplateMetadata);
                 }
+            });
+        }
+        List<String> ovfs = invokeInParallel(tasks);
+
+        for (int i = 0; i < vms.size(); i++) {
+            VM vm = vms.get(i);
+            if (ovfs.get(i) != null) {
+                proccessedOvfConfigurationsInfo.add(ovfs.get(i));
+                proccessedIdsInfo.add(vm.getId());
+                proccessedOvfGenerationsInfo.add(vm.getStaticData().getDbGeneration());
+                proccessDisksDomains(vm.getDiskList());
             }
         }
-        return vmsAndTemplateMetadata;
+
+        getOvfUpdateMetrics().ovfsRegenerated(System.nanoTime() - start, vmsAndTemplateMetadata.size());
+        return new HashMap<>(vmsAndTemplateMetadata);
+    }
+
+    /**
+     * Generates the OVF of the given VM and adds its metadata to the given map
+     *
+     * @return the OVF, or <code>null</code> if the VM can't be updated now
+     */
+    private String buildVmOvf(VM vm, Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata) {
+        if (VMStatus.ImageLocked == vm.getStatus()) {
+            return null;
+        }
+        updateVmDisksFromDb(vm);
+        if (!verifyImagesStatus(vm.getDiskList())) {
+            return null;
+        }
+        ArrayList<DiskImage> vmImages = getOvfUpdateProcessHelper().getVmImagesFromDb(vm);
+        if (!verifyImagesStatus(vmImages)) {
+            return null;
+        }
+        vm.setSnapshots(getSnapshotDao().getAllWithConfiguration(vm.getId()));
+        if (!verifySnapshotsStatus(vm.getSnapshots())) {
+            return null;
+        }
+
+        getOvfUpdateProcessHelper().loadVmData(vm);
+        Long currentDbGeneration = getVmStaticDao().getDbGeneration(vm.getId());
+        if (currentDbGeneration == null) {
+            log.warn("currentDbGeneration of VM (name: '{}', id: '{}') is null, probably because the VM was deleted during the run of OvfDataUpdater.",
+                    vm.getName(),
+                    vm.getId());
+            return null;
+        }
+        if (vm.getStaticData().getDbGeneration() != currentDbGeneration) {
+            return null;
+        }
+        return getOvfUpdateProcessHelper().buildMetadataDictionaryForVm(vm, vmsAndTemplateMetadata, vmImages);
     }
 
     protected void proccessDisksDomains(List<DiskImage> disks) {
@@ -76,6 +76,7 @@ public class RemovePermissionCommand<T extends PermissionsOperationsParameters>
         }
 
         getPermissionDao().remove(perms.getId());
+        getPermissionCache().invalidatePermissions();
         getDbFacade().updateLastAdminCheckStatus(userId);
         setSucceeded(true);
     }
@@ -42,6 +42,7 @@ public class RemoveRoleCommand<T extends RolesParameterBase> extends RolesComman
     protected void executeCommand() {
         // cache role for logging
         getRoleDao().remove(getRole().getId());
+        getPermissionCache().invalidatePermissions();
         setSucceeded(true);
     }
 }
@@ -2,13 +2,19 @@ package org.ovirt.engine.core.bll;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.ovirt.engine.core.bll.context.CommandContext;
+import org.ovirt.engine.core.bll.scheduling.SchedulingManager;
+import org.ovirt.engine.core.bll.scheduling.VmSchedulingRequest;
 import org.ovirt.engine.core.common.action.VdcActionParametersBase;
 import org.ovirt.engine.core.common.action.VdcActionType;
+import org.ovirt.engine.core.common.businessentities.VMStatus;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
+import org.ovirt.engine.core.di.Injector;
 
 public class RunVMActionRunner extends SortedMultipleActionsRunnerBase {
 
@@ -36,6 +42,60 @@ public class RunVMActionRunner extends SortedMultipleActionsRunnerBase {
             commandsList.add(runVmCommandsMap.get(guid));
         }
 
+        scheduleCommands();
+    }
+
+    /**
+     * Schedules the VMs that are going to be run in the same cluster in a single scheduling pass, rather
+     * than letting each command schedule its VM separately. The VMs are scheduled by the run order.
+     */
+    private void scheduleCommands() {
+        Map<Guid, List<RunVmCommand<?>>> commandsByCluster = new LinkedHashMap<>();
+        for (CommandBase<?> command : getCommands()) {
+            if (!(command instanceof RunVmCommand) || !command.getReturnValue().getCanDoAction()) {
+                continue;
+            }
+            RunVmCommand<?> runVmCommand = (RunVmCommand<?>) command;
+            if (runVmCommand.getVm() == null || runVmCommand.getVm().getStatus() != VMStatus.Down) {
+                continue;
+            }
+            Guid clusterId = runVmCommand.getVm().getVdsGroupId();
+            if (!commandsByCluster.containsKey(clusterId)) {
+                commandsByCluster.put(clusterId, new ArrayList<RunVmCommand<?>>());
+            }
+            commandsByCluster.get(clusterId).add(runVmCommand);
+        }
+
+        for (List<RunVmCommand<?>> clusterCommands : commandsByCluster.values()) {
+            if (clusterCommands.size() < 2) {
+                continue;
+            }
+            List<VmSchedulingRequest> requests = new ArrayList<>(clusterCommands.size());
+            for (RunVmCommand<?> command : clusterCommands) {
+                requests.add(command.createSchedulingRequest());
+            }
+            Map<Guid, Guid> vmToHost = getSchedulingManager().schedule(clusterCommands.get(0).getVdsGroup(),
+                    requests,
+                    clusterCommands.get(0).getCorrelationId());
+            for (RunVmCommand<?> command : clusterCommands) {
+                command.setPreScheduledVdsId(vmToHost.get(command.getVmId()));
+            }
+        }
+    }
+
+    @Override
+    protected void executeValidatedCommand(CommandBase<?> command) {
+        try {
+            super.executeValidatedCommand(command);
+        } finally {
+            if (command instanceof RunVmCommand) {
+                ((RunVmCommand<?>) command).releaseUnusedPreScheduledVds();
+            }
+        }
+    }
+
+    protected SchedulingManager getSchedulingManager() {
+        return Injector.get(SchedulingManager.class);
     }
 
 }
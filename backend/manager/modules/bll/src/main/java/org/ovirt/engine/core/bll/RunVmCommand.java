@@ -28,6 +28,7 @@ import org.ovirt.engine.core.bll.quota.QuotaConsumptionParameter;
 import org.ovirt.engine.core.bll.quota.QuotaVdsDependent;
 import org.ovirt.engine.core.bll.quota.QuotaVdsGroupConsumptionParameter;
 import org.ovirt.engine.core.bll.scheduling.VdsFreeMemoryChecker;
+import org.ovirt.engine.core.bll.scheduling.VmSchedulingRequest;
 import org.ovirt.engine.core.bll.tasks.interfaces.CommandCallback;
 import org.ovirt.engine.core.bll.utils.PermissionSubject;
 import org.ovirt.engine.core.bll.utils.VmDeviceUtils;
@@ -121,6 +122,8 @@ public class RunVmCommand<T extends RunVmParams> extends RunVmCommandBase<T>
 
     private Guid cachedActiveIsoDomainId;
     private boolean needsHostDevices = false;
+    /** A host selected for the VM by a batch scheduling of several VMs, used by the first run attempt */
+    private Guid preScheduledVdsId;
 
     @Inject
     private NetworkDeviceHelper networkDeviceHelper;
@@ -862,15 +865,18 @@ public class RunVmCommand<T extends RunVmParams> extends RunVmCommandBase<T>
     }
 
     protected boolean getVdsToRunOn() {
-        Guid vdsToRunOn =
-                schedulingManager.schedule(getVdsGroup(),
-                        getVm(),
-                        getRunVdssList(),
-                        getVdsWhiteList(),
-                        getPredefinedVdsIdListToRunOn(),
-                        new ArrayList<String>(),
-                        new VdsFreeMemoryChecker(this),
-                        getCorrelationId());
+        Guid vdsToRunOn = consumePreScheduledVdsId();
+        if (vdsToRunOn == null) {
+            vdsToRunOn =
+                    schedulingManager.schedule(getVdsGroup(),
+                            getVm(),
+                            getRunVdssList(),
+                            getVdsWhiteList(),
+                            getPredefinedVdsIdListToRunOn(),
+                            new ArrayList<String>(),
+                            new VdsFreeMemoryChecker(this),
+                            getCorrelationId());
+        }
         setVdsId(vdsToRunOn);
         if (vdsToRunOn != null && !Guid.Empty.equals(vdsToRunOn)) {
             getRunVdssList().add(vdsToRunOn);
@@ -891,6 +897,41 @@ public class RunVmCommand<T extends RunVmParams> extends RunVmCommandBase<T>
         return true;
     }
 
+    private Guid consumePreScheduledVdsId() {
+        Guid vdsId = preScheduledVdsId;
+        preScheduledVdsId = null;
+        if (vdsId != null && getRunVdssList().contains(vdsId)) {
+            return null;
+        }
+        return vdsId;
+    }
+
+    /**
+     * Creates the request for scheduling this VM together with other VMs that are run at once
+     */
+    VmSchedulingRequest createSchedulingRequest() {
+        return new VmSchedulingRequest(getVm(),
+                getRunVdssList(),
+                getVdsWhiteList(),
+                getPredefinedVdsIdListToRunOn(),
+                new VdsFreeMemoryChecker(this));
+    }
+
+    void setPreScheduledVdsId(Guid preScheduledVdsId) {
+        this.preScheduledVdsId = preScheduledVdsId;
+    }
+
+    /**
+     * Clears the pending resources that were registered by the batch scheduling on the host
+     * selected for the VM, in case the command did not get to use that host
+     */
+    void releaseUnusedPreScheduledVds() {
+        if (preScheduledVdsId != null) {
+            preScheduledVdsId = null;
+            schedulingManager.clearPendingVm(getVm().getStaticData());
+        }
+    }
+
     /**
      * If vds version greater then vm's and vm not running with cd and there is appropriate RhevAgentTools image -
      * add it to vm as cd.
@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,13 +40,14 @@ import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.common.errors.SearchEngineIllegalCharacterException;
 import org.ovirt.engine.core.common.errors.SqlInjectionException;
+import org.ovirt.engine.core.common.queries.SearchDelta;
 import org.ovirt.engine.core.common.queries.SearchParameters;
 import org.ovirt.engine.core.common.queries.VdcQueryParametersBase;
 import org.ovirt.engine.core.common.queries.VdcQueryType;
 import org.ovirt.engine.core.common.utils.ListUtils;
 import org.ovirt.engine.core.common.utils.ListUtils.Filter;
-import org.ovirt.engine.core.compat.DateTime;
-import org.ovirt.engine.core.compat.TimeSpan;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dao.SearchDao;
 import org.ovirt.engine.core.extensions.mgr.ExtensionProxy;
 import org.ovirt.engine.core.searchbackend.ISyntaxChecker;
@@ -58,9 +60,16 @@ import org.ovirt.engine.core.utils.linq.Function;
 import org.ovirt.engine.core.utils.linq.LinqUtils;
 
 public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<P> {
-    private static final HashMap<String, QueryData> queriesCache = new HashMap<>();
+    /**
+     * The VMs changed this long before the change stamp of a delta search are returned again, as a transaction which
+     * started before the previous search may have committed its changes after it
+     */
+    private static final long CHANGE_STAMP_OVERLAP = TimeUnit.MINUTES.toMillis(1);
+
     @Inject
     private QuotaManager quotaManager;
+    @Inject
+    private SearchQueryCache queriesCache;
 
     public SearchQuery(P parameters) {
         super(parameters);
@@ -71,6 +80,10 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
         List<? extends IVdcQueryable> returnValue = new ArrayList<>();
         switch (getParameters().getSearchTypeValue()) {
         case VM: {
+            if (getParameters().getChangedSince() != null) {
+                getQueryReturnValue().setReturnValue(searchVmChangesFromDb());
+                return;
+            }
             returnValue = searchVmsFromDb();
             break;
         }
@@ -164,12 +177,48 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
         }
 
         List<VM> vms = getDbFacade().getVmDao().getAllUsingQuery(data.getQuery());
+        updateVmsProperties(vms);
+        return vms;
+    }
+
+    /**
+     * Reads only the ids and the change dates of the VMs found by the search, and loads the VMs which changed since the
+     * change stamp of the previous search.
+     */
+    private SearchDelta<VM> searchVmChangesFromDb() {
+        QueryData data = initQueryData(true);
+        if (data == null) {
+            return new SearchDelta<>();
+        }
+
+        long changedSince = getParameters().getChangedSince();
+        long changeStamp = changedSince;
+        List<Guid> ids = new ArrayList<>();
+        List<Guid> changedIds = new ArrayList<>();
+        for (Pair<Guid, Date> change : getDbFacade().getVmDao().getChangeDatesUsingQuery(data.getQuery())) {
+            ids.add(change.getFirst());
+            Date changeDate = change.getSecond();
+            if (changedSince == 0 || changeDate == null || changeDate.getTime() > changedSince - CHANGE_STAMP_OVERLAP) {
+                changedIds.add(change.getFirst());
+            }
+            if (changeDate != null) {
+                changeStamp = Math.max(changeStamp, changeDate.getTime());
+            }
+        }
+
+        List<VM> changed = changedIds.isEmpty()
+                ? new ArrayList<VM>()
+                : getDbFacade().getVmDao().getVmsByIds(changedIds);
+        updateVmsProperties(changed);
+        return new SearchDelta<>(ids, changed, changeStamp);
+    }
+
+    private static void updateVmsProperties(List<VM> vms) {
         for (VM vm : vms) {
             VmHandler.updateVmGuestAgentVersion(vm);
             VmHandler.updateVmLock(vm);
             VmHandler.updateOperationProgress(vm);
         }
-        return vms;
     }
 
     private List<VDS> searchVDSsByDb() {
@@ -290,6 +339,10 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
         return quotaManager;
     }
 
+    public SearchQueryCache getQueriesCache() {
+        return queriesCache;
+    }
+
     private List<Quota> searchQuota() {
         List<Quota> quotaList = genericSearch(getDbFacade().getQuotaDao(), true);
         getQuotaManager().updateUsage(quotaList);
@@ -336,8 +389,6 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
 
     private QueryData initQueryData(boolean useCache) {
         QueryData data = null;
-        boolean isExistsValue = false;
-        boolean IsFromYesterday = false;
         boolean isSafe = false;
         String searchKey = "";
         try {
@@ -345,19 +396,11 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
             if (useCache) {
                 // first lets check the cache of queries.
                 searchKey = String.format("%1$s,%2$s,%3$s", searchText, getParameters().getMaxCount(), getParameters().getCaseSensitive());
-                data = queriesCache.get(searchKey);
-                isExistsValue = (data != null);
-
-                if (isExistsValue) {
-                    TimeSpan span = DateTime.getNow().subtract(new Date(data.getDate()));
-                    if (span.Days >= 1) {
-                        IsFromYesterday = true;
-                    }
-                }
+                data = getQueriesCache().get(searchKey);
             }
             // query not in cache or the cached entry is too old, process the
             // search text.
-            if (!isExistsValue || IsFromYesterday) {
+            if (data == null) {
                 log.debug("ResourceManager::searchBusinessObjects(''{}'') - entered", searchText);
                 final char AT='@';
                 String queryAuthz = null;
@@ -408,6 +451,7 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                     curSyntaxChecker = SyntaxCheckerFactory
                             .createBackendSyntaxChecker(Config.<String>getValue(ConfigValues.AuthenticationMethod));
                 }
+                long parseStart = System.nanoTime();
                 SyntaxContainer searchObj = curSyntaxChecker.analyzeSyntaxState(searchText, true);
                 // set the case-sensitive flag
                 searchObj.setCaseSensitive(getParameters().getCaseSensitive());
@@ -415,6 +459,7 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                 searchObj.setMaxCount(getParameters().getMaxCount() == -1 ? Integer.MAX_VALUE : Math.min(Integer.MAX_VALUE, getParameters().getMaxCount()));
                 // setting FromSearch value
                 searchObj.setSearchFrom(getParameters().getSearchFrom());
+                searchObj.setSearchBefore(getParameters().getSearchBefore());
                 if (searchObj.getError() != SyntaxError.NO_ERROR) {
                     log.info("ResourceManager::searchBusinessObjects - erroneous search text - ''{}''",
                             searchText);
@@ -444,14 +489,15 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                 // An expression is considered safe if matches a trivial search.
                 data =
                         new QueryData(curSyntaxChecker.generateQueryFromSyntaxContainer(searchObj, isSafe),
-                                DateTime.getNow().getTime(),
+                                System.currentTimeMillis(),
                                 queryAuthz, queryNamespace);
+                getQueriesCache().parsed(System.nanoTime() - parseStart);
                 // when looking for tags , the query contains all parent children tag id's
                 // statically, therefore , in order to reflect changes in the parent tree
                 // we should not rely on the cached query in such case and have to build the
                 // query from scratch.
-                if (!containsStaticInValues(data.getQuery()))
-                    queriesCache.put(searchKey, data);
+                if (useCache && !containsStaticInValues(data.getQuery()))
+                    getQueriesCache().put(searchKey, data);
             }
         } catch (SearchEngineIllegalCharacterException e) {
             log.error("Search expression can not end with ESCAPE character: {}", getParameters().getSearchPattern());
@@ -0,0 +1,198 @@
+package org.ovirt.engine.core.bll;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.ovirt.engine.core.common.BackendService;
+import org.ovirt.engine.core.common.config.Config;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the SQL queries compiled from search texts by {@link SearchQuery}, so a search repeated by the grids of many
+ * sessions is parsed once. The cache holds at most {@link ConfigValues#SearchQueryCacheSize} queries and evicts the
+ * least recently used one when it's full. A query older than a day is compiled again, so it reflects the changes of
+ * the search backend configuration.
+ * <p>
+ * The queries are kept in an access ordered map guarded by the cache itself: a lookup is short compared to the
+ * database query which follows it, so the lock isn't contended even when the grids of hundreds of sessions refresh at
+ * once.
+ */
+@Singleton
+public class SearchQueryCache implements BackendService, SearchQueryCacheMonitorMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchQueryCache.class);
+
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    private final Map<String, QueryData> queries = new LinkedHashMap<String, QueryData>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, QueryData> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong parses = new AtomicLong();
+    private final AtomicLong parseTimeNanos = new AtomicLong();
+    private final AtomicLong maxParseTimeNanos = new AtomicLong();
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
+    public SearchQueryCache() {
+    }
+
+    /**
+     * This constructor is for testing use only
+     */
+    SearchQueryCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        maxSize = Config.<Integer> getValue(ConfigValues.SearchQueryCacheSize);
+        registerInJMX();
+    }
+
+    private void registerInJMX() {
+        try {
+            objectName = new ObjectName("SearchQueryCache:type=" + this.getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Failed to register the search query cache monitoring in JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregisterFromJMX() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            platformMBeanServer.unregisterMBean(objectName);
+        } catch (Exception e) {
+            log.warn("Failed to unregister the search query cache monitoring from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    /**
+     * @param key
+     *            the search text and the parameters it was compiled with
+     * @return the compiled query, or <code>null</code> if it isn't cached or is too old and has to be compiled again
+     */
+    public QueryData get(String key) {
+        QueryData data;
+        synchronized (queries) {
+            data = queries.get(key);
+            if (data != null && System.currentTimeMillis() - data.getDate() >= MAX_AGE) {
+                queries.remove(key);
+                evictions.incrementAndGet();
+                data = null;
+            }
+        }
+        if (data != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return data;
+    }
+
+    public void put(String key, QueryData data) {
+        synchronized (queries) {
+            queries.put(key, data);
+        }
+    }
+
+    /**
+     * Records the time it took to parse a search text and translate it to SQL.
+     */
+    public void parsed(long nanos) {
+        parses.incrementAndGet();
+        parseTimeNanos.addAndGet(nanos);
+        long max = maxParseTimeNanos.get();
+        while (nanos > max && !maxParseTimeNanos.compareAndSet(max, nanos)) {
+            max = maxParseTimeNanos.get();
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        long currentHits = hits.get();
+        long total = currentHits + misses.get();
+        return total == 0 ? 0 : (double) currentHits / total;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (queries) {
+            return queries.size();
+        }
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getParses() {
+        return parses.get();
+    }
+
+    @Override
+    public double getAverageParseTimeMicros() {
+        long count = parses.get();
+        return count == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(parseTimeNanos.get()) / count;
+    }
+
+    @Override
+    public long getMaxParseTimeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxParseTimeNanos.get());
+    }
+
+    @Override
+    public void clear() {
+        synchronized (queries) {
+            queries.clear();
+        }
+    }
+}
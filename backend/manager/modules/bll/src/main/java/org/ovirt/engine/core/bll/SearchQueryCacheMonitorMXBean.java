@@ -0,0 +1,57 @@
+package org.ovirt.engine.core.bll;
+
+/**
+ * The following interface is used as interface for JMX bean
+ */
+public interface SearchQueryCacheMonitorMXBean {
+
+    /**
+     * @return the number of searches whose compiled query was found in the cache
+     */
+    long getHits();
+
+    /**
+     * @return the number of searches which had to be compiled
+     */
+    long getMisses();
+
+    /**
+     * @return the ratio of the searches whose compiled query was found in the cache
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of compiled queries evicted because the cache was full or they were too old
+     */
+    long getEvictions();
+
+    /**
+     * @return the number of compiled queries in the cache
+     */
+    int getSize();
+
+    /**
+     * @return the maximum number of compiled queries in the cache
+     */
+    int getMaxSize();
+
+    /**
+     * @return the number of searches parsed and translated to SQL
+     */
+    long getParses();
+
+    /**
+     * @return the average time it took to parse a search and translate it to SQL, in microseconds
+     */
+    double getAverageParseTimeMicros();
+
+    /**
+     * @return the longest time it took to parse a search and translate it to SQL, in microseconds
+     */
+    long getMaxParseTimeMicros();
+
+    /**
+     * The following method will allow to clear the cache via JMX console
+     */
+    void clear();
+}
@@ -165,6 +165,7 @@ public class UpdateVdsGroupCommand<T extends ManagementNetworkOnClusterOperation
             }
 
             getNetworkClusterDao().save(managementNetworkCluster);
+            getPermissionCache().invalidateHierarchy();
         }
 
         alertIfFencingDisabled();
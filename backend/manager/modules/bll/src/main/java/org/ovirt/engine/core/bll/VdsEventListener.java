@@ -94,6 +94,7 @@ import org.ovirt.engine.core.utils.linq.Function;
 import org.ovirt.engine.core.utils.linq.LinqUtils;
 import org.ovirt.engine.core.utils.lock.EngineLock;
 import org.ovirt.engine.core.utils.lock.LockManagerFactory;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
 import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.vdsbroker.ResourceManager;
 import org.ovirt.engine.core.vdsbroker.irsbroker.IrsBrokerCommand;
@@ -236,7 +237,7 @@ public class VdsEventListener implements IVdsEventListener {
         }
 
         if (useSeparateThread) {
-            ThreadPoolUtil.execute(new Runnable() {
+            ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
                 @Override
                 public void run() {
                     processOnVmStopInternal(vmIds, hostId);
@@ -265,7 +266,7 @@ public class VdsEventListener implements IVdsEventListener {
      */
     @Override
     public void syncLunsInfoForBlockStorageDomain(final Guid storageDomainId, final Guid vdsId) {
-        ThreadPoolUtil.execute(new Runnable() {
+        ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
             @Override
             public void run() {
                 StorageDomainParametersBase parameters = new StorageDomainParametersBase(storageDomainId);
@@ -301,7 +302,7 @@ public class VdsEventListener implements IVdsEventListener {
     @Override
     public void vdsNotResponding(final VDS vds) {
         ExecutionHandler.updateSpecificActionJobCompleted(vds.getId(), VdcActionType.MaintenanceVds, false);
-        ThreadPoolUtil.execute(new Runnable() {
+        ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
             @Override
             public void run() {
                 log.info("ResourceManager::vdsNotResponding entered for Host '{}', '{}'",
@@ -334,7 +335,7 @@ public class VdsEventListener implements IVdsEventListener {
         HostStoragePoolParametersBase params = new HostStoragePoolParametersBase(vds);
         boolean isSucceeded = backend.runInternalAction(VdcActionType.InitVdsOnUp, params).getSucceeded();
         if (isSucceeded) {
-            ThreadPoolUtil.execute(new Runnable() {
+            ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
                 @Override
                 public void run() {
                     try {
@@ -493,7 +494,7 @@ public class VdsEventListener implements IVdsEventListener {
         if (command != null) {
             // The command will be invoked in a different VDS in its rerun method, so we're calling
             // its rerun method from a new thread so that it won't be executed within our current VDSM lock
-            ThreadPoolUtil.execute(new Runnable() {
+            ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
                 @Override
                 public void run() {
                     command.rerun();
@@ -529,7 +530,7 @@ public class VdsEventListener implements IVdsEventListener {
             return;
         }
 
-        ThreadPoolUtil.execute(new Runnable() {
+        ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
             @Override public void run() {
 
                 // Get Disks and CpuQos of VMs from the DB
@@ -582,7 +583,7 @@ public class VdsEventListener implements IVdsEventListener {
     }
 
     public void onError(@Observes final VDSNetworkException vdsException) {
-        ThreadPoolUtil.execute(new Runnable() {
+        ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
             @Override
             public void run() {
                 resourceManagerProvider.get().GetVdsManager(
@@ -597,7 +598,7 @@ public class VdsEventListener implements IVdsEventListener {
             return;
         }
 
-        ThreadPoolUtil.execute(new Runnable() {
+        ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
             @Override
             public void run() {
                 HostDeviceManager hostDeviceManager = Injector.get(HostDeviceManager.class);
@@ -643,7 +644,7 @@ public class VdsEventListener implements IVdsEventListener {
 
     @Override
     public void importHostedEngineVm(final VM vm) {
-        ThreadPoolUtil.execute(new Runnable() {
+        ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
             @Override public void run() {
                 hostedEngineImporterProvider.get().doImport(vm);
             }
@@ -18,6 +18,7 @@ import org.ovirt.engine.core.common.eventqueue.EventResult;
 import org.ovirt.engine.core.common.eventqueue.EventType;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
 import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -98,7 +99,7 @@ public class EventQueueMonitor implements EventQueue {
             } else {
                 task = addTaskToQueue(event, callable, storagePoolId, false);
                 poolCurrentEventMap.put(storagePoolId, event);
-                ThreadPoolUtil.execute(new InternalEventQueueThread(storagePoolId, lock,
+                ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new InternalEventQueueThread(storagePoolId, lock,
                         poolsEventsMap, poolCurrentEventMap));
             }
         } finally {
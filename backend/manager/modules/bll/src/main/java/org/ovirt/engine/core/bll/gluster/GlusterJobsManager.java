@@ -6,8 +6,7 @@ import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.common.mode.ApplicationMode;
 import org.ovirt.engine.core.di.Injector;
-import org.ovirt.engine.core.utils.timer.SchedulerUtil;
-import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
+import org.ovirt.engine.core.utils.timer.SchedulerUtilHashedWheelImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,7 +22,7 @@ public class GlusterJobsManager {
 
         log.debug("Initializing Gluster Jobs Manager");
 
-        SchedulerUtil scheduler = Injector.get(SchedulerUtilQuartzImpl.class);
+        SchedulerUtilHashedWheelImpl scheduler = Injector.get(SchedulerUtilHashedWheelImpl.class);
 
         scheduler.scheduleAFixedDelayJob(GlusterSyncJob.getInstance(),
                 "refreshLightWeightData",
@@ -9,8 +9,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.PostConstruct;
@@ -34,7 +34,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The following class an implementation of internal locking mechanism
+ * The following class an implementation of internal locking mechanism.
+ * The locks are spread over stripes, so operations on unrelated keys do not block each other
+ * and a release of a key wakes up only the threads waiting for that key
  */
 @Startup
 @Singleton(name = "LockManager")
@@ -44,17 +46,24 @@ import org.slf4j.LoggerFactory;
 public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBean {
 
     private static final Pair<Boolean, Set<String>> LOCK_INSERT_SUCCESS_RESULT = new Pair<>(Boolean.TRUE, Collections.<String>emptySet());
-    /** A map which is contains all internal representation of locks **/
-    private final Map<String, InternalLockView> locks = new HashMap<>();
-    /** A lock which is used to synchronized acquireLock(), acquireLockWait() and releaseLock() operations **/
-    private final Lock globalLock = new ReentrantLock();
-    /** A condition which is used in order to notify for waiting threads that some lock was released**/
-    private final Condition releasedLock = globalLock.newCondition();
+    /** The number of stripes the locks are spread over, must be a power of 2 **/
+    private static final int STRIPES_COUNT = 64;
+    /**
+     * The stripes which are containing the internal representation of locks, each stripe has its own lock
+     * which is used to synchronize acquireLock(), acquireLockWait() and releaseLock() operations on its keys
+     **/
+    private final LockStripe[] stripes = new LockStripe[STRIPES_COUNT];
 
     private MBeanServer platformMBeanServer;
     private ObjectName objectName = null;
     private static final Logger log = LoggerFactory.getLogger(InMemoryLockManager.class);
 
+    public InMemoryLockManager() {
+        for (int i = 0; i < STRIPES_COUNT; i++) {
+            stripes[i] = new LockStripe();
+        }
+    }
+
     @PostConstruct
     public void registerInJMX() {
         try {
@@ -78,11 +87,11 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     @Override
     public Pair<Boolean, Set<String>> acquireLock(EngineLock lock) {
         log.debug("Before acquiring lock '{}'", lock);
-        globalLock.lock();
+        List<LockStripe> lockedStripes = lockStripes(lock);
         try {
             return acquireLockInternal(lock);
         } finally {
-            globalLock.unlock();
+            unlockStripes(lockedStripes);
         }
     }
 
@@ -90,16 +99,61 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     public void acquireLockWait(EngineLock lock) {
         log.debug("Before acquiring and wait lock '{}'", lock);
         validateLockForAcquireAndWait(lock);
-        globalLock.lock();
         try {
-            while (!acquireLockInternal(lock).getFirst()) {
+            while (true) {
+                List<LockStripe> lockedStripes = lockStripes(lock);
+                try {
+                    if (acquireLockInternal(lock).getFirst()) {
+                        return;
+                    }
+                } finally {
+                    unlockStripes(lockedStripes);
+                }
                 log.info("Failed to acquire lock and wait lock '{}'", lock);
-                releasedLock.await();
+                awaitBlockingKeyRelease(lock);
             }
         } catch (InterruptedException e) {
 
+        }
+    }
+
+    /**
+     * Waits for the release of the first key of the given lock which is still blocking it. The key is checked
+     * and waited on under the lock of its stripe, so a release which happened after the failed acquire attempt
+     * is never missed and the waiting thread is woken up only by a release of that key
+     */
+    private void awaitBlockingKeyRelease(EngineLock lock) throws InterruptedException {
+        if (lock.getSharedLocks() != null) {
+            for (Entry<String, Pair<String, String>> entry : lock.getSharedLocks().entrySet()) {
+                if (awaitKeyRelease(buildHashMapKey(entry), false)) {
+                    return;
+                }
+            }
+        }
+        if (lock.getExclusiveLocks() != null) {
+            for (Entry<String, Pair<String, String>> entry : lock.getExclusiveLocks().entrySet()) {
+                if (awaitKeyRelease(buildHashMapKey(entry), true)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the key was blocking and its release was awaited, false if the key is not blocking
+     */
+    private boolean awaitKeyRelease(String key, boolean exclusive) throws InterruptedException {
+        LockStripe stripe = getStripe(key);
+        stripe.lock();
+        try {
+            InternalLockView lockView = stripe.locks.get(key);
+            if (lockView == null || (!exclusive && !lockView.getExclusive())) {
+                return false;
+            }
+            stripe.await(key);
+            return true;
         } finally {
-            globalLock.unlock();
+            stripe.unlock();
         }
     }
 
@@ -113,7 +167,7 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     @Override
     public void releaseLock(EngineLock lock) {
         log.debug("Before releasing a lock '{}'", lock);
-        globalLock.lock();
+        List<LockStripe> lockedStripes = lockStripes(lock);
         try {
             if (lock.getSharedLocks() != null) {
                 for (Entry<String, Pair<String, String>> entry : lock.getSharedLocks().entrySet()) {
@@ -125,21 +179,22 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
                     releaseExclusiveLock(buildHashMapKey(entry));
                 }
             }
-            releasedLock.signalAll();
         } finally {
-            globalLock.unlock();
+            unlockStripes(lockedStripes);
         }
     }
 
     @Override
     public void clear() {
         log.warn("Cleaning all in memory locks");
-        globalLock.lock();
+        List<LockStripe> lockedStripes = lockAllStripes();
         try {
-            locks.clear();
-            releasedLock.signalAll();
+            for (LockStripe stripe : stripes) {
+                stripe.locks.clear();
+                stripe.signalAll();
+            }
         } finally {
-            globalLock.unlock();
+            unlockStripes(lockedStripes);
         }
     }
 
@@ -148,9 +203,10 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
         log.warn("The following lock is going to be released via external call, lockId '{}', error message can be"
                 + " left for shared lock",
                 lockId);
-        globalLock.lock();
+        LockStripe stripe = getStripe(lockId);
+        stripe.lock();
         try {
-            InternalLockView lock = locks.get(lockId);
+            InternalLockView lock = stripe.locks.get(lockId);
             if (lock == null) {
                 log.warn("Lock with id '{}' does not exist and can not be released via external call", lockId);
                 return false;
@@ -160,9 +216,8 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
             } else {
                 releaseSharedLock(lockId, null);
             }
-            releasedLock.signalAll();
         } finally {
-            globalLock.unlock();
+            stripe.unlock();
         }
         log.warn("Lock '{}' was released via external call", lockId);
         return true;
@@ -172,20 +227,91 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     public List<String> showAllLocks() {
         List<String> returnValue;
         log.debug("All in memory locks will be shown");
-        globalLock.lock();
+        List<LockStripe> lockedStripes = lockAllStripes();
         try {
             returnValue = new ArrayList<>();
-            for(Map.Entry<String, InternalLockView> entry : locks.entrySet()) {
-                String lock = new StringBuilder("The object id is : ").append(entry.getKey()).append(' ').append(entry.getValue()).toString();
-                returnValue.add(lock);
+            for (LockStripe stripe : stripes) {
+                for (Map.Entry<String, InternalLockView> entry : stripe.locks.entrySet()) {
+                    String lock = new StringBuilder("The object id is : ").append(entry.getKey()).append(' ').append(entry.getValue()).toString();
+                    returnValue.add(lock);
+                }
             }
         } finally {
-            globalLock.unlock();
+            unlockStripes(lockedStripes);
         }
         log.debug("All in memory locks were shown");
         return returnValue;
     }
 
+    @Override
+    public List<String> showStripesContention() {
+        List<String> returnValue = new ArrayList<>();
+        for (int i = 0; i < STRIPES_COUNT; i++) {
+            LockStripe stripe = stripes[i];
+            if (stripe.acquisitions.get() > 0) {
+                returnValue.add(new StringBuilder("Stripe ").append(i)
+                        .append(" : acquisitions ").append(stripe.acquisitions.get())
+                        .append(", contended acquisitions ").append(stripe.contentions.get())
+                        .append(", waits ").append(stripe.waits.get())
+                        .append(", wakeups ").append(stripe.wakeups.get())
+                        .toString());
+            }
+        }
+        return returnValue;
+    }
+
+    private LockStripe getStripe(String key) {
+        return stripes[getStripeIndex(key)];
+    }
+
+    private static int getStripeIndex(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (STRIPES_COUNT - 1);
+    }
+
+    /**
+     * Locks the stripes of all the keys of the given lock. The stripes are always locked in the same order in
+     * order to avoid dead locks between threads which are acquiring locks with several keys
+     * @return the locked stripes, in the order they were locked
+     */
+    private List<LockStripe> lockStripes(EngineLock lock) {
+        boolean[] involvedStripes = new boolean[STRIPES_COUNT];
+        markStripes(lock.getSharedLocks(), involvedStripes);
+        markStripes(lock.getExclusiveLocks(), involvedStripes);
+        List<LockStripe> lockedStripes = new ArrayList<>();
+        for (int i = 0; i < STRIPES_COUNT; i++) {
+            if (involvedStripes[i]) {
+                stripes[i].lock();
+                lockedStripes.add(stripes[i]);
+            }
+        }
+        return lockedStripes;
+    }
+
+    private void markStripes(Map<String, Pair<String, String>> keys, boolean[] involvedStripes) {
+        if (keys != null) {
+            for (Entry<String, Pair<String, String>> entry : keys.entrySet()) {
+                involvedStripes[getStripeIndex(buildHashMapKey(entry))] = true;
+            }
+        }
+    }
+
+    private List<LockStripe> lockAllStripes() {
+        List<LockStripe> lockedStripes = new ArrayList<>(STRIPES_COUNT);
+        for (LockStripe stripe : stripes) {
+            stripe.lock();
+            lockedStripes.add(stripe);
+        }
+        return lockedStripes;
+    }
+
+    private void unlockStripes(List<LockStripe> lockedStripes) {
+        for (int i = lockedStripes.size() - 1; i >= 0; i--) {
+            lockedStripes.get(i).unlock();
+        }
+    }
+
     /**
      * Internal method should build a key for lock
      * @param entry
@@ -245,6 +371,7 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
      * @return
      */
     private Pair<Boolean, Set<String>> insertSharedLock(String key, String message, boolean isCheckOnly) {
+        Map<String, InternalLockView> locks = getStripe(key).locks;
         InternalLockView lock = locks.get(key);
         if (lock != null) {
             if (!isCheckOnly) {
@@ -264,6 +391,7 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
      * added only if there is not exist any shared or exclusive lock for given key
      */
     private Pair<Boolean, Set<String>> insertExclusiveLock(String key, String message, boolean isCheckOnly) {
+        Map<String, InternalLockView> locks = getStripe(key).locks;
         InternalLockView lock = locks.get(key);
         if (lock != null) {
             return new Pair<>(Boolean.FALSE, lock.getMessages());
@@ -275,9 +403,11 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     }
 
     private void releaseExclusiveLock(String key) {
-        InternalLockView lock = locks.get(key);
+        LockStripe stripe = getStripe(key);
+        InternalLockView lock = stripe.locks.get(key);
         if (lock != null && lock.getExclusive()) {
-            locks.remove(key);
+            stripe.locks.remove(key);
+            stripe.signal(key);
             log.debug("The exclusive lock for key '{}' is released and lock is removed from map", key);
         } else if (lock == null) {
             log.warn("Trying to release exclusive lock which does not exist, lock key: '{}'", key);
@@ -287,13 +417,16 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     }
 
     private void releaseSharedLock(String key, String message) {
-        InternalLockView lock = locks.get(key);
+        LockStripe stripe = getStripe(key);
+        InternalLockView lock = stripe.locks.get(key);
         if (lock != null) {
             if (lock.getCount() > 0) {
                 lock.decreaseCount();
                 log.debug("The shared lock for key '{}' is released.", key);
                 if (lock.getCount() == 0) {
-                    locks.remove(key);
+                    stripe.locks.remove(key);
+                    // only waiters for an exclusive lock can be blocked by a shared lock
+                    stripe.signal(key);
                     log.debug("The shared lock for key '{}' is removed from map", key);
                 } else {
                     lock.removeMessage(message);
@@ -308,12 +441,20 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
 
     @Override
     public LockInfo getLockInfo(String key) {
-        InternalLockView internalLockView = locks.get(key);
-        if (internalLockView == null) {
-            return null;
+        LockStripe stripe = getStripe(key);
+        InternalLockView internalLockView;
+        Set<String> messages;
+        stripe.lock();
+        try {
+            internalLockView = stripe.locks.get(key);
+            if (internalLockView == null) {
+                return null;
+            }
+            messages = internalLockView.getMessages();
+        } finally {
+            stripe.unlock();
         }
 
-        Set<String> messages = internalLockView.getMessages();
         messages.remove(EngineMessage.ACTION_TYPE_FAILED_OBJECT_LOCKED.name());
         if (messages.isEmpty()) {
             // EngineMessage.ACTION_TYPE_FAILED_OBJECT_LOCKED should only be used for
@@ -325,6 +466,85 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
         return new LockInfo(internalLockView.getExclusive(), messages);
     }
 
+    /**
+     * The following class represents a part of the locks kept inside InMemoryLockManager, together with the
+     * queues of the threads waiting for the release of its keys
+     */
+    private static class LockStripe {
+
+        private final ReentrantLock stripeLock = new ReentrantLock();
+        /** A map which is contains internal representation of the locks of this stripe **/
+        private final Map<String, InternalLockView> locks = new HashMap<>();
+        /** The conditions on which threads are waiting for the release of a key, per key **/
+        private final Map<String, KeyWaitQueue> waitQueues = new HashMap<>();
+
+        private final AtomicLong acquisitions = new AtomicLong();
+        private final AtomicLong contentions = new AtomicLong();
+        private final AtomicLong waits = new AtomicLong();
+        private final AtomicLong wakeups = new AtomicLong();
+
+        public void lock() {
+            acquisitions.incrementAndGet();
+            if (!stripeLock.tryLock()) {
+                contentions.incrementAndGet();
+                stripeLock.lock();
+            }
+        }
+
+        public void unlock() {
+            stripeLock.unlock();
+        }
+
+        /**
+         * Waits until the given key is released, should be called while holding the stripe lock
+         */
+        public void await(String key) throws InterruptedException {
+            KeyWaitQueue waitQueue = waitQueues.get(key);
+            if (waitQueue == null) {
+                waitQueue = new KeyWaitQueue(stripeLock.newCondition());
+                waitQueues.put(key, waitQueue);
+            }
+            waitQueue.waiters++;
+            waits.incrementAndGet();
+            try {
+                waitQueue.released.await();
+            } finally {
+                if (--waitQueue.waiters == 0) {
+                    waitQueues.remove(key);
+                }
+            }
+        }
+
+        /**
+         * Wakes up the threads waiting for the given key, should be called while holding the stripe lock
+         */
+        public void signal(String key) {
+            KeyWaitQueue waitQueue = waitQueues.get(key);
+            if (waitQueue != null) {
+                wakeups.addAndGet(waitQueue.waiters);
+                waitQueue.released.signalAll();
+            }
+        }
+
+        public void signalAll() {
+            for (KeyWaitQueue waitQueue : waitQueues.values()) {
+                wakeups.addAndGet(waitQueue.waiters);
+                waitQueue.released.signalAll();
+            }
+        }
+    }
+
+    private static class KeyWaitQueue {
+
+        /** A condition which is used in order to notify for waiting threads that the key was released **/
+        private final Condition released;
+        private int waiters;
+
+        public KeyWaitQueue(Condition released) {
+            this.released = released;
+        }
+    }
+
     /**
      * The following class represents different locks which are kept inside InMemoryLockManager
      */
@@ -23,4 +23,10 @@ public interface LockManagerMonitorMXBean {
      * @param lockId
      */
     boolean releaseLock(String lockId);
+
+    /**
+     * The following method will return the contention counters of the lock stripes which were used
+     * @return
+     */
+    List<String> showStripesContention();
 }
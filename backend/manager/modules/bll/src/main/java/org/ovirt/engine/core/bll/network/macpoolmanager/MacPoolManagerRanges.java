@@ -3,7 +3,8 @@ package org.ovirt.engine.core.bll.network.macpoolmanager;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang.math.LongRange;
 import org.ovirt.engine.core.common.AuditLogType;
@@ -16,14 +17,17 @@ import org.ovirt.engine.core.utils.lock.AutoCloseableLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * MAC pool made of ranges of MACs. Only the initialization of the pool is locked; once the storage of the MACs is
+ * published the MACs are allocated, used and freed without locking, see {@link MacsStorage}.
+ */
 public class MacPoolManagerRanges implements MacPoolManagerStrategy {
 
     private static final Logger log = LoggerFactory.getLogger(MacPoolManagerRanges.class);
 
-    private final ReentrantReadWriteLock lockObj = new ReentrantReadWriteLock();
+    private final Lock initializationLock = new ReentrantLock();
     private final boolean allowDuplicates;
-    private boolean initialized;
-    private MacsStorage macsStorage;
+    private volatile MacsStorage macsStorage;
     private Collection<LongRange> rangesBoundaries;
 
     public MacPoolManagerRanges(Collection<LongRange> rangesBoundaries, boolean allowDuplicates) {
@@ -33,17 +37,17 @@ public class MacPoolManagerRanges implements MacPoolManagerStrategy {
 
     @Override
     public void initialize() {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.writeLock())) {
-            if (initialized) {
+        try (AutoCloseableLock l = new AutoCloseableLock(initializationLock)) {
+            if (macsStorage != null) {
                 log.error("Trying to initialize {} multiple times.", getClass().getName());
                 return;
             }
 
             log.info("Start initializing {}", getClass().getSimpleName());
 
-            this.macsStorage = createMacsStorage(rangesBoundaries);
+            MacsStorage macsStorage = createMacsStorage(rangesBoundaries);
+            this.macsStorage = macsStorage;
 
-            initialized = true;
             log.info("Finished initializing. Available MACs in pool: {}", macsStorage.getAvailableMacsCount());
         } catch (Exception ex) {
             log.error("Error in initializing MAC Addresses pool manager: {}", ex.getMessage());
@@ -71,7 +75,7 @@ public class MacPoolManagerRanges implements MacPoolManagerStrategy {
         }
     }
 
-    private void logWhenMacPoolIsEmpty() {
+    private void logWhenMacPoolIsEmpty(MacsStorage macsStorage) {
         if (!macsStorage.availableMacExist()) {
             AuditLogableBase logable = new AuditLogableBase();
             new AuditLogDirector().log(logable, AuditLogType.MAC_POOL_EMPTY);
@@ -80,85 +84,60 @@ public class MacPoolManagerRanges implements MacPoolManagerStrategy {
 
     @Override
     public String allocateNewMac() {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.writeLock())) {
-            checkIfInitialized();
-            return allocateNewMacsWithoutLocking(1).get(0);
-        }
+        return allocateNewMacs(getInitializedMacsStorage(), 1).get(0);
     }
 
-    private List<String> allocateNewMacsWithoutLocking(int numberOfMacs) {
+    private List<String> allocateNewMacs(MacsStorage macsStorage, int numberOfMacs) {
         List<Long> macs = macsStorage.allocateAvailableMacs(numberOfMacs);
         Collections.sort(macs);
-        logWhenMacPoolIsEmpty();
+        logWhenMacPoolIsEmpty(macsStorage);
 
         return MacAddressRangeUtils.macAddressesToStrings(macs);
     }
 
     @Override
     public int getAvailableMacsCount() {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.readLock())) {
-            checkIfInitialized();
-            int availableMacsSize = macsStorage.getAvailableMacsCount();
-            log.debug("Number of available Mac addresses = {}", availableMacsSize);
-            return availableMacsSize;
-        }
+        int availableMacsSize = getInitializedMacsStorage().getAvailableMacsCount();
+        log.debug("Number of available Mac addresses = {}", availableMacsSize);
+        return availableMacsSize;
     }
 
     @Override
     public void freeMac(String mac) {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.writeLock())) {
-            checkIfInitialized();
-            macsStorage.freeMac(MacAddressRangeUtils.macToLong(mac));
-        }
+        getInitializedMacsStorage().freeMac(MacAddressRangeUtils.macToLong(mac));
     }
 
     @Override
     public boolean addMac(String mac) {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.writeLock())) {
-            checkIfInitialized();
-            boolean added = macsStorage.useMac(MacAddressRangeUtils.macToLong(mac));
-            logWhenMacPoolIsEmpty();
-            return added;
-        }
+        MacsStorage macsStorage = getInitializedMacsStorage();
+        boolean added = macsStorage.useMac(MacAddressRangeUtils.macToLong(mac));
+        logWhenMacPoolIsEmpty(macsStorage);
+        return added;
     }
 
     @Override
     public void forceAddMac(String mac) {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.writeLock())) {
-            checkIfInitialized();
-            forceAddMacWithoutLocking(mac);
-        }
-    }
-
-    protected void forceAddMacWithoutLocking(String mac) {
+        MacsStorage macsStorage = getInitializedMacsStorage();
         macsStorage.useMacNoDuplicityCheck(MacAddressRangeUtils.macToLong(mac));
-        logWhenMacPoolIsEmpty();
+        logWhenMacPoolIsEmpty(macsStorage);
     }
 
     @Override
     public boolean isMacInUse(String mac) {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.readLock())) {
-            checkIfInitialized();
-            return macsStorage.isMacInUse(MacAddressRangeUtils.macToLong(mac));
-        }
+        return getInitializedMacsStorage().isMacInUse(MacAddressRangeUtils.macToLong(mac));
     }
 
     @Override
     public void freeMacs(List<String> macs) {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.writeLock())) {
-            checkIfInitialized();
-            for (String mac : macs) {
-                macsStorage.freeMac(MacAddressRangeUtils.macToLong(mac));
-            }
+        MacsStorage macsStorage = getInitializedMacsStorage();
+        for (String mac : macs) {
+            macsStorage.freeMac(MacAddressRangeUtils.macToLong(mac));
         }
     }
 
     @Override
     public List<String> allocateMacAddresses(int numberOfAddresses) {
-        try (AutoCloseableLock l = new AutoCloseableLock(lockObj.writeLock())) {
-            checkIfInitialized();
-            return allocateNewMacsWithoutLocking(numberOfAddresses);
-        }
+        return allocateNewMacs(getInitializedMacsStorage(), numberOfAddresses);
     }
 
     @Override
@@ -167,10 +146,12 @@ public class MacPoolManagerRanges implements MacPoolManagerStrategy {
     }
 
 
-    private void checkIfInitialized() {
-        if (!initialized) {
+    private MacsStorage getInitializedMacsStorage() {
+        MacsStorage macsStorage = this.macsStorage;
+        if (macsStorage == null) {
             throw new EngineException(EngineError.MAC_POOL_NOT_INITIALIZED);
         }
 
+        return macsStorage;
     }
 }
@@ -1,17 +1,25 @@
 package org.ovirt.engine.core.bll.network.macpoolmanager;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
-import org.apache.commons.lang.Validate;
 import org.ovirt.engine.core.common.errors.EngineError;
 import org.ovirt.engine.core.common.errors.EngineException;
 
+/**
+ * Keeps the used MACs of a pool. The ranges are disjoint and kept sorted by their start, so the range of a MAC is
+ * found by a binary search.
+ * <p>
+ * The ranges are added while the pool is initialized, after which the MACs may be used, freed and allocated
+ * concurrently. The MACs outside of the ranges, which are rare, are kept under the lock of their counter.
+ */
 class MacsStorage {
     private final boolean allowDuplicates;
-    private List<Range> ranges = new LinkedList<>();
-    private ObjectCounter<Long> customMacs;
+    private final List<Range> ranges = new ArrayList<>();
+    private final ObjectCounter<Long> customMacs;
+    /**
+     * Where to start searching for a range with available MACs; only a hint, like the search position of a range.
+     */
     private int startIndexForEmptyRangeSearch = 0;
 
     public MacsStorage(boolean allowDuplicates) {
@@ -24,7 +32,8 @@ class MacsStorage {
     }
 
     Range addRange(Range range) {
-        ranges.add(range);
+        // Ranges with the same start keep the order they were added in
+        ranges.add(indexOfLastRangeStartingAtOrBefore(range.getRangeStart()) + 1, range);
         return range;
     }
 
@@ -35,7 +44,9 @@ class MacsStorage {
     private boolean useMac(long mac, boolean allowDuplicates) {
         Range range = findIncludingRange(mac);
         if (range == null) {
-            return customMacs.increase(mac, allowDuplicates);
+            synchronized (customMacs) {
+                return customMacs.increase(mac, allowDuplicates);
+            }
         } else {
             return range.use(mac, allowDuplicates);
         }
@@ -47,13 +58,20 @@ class MacsStorage {
 
     public boolean isMacInUse(long mac) {
         Range range = findIncludingRange(mac);
-        return range == null ? customMacs.contains(mac) : range.isAllocated(mac);
+        if (range == null) {
+            synchronized (customMacs) {
+                return customMacs.contains(mac);
+            }
+        }
+        return range.isAllocated(mac);
     }
 
     public void freeMac(long mac) {
         Range range = findIncludingRange(mac);
         if (range == null) {
-            customMacs.decrease(mac);
+            synchronized (customMacs) {
+                customMacs.decrease(mac);
+            }
         } else {
             range.freeMac(mac);
         }
@@ -72,9 +90,15 @@ class MacsStorage {
         int remainingMacs = numberOfMacs;
         while (remainingMacs > 0) {
             final Range rangeWithAvailableMac = getRangeWithAvailableMac();
-            Validate.notNull(rangeWithAvailableMac);
+            if (rangeWithAvailableMac == null) {
+                // The MACs counted above were meanwhile allocated by others
+                for (Long mac : result) {
+                    freeMac(mac);
+                }
+                throw new EngineException(EngineError.MAC_POOL_NO_MACS_LEFT);
+            }
 
-            final List<Long> allocatedMacs = rangeWithAvailableMac.allocateMacs(remainingMacs);
+            final List<Long> allocatedMacs = rangeWithAvailableMac.allocateAvailableMacs(remainingMacs);
 
             remainingMacs -= allocatedMacs.size();
             result.addAll(allocatedMacs);
@@ -85,12 +109,13 @@ class MacsStorage {
 
     Range getRangeWithAvailableMac() {
         int numberOfRanges = ranges.size();
-        Range range = findRangeWithAvailableMac(startIndexForEmptyRangeSearch, numberOfRanges, numberOfRanges);
+        int startIndex = startIndexForEmptyRangeSearch;
+        Range range = findRangeWithAvailableMac(startIndex, numberOfRanges, numberOfRanges);
         if (range != null) {
             return range;
         }
 
-        return findRangeWithAvailableMac(0, startIndexForEmptyRangeSearch, numberOfRanges);
+        return findRangeWithAvailableMac(0, startIndex, numberOfRanges);
     }
 
     private Range findRangeWithAvailableMac(int startIndex,
@@ -116,11 +141,29 @@ class MacsStorage {
     }
 
     private Range findIncludingRange(long mac) {
-        for (Range range : ranges) {
-            if (range.contains(mac)) {
-                return range;
+        int index = indexOfLastRangeStartingAtOrBefore(mac);
+        if (index == -1) {
+            return null;
+        }
+
+        Range range = ranges.get(index);
+        return range.contains(mac) ? range : null;
+    }
+
+    /**
+     * @return index of the last range starting at or before the given MAC, or -1 if all the ranges start after it.
+     */
+    private int indexOfLastRangeStartingAtOrBefore(long mac) {
+        int low = 0;
+        int high = ranges.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (ranges.get(middle).getRangeStart() <= mac) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
             }
         }
-        return null;
+        return high;
     }
 }
@@ -1,12 +1,23 @@
 package org.ovirt.engine.core.bll.network.macpoolmanager;
 
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.commons.lang.Validate;
 
+/**
+ * Range of MACs, keeping which of them are used in a bitmap.
+ * <p>
+ * The bits of the bitmap are set and cleared by compare-and-set, so the MACs are allocated without locking. A MAC is
+ * allocated by first reserving it from the number of available MACs, and then setting the first unused bit found, so
+ * a reserved allocation always finds an unused bit. Duplicates, which are rare, are counted under the lock of their
+ * counter, which is also taken when freeing a MAC.
+ */
 class Range {
+    private static final int BITS_PER_WORD = Long.SIZE;
+
     private final long rangeStart;
     private final long rangeEnd;
     private final int numberOfMacsInRange;
@@ -15,9 +26,12 @@ class Range {
      * object counter, which holds number of MACs duplicates.
      */
     private final ObjectCounter<Integer> macDuplicityCount = new ObjectCounter<>(true);
-    private int availableMacsCount;
+    private final AtomicInteger availableMacsCount;
 
-    private BitSet usedMacs;
+    private final AtomicLongArray usedMacs;
+    /**
+     * Where to start searching for an unused MAC. It's only a hint, so it's neither volatile nor updated atomically.
+     */
     private int startingLocationWhenSearchingForUnusedMac = 0;
 
     public Range(long rangeStart, long rangeEnd) {
@@ -31,8 +45,16 @@ class Range {
 
         numberOfMacsInRange = (int) numberOfMacsLong;
 
-        this.availableMacsCount = numberOfMacsInRange;
-        this.usedMacs = new BitSet(numberOfMacsInRange);
+        this.availableMacsCount = new AtomicInteger(numberOfMacsInRange);
+        this.usedMacs = new AtomicLongArray((int) ((numberOfMacsLong + BITS_PER_WORD - 1) / BITS_PER_WORD));
+    }
+
+    public long getRangeStart() {
+        return rangeStart;
+    }
+
+    public long getRangeEnd() {
+        return rangeEnd;
     }
 
     public boolean contains(long mac) {
@@ -55,16 +77,28 @@ class Range {
         checkIfMacIsFromWithinRange(mac);
         int arrayIndex = macToArrayIndex(mac);
 
-        if (!usedMacs.get(arrayIndex)) {
-            availableMacsCount--;
-            usedMacs.set(arrayIndex, true);
-            return true;
-        }
+        while (true) {
+            if (isUsed(arrayIndex)) {
+                if (!allowDuplicates) {
+                    return false;
+                }
 
-        if (allowDuplicates) {
-            return macDuplicityCount.increase(arrayIndex);
-        } else {
-            return false;
+                synchronized (macDuplicityCount) {
+                    // The MAC might have been freed meanwhile, and then it's not a duplicate
+                    if (isUsed(arrayIndex)) {
+                        return macDuplicityCount.increase(arrayIndex);
+                    }
+                }
+            } else if (reserve(1) == 1) {
+                if (setUsed(arrayIndex)) {
+                    return true;
+                }
+                // Another thread took the MAC first
+                availableMacsCount.incrementAndGet();
+            } else {
+                // The MAC is unused, but all the unused MACs are reserved, so an allocation is about to take it
+                Thread.yield();
+            }
         }
     }
 
@@ -74,57 +108,168 @@ class Range {
 
     public boolean isAllocated(long mac) {
         checkIfMacIsFromWithinRange(mac);
-        return usedMacs.get(macToArrayIndex(mac));
+        return isUsed(macToArrayIndex(mac));
     }
 
     public void freeMac(long mac) {
         checkIfMacIsFromWithinRange(mac);
 
         int arrayIndex = macToArrayIndex(mac);
-        if (!usedMacs.get(arrayIndex)) {
-            return;
-        }
+        synchronized (macDuplicityCount) {
+            if (!isUsed(arrayIndex)) {
+                return;
+            }
 
-        final boolean duplicatesExist = macDuplicityCount.count(arrayIndex) != 0;
-        if (duplicatesExist) {
-            macDuplicityCount.decrease(arrayIndex);
-        } else {
-            usedMacs.set(arrayIndex, false);
-            availableMacsCount++;
+            final boolean duplicatesExist = macDuplicityCount.count(arrayIndex) != 0;
+            if (duplicatesExist) {
+                macDuplicityCount.decrease(arrayIndex);
+            } else if (setUnused(arrayIndex)) {
+                availableMacsCount.incrementAndGet();
+            }
         }
     }
 
     public int getAvailableCount() {
-        return availableMacsCount;
+        return availableMacsCount.get();
     }
 
     public List<Long> allocateMacs(int numberOfMacs) {
-        if (numberOfMacs > getAvailableCount()) {
+        if (reserve(numberOfMacs, false) == 0 && numberOfMacs > 0) {
             throw new IllegalStateException("Insufficient amount of free MACs.");
         }
 
+        return takeUnusedMacs(numberOfMacs);
+    }
+
+    /**
+     * Allocates as many of the requested MACs as there are available.
+     *
+     * @param numberOfMacs the maximal number of MACs to allocate
+     * @return the allocated MACs, may be less than requested or none
+     */
+    public List<Long> allocateAvailableMacs(int numberOfMacs) {
+        return takeUnusedMacs(reserve(numberOfMacs, true));
+    }
+
+    private int reserve(int numberOfMacs) {
+        return reserve(numberOfMacs, false);
+    }
+
+    /**
+     * Takes MACs out of the number of available MACs, to be allocated later on.
+     *
+     * @return the number of reserved MACs; either all the requested ones or none, unless a partial reservation is
+     * allowed
+     */
+    private int reserve(int numberOfMacs, boolean allowPartial) {
+        while (true) {
+            int available = availableMacsCount.get();
+            int reserved = allowPartial ? Math.min(available, numberOfMacs) : numberOfMacs;
+            if (reserved > available || reserved <= 0) {
+                return 0;
+            }
+            if (availableMacsCount.compareAndSet(available, available - reserved)) {
+                return reserved;
+            }
+        }
+    }
+
+    private List<Long> takeUnusedMacs(int numberOfMacs) {
         List<Long> result = new ArrayList<>(numberOfMacs);
 
         for (int count = 0; count < numberOfMacs; count++) {
-            final long mac = findUnusedMac();
-
-            // Well duplicates may be allowed, but we're using unallocated mac.
-            use(mac, false);
-            result.add(mac);
+            result.add(takeUnusedMac());
         }
 
         return result;
     }
 
-    private long findUnusedMac() {
-        int index = usedMacs.nextClearBit(startingLocationWhenSearchingForUnusedMac);
-        boolean notFound = index == numberOfMacsInRange;
-        if (notFound) {
-            index = usedMacs.nextClearBit(0);
+    /**
+     * Sets the first unused bit found from the last scan position. Must be called only after reserving a MAC, which
+     * guarantees there is an unused bit to set.
+     */
+    private long takeUnusedMac() {
+        int index = startingLocationWhenSearchingForUnusedMac;
+        while (true) {
+            index = nextUnusedIndex(index);
+            if (index == -1) {
+                index = nextUnusedIndex(0);
+                if (index == -1) {
+                    // Concurrent allocations took the unused bits seen by the scan, and others were freed behind it
+                    index = 0;
+                    continue;
+                }
+            }
+
+            if (setUsed(index)) {
+                startingLocationWhenSearchingForUnusedMac = (index + 1) % numberOfMacsInRange;
+                return rangeStart + index;
+            }
+        }
+    }
+
+    /**
+     * @return index of the first unused MAC at or after the given index, or -1 if there's none.
+     */
+    private int nextUnusedIndex(int fromIndex) {
+        int wordIndex = fromIndex / BITS_PER_WORD;
+        int wordsCount = usedMacs.length();
+        if (wordIndex >= wordsCount) {
+            return -1;
+        }
+
+        long unusedBits = ~usedMacs.get(wordIndex) & (-1L << (fromIndex % BITS_PER_WORD));
+        while (true) {
+            if (unusedBits != 0) {
+                long index = (long) wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(unusedBits);
+                return index < numberOfMacsInRange ? (int) index : -1;
+            }
+            if (++wordIndex == wordsCount) {
+                return -1;
+            }
+            unusedBits = ~usedMacs.get(wordIndex);
         }
-        startingLocationWhenSearchingForUnusedMac = (index + 1) % numberOfMacsInRange;
+    }
 
-        return rangeStart + index;
+    private boolean isUsed(int index) {
+        return (usedMacs.get(index / BITS_PER_WORD) & bitMask(index)) != 0;
     }
 
+    /**
+     * @return whether the bit was set by this call, i.e. was not set before.
+     */
+    private boolean setUsed(int index) {
+        int wordIndex = index / BITS_PER_WORD;
+        long mask = bitMask(index);
+        while (true) {
+            long word = usedMacs.get(wordIndex);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (usedMacs.compareAndSet(wordIndex, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return whether the bit was cleared by this call, i.e. was set before.
+     */
+    private boolean setUnused(int index) {
+        int wordIndex = index / BITS_PER_WORD;
+        long mask = bitMask(index);
+        while (true) {
+            long word = usedMacs.get(wordIndex);
+            if ((word & mask) == 0) {
+                return false;
+            }
+            if (usedMacs.compareAndSet(wordIndex, word, word & ~mask)) {
+                return true;
+            }
+        }
+    }
+
+    private static long bitMask(int index) {
+        return 1L << (index % BITS_PER_WORD);
+    }
 }
@@ -0,0 +1,17 @@
+package org.ovirt.engine.core.bll.network.vm;
+
+import org.ovirt.engine.core.bll.QueriesCommandBase;
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+
+public class GetVmInterfacesByVmIdsQuery<P extends IdsQueryParameters> extends QueriesCommandBase<P> {
+    public GetVmInterfacesByVmIdsQuery(P parameters) {
+        super(parameters);
+    }
+
+    @Override
+    protected void executeQueryCommand() {
+        getQueryReturnValue().setReturnValue(
+                getDbFacade().getVmNetworkInterfaceDao()
+                        .getAllForVms(getParameters().getIds(), getUserID(), getParameters().isFiltered()));
+    }
+}
@@ -5,8 +5,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -35,14 +37,17 @@ import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Caches the quotas and their consumption. The quotas of each storage pool are guarded by their own lock, so the
+ * consumption in one storage pool never waits for another; waiting for the lock of a pool is bounded by
+ * {@link ConfigValues#QuotaConsumptionLockTimeoutInSeconds}.
+ */
 @Singleton
 public class QuotaManager implements BackendService {
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private final Logger log = LoggerFactory.getLogger(QuotaManager.class);
-    private HashMap<Guid, Map<Guid, Quota>> storagePoolQuotaMap = new HashMap<>();
+    private final ConcurrentMap<Guid, StoragePoolQuotas> storagePoolQuotaMap = new ConcurrentHashMap<>();
 
     private final QuotaManagerAuditLogger quotaManagerAuditLogger = new QuotaManagerAuditLogger();
-    private final List<QuotaConsumptionParameter> corruptedParameters = new ArrayList<>();
     private final List<Integer> nonCountableQutoaVmStatusesList = new ArrayList<>();
     @Inject
     private SchedulerUtilQuartzImpl schedulerUtil;
@@ -76,20 +81,39 @@ public class QuotaManager implements BackendService {
         return DbFacade.getInstance().getQuotaDao();
     }
 
+    /**
+     * This method is protected for testing use only
+     */
+    protected int getConsumptionLockTimeoutInSeconds() {
+        return Config.<Integer> getValue(ConfigValues.QuotaConsumptionLockTimeoutInSeconds);
+    }
+
+    private StoragePoolQuotas getOrCreateStoragePoolQuotas(Guid storagePoolId) {
+        StoragePoolQuotas poolQuotas = storagePoolQuotaMap.get(storagePoolId);
+        if (poolQuotas == null) {
+            poolQuotas = new StoragePoolQuotas(new ConcurrentHashMap<Guid, Quota>());
+            StoragePoolQuotas existing = storagePoolQuotaMap.putIfAbsent(storagePoolId, poolQuotas);
+            if (existing != null) {
+                poolQuotas = existing;
+            }
+        }
+        return poolQuotas;
+    }
+
     public void removeQuotaFromCache(Guid storagePoolId, List<Guid> quotaList) {
-        lock.writeLock().lock();
+        StoragePoolQuotas poolQuotas = storagePoolQuotaMap.get(storagePoolId);
+        if (poolQuotas == null) {
+            return;
+        }
+
+        poolQuotas.lock.lock();
         try {
-            if (!storagePoolQuotaMap.containsKey(storagePoolId)) {
-                return;
-            }
-            synchronized (storagePoolQuotaMap.get(storagePoolId)) {
-                Map<Guid, Quota> map = storagePoolQuotaMap.get(storagePoolId);
-                for (Guid quotaId : quotaList) {
-                    map.remove(quotaId);
-                }
+            Map<Guid, Quota> map = poolQuotas.quotas;
+            for (Guid quotaId : quotaList) {
+                map.remove(quotaId);
             }
         } finally {
-            lock.writeLock().unlock();
+            poolQuotas.lock.unlock();
         }
     }
 
@@ -98,17 +122,12 @@ public class QuotaManager implements BackendService {
     }
 
     public void removeStoragePoolFromCache(Guid storagePoolId) {
-        lock.writeLock().lock();
-        try {
-            storagePoolQuotaMap.remove(storagePoolId);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        storagePoolQuotaMap.remove(storagePoolId);
     }
 
-    private boolean validateAndSetStorageQuotaHelper(QuotaConsumptionParametersWrapper parameters,
+    private boolean validateAndSetStorageQuotaHelper(Map<Guid, Quota> quotaMap,
+            QuotaConsumptionParametersWrapper parameters,
             Pair<AuditLogType, AuditLogableBase> auditLogPair) {
-        Map<Guid, Quota> quotaMap = storagePoolQuotaMap.get(parameters.getStoragePoolId());
         Map<Guid, Map<Guid, Double>> desiredStorageSizeQuotaMap = new HashMap<>();
 
         Map<Guid, Double> newUsedGlobalStorageSize = new HashMap<>();
@@ -583,26 +602,58 @@ public class QuotaManager implements BackendService {
             throw new InvalidQuotaParametersException("Null storage pool passed to QuotaManager");
         }
 
-        lock.writeLock().lock();
+        StoragePoolQuotas poolQuotas = getOrCreateStoragePoolQuotas(storagePool.getId());
+        if (!tryLock(poolQuotas, storagePool, parameters)) {
+            parameters.getCanDoActionMessages().add(EngineMessage.ACTION_TYPE_FAILED_OBJECT_LOCKED.toString());
+            return false;
+        }
+
         try {
-            if (!storagePoolQuotaMap.containsKey(storagePool.getId())) {
-                storagePoolQuotaMap.put(storagePool.getId(), new HashMap<Guid, Quota>());
-            }
+            ConcurrentMap<Guid, Quota> quotaMap = poolQuotas.quotas;
+            return validateAndCompleteParameters(quotaMap, parameters, auditLogPair)
+                    && (parameters.getStoragePool().getQuotaEnforcementType() == QuotaEnforcementTypeEnum.DISABLED
+                    || internalConsumeAndReleaseHandler(quotaMap, parameters, auditLogPair));
         } finally {
-            lock.writeLock().unlock();
+            poolQuotas.lock.unlock();
+            getQuotaManagerAuditLogger().auditLog(auditLogPair.getFirst(), auditLogPair.getSecond());
+        }
+    }
+
+    /**
+     * Locks the quotas of the storage pool. Only a request which consumes quota gives up after the consumption lock
+     * timeout, failing its command; a request which only releases quota waits as long as it takes, since a dropped
+     * release would leak the quota it frees.
+     */
+    private boolean tryLock(StoragePoolQuotas poolQuotas,
+            StoragePool storagePool,
+            QuotaConsumptionParametersWrapper parameters) {
+        if (!isConsuming(parameters)) {
+            poolQuotas.lock.lock();
+            return true;
         }
 
-        lock.readLock().lock();
+        int timeout = getConsumptionLockTimeoutInSeconds();
         try {
-            synchronized (storagePoolQuotaMap.get(storagePool.getId())) {
-                return validateAndCompleteParameters(parameters, auditLogPair)
-                        && (parameters.getStoragePool().getQuotaEnforcementType() == QuotaEnforcementTypeEnum.DISABLED
-                        || internalConsumeAndReleaseHandler(parameters, auditLogPair));
+            if (poolQuotas.lock.tryLock(timeout, TimeUnit.SECONDS)) {
+                return true;
             }
-        } finally {
-            lock.readLock().unlock();
-            getQuotaManagerAuditLogger().auditLog(auditLogPair.getFirst(), auditLogPair.getSecond());
+            log.warn("Timed out after {} seconds waiting for the quota lock of data center '{}'",
+                    timeout,
+                    storagePool.getName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the quota lock of data center '{}'", storagePool.getName());
         }
+        return false;
+    }
+
+    private static boolean isConsuming(QuotaConsumptionParametersWrapper parameters) {
+        for (QuotaConsumptionParameter parameter : parameters.getParameters()) {
+            if (parameter.getQuotaAction() == QuotaConsumptionParameter.QuotaAction.CONSUME) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -615,16 +666,17 @@ public class QuotaManager implements BackendService {
      * @param auditLogPair - auditLog pair
      * @return - true if the request was validated and set
      */
-    private boolean internalConsumeAndReleaseHandler(QuotaConsumptionParametersWrapper parameters, Pair<AuditLogType,
-            AuditLogableBase> auditLogPair) {
-        boolean result = validateAndSetStorageQuotaHelper(parameters, auditLogPair);
+    private boolean internalConsumeAndReleaseHandler(Map<Guid, Quota> quotaMap,
+            QuotaConsumptionParametersWrapper parameters,
+            Pair<AuditLogType, AuditLogableBase> auditLogPair) {
+        boolean result = validateAndSetStorageQuotaHelper(quotaMap, parameters, auditLogPair);
         if (result) {
             result = validateAndSetClusterQuota(parameters, auditLogPair);
             if (result) {
                 return true;
             } else {
                 QuotaConsumptionParametersWrapper revertedParams = revertParametersQuantities(parameters);
-                validateAndSetStorageQuotaHelper(revertedParams, auditLogPair);
+                validateAndSetStorageQuotaHelper(quotaMap, revertedParams, auditLogPair);
             }
         }
 
@@ -659,7 +711,8 @@ public class QuotaManager implements BackendService {
      *            - Quota consumption parameters
      */
 
-    private boolean validateAndCompleteParameters(QuotaConsumptionParametersWrapper parameters,
+    private boolean validateAndCompleteParameters(ConcurrentMap<Guid, Quota> quotaMap,
+            QuotaConsumptionParametersWrapper parameters,
             Pair<AuditLogType, AuditLogableBase> auditLogPair) throws InvalidQuotaParametersException {
 
         if (QuotaEnforcementTypeEnum.DISABLED == parameters.getAuditLogable().getStoragePool().getQuotaEnforcementType()) {
@@ -669,10 +722,11 @@ public class QuotaManager implements BackendService {
         boolean hardEnforcement =
                 QuotaEnforcementTypeEnum.HARD_ENFORCEMENT == parameters.getAuditLogable().getStoragePool().getQuotaEnforcementType();
 
+        List<QuotaConsumptionParameter> corruptedParameters = new ArrayList<>();
         // for each parameter - check and complete
         for (QuotaConsumptionParameter param : parameters.getParameters()) {
             // check that quota id is valid and fetch the quota from db (or cache). add the quota to the param
-            boolean validQuotaId = checkAndFetchQuota(parameters, param, auditLogPair);
+            boolean validQuotaId = checkAndFetchQuota(quotaMap, parameters, param, corruptedParameters, auditLogPair);
             boolean validVdsGroup = true;
             boolean  validStorageDomain = true;
 
@@ -704,13 +758,15 @@ public class QuotaManager implements BackendService {
             }
         }
         parameters.getParameters().removeAll(corruptedParameters);
-        corruptedParameters.clear();
 
         return true;
     }
 
     // check that quota id is valid and fetch the quota from db (or cache). add the quota to the param
-    private boolean checkAndFetchQuota(QuotaConsumptionParametersWrapper parameters, QuotaConsumptionParameter param,
+    private boolean checkAndFetchQuota(ConcurrentMap<Guid, Quota> quotaMap,
+            QuotaConsumptionParametersWrapper parameters,
+            QuotaConsumptionParameter param,
+            List<QuotaConsumptionParameter> corruptedParameters,
             Pair<AuditLogType, AuditLogableBase> auditLogPair)
             throws InvalidQuotaParametersException {
         if(param.getQuotaGuid() == null || Guid.Empty.equals(param.getQuotaGuid())) {
@@ -731,7 +787,7 @@ public class QuotaManager implements BackendService {
             return false;
         }
 
-        Quota quota = fetchQuotaFromCache(param.getQuotaGuid(), parameters.getStoragePool().getId());
+        Quota quota = fetchQuotaFromCache(quotaMap, param.getQuotaGuid(), parameters.getStoragePool().getId());
         if (quota == null) {
             parameters.getCanDoActionMessages().add(EngineMessage.ACTION_TYPE_FAILED_QUOTA_IS_NO_LONGER_AVAILABLE_IN_SYSTEM.toString());
             parameters.getCanDoActionMessages().add(String.format("$VmName %1$s",
@@ -821,24 +877,24 @@ public class QuotaManager implements BackendService {
     /**
      * Get Quota by Id. If in cache - get from cache. else get from Dao and add to cache.
      *
+     * @param quotaMap - the cached quotas of the storage pool
      * @param quotaId - quota id
      * @param storagePoolId - storage pool containing this quota
      * @return - found quota. null if not found.
      */
-    private Quota fetchQuotaFromCache(Guid quotaId, Guid storagePoolId) throws InvalidQuotaParametersException {
-        Quota quota;
-
-
-        Map<Guid, Quota> quotaMap = storagePoolQuotaMap.get(storagePoolId);
-
-        quota = quotaMap.get(quotaId);
+    private Quota fetchQuotaFromCache(ConcurrentMap<Guid, Quota> quotaMap, Guid quotaId, Guid storagePoolId)
+            throws InvalidQuotaParametersException {
+        Quota quota = quotaMap.get(quotaId);
         // if quota was not found in cache - look for it in DB
         if (quota == null) {
             quota = getQuotaDao().getById(quotaId);
             if (quota != null) {
                 // cache in quota map
                 if (storagePoolId.equals(quota.getStoragePoolId())) {
-                    quotaMap.put(quotaId, quota);
+                    Quota cached = quotaMap.putIfAbsent(quotaId, quota);
+                    if (cached != null) {
+                        quota = cached;
+                    }
                 } else {
                     throw new InvalidQuotaParametersException(
                             String.format("Quota %s does not match storage pool %s", quotaId.toString()
@@ -862,46 +918,37 @@ public class QuotaManager implements BackendService {
             return;
         }
 
-        lock.readLock().lock();
-        try {
-            for (Quota quotaExternal : quotaList) {
-                // look for the quota in the cache
-                Map<Guid, Quota> quotaMap = storagePoolQuotaMap.get(quotaExternal.getStoragePoolId());
-                Quota quota = null;
-                if (quotaMap != null) {
-                    quota = quotaMap.get(quotaExternal.getId());
-                }
+        for (Quota quotaExternal : quotaList) {
+            // look for the quota in the cache
+            Quota quota = getCachedQuota(quotaExternal);
 
-                // if quota not in cache look for it in DB and add it to cache
-                if (quota == null) {
-                    needToCache.add(quotaExternal);
-                } else {
-                    copyUsageData(quota, quotaExternal);
-                }
+            // if quota not in cache look for it in DB and add it to cache
+            if (quota == null) {
+                needToCache.add(quotaExternal);
+            } else {
+                copyUsageData(quota, quotaExternal);
             }
-        } finally {
-            lock.readLock().unlock();
         }
 
         // if some of the quota are not in cache and need to be cached
-        if (!needToCache.isEmpty()) {
-            lock.writeLock().lock();
-            try {
-                for (Quota quotaExternal : needToCache) {
-                    if (!storagePoolQuotaMap.containsKey(quotaExternal.getStoragePoolId())) {
-                        storagePoolQuotaMap.put(quotaExternal.getStoragePoolId(), new HashMap<Guid, Quota>());
-                    }
-                    Quota quota = fetchQuotaFromCache(quotaExternal.getId(), quotaExternal.getStoragePoolId());
-                    if (quota != null) {
-                        copyUsageData(quota, quotaExternal);
-                    }
-                }
-            } finally {
-                lock.writeLock().unlock();
+        for (Quota quotaExternal : needToCache) {
+            Quota quota = fetchQuotaFromCache(quotaExternal);
+            if (quota != null) {
+                copyUsageData(quota, quotaExternal);
             }
         }
     }
 
+    private Quota getCachedQuota(Quota quotaExternal) {
+        StoragePoolQuotas poolQuotas = storagePoolQuotaMap.get(quotaExternal.getStoragePoolId());
+        return poolQuotas == null ? null : poolQuotas.quotas.get(quotaExternal.getId());
+    }
+
+    private Quota fetchQuotaFromCache(Quota quotaExternal) {
+        StoragePoolQuotas poolQuotas = getOrCreateStoragePoolQuotas(quotaExternal.getStoragePoolId());
+        return fetchQuotaFromCache(poolQuotas.quotas, quotaExternal.getId(), quotaExternal.getStoragePoolId());
+    }
+
     private void copyUsageData(Quota quota, Quota quotaExternal) {
         if (quota.getGlobalQuotaStorage() != null) {
             quotaExternal.setGlobalQuotaStorage(copyQuotaStorageUsage(quota.getGlobalQuotaStorage()));
@@ -952,47 +999,28 @@ public class QuotaManager implements BackendService {
         List<Quota> needToCache = new ArrayList<>();
 
         if (quotaIdsList != null) {
-            lock.readLock().lock();
-            try {
-                for (Quota quotaExternal : quotaIdsList) {
-                    // look for the quota in the cache
-                    Map<Guid, Quota> quotaMap = storagePoolQuotaMap.get(quotaExternal.getStoragePoolId());
-                    Quota quota = null;
-                    if (quotaMap != null) {
-                        quota = quotaMap.get(quotaExternal.getId());
-                    }
+            for (Quota quotaExternal : quotaIdsList) {
+                // look for the quota in the cache
+                Quota quota = getCachedQuota(quotaExternal);
 
-                    // if quota not in cache look for it in DB and add it to cache
-                    if (quota == null) {
-                        needToCache.add(quotaExternal);
-                    } else {
-                        QuotaUsagePerUser usagePerUser = addQuotaEntry(quota);
-                        if (usagePerUser != null) {
-                            quotaPerUserUsageEntityMap.put(quota.getId(), usagePerUser);
-                        }
+                // if quota not in cache look for it in DB and add it to cache
+                if (quota == null) {
+                    needToCache.add(quotaExternal);
+                } else {
+                    QuotaUsagePerUser usagePerUser = addQuotaEntry(quota);
+                    if (usagePerUser != null) {
+                        quotaPerUserUsageEntityMap.put(quota.getId(), usagePerUser);
                     }
                 }
-            } finally {
-                lock.readLock().unlock();
             }
 
-            if (!needToCache.isEmpty()) {
-                lock.writeLock().lock();
-                try {
-                    for (Quota quotaExternal : needToCache) {
-                        // look for the quota in the cache again (it may have been added by now)
-                        if (!storagePoolQuotaMap.containsKey(quotaExternal.getStoragePoolId())) {
-                            storagePoolQuotaMap.put(quotaExternal.getStoragePoolId(), new HashMap<Guid, Quota>());
-                        }
-                        Quota quota = fetchQuotaFromCache(quotaExternal.getId(), quotaExternal.getStoragePoolId());
+            for (Quota quotaExternal : needToCache) {
+                // look for the quota in the cache again (it may have been added by now)
+                Quota quota = fetchQuotaFromCache(quotaExternal);
 
-                        QuotaUsagePerUser usagePerUser = addQuotaEntry(quota);
-                        if (usagePerUser != null) {
-                            quotaPerUserUsageEntityMap.put(quota.getId(), usagePerUser);
-                        }
-                    }
-                } finally {
-                    lock.writeLock().unlock();
+                QuotaUsagePerUser usagePerUser = addQuotaEntry(quota);
+                if (usagePerUser != null) {
+                    quotaPerUserUsageEntityMap.put(quota.getId(), usagePerUser);
                 }
             }
         }
@@ -1086,19 +1114,24 @@ public class QuotaManager implements BackendService {
             return;
         }
 
-        HashMap<Guid, Map<Guid, Quota>> newStoragePoolQuotaMap = new HashMap<>();
+        Map<Guid, ConcurrentMap<Guid, Quota>> newStoragePoolQuotaMap = new HashMap<>();
         for (Quota quota : allQuotaIncludingConsumption) {
             if (!newStoragePoolQuotaMap.containsKey(quota.getStoragePoolId())) {
-                newStoragePoolQuotaMap.put(quota.getStoragePoolId(), new HashMap<Guid, Quota>());
+                newStoragePoolQuotaMap.put(quota.getStoragePoolId(), new ConcurrentHashMap<Guid, Quota>());
             }
             newStoragePoolQuotaMap.get(quota.getStoragePoolId()).put(quota.getId(), quota);
         }
 
-        lock.writeLock().lock();
-        try {
-            storagePoolQuotaMap = newStoragePoolQuotaMap;
-        } finally {
-            lock.writeLock().unlock();
+        // replace the quotas of each storage pool under its own lock, so consumption in progress is not lost
+        storagePoolQuotaMap.keySet().retainAll(newStoragePoolQuotaMap.keySet());
+        for (Map.Entry<Guid, ConcurrentMap<Guid, Quota>> entry : newStoragePoolQuotaMap.entrySet()) {
+            StoragePoolQuotas poolQuotas = getOrCreateStoragePoolQuotas(entry.getKey());
+            poolQuotas.lock.lock();
+            try {
+                poolQuotas.quotas = entry.getValue();
+            } finally {
+                poolQuotas.lock.unlock();
+            }
         }
         long timeEnd = System.currentTimeMillis();
         log.info("Quota Cache updated. ({} msec)", timeEnd-timeStart);
@@ -1108,13 +1141,8 @@ public class QuotaManager implements BackendService {
         int quotaCount = getQuotaDao().getQuotaCount();
         int cacheCount = 0;
 
-        lock.readLock().lock();
-        try {
-            for(Map<Guid, Quota> quotaMap : storagePoolQuotaMap.values()) {
-                cacheCount += quotaMap.size();
-            }
-        } finally {
-            lock.readLock().unlock();
+        for (StoragePoolQuotas poolQuotas : storagePoolQuotaMap.values()) {
+            cacheCount += poolQuotas.quotas.size();
         }
 
         return cacheCount < quotaCount * Config.<Integer> getValue(ConfigValues.MinimumPercentageToUpdateQuotaCache)/100;
@@ -1130,4 +1158,16 @@ public class QuotaManager implements BackendService {
         }
         return !nonCountableQutoaVmStatusesList.contains(status.getValue());
     }
+
+    /**
+     * The cached quotas of a storage pool and the lock guarding their consumption
+     */
+    private static class StoragePoolQuotas {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile ConcurrentMap<Guid, Quota> quotas;
+
+        private StoragePoolQuotas(ConcurrentMap<Guid, Quota> quotas) {
+            this.quotas = quotas;
+        }
+    }
 }
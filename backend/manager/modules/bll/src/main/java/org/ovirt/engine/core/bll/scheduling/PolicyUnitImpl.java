@@ -148,6 +148,29 @@ public class PolicyUnitImpl {
         return hosts;
     }
 
+    /**
+     * Loads the data the filter needs regardless of the host, like the networks of the cluster. When the hosts are
+     * split into partitions filtered concurrently, it is loaded once and passed to the filtering of every partition.
+     *
+     * @return the data for {@link #filter(VDSGroup, List, VM, Map, PerHostMessages, Object)}, or null if the filter
+     *         doesn't load any
+     */
+    public Object loadFilterData(@NotNull VDSGroup cluster, VM vm) {
+        return null;
+    }
+
+    /**
+     * Filters the hosts with the data returned by {@link #loadFilterData(VDSGroup, VM)}
+     */
+    public List<VDS> filter(@NotNull VDSGroup cluster,
+            List<VDS> hosts,
+            VM vm,
+            Map<String, String> parameters,
+            PerHostMessages messages,
+            Object filterData) {
+        return filter(cluster, hosts, vm, parameters, messages);
+    }
+
     public List<Pair<Guid, Integer>> score(@NotNull  VDSGroup cluster, List<VDS> hosts, VM vm, Map<String, String> parameters) {
         log.error("Policy unit '{}' function is not implemented", getPolicyUnit().getName());
         List<Pair<Guid, Integer>> pairs = new ArrayList<>();
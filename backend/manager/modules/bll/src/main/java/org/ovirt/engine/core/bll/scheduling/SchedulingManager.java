@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -61,6 +62,7 @@ import org.ovirt.engine.core.dao.VdsGroupDao;
 import org.ovirt.engine.core.dao.scheduling.ClusterPolicyDao;
 import org.ovirt.engine.core.dao.scheduling.PolicyUnitDao;
 import org.ovirt.engine.core.di.Injector;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
 import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.utils.timer.OnTimerMethodAnnotation;
 import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
@@ -74,6 +76,8 @@ public class SchedulingManager implements BackendService {
     private static final Logger log = LoggerFactory.getLogger(SchedulingManager.class);
     private static final String HIGH_UTILIZATION = "HighUtilization";
     private static final String LOW_UTILIZATION = "LowUtilization";
+    /** The maximal number of host partitions evaluated concurrently in a single scheduling pass **/
+    private static final int MAX_SCHEDULING_PARTITIONS = 8;
 
     @Inject
     private AuditLogDirector auditLogDirector;
@@ -311,29 +315,8 @@ public class SchedulingManager implements BackendService {
             Guid bestHost = selectBestHost(cluster, vm, destHostIdList, vdsList, policy, parameters);
 
             if (bestHost != null) {
-                getPendingResourceManager().addPending(new PendingCpuCores(bestHost, vm, vm.getNumOfCpus()));
-
-                VDS bestHostEntity = null;
-                for (VDS host: vdsList) {
-                    if (host.getId().equals(bestHost)) {
-                        bestHostEntity = host;
-                        break;
-                    }
-                }
-
-                // Will never happen (bestHost was selected from vdsList so it is always present)
-                assert bestHostEntity != null;
-
-                getPendingResourceManager().addPending(new PendingMemory(bestHost, vm, bestHostEntity.getGuestOverhead()));
-                getPendingResourceManager().addPending(new PendingOvercommitMemory(bestHost, vm, vm.getMemSizeMb()));
-                getPendingResourceManager().addPending(new PendingVM(bestHost, vm));
+                addPendingResources(vm, findHost(vdsList, bestHost));
                 getPendingResourceManager().notifyHostManagers(bestHost);
-
-                VfScheduler vfScheduler = Injector.get(VfScheduler.class);
-                Map<Guid, String> passthroughVnicToVfMap = vfScheduler.getVnicToVfMap(vm.getId(), bestHost);
-                if (passthroughVnicToVfMap != null && !passthroughVnicToVfMap.isEmpty()) {
-                    markVfsAsUsedByVm(bestHost, vm.getId(), passthroughVnicToVfMap);
-                }
             }
 
             return bestHost;
@@ -347,6 +330,112 @@ public class SchedulingManager implements BackendService {
         }
     }
 
+    /**
+     * Schedules several VMs of the same cluster in a single pass. The cluster is locked and its hosts are
+     * fetched once, then the VMs are placed one after the other, each placement registering its pending
+     * resources so the following VMs are packed or spread according to the cluster policy. As in the
+     * scheduling of a single VM, the cluster lock may be skipped when the cluster allows overbooking,
+     * and the memory of the hosts is checked by the memory checker of each request.
+     * The host managers are notified about the new pending resources once all the VMs are placed.
+     *
+     * @return the selected host per VM id, VMs which could not be scheduled are not contained
+     */
+    public Map<Guid, Guid> schedule(VDSGroup cluster,
+            List<VmSchedulingRequest> requests,
+            String correlationId) {
+        Map<Guid, Guid> vmToHost = new LinkedHashMap<>();
+        Set<Guid> modifiedHosts = new HashSet<>();
+        prepareClusterLock(cluster.getId());
+        try {
+            log.debug("Batch scheduling of {} VMs started, correlation Id: {}", requests.size(), correlationId);
+            checkAllowOverbooking(cluster);
+            lockCluster(cluster.getId());
+            List<VDS> clusterHosts = getVdsDao().getAllForVdsGroupWithStatus(cluster.getId(), VDSStatus.Up);
+            refreshCachedPendingValues(clusterHosts);
+            ClusterPolicy policy = policyMap.get(cluster.getClusterPolicyId());
+            Map<String, String> parameters = createClusterPolicyParameters(cluster);
+
+            for (VmSchedulingRequest request : requests) {
+                VM vm = request.getVm();
+                List<VDS> vdsList = new ArrayList<>(clusterHosts);
+                updateInitialHostList(vdsList, request.getHostBlackList(), true);
+                updateInitialHostList(vdsList, request.getHostWhiteList(), false);
+
+                vdsList =
+                        runFilters(policy.getFilters(),
+                                cluster,
+                                vdsList,
+                                vm,
+                                parameters,
+                                policy.getFilterPositionMap(),
+                                request.getMessages(),
+                                request.getMemoryChecker(),
+                                true,
+                                correlationId);
+
+                if (vdsList == null || vdsList.isEmpty()) {
+                    continue;
+                }
+
+                Guid bestHost = selectBestHost(cluster, vm, request.getDestHostIdList(), vdsList, policy, parameters);
+                if (bestHost != null) {
+                    VDS bestHostEntity = findHost(vdsList, bestHost);
+                    addPendingResources(vm, bestHostEntity);
+                    // keep the cached pending values of the host up to date for the following VMs
+                    bestHostEntity.setPendingVcpusCount(bestHostEntity.getPendingVcpusCount() + vm.getNumOfCpus());
+                    bestHostEntity.setPendingVmemSize(bestHostEntity.getPendingVmemSize() + vm.getMemSizeMb());
+                    modifiedHosts.add(bestHost);
+                    vmToHost.put(vm.getId(), bestHost);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.error("interrupted", e);
+        } finally {
+            releaseCluster(cluster.getId());
+
+            for (Guid hostId : modifiedHosts) {
+                getPendingResourceManager().notifyHostManagers(hostId);
+            }
+            log.debug("Batch scheduling ended, {} of {} VMs were scheduled, correlation Id: {}",
+                    vmToHost.size(),
+                    requests.size(),
+                    correlationId);
+        }
+        return vmToHost;
+    }
+
+    private VDS findHost(List<VDS> vdsList, Guid hostId) {
+        VDS hostEntity = null;
+        for (VDS host : vdsList) {
+            if (host.getId().equals(hostId)) {
+                hostEntity = host;
+                break;
+            }
+        }
+
+        // Will never happen (the host was selected from vdsList so it is always present)
+        assert hostEntity != null;
+        return hostEntity;
+    }
+
+    /**
+     * Registers the resources the VM is going to consume on the selected host.
+     * The caller is responsible for notifying the host managers once done.
+     */
+    private void addPendingResources(VM vm, VDS bestHost) {
+        Guid bestHostId = bestHost.getId();
+        getPendingResourceManager().addPending(new PendingCpuCores(bestHostId, vm, vm.getNumOfCpus()));
+        getPendingResourceManager().addPending(new PendingMemory(bestHostId, vm, bestHost.getGuestOverhead()));
+        getPendingResourceManager().addPending(new PendingOvercommitMemory(bestHostId, vm, vm.getMemSizeMb()));
+        getPendingResourceManager().addPending(new PendingVM(bestHostId, vm));
+
+        VfScheduler vfScheduler = Injector.get(VfScheduler.class);
+        Map<Guid, String> passthroughVnicToVfMap = vfScheduler.getVnicToVfMap(vm.getId(), bestHostId);
+        if (passthroughVnicToVfMap != null && !passthroughVnicToVfMap.isEmpty()) {
+            markVfsAsUsedByVm(bestHostId, vm.getId(), passthroughVnicToVfMap);
+        }
+    }
+
     private void releaseCluster(Guid cluster) {
         // ensuring setting the semaphore permits to 1
         synchronized (clusterLockMap.get(cluster)) {
@@ -602,11 +691,19 @@ public class SchedulingManager implements BackendService {
             VdsFreeMemoryChecker memoryChecker,
             String correlationId, SchedulingResult result) {
         if (filters != null) {
+            for (PolicyUnitImpl filterPolicyUnit : filters) {
+                filterPolicyUnit.setMemoryChecker(memoryChecker);
+            }
+
+            List<List<VDS>> partitions = partitionHosts(hostList);
+            if (partitions.size() > 1) {
+                return runInternalFiltersInParallel(filters, cluster, partitions, vm, parameters, correlationId, result);
+            }
+
             for (PolicyUnitImpl filterPolicyUnit : filters) {
                 if (hostList == null || hostList.isEmpty()) {
                     break;
                 }
-                filterPolicyUnit.setMemoryChecker(memoryChecker);
                 List<VDS> currentHostList = new ArrayList<>(hostList);
                 hostList = filterPolicyUnit.filter(cluster, hostList, vm, parameters, result.getDetails());
                 logFilterActions(currentHostList,
@@ -620,6 +717,116 @@ public class SchedulingManager implements BackendService {
         return hostList;
     }
 
+    /**
+     * Runs the chain of internal filters on each of the host partitions concurrently. The filters decide on each
+     * host separately, so the union of the partitions results is the same as filtering the whole list. The data the
+     * filters need regardless of the host is loaded once for all the partitions, and the filtered out hosts are
+     * reported per filter, the same as when the whole list is filtered. The partitions run in the parallel pool,
+     * since the scheduling itself runs in the commands pool, and the ones that pool has no room for are filtered on
+     * the calling thread.
+     */
+    private List<VDS> runInternalFiltersInParallel(final ArrayList<PolicyUnitImpl> filters,
+            final VDSGroup cluster,
+            List<List<VDS>> partitions,
+            final VM vm,
+            final Map<String, String> parameters,
+            String correlationId,
+            SchedulingResult result) {
+        final List<Object> filtersData = new ArrayList<>(filters.size());
+        for (PolicyUnitImpl filterPolicyUnit : filters) {
+            filtersData.add(filterPolicyUnit.loadFilterData(cluster, vm));
+        }
+
+        List<Callable<FilteredPartition>> tasks = new ArrayList<>(partitions.size());
+        for (final List<VDS> partition : partitions) {
+            tasks.add(new Callable<FilteredPartition>() {
+                @Override
+                public FilteredPartition call() {
+                    FilteredPartition filteredPartition = new FilteredPartition();
+                    List<VDS> hostList = partition;
+                    for (int i = 0; i < filters.size(); i++) {
+                        if (hostList == null || hostList.isEmpty()) {
+                            break;
+                        }
+                        filteredPartition.filterInputs.add(new ArrayList<>(hostList));
+                        hostList = filters.get(i).filter(cluster,
+                                hostList,
+                                vm,
+                                new HashMap<>(parameters),
+                                filteredPartition.details,
+                                filtersData.get(i));
+                    }
+                    filteredPartition.hosts = hostList;
+                    return filteredPartition;
+                }
+            });
+        }
+
+        List<FilteredPartition> filteredPartitions =
+                ThreadPoolUtil.invokeAllOrRunOnCaller(ThreadPoolType.PARALLEL, tasks);
+        List<VDS> hostList = new ArrayList<>();
+        for (FilteredPartition filteredPartition : filteredPartitions) {
+            for (Entry<Guid, List<String>> entry : filteredPartition.details.getMessages().entrySet()) {
+                result.getDetails().addMessages(entry.getKey(), entry.getValue());
+            }
+            if (filteredPartition.hosts != null) {
+                hostList.addAll(filteredPartition.hosts);
+            }
+        }
+
+        for (int i = 0; i < filters.size(); i++) {
+            List<VDS> filterInput = new ArrayList<>();
+            Set<Guid> filterOutput = new HashSet<>();
+            for (FilteredPartition filteredPartition : filteredPartitions) {
+                List<List<VDS>> filterInputs = filteredPartition.filterInputs;
+                if (i < filterInputs.size()) {
+                    filterInput.addAll(filterInputs.get(i));
+                    filterOutput.addAll(toIdSet(i + 1 < filterInputs.size() ?
+                            filterInputs.get(i + 1) :
+                            filteredPartition.hosts));
+                }
+            }
+            if (filterInput.isEmpty()) {
+                break;
+            }
+            logFilterActions(filterInput,
+                    filterOutput,
+                    EngineMessage.VAR__FILTERTYPE__INTERNAL,
+                    filters.get(i).getPolicyUnit().getName(),
+                    result,
+                    correlationId);
+        }
+        return hostList;
+    }
+
+    /**
+     * The outcome of running the internal filters on a single host partition
+     */
+    private static class FilteredPartition {
+        private final PerHostMessages details = new PerHostMessages();
+        /** the hosts each of the filters got, in the order the filters were run **/
+        private final List<List<VDS>> filterInputs = new ArrayList<>();
+        private List<VDS> hosts;
+    }
+
+    /**
+     * Splits the hosts into partitions which are evaluated concurrently, a single partition is returned
+     * when the cluster is too small for the parallel evaluation to pay off.
+     */
+    protected List<List<VDS>> partitionHosts(List<VDS> hostList) {
+        int hostsPerPartition = Config.<Integer> getValue(ConfigValues.SchedulerHostsPerPartition);
+        if (hostList == null || hostsPerPartition <= 0 || hostList.size() < 2 * hostsPerPartition) {
+            return Collections.singletonList(hostList);
+        }
+        int partitionsCount = Math.min(MAX_SCHEDULING_PARTITIONS, hostList.size() / hostsPerPartition);
+        int partitionSize = (hostList.size() + partitionsCount - 1) / partitionsCount;
+        List<List<VDS>> partitions = new ArrayList<>(partitionsCount);
+        for (int from = 0; from < hostList.size(); from += partitionSize) {
+            partitions.add(new ArrayList<>(hostList.subList(from, Math.min(from + partitionSize, hostList.size()))));
+        }
+        return partitions;
+    }
+
     private Set<Guid> toIdSet(List<VDS> hostList) {
         Set<Guid> set = new HashSet<>();
         if (hostList != null) {
@@ -753,20 +960,41 @@ public class SchedulingManager implements BackendService {
     }
 
     private Map<Guid, Integer> runInternalFunctions(List<Pair<PolicyUnitImpl, Integer>> functions,
-            VDSGroup cluster,
-            List<VDS> hostList,
-            VM vm,
-            Map<String, String> parameters) {
+            final VDSGroup cluster,
+            final List<VDS> hostList,
+            final VM vm,
+            final Map<String, String> parameters) {
         Map<Guid, Integer> hostCostTable = new HashMap<>();
-        for (Pair<PolicyUnitImpl, Integer> pair : functions) {
-            List<Pair<Guid, Integer>> scoreResult = pair.getFirst().score(cluster, hostList, vm, parameters);
-            for (Pair<Guid, Integer> result : scoreResult) {
+        List<List<Pair<Guid, Integer>>> scoreResults;
+        if (functions.size() > 1 && partitionHosts(hostList).size() > 1) {
+            // the score functions may normalize their results over all the hosts, so each of them
+            // scores the whole list while the functions themselves are run concurrently in the parallel pool
+            List<Callable<List<Pair<Guid, Integer>>>> tasks = new ArrayList<>(functions.size());
+            for (final Pair<PolicyUnitImpl, Integer> pair : functions) {
+                tasks.add(new Callable<List<Pair<Guid, Integer>>>() {
+                    @Override
+                    public List<Pair<Guid, Integer>> call() {
+                        return pair.getFirst().score(cluster, hostList, vm, new HashMap<>(parameters));
+                    }
+                });
+            }
+            scoreResults = ThreadPoolUtil.invokeAllOrRunOnCaller(ThreadPoolType.PARALLEL, tasks);
+        } else {
+            scoreResults = new ArrayList<>(functions.size());
+            for (Pair<PolicyUnitImpl, Integer> pair : functions) {
+                scoreResults.add(pair.getFirst().score(cluster, hostList, vm, parameters));
+            }
+        }
+
+        for (int i = 0; i < functions.size(); i++) {
+            int factor = functions.get(i).getSecond();
+            for (Pair<Guid, Integer> result : scoreResults.get(i)) {
                 Guid hostId = result.getFirst();
                 if (hostCostTable.get(hostId) == null) {
                     hostCostTable.put(hostId, 0);
                 }
                 hostCostTable.put(hostId,
-                        hostCostTable.get(hostId) + pair.getSecond() * result.getSecond());
+                        hostCostTable.get(hostId) + factor * result.getSecond());
             }
         }
         return hostCostTable;
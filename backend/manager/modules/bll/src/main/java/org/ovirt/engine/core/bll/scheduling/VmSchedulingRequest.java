@@ -0,0 +1,66 @@
+package org.ovirt.engine.core.bll.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.compat.Guid;
+
+/**
+ * A single VM to be placed by a batch scheduling pass, together with its host constraints
+ */
+public class VmSchedulingRequest {
+
+    private final VM vm;
+    private final List<Guid> hostBlackList;
+    private final List<Guid> hostWhiteList;
+    private final List<Guid> destHostIdList;
+    private final VdsFreeMemoryChecker memoryChecker;
+    private final List<String> messages = new ArrayList<>();
+
+    /**
+     * @param vm the VM to schedule
+     * @param hostBlackList hosts the VM must not run on, may be null
+     * @param hostWhiteList hosts the VM may only run on, null means all hosts
+     * @param destHostIdList preferred hosts, used if they pass the filters
+     * @param memoryChecker checks the memory of the hosts for the VM, as in the scheduling of a single VM
+     */
+    public VmSchedulingRequest(VM vm,
+            List<Guid> hostBlackList,
+            List<Guid> hostWhiteList,
+            List<Guid> destHostIdList,
+            VdsFreeMemoryChecker memoryChecker) {
+        this.vm = vm;
+        this.hostBlackList = hostBlackList;
+        this.hostWhiteList = hostWhiteList;
+        this.destHostIdList = destHostIdList != null ? destHostIdList : new ArrayList<Guid>();
+        this.memoryChecker = memoryChecker;
+    }
+
+    public VM getVm() {
+        return vm;
+    }
+
+    public List<Guid> getHostBlackList() {
+        return hostBlackList;
+    }
+
+    public List<Guid> getHostWhiteList() {
+        return hostWhiteList;
+    }
+
+    public List<Guid> getDestHostIdList() {
+        return destHostIdList;
+    }
+
+    public VdsFreeMemoryChecker getMemoryChecker() {
+        return memoryChecker;
+    }
+
+    /**
+     * @return the scheduling failure messages of the VM
+     */
+    public List<String> getMessages() {
+        return messages;
+    }
+}
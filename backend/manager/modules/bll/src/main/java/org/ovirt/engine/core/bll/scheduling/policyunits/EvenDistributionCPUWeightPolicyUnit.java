@@ -27,7 +27,11 @@ public class EvenDistributionCPUWeightPolicyUnit extends EvenDistributionWeightP
         int spmCpu = (vds.getSpmStatus() == VdsSpmStatus.None) ? 0 : Config
                 .<Integer>getValue(ConfigValues.SpmVCpuConsumption);
         double hostCpu = vds.getUsageCpuPercent();
-        double pendingVcpus = PendingCpuCores.collectForHost(getPendingResourceManager(), vds.getId());
+        // the pending cpus are cached on the host by the scheduling pass, avoid recollecting them per host
+        Integer cachedPendingVcpus = vds.getPendingVcpusCount();
+        double pendingVcpus = cachedPendingVcpus != null ?
+                cachedPendingVcpus :
+                PendingCpuCores.collectForHost(getPendingResourceManager(), vds.getId());
 
         return (hostCpu / vcpu) + (pendingVcpus + vm.getNumOfCpus() + spmCpu) / hostCores;
     }
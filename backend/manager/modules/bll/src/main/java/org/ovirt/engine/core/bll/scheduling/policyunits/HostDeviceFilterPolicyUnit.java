@@ -33,13 +33,34 @@ public class HostDeviceFilterPolicyUnit extends PolicyUnitImpl {
 
     @Override
     public List<VDS> filter(VDSGroup cluster, List<VDS> hosts, VM vm, Map<String, String> parameters, PerHostMessages messages) {
+        return filter(cluster, hosts, vm, parameters, messages, loadFilterData(cluster, vm));
+    }
 
-        // noop if VM does not require host devices
+    /**
+     * @return whether the VM needs PCI devices, or null if it doesn't need host devices
+     */
+    @Override
+    public Object loadFilterData(VDSGroup cluster, VM vm) {
         if (!hostDeviceManager.checkVmNeedsDirectPassthrough(vm)) {
+            return null;
+        }
+        return hostDeviceManager.checkVmNeedsPciDevices(vm.getId());
+    }
+
+    @Override
+    public List<VDS> filter(VDSGroup cluster,
+            List<VDS> hosts,
+            VM vm,
+            Map<String, String> parameters,
+            PerHostMessages messages,
+            Object filterData) {
+
+        // noop if VM does not require host devices
+        if (filterData == null) {
             return hosts;
         }
 
-        boolean hasPciDevices = hostDeviceManager.checkVmNeedsPciDevices(vm.getId());
+        boolean hasPciDevices = (Boolean) filterData;
 
         List<VDS> list = new ArrayList<>();
         for (VDS host : hosts) {
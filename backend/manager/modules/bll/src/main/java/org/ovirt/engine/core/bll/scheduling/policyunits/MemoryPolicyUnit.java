@@ -37,12 +37,32 @@ public class MemoryPolicyUnit extends PolicyUnitImpl {
 
     @Override
     public List<VDS> filter(VDSGroup cluster, List<VDS> hosts, VM vm, Map<String, String> parameters, PerHostMessages messages) {
+        // If Vm in Paused mode - no additional memory allocation needed
+        if (vm.getStatus() == VMStatus.Paused) {
+            return hosts;
+        }
+        return filter(cluster, hosts, vm, parameters, messages, loadFilterData(cluster, vm));
+    }
+
+    @Override
+    public Object loadFilterData(VDSGroup cluster, VM vm) {
+        return DbFacade.getInstance().getVmNumaNodeDao().getAllVmNumaNodeByVmId(vm.getId());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<VDS> filter(VDSGroup cluster,
+            List<VDS> hosts,
+            VM vm,
+            Map<String, String> parameters,
+            PerHostMessages messages,
+            Object filterData) {
         List<VDS> list = new ArrayList<>();
         // If Vm in Paused mode - no additional memory allocation needed
         if (vm.getStatus() == VMStatus.Paused) {
             return hosts;
         }
-        List<VmNumaNode> vmNumaNodes = DbFacade.getInstance().getVmNumaNodeDao().getAllVmNumaNodeByVmId(vm.getId());
+        List<VmNumaNode> vmNumaNodes = (List<VmNumaNode>) filterData;
         for (VDS vds : hosts) {
             if (!isVMSwapValueLegal(vds)) {
                 log.debug("Host '{}' swap value is illegal", vds.getName());
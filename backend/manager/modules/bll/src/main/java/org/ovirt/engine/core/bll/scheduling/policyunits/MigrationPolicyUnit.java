@@ -68,10 +68,25 @@ public class MigrationPolicyUnit extends PolicyUnitImpl {
 
     @Override
     public List<VDS> filter(VDSGroup cluster, List<VDS> hosts, VM vm, Map<String, String> parameters, PerHostMessages messages) {
+        return filter(cluster, hosts, vm, parameters, messages, loadFilterData(cluster, vm));
+    }
+
+    @Override
+    public Object loadFilterData(VDSGroup cluster, VM vm) {
+        return vm.getRunOnVds() != null ? getVdsDao().get(vm.getRunOnVds()) : null;
+    }
+
+    @Override
+    public List<VDS> filter(VDSGroup cluster,
+            List<VDS> hosts,
+            VM vm,
+            Map<String, String> parameters,
+            PerHostMessages messages,
+            Object filterData) {
 
         if (vm.getRunOnVds() != null) {
             List<VDS> hostsToRunOn = new ArrayList<>();
-            VDS srcVds = getVdsDao().get(vm.getRunOnVds());
+            VDS srcVds = (VDS) filterData;
 
             for (VDS host : hosts) {
                 if (host.getId().equals(vm.getRunOnVds())) {
@@ -47,27 +47,40 @@ public class NetworkPolicyUnit extends PolicyUnitImpl {
             return null;
         }
 
+        return filter(cluster, hosts, vm, parameters, messages, loadFilterData(cluster, vm));
+    }
+
+    @Override
+    public Object loadFilterData(VDSGroup cluster, VM vm) {
+        return new NetworkFilterData(vm, cluster.getId());
+    }
+
+    @Override
+    public List<VDS> filter(VDSGroup cluster,
+            List<VDS> hosts,
+            VM vm,
+            Map<String, String> parameters,
+            PerHostMessages messages,
+            Object filterData) {
+        if (hosts == null || hosts.isEmpty()) {
+            return null;
+        }
+
         List<VDS> toRemoveHostList = new ArrayList<>();
-        List<VmNetworkInterface> vmNICs = getVmNetworkInterfaceDao().getAllForVm(vm.getId());
-        Guid clusterId = hosts.get(0).getVdsGroupId();
-        List<Network> clusterNetworks = getNetworkDao().getAllForCluster(clusterId);
-        Map<String, Network> networksByName = Entities.entitiesByName(clusterNetworks);
-        Map<Guid, List<String>> hostNics = getInterfaceDao().getHostNetworksByCluster(clusterId);
-        Network displayNetwork = NetworkUtils.getDisplayNetwork(clusterNetworks);
-        Map<Guid, VdsNetworkInterface> hostDisplayNics = getDisplayNics(displayNetwork);
+        NetworkFilterData networks = (NetworkFilterData) filterData;
 
         for (VDS host : hosts) {
             ValidationResult result =
                     validateRequiredNetworksAvailable(host,
                             vm,
-                            vmNICs,
-                            displayNetwork,
-                            networksByName,
-                            hostNics.get(host.getId()),
-                            hostDisplayNics.get(host.getId()));
+                            networks.vmNICs,
+                            networks.displayNetwork,
+                            networks.networksByName,
+                            networks.hostNics.get(host.getId()),
+                            networks.hostDisplayNics.get(host.getId()));
 
             if (result.isValid()) {
-                result = validatePassthroughVnics(vm.getId(), host, vmNICs);
+                result = validatePassthroughVnics(vm.getId(), host, networks.vmNICs);
             }
 
             if (!result.isValid()) {
@@ -80,6 +93,26 @@ public class NetworkPolicyUnit extends PolicyUnitImpl {
         return hosts;
     }
 
+    /**
+     * The networks of the VM and of the cluster, which are the same for all the hosts
+     */
+    private class NetworkFilterData {
+        private final List<VmNetworkInterface> vmNICs;
+        private final Map<String, Network> networksByName;
+        private final Map<Guid, List<String>> hostNics;
+        private final Network displayNetwork;
+        private final Map<Guid, VdsNetworkInterface> hostDisplayNics;
+
+        public NetworkFilterData(VM vm, Guid clusterId) {
+            vmNICs = getVmNetworkInterfaceDao().getAllForVm(vm.getId());
+            List<Network> clusterNetworks = getNetworkDao().getAllForCluster(clusterId);
+            networksByName = Entities.entitiesByName(clusterNetworks);
+            hostNics = getInterfaceDao().getHostNetworksByCluster(clusterId);
+            displayNetwork = NetworkUtils.getDisplayNetwork(clusterNetworks);
+            hostDisplayNics = getDisplayNics(displayNetwork);
+        }
+    }
+
     public Map<Guid, VdsNetworkInterface> getDisplayNics(Network displayNetwork) {
         Map<Guid, VdsNetworkInterface> displayNics = new HashMap<>();
         if (displayNetwork != null) {
@@ -38,15 +38,52 @@ public class VmAffinityFilterPolicyUnit extends PolicyUnitImpl {
         return getAcceptableHosts(true, hosts, vm, messages, getPendingResourceManager());
     }
 
+    @Override
+    public Object loadFilterData(VDSGroup cluster, VM vm) {
+        return loadAffinity(true, vm, getPendingResourceManager());
+    }
+
+    @Override
+    public List<VDS> filter(VDSGroup cluster,
+            List<VDS> hosts,
+            VM vm,
+            Map<String, String> parameters,
+            PerHostMessages messages,
+            Object filterData) {
+        return getAcceptableHosts(hosts, vm, messages, (Affinity) filterData);
+    }
+
     public static List<VDS> getAcceptableHosts(boolean enforcing,
             List<VDS> hosts,
             VM vm,
             PerHostMessages messages,
             PendingResourceManager pendingResourceManager) {
+        return getAcceptableHosts(hosts, vm, messages, loadAffinity(enforcing, vm, pendingResourceManager));
+    }
+
+    /**
+     * The VMs the scheduled VM has positive or negative affinity with, and where the VMs of the cluster run
+     */
+    private static class Affinity {
+        private final Set<Guid> allVmIdsPositive;
+        private final Set<Guid> allVmIdsNegative;
+        private final Map<Guid, VM> runningVMsMap;
+
+        public Affinity(Set<Guid> allVmIdsPositive, Set<Guid> allVmIdsNegative, Map<Guid, VM> runningVMsMap) {
+            this.allVmIdsPositive = allVmIdsPositive;
+            this.allVmIdsNegative = allVmIdsNegative;
+            this.runningVMsMap = runningVMsMap;
+        }
+    }
+
+    /**
+     * @return the affinity of the VM, or null if it has none and all hosts are valid
+     */
+    private static Affinity loadAffinity(boolean enforcing, VM vm, PendingResourceManager pendingResourceManager) {
         List<AffinityGroup> affinityGroups = getAffinityGroupDao().getAllAffinityGroupsByVmId(vm.getId());
         // no affinity groups found for VM return all hosts
         if (affinityGroups.isEmpty()) {
-            return hosts;
+            return null;
         }
 
         Set<Guid> allVmIdsPositive = new HashSet<>();
@@ -71,7 +108,7 @@ public class VmAffinityFilterPolicyUnit extends PolicyUnitImpl {
 
         // No entities, all hosts are valid
         if (allVmIdsPositive.isEmpty() && allVmIdsNegative.isEmpty()) {
-            return hosts;
+            return null;
         }
 
         // Get all running VMs in cluster
@@ -88,6 +125,17 @@ public class VmAffinityFilterPolicyUnit extends PolicyUnitImpl {
             runningVMsMap.put(pendingVm.getId(), pendingVm);
         }
 
+        return new Affinity(allVmIdsPositive, allVmIdsNegative, runningVMsMap);
+    }
+
+    private static List<VDS> getAcceptableHosts(List<VDS> hosts, VM vm, PerHostMessages messages, Affinity affinity) {
+        if (affinity == null) {
+            return hosts;
+        }
+        Set<Guid> allVmIdsPositive = affinity.allVmIdsPositive;
+        Set<Guid> allVmIdsNegative = affinity.allVmIdsNegative;
+        Map<Guid, VM> runningVMsMap = affinity.runningVMsMap;
+
         Set<Guid> acceptableHosts = new HashSet<>();
         // Group all hosts for VMs with positive affinity
         for (Guid id : allVmIdsPositive) {
@@ -114,6 +162,7 @@ public class VmAffinityFilterPolicyUnit extends PolicyUnitImpl {
         // Compute the intersection of hosts with positive and negative affinity and report that
         // contradicting rules to the log
         unacceptableHosts.retainAll(acceptableHosts);
+        unacceptableHosts.retainAll(hostMap.keySet());
         for (Guid id: unacceptableHosts) {
             log.warn("Host '{}' ({}) belongs to both positive and negative affinity list" +
                     " while scheduling VM '{}' ({})",
@@ -144,6 +193,7 @@ public class VmAffinityFilterPolicyUnit extends PolicyUnitImpl {
         for (Guid id : allVmIdsNegative) {
             VM runVm = runningVMsMap.get(id);
             if (runVm != null && runVm.getRunOnVds() != null
+                    && hostMap.containsKey(runVm.getRunOnVds())
                     && acceptableHosts.contains(runVm.getRunOnVds())) {
                 acceptableHosts.remove(runVm.getRunOnVds());
                 messages.addMessage(runVm.getRunOnVds(),
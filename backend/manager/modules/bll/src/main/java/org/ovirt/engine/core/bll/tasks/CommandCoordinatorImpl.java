@@ -57,6 +57,7 @@ public class CommandCoordinatorImpl extends CommandCoordinator {
         contextsCache = new CommandContextsCacheImpl(commandsCache);
         coCoAsyncTaskHelper = new CoCoAsyncTaskHelper(this);
         cmdExecutor = new CommandExecutor(this);
+        commandsCache.setStatusListener(cmdExecutor);
     }
 
     public <P extends VdcActionParametersBase> CommandBase<P> createCommand(VdcActionType action, P parameters) {
@@ -94,6 +95,7 @@ public class CommandCoordinatorImpl extends CommandCoordinator {
             if (!cmdEntity.isCallbackNotified()) {
                 cmdExecutor.addToCallbackMap(cmdEntity);
             }
+            cmdExecutor.trackExpiration(cmdEntity);
         }
     }
 
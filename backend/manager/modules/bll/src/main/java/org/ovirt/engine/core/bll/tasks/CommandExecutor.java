@@ -2,14 +2,13 @@ package org.ovirt.engine.core.bll.tasks;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -17,6 +16,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -26,6 +26,7 @@ import org.ovirt.engine.core.bll.CommandBase;
 import org.ovirt.engine.core.bll.CommandsFactory;
 import org.ovirt.engine.core.bll.context.CommandContext;
 import org.ovirt.engine.core.bll.tasks.interfaces.CommandCallback;
+import org.ovirt.engine.core.bll.tasks.interfaces.CommandStatusListener;
 import org.ovirt.engine.core.bll.utils.BackendUtils;
 import org.ovirt.engine.core.common.action.VdcActionParametersBase;
 import org.ovirt.engine.core.common.action.VdcActionType;
@@ -40,131 +41,228 @@ import org.ovirt.engine.core.common.errors.EngineFault;
 import org.ovirt.engine.core.compat.CommandStatus;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.di.Injector;
-import org.ovirt.engine.core.utils.timer.OnTimerMethodAnnotation;
-import org.ovirt.engine.core.utils.timer.SchedulerUtil;
-import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
+import org.ovirt.engine.core.utils.timer.SchedulerUtilHashedWheelImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class CommandExecutor {
+/**
+ * Invokes the callbacks of the commands. Each callback is polled when it is due, starting at
+ * {@link ConfigValues#AsyncCommandPollingLoopInSeconds} and backing off up to
+ * {@link ConfigValues#AsyncCommandPollingRateInSeconds} while its command's status doesn't change. A status change of
+ * a command makes its callback and the callbacks of its parent and root commands due right away.
+ * <p>
+ * The callbacks are kept in a queue ordered by the time they are due and the command expirations in a queue ordered by
+ * expiry time, so each loop only visits the callbacks and commands that are due.
+ */
+public class CommandExecutor implements CommandStatusListener {
 
     private static final ExecutorService executor = Executors.newFixedThreadPool(Config.<Integer>getValue(ConfigValues.CommandCoordinatorThreadPoolSize));
     private static final Logger log = LoggerFactory.getLogger(CommandExecutor.class);
 
     private static class CommandContainer {
         private int initialDelay;     // Total delay between callback executions
-        private int remainingDelay;   // Remaining delay to next callback execution
+        private volatile long dueTime; // Time of the next callback execution
+        private volatile boolean awakened; // Whether a status change made the callback due since its last execution
         private CommandCallback callback;
 
         public CommandContainer(CommandCallback callback, int executionDelay) {
             this.callback = callback;
             this.initialDelay = executionDelay;
-            this.remainingDelay = executionDelay;
+        }
+    }
+
+    /**
+     * An entry of a time ordered queue. A callback is rescheduled by queueing a new entry, its previous entries are
+     * skipped when their time doesn't match the callback's due time.
+     */
+    private static class ScheduledCommand implements Comparable<ScheduledCommand> {
+        private final Guid cmdId;
+        private final long time;
+
+        public ScheduledCommand(Guid cmdId, long time) {
+            this.cmdId = cmdId;
+            this.time = time;
+        }
+
+        @Override
+        public int compareTo(ScheduledCommand other) {
+            return Long.compare(time, other.time);
         }
     }
 
     private final CommandCoordinatorImpl coco;
     private final Map<Guid, CommandContainer> cmdCallbackMap = new ConcurrentHashMap<>();
+    private final Queue<ScheduledCommand> dueCallbacks = new PriorityBlockingQueue<>();
+    private final Queue<ScheduledCommand> expirations = new PriorityBlockingQueue<>();
+    private final Set<Guid> expirationTracked = Collections.newSetFromMap(new ConcurrentHashMap<Guid, Boolean>());
     private boolean cmdExecutorInitialized;
     private final int pollingRate = Config.<Integer>getValue(ConfigValues.AsyncCommandPollingLoopInSeconds);
 
     CommandExecutor(CommandCoordinatorImpl coco) {
         this.coco = coco;
-        SchedulerUtil scheduler = Injector.get(SchedulerUtilQuartzImpl.class);
-        scheduler.scheduleAFixedDelayJob(this, "invokeCallbackMethods", new Class[]{},
-                new Object[]{}, pollingRate, pollingRate, TimeUnit.SECONDS);
+        SchedulerUtilHashedWheelImpl scheduler = Injector.get(SchedulerUtilHashedWheelImpl.class);
+        scheduler.scheduleAFixedDelayJob(CommandExecutor.class.getName() + ".invokeCallbackMethods",
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        invokeCallbackMethods();
+                    }
+                },
+                pollingRate,
+                pollingRate,
+                TimeUnit.SECONDS);
     }
 
-    @OnTimerMethodAnnotation("invokeCallbackMethods")
     public void invokeCallbackMethods() {
         initCommandExecutor();
-        Iterator<Entry<Guid, CommandContainer>> iterator = cmdCallbackMap.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Entry<Guid, CommandContainer> entry = iterator.next();
-
-            // Decrement counter; execute if it reaches 0
-            if ((entry.getValue().remainingDelay -= pollingRate) > 0) {
-                continue;
+        long now = currentTimeMillis();
+        ScheduledCommand scheduled;
+        while ((scheduled = pollDue(dueCallbacks, now)) != null) {
+            CommandContainer container = cmdCallbackMap.get(scheduled.cmdId);
+            // Skip the entries of callbacks which were removed or rescheduled since
+            if (container != null && container.dueTime == scheduled.time) {
+                invokeCallbackMethod(scheduled.cmdId, container, now);
             }
+        }
+        markExpiredCommandsAsFailure(now);
+    }
 
-            Guid cmdId = entry.getKey();
-            CommandCallback callback = entry.getValue().callback;
-            CommandStatus status = coco.getCommandStatus(cmdId);
-            boolean errorInCallback = false;
-            try {
-                switch (status) {
-                    case FAILED:
-                        callback.onFailed(cmdId, coco.getChildCommandIds(cmdId));
-                        break;
-                    case SUCCEEDED:
-                        callback.onSucceeded(cmdId, coco.getChildCommandIds(cmdId));
-                        break;
-                    case ACTIVE:
-                        if (coco.getCommandEntity(cmdId).isExecuted()) {
-                            callback.doPolling(cmdId, coco.getChildCommandIds(cmdId));
-                        }
-                        break;
-                    default:
-                        break;
-                }
-            } catch (Exception ex) {
-                errorInCallback = true;
-                handleError(ex, status, cmdId);
-            } finally {
-                if (CommandStatus.FAILED.equals(status) || (CommandStatus.SUCCEEDED.equals(status) && !errorInCallback)) {
-                    coco.updateCallbackNotified(cmdId);
-                    iterator.remove();
-                    CommandEntity cmdEntity = coco.getCommandEntity(entry.getKey());
-                    if (cmdEntity != null) {
-                        // When a child finishes, its parent's callback should execute shortly thereafter
-                        Guid rootCommandId = cmdEntity.getRootCommandId();
-                        if (!Guid.isNullOrEmpty(rootCommandId) && cmdCallbackMap.containsKey(rootCommandId)) {
-                            cmdCallbackMap.get(rootCommandId).initialDelay = pollingRate;
-                            cmdCallbackMap.get(rootCommandId).remainingDelay = pollingRate;
-                        }
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static ScheduledCommand pollDue(Queue<ScheduledCommand> queue, long now) {
+        ScheduledCommand first = queue.peek();
+        // Only this thread takes from the queue, so the polled entry is due as well
+        return first != null && first.time <= now ? queue.poll() : null;
+    }
+
+    private void invokeCallbackMethod(Guid cmdId, CommandContainer container, long loopTime) {
+        container.awakened = false;
+        CommandCallback callback = container.callback;
+        CommandStatus status = coco.getCommandStatus(cmdId);
+        boolean errorInCallback = false;
+        try {
+            switch (status) {
+                case FAILED:
+                    callback.onFailed(cmdId, coco.getChildCommandIds(cmdId));
+                    break;
+                case SUCCEEDED:
+                    callback.onSucceeded(cmdId, coco.getChildCommandIds(cmdId));
+                    break;
+                case ACTIVE:
+                    if (coco.getCommandEntity(cmdId).isExecuted()) {
+                        callback.doPolling(cmdId, coco.getChildCommandIds(cmdId));
                     }
-                } else if (status != coco.getCommandStatus(cmdId)) {
-                    entry.getValue().initialDelay = pollingRate;
-                    entry.getValue().remainingDelay = pollingRate;
-                } else {
-                    int maxDelay = Config.<Integer>getValue(ConfigValues.AsyncCommandPollingRateInSeconds);
-                    entry.getValue().initialDelay = Math.min(maxDelay, entry.getValue().initialDelay * 2);
-                    entry.getValue().remainingDelay = entry.getValue().initialDelay;
+                    break;
+                default:
+                    break;
+            }
+        } catch (Exception ex) {
+            errorInCallback = true;
+            handleError(ex, status, cmdId);
+        } finally {
+            if (CommandStatus.FAILED.equals(status) || (CommandStatus.SUCCEEDED.equals(status) && !errorInCallback)) {
+                coco.updateCallbackNotified(cmdId);
+                cmdCallbackMap.remove(cmdId);
+                CommandEntity cmdEntity = coco.getCommandEntity(cmdId);
+                if (cmdEntity != null) {
+                    // When a child finishes, its parent's callback should execute shortly thereafter
+                    wakeCallback(cmdEntity.getRootCommandId());
                 }
+            } else if (container.awakened || status != coco.getCommandStatus(cmdId)) {
+                schedule(cmdId, container, pollingRate, loopTime);
+            } else {
+                int maxDelay = Config.<Integer>getValue(ConfigValues.AsyncCommandPollingRateInSeconds);
+                schedule(cmdId, container, Math.min(maxDelay, container.initialDelay * 2), loopTime);
             }
         }
-        if (!cmdCallbackMap.isEmpty()) {
-            markExpiredCommandsAsFailure();
+    }
+
+    /**
+     * Schedules the callback relative to the start of the loop, so it is due on the loop the delay ends in.
+     */
+    private void schedule(Guid cmdId, CommandContainer container, int delay, long loopTime) {
+        container.initialDelay = delay;
+        container.dueTime = loopTime + TimeUnit.SECONDS.toMillis(delay);
+        dueCallbacks.add(new ScheduledCommand(cmdId, container.dueTime));
+    }
+
+    /**
+     * Makes the callback of the command due on the next loop, and resets its back off.
+     */
+    private void wakeCallback(Guid cmdId) {
+        if (Guid.isNullOrEmpty(cmdId)) {
+            return;
+        }
+        CommandContainer container = cmdCallbackMap.get(cmdId);
+        if (container != null) {
+            container.awakened = true;
+            container.initialDelay = pollingRate;
+            container.dueTime = currentTimeMillis();
+            dueCallbacks.add(new ScheduledCommand(cmdId, container.dueTime));
         }
     }
 
-    private void markExpiredCommandsAsFailure() {
-        for (Entry<Guid, CommandContainer> entry : cmdCallbackMap.entrySet()) {
-            List<Guid> childCmdIds = coco.getChildCommandIds(entry.getKey());
-            if (childCmdIds.isEmpty()) {
-                markExpiredCommandAsFailure(entry.getKey());
-            } else {
-                for (Guid childId : childCmdIds) {
-                    markExpiredCommandAsFailure(childId);
-                }
-            }
+    @Override
+    public void statusChanged(CommandEntity cmdEntity) {
+        wakeCallback(cmdEntity.getId());
+        if (!cmdEntity.getId().equals(cmdEntity.getParentCommandId())) {
+            wakeCallback(cmdEntity.getParentCommandId());
+        }
+        if (!cmdEntity.getId().equals(cmdEntity.getRootCommandId())
+                && !Objects.equals(cmdEntity.getParentCommandId(), cmdEntity.getRootCommandId())) {
+            wakeCallback(cmdEntity.getRootCommandId());
+        }
+    }
+
+    /**
+     * Tracks the expiration of a command which has a callback or whose parent has one, so it is marked as failed if it
+     * is still active once its life time passes.
+     */
+    public void trackExpiration(CommandEntity cmdEntity) {
+        if (!isPending(cmdEntity.getCommandStatus()) || !expirationTracked.add(cmdEntity.getId())) {
+            return;
+        }
+        Integer cmdLifeTimeInMin = cmdEntity.getCommandParameters() == null ? null :
+                cmdEntity.getCommandParameters().getLifeInMinutes();
+        if (cmdLifeTimeInMin == null) {
+            cmdLifeTimeInMin = Config.<Integer>getValue(ConfigValues.CoCoLifeInMinutes);
         }
+        long createdAt = cmdEntity.getCreatedAt() == null ?
+                currentTimeMillis() :
+                cmdEntity.getCreatedAt().getTime();
+        expirations.add(new ScheduledCommand(cmdEntity.getId(),
+                createdAt + TimeUnit.MINUTES.toMillis(cmdLifeTimeInMin)));
+    }
+
+    private static boolean isPending(CommandStatus status) {
+        return status == CommandStatus.NOT_STARTED || status == CommandStatus.ACTIVE;
     }
 
-    private void markExpiredCommandAsFailure(Guid cmdId) {
-        CommandEntity cmdEntity = coco.getCommandEntity(cmdId);
-        if (cmdEntity != null && cmdEntity.getCommandStatus() == CommandStatus.ACTIVE) {
-            Calendar cal = Calendar.getInstance();
-            Integer cmdLifeTimeInMin = cmdEntity.getCommandParameters().getLifeInMinutes();
-            cal.add(Calendar.MINUTE, (-1) * (cmdLifeTimeInMin == null ?
-                    Config.<Integer>getValue(ConfigValues.CoCoLifeInMinutes) :
-                    cmdLifeTimeInMin));
-            if (cmdEntity.getCreatedAt().getTime() < cal.getTime().getTime()) {
+    private void markExpiredCommandsAsFailure(long now) {
+        ScheduledCommand scheduled;
+        while ((scheduled = pollDue(expirations, now)) != null) {
+            Guid cmdId = scheduled.cmdId;
+            CommandEntity cmdEntity = coco.getCommandEntity(cmdId);
+            if (cmdEntity == null || !isPending(cmdEntity.getCommandStatus())) {
+                expirationTracked.remove(cmdId);
+            } else if (cmdEntity.getCommandStatus() == CommandStatus.NOT_STARTED
+                    || cmdCallbackMap.containsKey(cmdId) && !coco.getChildCommandIds(cmdId).isEmpty()) {
+                // A command expires once it is active, and a command with children expires through its children,
+                // check it again in case it started or its children are all gone
+                int maxDelay = Config.<Integer>getValue(ConfigValues.AsyncCommandPollingRateInSeconds);
+                expirations.add(new ScheduledCommand(cmdId, now + TimeUnit.SECONDS.toMillis(maxDelay)));
+            } else if (cmdCallbackMap.containsKey(cmdId) || cmdCallbackMap.containsKey(cmdEntity.getParentCommandId())) {
+                expirationTracked.remove(cmdId);
                 log.warn("Marking expired command as Failed: command '{} ({})' that started at '{}' has been marked as Failed.",
                         cmdEntity.getCommandType(),
                         cmdEntity.getId(),
                         cmdEntity.getCreatedAt());
                 coco.updateCommandStatus(cmdId, CommandStatus.FAILED);
+            } else {
+                // Neither the command nor its parent are polled anymore
+                expirationTracked.remove(cmdId);
             }
         }
     }
@@ -204,6 +302,13 @@ public class CommandExecutor {
                 }
                 if (!cmdEntity.isCallbackNotified()) {
                     addToCallbackMap(cmdEntity);
+                    trackExpiration(cmdEntity);
+                    for (Guid childCmdId : coco.getChildCommandIds(cmdEntity.getId())) {
+                        CommandEntity childCmdEntity = coco.getCommandEntity(childCmdId);
+                        if (childCmdEntity != null) {
+                            trackExpiration(childCmdEntity);
+                        }
+                    }
                 }
             }
             cmdExecutorInitialized = true;
@@ -214,11 +319,19 @@ public class CommandExecutor {
         if (!cmdCallbackMap.containsKey(cmdEntity.getId())) {
             CommandBase<?> cmd = coco.retrieveCommand(cmdEntity.getId());
             if (cmd != null && cmd.getCallback() != null) {
-                cmdCallbackMap.put(cmdEntity.getId(), new CommandContainer(cmd.getCallback(), pollingRate));
+                addCallback(cmdEntity.getId(), cmd.getCallback());
             }
         }
     }
 
+    private void addCallback(Guid cmdId, CommandCallback callback) {
+        CommandContainer container = new CommandContainer(callback, pollingRate);
+        // A new callback is due on the next loop
+        container.dueTime = currentTimeMillis();
+        cmdCallbackMap.put(cmdId, container);
+        dueCallbacks.add(new ScheduledCommand(cmdId, container.dueTime));
+    }
+
     public Future<VdcReturnValueBase> executeAsyncCommand(final VdcActionType actionType,
                                                           final VdcActionParametersBase parameters,
                                                           final CommandContext cmdContext,
@@ -228,7 +341,7 @@ public class CommandExecutor {
         command.persistCommand(command.getParameters().getParentCommand(), cmdContext, callBack != null);
         coco.persistCommandAssociatedEntities(buildCommandAssociatedEntities(command.getCommandId(), subjectEntities));
         if (callBack != null) {
-            cmdCallbackMap.put(command.getCommandId(), new CommandContainer(callBack, pollingRate));
+            addCallback(command.getCommandId(), callBack);
         }
         Future<VdcReturnValueBase> retVal;
         try {
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import org.ovirt.engine.core.bll.tasks.interfaces.CommandStatusListener;
 import org.ovirt.engine.core.common.businessentities.CommandAssociatedEntity;
 import org.ovirt.engine.core.common.businessentities.CommandEntity;
 import org.ovirt.engine.core.compat.CommandStatus;
@@ -35,4 +36,6 @@ public interface CommandsCache {
     void updateCallbackNotified(Guid commandId);
 
     List<CommandEntity> getChildCmdsByParentCmdId(Guid cmdId);
+
+    void setStatusListener(CommandStatusListener statusListener);
 }
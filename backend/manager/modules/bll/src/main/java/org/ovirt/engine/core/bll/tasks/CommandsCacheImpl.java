@@ -8,6 +8,7 @@ import java.util.Set;
 
 import javax.transaction.Transaction;
 
+import org.ovirt.engine.core.bll.tasks.interfaces.CommandStatusListener;
 import org.ovirt.engine.core.common.businessentities.CommandAssociatedEntity;
 import org.ovirt.engine.core.common.businessentities.CommandEntity;
 import org.ovirt.engine.core.compat.CommandStatus;
@@ -21,6 +22,7 @@ public class CommandsCacheImpl implements CommandsCache {
     private Map<Guid, CommandEntity> commandMap;
     private volatile boolean cacheInitialized;
     private Object LOCK = new Object();
+    private volatile CommandStatusListener statusListener;
 
     public CommandsCacheImpl() {
         commandMap = new HashMap<>();
@@ -59,8 +61,11 @@ public class CommandsCacheImpl implements CommandsCache {
 
     @Override
     public void put(final CommandEntity cmdEntity) {
-        commandMap.put(cmdEntity.getId(), cmdEntity);
+        CommandEntity previousCmdEntity = commandMap.put(cmdEntity.getId(), cmdEntity);
         saveOrUpdateWithoutTransaction(cmdEntity);
+        if (previousCmdEntity != null && previousCmdEntity.getCommandStatus() != cmdEntity.getCommandStatus()) {
+            notifyStatusChanged(cmdEntity);
+        }
     }
 
     public void removeAllCommandsBeforeDate(DateTime cutoff) {
@@ -72,8 +77,24 @@ public class CommandsCacheImpl implements CommandsCache {
     public void updateCommandStatus(Guid commandId, CommandStatus status) {
         final CommandEntity cmdEntity = get(commandId);
         if (cmdEntity != null) {
+            boolean statusChanged = cmdEntity.getCommandStatus() != status;
             cmdEntity.setCommandStatus(status);
             saveOrUpdateWithoutTransaction(cmdEntity);
+            if (statusChanged) {
+                notifyStatusChanged(cmdEntity);
+            }
+        }
+    }
+
+    @Override
+    public void setStatusListener(CommandStatusListener statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    private void notifyStatusChanged(CommandEntity cmdEntity) {
+        CommandStatusListener listener = statusListener;
+        if (listener != null) {
+            listener.statusChanged(cmdEntity);
         }
     }
 
@@ -0,0 +1,11 @@
+package org.ovirt.engine.core.bll.tasks.interfaces;
+
+import org.ovirt.engine.core.common.businessentities.CommandEntity;
+
+/**
+ * Notified when the status of a persisted command changes
+ */
+public interface CommandStatusListener {
+
+    void statusChanged(CommandEntity cmdEntity);
+}
@@ -27,6 +27,9 @@ public abstract class AbstractRolesCommandTestBase {
     @Mock
     private RoleGroupMapDao roleGroupMapDaoMock;
 
+    @Mock
+    private PermissionCache permissionCacheMock;
+
     @Before
     public void setUp() {
         params = generateParameters();
@@ -37,6 +40,7 @@ public abstract class AbstractRolesCommandTestBase {
         doReturn(roleDaoMock).when(command).getRoleDao();
         when(roleDaoMock.get(params.getRoleId())).thenReturn(role);
         doReturn(roleGroupMapDaoMock).when(command).getRoleGroupMapDao();
+        doReturn(permissionCacheMock).when(command).getPermissionCache();
     }
 
     protected RolesParameterBase generateParameters() {
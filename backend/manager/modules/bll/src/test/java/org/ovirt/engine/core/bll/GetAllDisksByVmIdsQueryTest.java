@@ -0,0 +1,38 @@
+package org.ovirt.engine.core.bll;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.ovirt.engine.core.common.businessentities.storage.Disk;
+import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.DiskDao;
+
+/** A test for {@link GetAllDisksByVmIdsQuery} */
+public class GetAllDisksByVmIdsQueryTest
+        extends AbstractUserQueryTest<IdsQueryParameters, GetAllDisksByVmIdsQuery<IdsQueryParameters>> {
+
+    @Test
+    public void testExecuteQuery() {
+        List<Guid> vmIds = Arrays.asList(Guid.newGuid(), Guid.newGuid());
+        when(getQueryParameters().getIds()).thenReturn(vmIds);
+
+        Map<Guid, List<Disk>> disks =
+                Collections.<Guid, List<Disk>> singletonMap(vmIds.get(0), Arrays.<Disk> asList(new DiskImage()));
+        DiskDao diskDao = mock(DiskDao.class);
+        when(diskDao.getAllForVms(vmIds, getUser().getId(), getQueryParameters().isFiltered())).thenReturn(disks);
+        when(getQuery().getDbFacade().getDiskDao()).thenReturn(diskDao);
+
+        getQuery().executeQueryCommand();
+
+        assertEquals(disks, getQuery().getQueryReturnValue().getReturnValue());
+    }
+}
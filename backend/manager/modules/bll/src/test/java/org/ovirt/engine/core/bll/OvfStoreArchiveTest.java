@@ -0,0 +1,221 @@
+package org.ovirt.engine.core.bll;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.ovirt.engine.core.common.businessentities.OvfEntityData;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.VmAndTemplatesGenerationsDao;
+
+public class OvfStoreArchiveTest {
+
+    private static final String INFO_FILE_DATA = "{\"Domains\" : []}";
+
+    private Guid vmId;
+    private Guid templateId;
+    private Guid vmWithoutOvfId;
+    private Guid unregisteredVmId;
+    private String vmOvf;
+    private String templateOvf;
+    private VmAndTemplatesGenerationsDao dao;
+    private boolean rejectWriter;
+
+    @Before
+    public void setUp() throws Exception {
+        vmId = Guid.newGuid();
+        templateId = Guid.newGuid();
+        vmWithoutOvfId = Guid.newGuid();
+        unregisteredVmId = Guid.newGuid();
+        // Larger than the pipe, so the writer has to wait for the reader
+        vmOvf = "<ovf>" + StringUtils.repeat("\u00e9", OvfStoreArchive.PIPE_SIZE) + "</ovf>";
+        templateOvf = "<ovf>template</ovf>";
+
+        dao = mock(VmAndTemplatesGenerationsDao.class);
+        when(dao.loadOvfSizesForIds(anyListOf(Guid.class))).thenReturn(Arrays.asList(
+                new Pair<>(vmId, (long) vmOvf.getBytes("UTF-8").length),
+                new Pair<>(templateId, (long) templateOvf.length())));
+        mockGenerations(1L);
+        mockOvfs(vmOvf, templateOvf);
+    }
+
+    @Test
+    public void testArchive() throws Exception {
+        OvfStoreArchive archive = createArchive();
+
+        byte[] data = readAll(archive);
+        assertEquals(archive.getSize(), data.length);
+
+        Map<String, String> entries = readEntries(data);
+        assertEquals(4, entries.size());
+        assertEquals(INFO_FILE_DATA, entries.get("info.json"));
+        assertEquals(vmOvf, entries.get(vmId + ".ovf"));
+        assertEquals(templateOvf, entries.get(templateId + ".ovf"));
+        assertEquals("<ovf>unregistered</ovf>", entries.get(unregisteredVmId + ".ovf"));
+    }
+
+    @Test
+    public void testArchiveWrittenInMemoryWhenWriterRejected() throws Exception {
+        rejectWriter = true;
+        OvfStoreArchive archive = createArchive();
+
+        byte[] data = readAll(archive);
+        assertEquals(archive.getSize(), data.length);
+        assertEquals(vmOvf, readEntries(data).get(vmId + ".ovf"));
+    }
+
+    @Test
+    public void testChangedOvfFailsTheArchiveWrittenInMemory() throws Exception {
+        rejectWriter = true;
+        OvfStoreArchive archive = createArchive();
+        mockOvfs(vmOvf, "<ovf>changed template</ovf>");
+
+        try {
+            readAll(archive);
+            fail("the archive of a changed OVF should not be read");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testArchiveWrittenForEveryStore() throws Exception {
+        OvfStoreArchive archive = createArchive();
+
+        assertEquals(archive.getSize(), readAll(archive).length);
+        assertEquals(archive.getSize(), readAll(archive).length);
+    }
+
+    @Test
+    public void testChangedOvfFailsTheStream() throws Exception {
+        OvfStoreArchive archive = createArchive();
+        mockOvfs(vmOvf, "<ovf>changed template</ovf>");
+
+        try {
+            readAll(archive);
+            fail("the archive of a changed OVF should not be read to its end");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRemovedOvfFailsTheStream() throws Exception {
+        OvfStoreArchive archive = createArchive();
+        mockOvfs(vmOvf, null);
+
+        try {
+            readAll(archive);
+            fail("the archive of a removed OVF should not be read to its end");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testContentHash() throws Exception {
+        String contentHash = createArchive().getContentHash();
+        assertEquals(contentHash, createArchive().getContentHash());
+
+        mockGenerations(2L);
+        assertNotEquals("a new generation of an OVF should change the content hash",
+                contentHash,
+                createArchive().getContentHash());
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseBeforeEndStopsTheWriter() throws Exception {
+        OvfStoreArchive archive = createArchive();
+
+        try (InputStream inputStream = archive.open()) {
+            assertEquals('i', inputStream.read());
+        }
+    }
+
+    private OvfStoreArchive createArchive() {
+        OvfEntityData unregisteredVm = new OvfEntityData();
+        unregisteredVm.setEntityId(unregisteredVmId);
+        unregisteredVm.setOvfData("<ovf>unregistered</ovf>");
+        // An unregistered OVF of a registered VM is replaced by the OVF of the VM
+        OvfEntityData unregisteredTemplate = new OvfEntityData();
+        unregisteredTemplate.setEntityId(templateId);
+        unregisteredTemplate.setOvfData("<ovf>old template</ovf>");
+
+        return new OvfStoreArchive(dao,
+                INFO_FILE_DATA,
+                Arrays.asList(vmId, templateId, vmWithoutOvfId, vmId),
+                Arrays.asList(unregisteredVm, unregisteredTemplate)) {
+            @Override
+            protected void startWriter(FutureTask<Void> writer) {
+                if (rejectWriter) {
+                    throw new RejectedExecutionException();
+                }
+                new Thread(writer).start();
+            }
+        };
+    }
+
+    private void mockGenerations(long templateGeneration) {
+        when(dao.loadOvfGenerationsForIds(anyListOf(Guid.class))).thenReturn(Arrays.asList(
+                new Pair<>(vmId, 1L),
+                new Pair<>(templateId, templateGeneration)));
+    }
+
+    private void mockOvfs(String vmOvf, String templateOvf) {
+        List<Pair<Guid, String>> ovfs = templateOvf == null ?
+                Collections.singletonList(new Pair<>(vmId, vmOvf)) :
+                Arrays.asList(new Pair<>(templateId, templateOvf), new Pair<>(vmId, vmOvf));
+        when(dao.loadOvfDataForIds(anyListOf(Guid.class))).thenReturn(ovfs);
+    }
+
+    private static byte[] readAll(OvfStoreArchive archive) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (InputStream inputStream = archive.open()) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                data.write(buffer, 0, read);
+            }
+        }
+        return data.toByteArray();
+    }
+
+    private static Map<String, String> readEntries(byte[] data) throws IOException {
+        Map<String, String> entries = new HashMap<>();
+        try (TarArchiveInputStream inputStream = new TarArchiveInputStream(new ByteArrayInputStream(data))) {
+            TarArchiveEntry entry;
+            while ((entry = inputStream.getNextTarEntry()) != null) {
+                byte[] content = new byte[(int) entry.getSize()];
+                int offset = 0;
+                while (offset < content.length) {
+                    offset += inputStream.read(content, offset, content.length - offset);
+                }
+                entries.put(entry.getName(), new String(content, "UTF-8"));
+            }
+            assertNull(inputStream.getNextTarEntry());
+        }
+        return entries;
+    }
+}
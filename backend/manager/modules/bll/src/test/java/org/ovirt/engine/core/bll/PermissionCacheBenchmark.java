@@ -0,0 +1,154 @@
+package org.ovirt.engine.core.bll;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ovirt.engine.core.common.VdcObjectType;
+import org.ovirt.engine.core.common.businessentities.ActionGroup;
+import org.ovirt.engine.core.common.businessentities.Permission;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.PermissionDao;
+import org.ovirt.engine.core.utils.transaction.TransactionCompletionListener;
+
+/**
+ * Checks the permissions of a bulk action on 1,000 VMs of one cluster, as done for every VM by
+ * {@link CommandBase#checkUserAuthorization}: once against the database only and once through the
+ * {@link PermissionCache}. The database round trip is simulated by consuming <code>roundTripTokens</code> CPU tokens
+ * for every stored procedure call.
+ * <p>
+ * Run with: <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main PermissionCacheBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PermissionCacheBenchmark {
+
+    private static final int VMS = 1000;
+    private static final Guid USER_ID = Guid.newGuid();
+    private static final Collection<Guid> GROUP_IDS = Arrays.asList(Guid.newGuid(), Guid.newGuid());
+    private static final Guid CLUSTER_ID = Guid.newGuid();
+    private static final Guid DATA_CENTER_ID = Guid.newGuid();
+
+    @Param({ "1000", "10000" })
+    private long roundTripTokens;
+
+    private List<Guid> vmIds;
+    private PermissionDao permissionDao;
+    private PermissionCache permissionCache;
+
+    @Setup
+    public void setUp() {
+        vmIds = new ArrayList<>();
+        for (int i = 0; i < VMS; i++) {
+            vmIds.add(Guid.newGuid());
+        }
+
+        final Permission clusterPermission =
+                new Permission(USER_ID, Guid.newGuid(), CLUSTER_ID, VdcObjectType.VdsGroups);
+        permissionDao = mock(PermissionDao.class);
+        when(permissionDao.getEntityPermissions(any(Guid.class),
+                any(ActionGroup.class),
+                any(Guid.class),
+                any(VdcObjectType.class))).thenAnswer(new Answer<Guid>() {
+            @Override
+            public Guid answer(InvocationOnMock invocation) {
+                Blackhole.consumeCPU(roundTripTokens);
+                return clusterPermission.getId();
+            }
+        });
+        when(permissionDao.getAllGrantingActionGroupForUserAndGroups(any(Guid.class),
+                anyString(),
+                any(ActionGroup.class),
+                anyBoolean())).thenAnswer(new Answer<List<Permission>>() {
+            @Override
+            public List<Permission> answer(InvocationOnMock invocation) {
+                Blackhole.consumeCPU(roundTripTokens);
+                return Collections.singletonList(clusterPermission);
+            }
+        });
+        when(permissionDao.getEntityParents(any(Guid.class), any(VdcObjectType.class))).thenAnswer(
+                new Answer<List<Guid>>() {
+                    @Override
+                    public List<Guid> answer(InvocationOnMock invocation) {
+                        Blackhole.consumeCPU(roundTripTokens);
+                        return Arrays.asList((Guid) invocation.getArguments()[0],
+                                CLUSTER_ID,
+                                DATA_CENTER_ID,
+                                MultiLevelAdministrationHandler.SYSTEM_OBJECT_ID);
+                    }
+                });
+
+        final PermissionDao dao = permissionDao;
+        permissionCache = new PermissionCache() {
+            @Override
+            protected PermissionDao getPermissionDao() {
+                return dao;
+            }
+
+            @Override
+            protected void registerCompletionListener(TransactionCompletionListener listener) {
+                // Not in a transaction
+            }
+        };
+        // The steady state of the engine, where the VMs were already checked since the last hierarchy change:
+        for (Guid vmId : vmIds) {
+            checkWithCache(vmId);
+        }
+    }
+
+    @Benchmark
+    public void bulkActionWithoutCache(Blackhole blackhole) {
+        for (Guid vmId : vmIds) {
+            blackhole.consume(permissionDao.getEntityPermissions(USER_ID, ActionGroup.RUN_VM, vmId, VdcObjectType.VM));
+        }
+    }
+
+    @Benchmark
+    public void bulkActionWithCache(Blackhole blackhole) {
+        for (Guid vmId : vmIds) {
+            blackhole.consume(checkWithCache(vmId));
+        }
+    }
+
+    @Benchmark
+    public void bulkActionAfterInvalidation(Blackhole blackhole) {
+        permissionCache.invalidatePermissions();
+        bulkActionWithCache(blackhole);
+    }
+
+    private Guid checkWithCache(Guid vmId) {
+        Guid permissionId =
+                permissionCache.getPermission(USER_ID, GROUP_IDS, ActionGroup.RUN_VM, vmId, VdcObjectType.VM, false);
+        if (permissionId == null) {
+            permissionId = permissionDao.getEntityPermissions(USER_ID, ActionGroup.RUN_VM, vmId, VdcObjectType.VM);
+        }
+        return permissionId;
+    }
+}
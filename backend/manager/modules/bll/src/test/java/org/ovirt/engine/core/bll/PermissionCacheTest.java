@@ -0,0 +1,182 @@
+package org.ovirt.engine.core.bll;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.ovirt.engine.core.common.VdcObjectType;
+import org.ovirt.engine.core.common.businessentities.ActionGroup;
+import org.ovirt.engine.core.common.businessentities.Permission;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.PermissionDao;
+import org.ovirt.engine.core.utils.transaction.TransactionCompletionListener;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PermissionCacheTest {
+
+    private static final Guid USER_ID = Guid.newGuid();
+    private static final Guid GROUP_ID = Guid.newGuid();
+    private static final Guid VM_ID = Guid.newGuid();
+    private static final Guid CLUSTER_ID = Guid.newGuid();
+    private static final Guid OTHER_CLUSTER_ID = Guid.newGuid();
+
+    @Mock
+    private PermissionDao permissionDao;
+
+    private PermissionCache cache;
+
+    /** The listeners registered to the transaction of the invalidating command, which is still open */
+    private final List<TransactionCompletionListener> completionListeners = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        cache = new PermissionCache() {
+            @Override
+            protected PermissionDao getPermissionDao() {
+                return permissionDao;
+            }
+
+            @Override
+            protected void registerCompletionListener(TransactionCompletionListener listener) {
+                completionListeners.add(listener);
+            }
+        };
+        when(permissionDao.getEntityParents(VM_ID, VdcObjectType.VM)).thenReturn(Arrays.asList(VM_ID, CLUSTER_ID));
+    }
+
+    @Test
+    public void testGrantedOnParent() {
+        Permission permission = mockGrantedObject(CLUSTER_ID);
+
+        assertEquals(permission.getId(), getVmPermission());
+        assertEquals(permission.getId(), getVmPermission());
+
+        // Both the granted objects and the parents are loaded once:
+        verify(permissionDao).getAllGrantingActionGroupForUserAndGroups(USER_ID,
+                GROUP_ID.toString(),
+                ActionGroup.RUN_VM,
+                false);
+        verify(permissionDao).getEntityParents(VM_ID, VdcObjectType.VM);
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testNotGranted() {
+        mockGrantedObject(OTHER_CLUSTER_ID);
+
+        assertNull(getVmPermission());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidatePermissions() {
+        mockGrantedObject(CLUSTER_ID);
+        getVmPermission();
+
+        mockGrantedObject(OTHER_CLUSTER_ID);
+        cache.invalidatePermissions();
+
+        assertNull(getVmPermission());
+        verify(permissionDao, times(2)).getAllGrantingActionGroupForUserAndGroups(USER_ID,
+                GROUP_ID.toString(),
+                ActionGroup.RUN_VM,
+                false);
+    }
+
+    @Test
+    public void testInvalidateHierarchy() {
+        mockGrantedObject(CLUSTER_ID);
+        getVmPermission();
+
+        when(permissionDao.getEntityParents(VM_ID, VdcObjectType.VM))
+                .thenReturn(Arrays.asList(VM_ID, OTHER_CLUSTER_ID));
+        cache.invalidateHierarchy();
+
+        assertNull(getVmPermission());
+    }
+
+    @Test
+    public void testPermissionsLoadedBeforeCommitNotKept() {
+        Permission permission = mockGrantedObject(CLUSTER_ID);
+        getVmPermission();
+
+        // The permission is removed, but until the transaction commits a concurrent check still reads it:
+        cache.invalidatePermissions();
+        assertEquals(permission.getId(), getVmPermission());
+
+        mockGrantedObject(OTHER_CLUSTER_ID);
+        commit();
+
+        assertNull(getVmPermission());
+    }
+
+    @Test
+    public void testParentsLoadedBeforeCommitNotKept() {
+        mockGrantedObject(CLUSTER_ID);
+        getVmPermission();
+
+        // The VM is moved, but until the transaction commits a concurrent check still reads its old cluster:
+        cache.invalidateHierarchy();
+        assertNotNull(getVmPermission());
+
+        when(permissionDao.getEntityParents(VM_ID, VdcObjectType.VM))
+                .thenReturn(Arrays.asList(VM_ID, OTHER_CLUSTER_ID));
+        commit();
+
+        assertNull(getVmPermission());
+    }
+
+    @Test
+    public void testTypeOutsideOfHierarchyNotCached() {
+        assertNull(cache.getPermission(USER_ID,
+                Collections.singletonList(GROUP_ID),
+                ActionGroup.CREATE_DISK,
+                Guid.newGuid(),
+                VdcObjectType.Disk,
+                false));
+        verifyZeroInteractions(permissionDao);
+    }
+
+    private Guid getVmPermission() {
+        return cache.getPermission(USER_ID,
+                Collections.singletonList(GROUP_ID),
+                ActionGroup.RUN_VM,
+                VM_ID,
+                VdcObjectType.VM,
+                false);
+    }
+
+    private void commit() {
+        for (TransactionCompletionListener listener : completionListeners) {
+            listener.onSuccess();
+        }
+        completionListeners.clear();
+    }
+
+    private Permission mockGrantedObject(Guid objectId) {
+        Permission permission = new Permission(GROUP_ID, Guid.newGuid(), objectId, VdcObjectType.VdsGroups);
+        List<Permission> permissions = Collections.singletonList(permission);
+        when(permissionDao.getAllGrantingActionGroupForUserAndGroups(any(Guid.class),
+                anyString(),
+                any(ActionGroup.class),
+                anyBoolean())).thenReturn(permissions);
+        return permission;
+    }
+}
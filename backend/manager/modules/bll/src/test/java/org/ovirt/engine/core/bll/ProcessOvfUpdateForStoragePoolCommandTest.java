@@ -25,8 +25,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -70,6 +75,7 @@ import org.ovirt.engine.core.utils.MockConfigRule;
 @RunWith(MockitoJUnitRunner.class)
 public class ProcessOvfUpdateForStoragePoolCommandTest {
     private final static int ITEMS_COUNT_PER_UPDATE = 100;
+    private final static int PARALLELISM = 4;
     private ProcessOvfUpdateForStoragePoolCommand<ProcessOvfUpdateForStoragePoolParameters> command;
 
     @Mock
@@ -98,6 +104,10 @@ public class ProcessOvfUpdateForStoragePoolCommandTest {
 
     private OvfUpdateProcessHelper ovfUpdateProcessHelper;
 
+    private OvfUpdateMetrics ovfUpdateMetrics;
+
+    private ExecutorService executor;
+
     private StoragePool pool1;
     private Map<Guid, VM> vms;
     private Map<Guid, VmTemplate> templates;
@@ -118,6 +128,10 @@ public class ProcessOvfUpdateForStoragePoolCommandTest {
         command = Mockito.spy(new ProcessOvfUpdateForStoragePoolCommand<>(new ProcessOvfUpdateForStoragePoolParameters()));
         ovfUpdateProcessHelper = Mockito.spy(new OvfUpdateProcessHelper());
         doReturn(ITEMS_COUNT_PER_UPDATE).when(command).loadConfigValue();
+        doReturn(PARALLELISM).when(command).loadParallelism();
+        ovfUpdateMetrics = new OvfUpdateMetrics();
+        doReturn(ovfUpdateMetrics).when(command).getOvfUpdateMetrics();
+        executor = Executors.newFixedThreadPool(PARALLELISM);
         doReturn(new ArrayList<DiskImage>()).when(ovfUpdateProcessHelper).getAllImageSnapshots(any(DiskImage.class));
         doReturn(false).when(command).ovfOnAnyDomainSupported(any(StoragePool.class));
         doCallRealMethod().when(command).executeCommand();
@@ -151,6 +165,11 @@ public class ProcessOvfUpdateForStoragePoolCommandTest {
         mockAnswers();
     }
 
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
     private void initMembers() {
         executedUpdatedMetadataForStoragePool = new HashMap<>();
         executedRemovedIds = new HashSet<>();
@@ -181,6 +200,20 @@ public class ProcessOvfUpdateForStoragePoolCommandTest {
     }
 
     private void mockAnswers() {
+        doAnswer(new Answer<List<Object>>() {
+            @Override
+            public List<Object> answer(InvocationOnMock invocation) throws Throwable {
+                List<Callable<Object>> tasks = (List<Callable<Object>>) invocation.getArguments()[0];
+                assertTrue("more tasks than threads were submitted", tasks.size() <= PARALLELISM);
+                List<Object> results = new ArrayList<>();
+                for (Future<Object> future : executor.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+                return results;
+            }
+
+        }).when(command).invokeAll(anyList());
+
         doAnswer(new Answer<String>() {
             @Override
             public String answer(InvocationOnMock invocation) throws Throwable {
@@ -745,4 +778,23 @@ public class ProcessOvfUpdateForStoragePoolCommandTest {
                 Collections.singletonMap(poolId, Arrays.asList(ovfInfo.getStorageDomainId()));
         verifyOvfUpdatedForSupportedPools(Arrays.asList(poolId), domainsRequiredUpdateForPool);
     }
+
+    @Test
+    public void testOvfsRegeneratedInParallelRecorded() {
+        int size = ITEMS_COUNT_PER_UPDATE + 10;
+        List<Guid> vmGuids = generateGuidList(size);
+        List<Guid> lockedVmGuids = generateGuidList(10);
+        addVms(vmGuids, 2, VMStatus.Down, ImageStatus.OK, pool1.getId());
+        addVms(lockedVmGuids, 2, VMStatus.ImageLocked, ImageStatus.OK, pool1.getId());
+        List<Guid> changedVmGuids = new LinkedList<>(vmGuids);
+        changedVmGuids.addAll(lockedVmGuids);
+
+        initTestForPool(pool1, changedVmGuids, Collections.<Guid> emptyList(), Collections.<Guid> emptyList());
+        executeCommand();
+
+        verify(command, times(2)).invokeAll(anyList());
+        verifyCorrectOvfDataUpdaterRun(pool1, vmGuids, Collections.<Guid> emptyList());
+        assertEquals(size + 10, ovfUpdateMetrics.getChangedItems());
+        assertEquals(size, ovfUpdateMetrics.getRegeneratedOvfs());
+    }
 }
@@ -0,0 +1,127 @@
+package org.ovirt.engine.core.bll;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SearchQueryCacheTest {
+
+    @Test
+    public void testHitAndMiss() {
+        SearchQueryCache cache = new SearchQueryCache(10);
+        QueryData data = newQueryData("select 1");
+
+        assertNull(cache.get("Vms:"));
+        cache.put("Vms:", data);
+        assertSame(data, cache.get("Vms:"));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        SearchQueryCache cache = new SearchQueryCache(2);
+        cache.put("Vms:", newQueryData("select 1"));
+        cache.put("Hosts:", newQueryData("select 2"));
+        // Using the VMs search makes the hosts search the least recently used:
+        cache.get("Vms:");
+        cache.put("Clusters:", newQueryData("select 3"));
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("Hosts:"));
+        assertEquals("select 1", cache.get("Vms:").getQuery());
+    }
+
+    @Test
+    public void testOldQueryCompiledAgain() {
+        SearchQueryCache cache = new SearchQueryCache(10);
+        cache.put("Vms:", new QueryData("select 1",
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2),
+                null,
+                null));
+
+        assertNull(cache.get("Vms:"));
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testParseTime() {
+        SearchQueryCache cache = new SearchQueryCache(10);
+        cache.parsed(TimeUnit.MICROSECONDS.toNanos(100));
+        cache.parsed(TimeUnit.MICROSECONDS.toNanos(300));
+
+        assertEquals(2, cache.getParses());
+        assertEquals(200, cache.getAverageParseTimeMicros(), 0);
+        assertEquals(300, cache.getMaxParseTimeMicros());
+    }
+
+    @Test
+    public void testConcurrentSessions() throws Exception {
+        final int sessions = 300;
+        final int searchesPerSession = 200;
+        final int maxSize = 50;
+        final SearchQueryCache cache = new SearchQueryCache(maxSize);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            final int session = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < searchesPerSession; j++) {
+                        // Most searches are shared by the sessions, some are specific to one:
+                        String key = j % 4 == 0 ? "Vms: name=session" + session + "-" + j : "Vms: page " + j % 20;
+                        QueryData data = cache.get(key);
+                        if (data == null) {
+                            cache.put(key, newQueryData(key));
+                        } else {
+                            assertEquals(key, data.getQuery());
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                results.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.getSize() <= maxSize);
+        assertEquals((long) sessions * searchesPerSession, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    private static QueryData newQueryData(String query) {
+        return new QueryData(query, System.currentTimeMillis(), null, null);
+    }
+}
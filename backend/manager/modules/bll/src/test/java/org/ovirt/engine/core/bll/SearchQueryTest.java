@@ -1,15 +1,24 @@
 package org.ovirt.engine.core.bll;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.ovirt.engine.core.utils.MockConfigRule.mockConfig;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -28,8 +37,11 @@ import org.ovirt.engine.core.common.businessentities.network.NetworkView;
 import org.ovirt.engine.core.common.businessentities.storage.Disk;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.common.interfaces.SearchType;
+import org.ovirt.engine.core.common.queries.SearchDelta;
 import org.ovirt.engine.core.common.queries.SearchParameters;
 import org.ovirt.engine.core.common.utils.CommonConstants;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
 import org.ovirt.engine.core.dao.DiskDao;
 import org.ovirt.engine.core.dao.QuotaDao;
@@ -62,13 +74,16 @@ public class SearchQueryTest extends DbDependentTestBase {
     List<GlusterVolumeEntity> glusterVolumeList = new ArrayList<GlusterVolumeEntity>();
     List<NetworkView> networkResultList = new ArrayList<NetworkView>();
     private DbFacade facadeMock;
+    private VmDao vmDao;
+    private SearchQueryCache queriesCache;
 
     @Before
     public void setup() {
+        queriesCache = new SearchQueryCache(100);
         facadeMock = DbFacade.getInstance();
         final DiskDao diskDao = Mockito.mock(DiskDao.class);
         final QuotaDao quotaDao = Mockito.mock(QuotaDao.class);
-        final VmDao vmDao = Mockito.mock(VmDao.class);
+        vmDao = Mockito.mock(VmDao.class);
         final VdsDao vdsDao = Mockito.mock(VdsDao.class);
         final VdsGroupDao vdsGroupDao = Mockito.mock(VdsGroupDao.class);
         final StoragePoolDao storagePoolDao = Mockito.mock(StoragePoolDao.class);
@@ -309,6 +324,7 @@ public class SearchQueryTest extends DbDependentTestBase {
         QuotaManager quotaManager = mock(QuotaManager.class);
         doNothing().when(quotaManager).updateUsage(anyListOf(Quota.class));
         when(searchQuery.getQuotaManager()).thenReturn(quotaManager);
+        when(searchQuery.getQueriesCache()).thenReturn(queriesCache);
     }
 
     private SearchQuery<SearchParameters> spySearchQuery(SearchParameters searchParam) {
@@ -431,4 +447,70 @@ public class SearchQueryTest extends DbDependentTestBase {
         searchQuery.executeQueryCommand();
         assertTrue(networkResultList == searchQuery.getQueryReturnValue().getReturnValue());
     }
+
+    @Test
+    public void testCachedSearch() throws Exception {
+        SearchParameters searchParam = new SearchParameters("VM" + CommonConstants.QUERY_RETURN_TYPE_SEPARATOR, SearchType.VM);
+        spySearchQuery(searchParam).executeQueryCommand();
+        SearchQuery<SearchParameters> searchQuery = spySearchQuery(searchParam);
+        searchQuery.executeQueryCommand();
+        assertTrue(vmResultList == searchQuery.getQueryReturnValue().getReturnValue());
+        assertEquals(1, queriesCache.getParses());
+        assertEquals(1, queriesCache.getHits());
+    }
+
+    @Test
+    public void testConcurrentSearchesFromManySessions() throws Exception {
+        final int sessions = 200;
+        List<Callable<Object>> searches = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            // The grids of the sessions refresh a few searches:
+            final SearchQuery<SearchParameters> searchQuery = spySearchQuery(i % 2 == 0
+                    ? new SearchParameters("VM" + CommonConstants.QUERY_RETURN_TYPE_SEPARATOR, SearchType.VM)
+                    : new SearchParameters("Host" + CommonConstants.QUERY_RETURN_TYPE_SEPARATOR, SearchType.VDS));
+            searches.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    searchQuery.executeQueryCommand();
+                    return searchQuery.getQueryReturnValue().getReturnValue();
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        try {
+            List<Future<Object>> results = executor.invokeAll(searches);
+            for (int i = 0; i < sessions; i++) {
+                assertTrue((i % 2 == 0 ? vmResultList : vdsResultList) == results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2, queriesCache.getSize());
+        assertEquals(sessions, queriesCache.getHits() + queriesCache.getMisses());
+        assertEquals(queriesCache.getMisses(), queriesCache.getParses());
+    }
+
+    @Test
+    public void testVmChangesSearch() throws Exception {
+        long changedSince = System.currentTimeMillis() - 3600000;
+        Guid unchangedVmId = Guid.newGuid();
+        Guid changedVmId = Guid.newGuid();
+        Date changeDate = new Date(changedSince + 1000);
+        Mockito.when(vmDao.getChangeDatesUsingQuery(Matchers.matches(getVMRegexString(new SearchObjectAutoCompleter()))))
+                .thenReturn(Arrays.asList(new Pair<>(unchangedVmId, new Date(changedSince - 3600000)),
+                        new Pair<>(changedVmId, changeDate)));
+        Mockito.when(vmDao.getVmsByIds(Matchers.<List<Guid>> any())).thenReturn(Collections.<VM> emptyList());
+
+        SearchParameters searchParam = new SearchParameters("VM" + CommonConstants.QUERY_RETURN_TYPE_SEPARATOR, SearchType.VM);
+        searchParam.setChangedSince(changedSince);
+        SearchQuery<SearchParameters> searchQuery = spySearchQuery(searchParam);
+        searchQuery.executeQueryCommand();
+
+        SearchDelta<VM> delta = searchQuery.getQueryReturnValue().getReturnValue();
+        assertEquals(Arrays.asList(unchangedVmId, changedVmId), delta.getIds());
+        assertEquals(changeDate.getTime(), delta.getChangeStamp());
+        // Only the changed VM is loaded:
+        verify(vmDao).getVmsByIds(Collections.singletonList(changedVmId));
+    }
 }
@@ -7,6 +7,8 @@ import static org.junit.Assert.assertTrue;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -129,4 +131,30 @@ public class InMemoryLockManagerTest {
         LockManagerFactory.getLockManager().clear();
         assertTrue(lockMager.showAllLocks().isEmpty());
     }
+
+    @Test(timeout = 10000)
+    public void checkAcquireLockWaitReleased() throws InterruptedException {
+        assertTrue(LockManagerFactory.getLockManager().acquireLock(lockLock1).getFirst());
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                LockManagerFactory.getLockManager().acquireLockWait(failLockLock);
+                acquired.countDown();
+            }
+        });
+        waiter.start();
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        // releasing an unrelated key does not let the waiter acquire the lock
+        assertTrue(LockManagerFactory.getLockManager().acquireLock(lockLock2).getFirst());
+        LockManagerFactory.getLockManager().releaseLock(lockLock2);
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        LockManagerFactory.getLockManager().releaseLock(lockLock1);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+        assertFalse(LockManagerFactory.getLockManager().acquireLock(lockLock1).getFirst());
+        LockManagerFactory.getLockManager().releaseLock(failLockLock);
+        assertTrue(lockMager.showAllLocks().isEmpty());
+        assertFalse(lockMager.showStripesContention().isEmpty());
+    }
 }
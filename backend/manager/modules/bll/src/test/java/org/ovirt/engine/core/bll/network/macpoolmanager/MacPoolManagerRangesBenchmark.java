@@ -0,0 +1,113 @@
+package org.ovirt.engine.core.bll.network.macpoolmanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.math.LongRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Allocates 100k MACs from a fresh {@link MacPoolManagerRanges} by concurrent threads, either one MAC per call as
+ * when adding VM interfaces, or in batches as when adding the VMs of a pool. The pool has twice the allocated MACs,
+ * split in 16 ranges, so it never runs out of MACs.
+ * <p>
+ * Run with: <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main MacPoolManagerRangesBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MacPoolManagerRangesBenchmark {
+
+    private static final int MACS = 100_000;
+    private static final int RANGES = 16;
+    private static final long FIRST_MAC = 0x001a4a160000L;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({ "1", "8", "32" })
+    private int threads;
+
+    private ExecutorService executor;
+    private MacPoolManagerRanges macPool;
+
+    @Setup(Level.Trial)
+    public void startThreads() {
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopThreads() {
+        executor.shutdownNow();
+    }
+
+    @Setup(Level.Invocation)
+    public void createPool() {
+        List<LongRange> ranges = new ArrayList<>();
+        long rangeSize = 2L * MACS / RANGES;
+        for (int i = 0; i < RANGES; i++) {
+            long rangeStart = FIRST_MAC + i * 2 * rangeSize;
+            ranges.add(new LongRange(rangeStart, rangeStart + rangeSize - 1));
+        }
+        // Added in reverse, as the ranges of the pool are kept sorted regardless of their order
+        Collections.reverse(ranges);
+        macPool = new MacPoolManagerRanges(ranges, false);
+        macPool.initialize();
+    }
+
+    @Benchmark
+    public void allocateNewMac(Blackhole blackhole) throws Exception {
+        allocate(1, blackhole);
+    }
+
+    @Benchmark
+    public void allocateMacAddresses(Blackhole blackhole) throws Exception {
+        allocate(BATCH_SIZE, blackhole);
+    }
+
+    private void allocate(final int batchSize, Blackhole blackhole) throws Exception {
+        final int callsPerThread = MACS / batchSize / threads;
+        List<Future<Integer>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    // The MACs are counted here, as a blackhole shouldn't be shared by threads
+                    int allocatedMacs = 0;
+                    for (int call = 0; call < callsPerThread; call++) {
+                        if (batchSize == 1) {
+                            macPool.allocateNewMac();
+                            allocatedMacs++;
+                        } else {
+                            allocatedMacs += macPool.allocateMacAddresses(batchSize).size();
+                        }
+                    }
+                    return allocatedMacs;
+                }
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            blackhole.consume(future.get());
+        }
+    }
+}
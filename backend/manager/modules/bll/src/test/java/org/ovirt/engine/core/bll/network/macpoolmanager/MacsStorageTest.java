@@ -1,11 +1,13 @@
 package org.ovirt.engine.core.bll.network.macpoolmanager;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import org.hamcrest.core.IsSame;
@@ -23,6 +25,42 @@ public class MacsStorageTest {
         assertRangeAltering(5, Arrays.asList(0, 3, 4), Arrays.asList(1, 2, 1, 2));
     }
 
+    @Test
+    public void macsAreFoundInRangesAddedInAnyOrder() {
+        MacsStorage macsStorage = new MacsStorage(false);
+        macsStorage.addRange(100, 109);
+        macsStorage.addRange(0, 9);
+        macsStorage.addRange(50, 59);
+
+        for (long mac : Arrays.asList(0L, 9L, 50L, 59L, 100L, 109L)) {
+            assertThat(macsStorage.useMac(mac), is(true));
+            assertThat(macsStorage.isMacInUse(mac), is(true));
+        }
+        assertThat(macsStorage.getAvailableMacsCount(), is(24));
+
+        // MACs between and around the ranges are custom ones
+        for (long mac : Arrays.asList(-1L, 10L, 49L, 60L, 110L)) {
+            assertThat(macsStorage.useMac(mac), is(true));
+            assertThat(macsStorage.useMac(mac), is(false));
+        }
+        assertThat(macsStorage.getAvailableMacsCount(), is(24));
+
+        macsStorage.freeMac(50);
+        assertThat(macsStorage.isMacInUse(50), is(false));
+        assertThat(macsStorage.getAvailableMacsCount(), is(25));
+    }
+
+    @Test
+    public void macsAreAllocatedFromSeveralRanges() {
+        MacsStorage macsStorage = new MacsStorage(false);
+        macsStorage.addRange(0, 2);
+        macsStorage.addRange(10, 12);
+
+        List<Long> macs = macsStorage.allocateAvailableMacs(5);
+        assertThat(new HashSet<>(macs).size(), is(5));
+        assertThat(macsStorage.getAvailableMacsCount(), is(1));
+    }
+
     private void assertRangeAltering(int numberOfRanges,
             List<Integer> rangesWithoutAvailableMacs, List<Integer> expectedRangeIndices) {
         List<Range> ranges = createMockedRanges(numberOfRanges);
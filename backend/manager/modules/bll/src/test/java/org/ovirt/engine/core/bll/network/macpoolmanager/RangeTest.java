@@ -3,8 +3,15 @@ package org.ovirt.engine.core.bll.network.macpoolmanager;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.math.LongRange;
 import org.junit.Before;
@@ -112,6 +119,46 @@ public class RangeTest {
         rangeOf10Macs.allocateMacs(NUMBER_OF_MACS + 1);
     }
 
+    @Test
+    public void testAllocateAvailableMacs() throws Exception {
+        assertThat(rangeOf10Macs.allocateAvailableMacs(NUMBER_OF_MACS - 2).size(), is(NUMBER_OF_MACS - 2));
+        assertThat(rangeOf10Macs.allocateAvailableMacs(NUMBER_OF_MACS).size(), is(2));
+        assertThat(rangeOf10Macs.allocateAvailableMacs(1).size(), is(0));
+        assertThat(rangeOf10Macs.getAvailableCount(), is(0));
+    }
+
+    @Test
+    public void testConcurrentAllocationsAreDistinct() throws Exception {
+        final int threads = 8;
+        final int macsPerThread = 1000;
+        final Range range = new Range(0, threads * macsPerThread - 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() {
+                        List<Long> macs = new ArrayList<>();
+                        for (int j = 0; j < macsPerThread; j++) {
+                            macs.addAll(range.allocateMacs(1));
+                        }
+                        return macs;
+                    }
+                }));
+            }
+
+            Set<Long> allocatedMacs = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                allocatedMacs.addAll(future.get());
+            }
+            assertThat(allocatedMacs.size(), is(threads * macsPerThread));
+            assertThat(range.getAvailableCount(), is(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testRangeStartAndRangeStopAreInclusive() throws Exception {
         assertThat(new Range(MAC_FROM_RANGE, MAC_FROM_RANGE).getAvailableCount(), is(1));
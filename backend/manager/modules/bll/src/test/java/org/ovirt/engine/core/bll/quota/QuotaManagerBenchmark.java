@@ -0,0 +1,147 @@
+package org.ovirt.engine.core.bll.quota;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ovirt.engine.core.common.businessentities.Quota;
+import org.ovirt.engine.core.common.businessentities.QuotaEnforcementTypeEnum;
+import org.ovirt.engine.core.common.businessentities.QuotaStorage;
+import org.ovirt.engine.core.common.businessentities.QuotaVdsGroup;
+import org.ovirt.engine.core.common.businessentities.StoragePool;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogableBase;
+import org.ovirt.engine.core.dao.QuotaDao;
+
+/**
+ * Runs concurrent consume and release calls of storage and cluster quota against {@link QuotaManager}. Every
+ * benchmark thread works on the quota of one of the storage pools, so comparing <code>storagePools=1</code> with
+ * <code>storagePools=16</code> shows the contention between consumers of the same and of different data centers.
+ * <p>
+ * Run with: <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main QuotaManagerBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(16)
+@Fork(1)
+public class QuotaManagerBenchmark {
+
+    private static final Guid STORAGE_DOMAIN_ID = Guid.newGuid();
+    private static final Guid VDS_GROUP_ID = Guid.newGuid();
+
+    @Param({ "1", "16" })
+    private int storagePools;
+
+    private QuotaManager quotaManager;
+    private List<StoragePool> pools;
+    private List<Guid> quotaIds;
+    private final AtomicInteger nextThread = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        QuotaDao quotaDao = mock(QuotaDao.class);
+        pools = new ArrayList<>();
+        quotaIds = new ArrayList<>();
+        for (int i = 0; i < storagePools; i++) {
+            StoragePool storagePool = new StoragePool();
+            storagePool.setId(Guid.newGuid());
+            storagePool.setQuotaEnforcementType(QuotaEnforcementTypeEnum.HARD_ENFORCEMENT);
+            Quota quota = createQuota(storagePool.getId());
+            when(quotaDao.getById(quota.getId())).thenReturn(quota);
+            pools.add(storagePool);
+            quotaIds.add(quota.getId());
+        }
+
+        final QuotaManagerAuditLogger auditLogger = new QuotaManagerAuditLogger();
+        final QuotaDao dao = quotaDao;
+        quotaManager = new QuotaManager() {
+            @Override
+            protected QuotaDao getQuotaDao() {
+                return dao;
+            }
+
+            @Override
+            protected QuotaManagerAuditLogger getQuotaManagerAuditLogger() {
+                return auditLogger;
+            }
+
+            @Override
+            protected int getConsumptionLockTimeoutInSeconds() {
+                return 30;
+            }
+        };
+    }
+
+    private static Quota createQuota(Guid storagePoolId) {
+        Quota quota = new Quota();
+        quota.setId(Guid.newGuid());
+        quota.setStoragePoolId(storagePoolId);
+        quota.setQuotaName("benchmark");
+        quota.setThresholdStoragePercentage(80);
+        quota.setGraceStoragePercentage(20);
+        quota.setThresholdVdsGroupPercentage(80);
+        quota.setGraceVdsGroupPercentage(20);
+        quota.setQuotaEnforcementType(QuotaEnforcementTypeEnum.HARD_ENFORCEMENT);
+
+        QuotaStorage quotaStorage = new QuotaStorage();
+        quotaStorage.setStorageSizeGB(1000000L);
+        quotaStorage.setStorageSizeGBUsage(0d);
+        quota.setGlobalQuotaStorage(quotaStorage);
+
+        QuotaVdsGroup quotaVdsGroup = new QuotaVdsGroup();
+        quotaVdsGroup.setVirtualCpu(1000000);
+        quotaVdsGroup.setVirtualCpuUsage(0);
+        quotaVdsGroup.setMemSizeMB(1000000000L);
+        quotaVdsGroup.setMemSizeMBUsage(0L);
+        quota.setGlobalQuotaVdsGroup(quotaVdsGroup);
+        return quota;
+    }
+
+    @State(Scope.Thread)
+    public static class Consumer {
+        private int pool;
+
+        @Setup
+        public void setUp(QuotaManagerBenchmark benchmark) {
+            pool = benchmark.nextThread.getAndIncrement() % benchmark.storagePools;
+        }
+    }
+
+    @Benchmark
+    public boolean consumeAndRelease(Consumer consumer) {
+        return quotaManager.consume(createParameters(consumer.pool, QuotaConsumptionParameter.QuotaAction.CONSUME))
+                && quotaManager.consume(createParameters(consumer.pool, QuotaConsumptionParameter.QuotaAction.RELEASE));
+    }
+
+    private QuotaConsumptionParametersWrapper createParameters(int pool, QuotaConsumptionParameter.QuotaAction action) {
+        AuditLogableBase auditLogable = new AuditLogableBase();
+        auditLogable.setStoragePool(pools.get(pool));
+        QuotaConsumptionParametersWrapper parameters =
+                new QuotaConsumptionParametersWrapper(auditLogable, new ArrayList<String>());
+        List<QuotaConsumptionParameter> consumption = new ArrayList<>();
+        Guid quotaId = quotaIds.get(pool);
+        consumption.add(new QuotaStorageConsumptionParameter(quotaId, null, action, STORAGE_DOMAIN_ID, 1d));
+        consumption.add(new QuotaVdsGroupConsumptionParameter(quotaId, null, action, VDS_GROUP_ID, 1, 256));
+        parameters.setParameters(consumption);
+        return parameters;
+    }
+}
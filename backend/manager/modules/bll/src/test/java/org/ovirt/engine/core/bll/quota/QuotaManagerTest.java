@@ -10,6 +10,9 @@ import static org.ovirt.engine.core.utils.MockConfigRule.mockConfig;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -27,6 +30,7 @@ import org.ovirt.engine.core.common.businessentities.QuotaStorage;
 import org.ovirt.engine.core.common.businessentities.QuotaVdsGroup;
 import org.ovirt.engine.core.common.businessentities.StoragePool;
 import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.common.errors.EngineMessage;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogableBase;
 import org.ovirt.engine.core.dao.QuotaDao;
@@ -77,7 +81,8 @@ public class QuotaManagerTest {
 
     @ClassRule
     public static MockConfigRule mcr = new MockConfigRule(
-            mockConfig(ConfigValues.MinimumPercentageToUpdateQuotaCache, 60)
+            mockConfig(ConfigValues.MinimumPercentageToUpdateQuotaCache, 60),
+            mockConfig(ConfigValues.QuotaConsumptionLockTimeoutInSeconds, 30)
     );
 
     @Spy
@@ -475,6 +480,114 @@ public class QuotaManagerTest {
         assertDbWasCalled(4);
     }
 
+    @Test
+    public void testConsumptionOfOtherStoragePoolNotBlocked() throws Exception {
+        final CountDownLatch consuming = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Quota>() {
+            @Override
+            public Quota answer(InvocationOnMock invocation) throws Throwable {
+                consuming.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return mockStorageQuotaGlobalNotExceeded();
+            }
+        }).when(quotaDao).getById(STORAGE_QUOTA_GLOBAL_NOT_EXCEEDED);
+        doReturn(0).when(quotaManager).getConsumptionLockTimeoutInSeconds();
+
+        // hold the lock of the storage pool while the quota is fetched
+        Thread blocked = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consumeForStorageQuota(STORAGE_QUOTA_GLOBAL_NOT_EXCEEDED);
+            }
+        });
+        blocked.start();
+        assertTrue(consuming.await(10, TimeUnit.SECONDS));
+
+        try {
+            // consumption in the same storage pool gives up after the timeout
+            assertFalse(consumeForStorageQuota(STORAGE_QUOTA_GLOBAL_OVER_THRESHOLD));
+            assertTrue(canDoActionMessages.contains(EngineMessage.ACTION_TYPE_FAILED_OBJECT_LOCKED.toString()));
+            canDoActionMessages.clear();
+
+            // consumption in another storage pool is not blocked
+            StoragePool otherStoragePool = new StoragePool();
+            otherStoragePool.setId(Guid.newGuid());
+            otherStoragePool.setQuotaEnforcementType(QuotaEnforcementTypeEnum.HARD_ENFORCEMENT);
+            Quota otherQuota = mockStorageQuotaGlobalNotExceeded();
+            otherQuota.setId(Guid.newGuid());
+            otherQuota.setStoragePoolId(otherStoragePool.getId());
+            when(quotaDao.getById(otherQuota.getId())).thenReturn(otherQuota);
+
+            AuditLogableBase auditLogable = new AuditLogableBase();
+            auditLogable.setStoragePool(otherStoragePool);
+            QuotaConsumptionParametersWrapper parameters =
+                    new QuotaConsumptionParametersWrapper(auditLogable, canDoActionMessages);
+            parameters.setParameters(new ArrayList<QuotaConsumptionParameter>());
+            parameters.getParameters().add(new QuotaStorageConsumptionParameter(
+                    otherQuota.getId(), null, QuotaConsumptionParameter.QuotaAction.CONSUME, DESTINATION_GUID, 1d));
+            assertTrue(quotaManager.consume(parameters));
+            assertEmptyCanDoActionMessage();
+        } finally {
+            release.countDown();
+            blocked.join();
+        }
+    }
+
+    @Test
+    public void testReleaseWaitsForQuotaLock() throws Exception {
+        final CountDownLatch consuming = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Quota>() {
+            @Override
+            public Quota answer(InvocationOnMock invocation) throws Throwable {
+                consuming.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return mockStorageQuotaGlobalNotExceeded();
+            }
+        }).when(quotaDao).getById(STORAGE_QUOTA_GLOBAL_NOT_EXCEEDED);
+        doReturn(0).when(quotaManager).getConsumptionLockTimeoutInSeconds();
+
+        // hold the lock of the storage pool while the quota is fetched
+        Thread blocked = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consumeForStorageQuota(STORAGE_QUOTA_GLOBAL_NOT_EXCEEDED);
+            }
+        });
+        blocked.start();
+        assertTrue(consuming.await(10, TimeUnit.SECONDS));
+
+        final QuotaConsumptionParametersWrapper parameters = parametersWrapper.clone();
+        parameters.getParameters().add(new QuotaStorageConsumptionParameter(STORAGE_QUOTA_GLOBAL_IN_GRACE, null,
+                QuotaConsumptionParameter.QuotaAction.RELEASE,
+                DESTINATION_GUID,
+                1d));
+        final AtomicBoolean released = new AtomicBoolean();
+        Thread releasing = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                released.set(quotaManager.consume(parameters));
+            }
+        });
+
+        try {
+            // the release keeps waiting after the consumption lock timeout
+            releasing.start();
+            releasing.join(500);
+            assertTrue(releasing.isAlive());
+        } finally {
+            release.countDown();
+            blocked.join();
+        }
+
+        // and is done once the lock is free
+        releasing.join(10000);
+        assertFalse(releasing.isAlive());
+        assertTrue(released.get());
+        assertFalse(canDoActionMessages.contains(EngineMessage.ACTION_TYPE_FAILED_OBJECT_LOCKED.toString()));
+    }
+
     /**
      * Mock a basic quota. Only the basic data (Id, name, threshold, grace...) is set.
      *
@@ -12,6 +12,7 @@ import org.ovirt.engine.core.bll.quota.QuotaManager;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogDirector;
 import org.ovirt.engine.core.dao.EngineSessionDao;
+import org.ovirt.engine.core.dao.VdsDynamicDao;
 import org.ovirt.engine.core.dao.scheduling.PolicyUnitDao;
 import org.ovirt.engine.core.di.Injector;
 import org.ovirt.engine.core.vdsbroker.ResourceManager;
@@ -40,6 +41,8 @@ public class CommonTestMocks {
     private QuotaManager quotaManager = mock(QuotaManager.class);
     @Produces
     private EngineSessionDao engineSessionDao = mock(EngineSessionDao.class);
+    @Produces
+    private VdsDynamicDao vdsDynamicDao = mock(VdsDynamicDao.class);
 
     public static Class<?>[] commonClasses() {
         return new Class<?>[] {
@@ -1,10 +1,28 @@
 package org.ovirt.engine.core.bll.scheduling;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
@@ -19,11 +37,23 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.ovirt.engine.core.bll.scheduling.external.ExternalSchedulerDiscovery;
+import org.ovirt.engine.core.common.businessentities.VDS;
+import org.ovirt.engine.core.common.businessentities.VDSGroup;
+import org.ovirt.engine.core.common.businessentities.VDSStatus;
+import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.common.errors.EngineMessage;
 import org.ovirt.engine.core.common.scheduling.ClusterPolicy;
+import org.ovirt.engine.core.common.scheduling.OptimizationType;
+import org.ovirt.engine.core.common.scheduling.PerHostMessages;
 import org.ovirt.engine.core.common.scheduling.PolicyUnit;
+import org.ovirt.engine.core.common.scheduling.PolicyUnitType;
+import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
+import org.ovirt.engine.core.dao.VdsDao;
 import org.ovirt.engine.core.dao.scheduling.ClusterPolicyDao;
 import org.ovirt.engine.core.dao.scheduling.PolicyUnitDao;
 import org.ovirt.engine.core.utils.MockConfigRule;
@@ -31,10 +61,20 @@ import org.ovirt.engine.core.utils.MockConfigRule;
 @RunWith(Arquillian.class)
 public class SchedulingManagerTest {
 
+    private static final long TIMEOUT_SECONDS = 10;
+
     @Rule
     public MockConfigRule mockConfigRule = new MockConfigRule(
             MockConfigRule.mockConfig(ConfigValues.ExternalSchedulerEnabled, false),
-            MockConfigRule.mockConfig(ConfigValues.EnableVdsLoadBalancing, false)
+            MockConfigRule.mockConfig(ConfigValues.EnableVdsLoadBalancing, false),
+            MockConfigRule.mockConfig(ConfigValues.SchedulerHostsPerPartition, 0),
+            MockConfigRule.mockConfig(ConfigValues.SchedulerAllowOverBooking, true),
+            MockConfigRule.mockConfig(ConfigValues.SchedulerOverBookingThreshold, 0),
+            MockConfigRule.mockConfig(ConfigValues.DefaultMinThreadPoolSize, 4),
+            MockConfigRule.mockConfig(ConfigValues.DefaultMaxThreadPoolSize, 4),
+            MockConfigRule.mockConfig(ConfigValues.DefaultMaxThreadWaitQueueSize, 10),
+            MockConfigRule.mockConfig(ConfigValues.ParallelThreadPoolSize, 4),
+            MockConfigRule.mockConfig(ConfigValues.ParallelThreadPoolQueueSize, 10)
             );
 
     @Inject
@@ -42,14 +82,26 @@ public class SchedulingManagerTest {
     @Inject
     private DbFacade dbFacade;
 
+    private VdsDao vdsDao;
+    private VDS host;
+    private VM vm;
+
     @Before
     public void initTest() {
         PolicyUnitDao policyUnitDao = mock(PolicyUnitDao.class);
         ClusterPolicyDao clusterPolicyDao = mock(ClusterPolicyDao.class);
+        vdsDao = mock(VdsDao.class);
         when(dbFacade.getPolicyUnitDao()).thenReturn(policyUnitDao);
         when(dbFacade.getClusterPolicyDao()).thenReturn(clusterPolicyDao);
+        when(dbFacade.getVdsDao()).thenReturn(vdsDao);
         when(policyUnitDao.getAll()).thenReturn(Collections.<PolicyUnit> emptyList());
         when(clusterPolicyDao.getAll()).thenReturn(Collections.<ClusterPolicy> emptyList());
+
+        host = new VDS();
+        host.setId(Guid.newGuid());
+        host.setVdsName("host");
+        vm = new VM();
+        vm.setId(Guid.newGuid());
     }
 
     @Deployment
@@ -73,4 +125,232 @@ public class SchedulingManagerTest {
     public void testSchedule() throws Exception {
         assertNotNull(schedulingManager.get());
     }
+
+    @Test
+    public void testBatchScheduleUsesMemoryCheckerOfRequest() {
+        VDSGroup cluster = createCluster(Guid.newGuid(), OptimizationType.NONE);
+        VdsFreeMemoryChecker memoryChecker = mock(VdsFreeMemoryChecker.class);
+        VmSchedulingRequest request = new VmSchedulingRequest(vm, null, null, null, memoryChecker);
+
+        Map<Guid, Guid> vmToHost =
+                schedulingManager.get().schedule(cluster, Collections.singletonList(request), null);
+
+        verify(memoryChecker).evaluate(host, vm);
+        assertTrue(vmToHost.isEmpty());
+        assertTrue(request.getMessages().contains(EngineMessage.SCHEDULING_ALL_HOSTS_FILTERED_OUT.name()));
+    }
+
+    @Test
+    public void testBatchScheduleSkipsClusterLockWhenOverbookingIsAllowed() throws Exception {
+        Guid clusterId = Guid.newGuid();
+        final VDSGroup lockedCluster = createCluster(clusterId, OptimizationType.NONE);
+        final VDSGroup overbookedCluster = createCluster(clusterId, OptimizationType.ALLOW_OVERBOOKING);
+        final CountDownLatch filtering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final VdsFreeMemoryChecker blockingMemoryChecker = mock(VdsFreeMemoryChecker.class);
+        when(blockingMemoryChecker.evaluate(any(VDS.class), any(VM.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                filtering.countDown();
+                release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return false;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // The scheduling of a single VM holds the cluster lock until it is released
+            Future<Guid> single = executor.submit(new Callable<Guid>() {
+                @Override
+                public Guid call() {
+                    return schedulingManager.get().schedule(lockedCluster,
+                            vm,
+                            null,
+                            null,
+                            new ArrayList<Guid>(),
+                            new ArrayList<String>(),
+                            blockingMemoryChecker,
+                            null);
+                }
+            });
+            assertTrue(filtering.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            final VmSchedulingRequest request =
+                    new VmSchedulingRequest(vm, null, null, null, mock(VdsFreeMemoryChecker.class));
+            Future<Map<Guid, Guid>> batch = executor.submit(new Callable<Map<Guid, Guid>>() {
+                @Override
+                public Map<Guid, Guid> call() {
+                    return schedulingManager.get().schedule(overbookedCluster,
+                            Collections.singletonList(request),
+                            null);
+                }
+            });
+            // Doesn't wait for the cluster lock, as the cluster allows overbooking
+            assertTrue(batch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).isEmpty());
+
+            release.countDown();
+            assertNull(single.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelFilteringReportsTheSameAsSerialFiltering() {
+        List<VDS> hosts = new ArrayList<>();
+        Set<Guid> oddHosts = new HashSet<>();
+        Set<Guid> allHosts = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            VDS vds = new VDS();
+            vds.setId(Guid.newGuid());
+            vds.setVdsName("host" + i);
+            hosts.add(vds);
+            allHosts.add(vds.getId());
+            if (i % 2 == 1) {
+                oddHosts.add(vds.getId());
+            }
+        }
+        RemovingPolicyUnit oddFilter = new RemovingPolicyUnit(createFilter("Odd"), oddHosts);
+        RemovingPolicyUnit allFilter = new RemovingPolicyUnit(createFilter("All"), allHosts);
+        VDSGroup cluster = createCluster(Guid.newGuid(), OptimizationType.NONE, addFilterPolicy(oddFilter, allFilter), hosts);
+
+        List<String> serialMessages = new ArrayList<>();
+        assertFalse(schedulingManager.get().canSchedule(cluster, vm, null, null, null, serialMessages));
+        assertEquals(1, oddFilter.getLoads());
+        assertEquals(1, allFilter.getLoads());
+
+        mockConfigRule.mockConfigValue(ConfigValues.SchedulerHostsPerPartition, 2);
+        List<String> parallelMessages = new ArrayList<>();
+        assertFalse(schedulingManager.get().canSchedule(cluster, vm, null, null, null, parallelMessages));
+        assertEquals(2, oddFilter.getLoads());
+        assertEquals(2, allFilter.getLoads());
+
+        assertEquals(serialMessages, parallelMessages);
+    }
+
+    private VDSGroup createCluster(Guid clusterId, OptimizationType optimizationType) {
+        return createCluster(clusterId,
+                optimizationType,
+                addFilterPolicy(new MemoryCheckingPolicyUnit(createFilter("Memory"))),
+                Collections.singletonList(host));
+    }
+
+    private VDSGroup createCluster(Guid clusterId,
+            OptimizationType optimizationType,
+            ClusterPolicy clusterPolicy,
+            final List<VDS> hosts) {
+        VDSGroup cluster = new VDSGroup();
+        cluster.setId(clusterId);
+        cluster.setName("cluster");
+        cluster.setOptimizationType(optimizationType);
+        cluster.setClusterPolicyId(clusterPolicy.getId());
+        when(vdsDao.getAllForVdsGroupWithStatus(clusterId, VDSStatus.Up)).thenAnswer(new Answer<List<VDS>>() {
+            @Override
+            public List<VDS> answer(InvocationOnMock invocation) throws Throwable {
+                return new ArrayList<>(hosts);
+            }
+        });
+        return cluster;
+    }
+
+    private PolicyUnit createFilter(String name) {
+        PolicyUnit policyUnit = new PolicyUnit();
+        policyUnit.setId(Guid.newGuid());
+        policyUnit.setName(name);
+        policyUnit.setInternal(true);
+        policyUnit.setEnabled(true);
+        policyUnit.setPolicyUnitType(PolicyUnitType.FILTER);
+        return policyUnit;
+    }
+
+    private ClusterPolicy addFilterPolicy(PolicyUnitImpl... filters) {
+        ArrayList<Guid> filterIds = new ArrayList<>();
+        for (PolicyUnitImpl filter : filters) {
+            schedulingManager.get().getPolicyUnitsMap().put(filter.getPolicyUnit().getId(), filter);
+            filterIds.add(filter.getPolicyUnit().getId());
+        }
+
+        ClusterPolicy clusterPolicy = new ClusterPolicy();
+        clusterPolicy.setId(Guid.newGuid());
+        clusterPolicy.setName("policy");
+        clusterPolicy.setFilters(filterIds);
+        schedulingManager.get().addClusterPolicy(clusterPolicy);
+        return clusterPolicy;
+    }
+
+    /**
+     * Keeps the hosts accepted by the memory checker the scheduling was given
+     */
+    private static class MemoryCheckingPolicyUnit extends PolicyUnitImpl {
+
+        public MemoryCheckingPolicyUnit(PolicyUnit policyUnit) {
+            super(policyUnit, null);
+        }
+
+        @Override
+        public List<VDS> filter(VDSGroup cluster,
+                List<VDS> hosts,
+                VM vm,
+                Map<String, String> parameters,
+                PerHostMessages messages) {
+            List<VDS> result = new ArrayList<>();
+            for (VDS host : hosts) {
+                if (memoryChecker.evaluate(host, vm)) {
+                    result.add(host);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Removes the given hosts, loading them once per filtering as the host independent data
+     */
+    private static class RemovingPolicyUnit extends PolicyUnitImpl {
+        private final Set<Guid> removedHosts;
+        private final AtomicInteger loads = new AtomicInteger();
+
+        public RemovingPolicyUnit(PolicyUnit policyUnit, Set<Guid> removedHosts) {
+            super(policyUnit, null);
+            this.removedHosts = removedHosts;
+        }
+
+        @Override
+        public List<VDS> filter(VDSGroup cluster,
+                List<VDS> hosts,
+                VM vm,
+                Map<String, String> parameters,
+                PerHostMessages messages) {
+            return filter(cluster, hosts, vm, parameters, messages, loadFilterData(cluster, vm));
+        }
+
+        @Override
+        public Object loadFilterData(VDSGroup cluster, VM vm) {
+            loads.incrementAndGet();
+            return removedHosts;
+        }
+
+        @Override
+        public List<VDS> filter(VDSGroup cluster,
+                List<VDS> hosts,
+                VM vm,
+                Map<String, String> parameters,
+                PerHostMessages messages,
+                Object filterData) {
+            List<VDS> result = new ArrayList<>();
+            for (VDS host : hosts) {
+                if (((Set<?>) filterData).contains(host.getId())) {
+                    messages.addMessage(host.getId(), getPolicyUnit().getName() + " " + host.getName());
+                } else {
+                    result.add(host);
+                }
+            }
+            return result;
+        }
+
+        public int getLoads() {
+            return loads.get();
+        }
+    }
 }
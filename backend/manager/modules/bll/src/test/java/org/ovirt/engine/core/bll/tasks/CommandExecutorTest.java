@@ -0,0 +1,192 @@
+package org.ovirt.engine.core.bll.tasks;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ovirt.engine.core.utils.MockConfigRule.mockConfig;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.ovirt.engine.core.bll.CommandBase;
+import org.ovirt.engine.core.bll.InjectorRule;
+import org.ovirt.engine.core.bll.tasks.interfaces.CommandCallback;
+import org.ovirt.engine.core.common.businessentities.CommandEntity;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.compat.CommandStatus;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.MockConfigRule;
+import org.ovirt.engine.core.utils.timer.SchedulerUtilHashedWheelImpl;
+
+public class CommandExecutorTest {
+
+    private static final long START = 1000000L;
+    private static final int LIFE_IN_MINUTES = 1;
+
+    @ClassRule
+    public static MockConfigRule mcr = new MockConfigRule(
+            mockConfig(ConfigValues.CommandCoordinatorThreadPoolSize, 1),
+            mockConfig(ConfigValues.AsyncCommandPollingLoopInSeconds, 1),
+            mockConfig(ConfigValues.AsyncCommandPollingRateInSeconds, 8),
+            mockConfig(ConfigValues.CoCoLifeInMinutes, LIFE_IN_MINUTES));
+
+    @Rule
+    public InjectorRule injectorRule = new InjectorRule();
+
+    private CommandCoordinatorImpl coco;
+    private CommandExecutor executor;
+
+    @Before
+    public void setUp() {
+        injectorRule.bind(SchedulerUtilHashedWheelImpl.class, mock(SchedulerUtilHashedWheelImpl.class));
+        coco = mock(CommandCoordinatorImpl.class);
+        executor = spy(new CommandExecutor(coco));
+        setTime(0);
+    }
+
+    @Test
+    public void testRescheduledEntrySkipped() {
+        CommandEntity cmd = createCommand(null, null);
+        CommandCallback callback = addCallback(cmd);
+        runLoop(0);
+
+        // the status change makes the callback due before the entry queued by its back off
+        setTime(100);
+        executor.statusChanged(cmd);
+        runLoop(100);
+        verifyPolled(callback, cmd, 2);
+
+        // the entry queued by the back off is outdated, the callback is due 2 seconds after the status change
+        runLoop(2000);
+        verifyPolled(callback, cmd, 2);
+        runLoop(2100);
+        verifyPolled(callback, cmd, 3);
+    }
+
+    @Test
+    public void testWakeUpResetsBackOff() {
+        CommandEntity cmd = createCommand(null, null);
+        CommandCallback callback = addCallback(cmd);
+        runLoop(0);
+        runLoop(2000);
+        verifyPolled(callback, cmd, 2);
+
+        // the back off reached 4 seconds, a status change starts it over from the polling rate
+        setTime(3500);
+        executor.statusChanged(cmd);
+        runLoop(3500);
+        verifyPolled(callback, cmd, 3);
+        runLoop(5499);
+        verifyPolled(callback, cmd, 3);
+        runLoop(5500);
+        verifyPolled(callback, cmd, 4);
+        runLoop(6000);
+        verifyPolled(callback, cmd, 4);
+    }
+
+    @Test
+    public void testChildStatusChangeWakesParentAndRoot() {
+        CommandEntity root = createCommand(null, null);
+        CommandEntity parent = createCommand(root.getId(), root.getId());
+        CommandEntity child = createCommand(parent.getId(), root.getId());
+        CommandEntity other = createCommand(null, null);
+        CommandCallback rootCallback = addCallback(root);
+        CommandCallback parentCallback = addCallback(parent);
+        CommandCallback childCallback = addCallback(child);
+        CommandCallback otherCallback = addCallback(other);
+        runLoop(0);
+
+        setTime(100);
+        executor.statusChanged(child);
+        runLoop(100);
+
+        verifyPolled(rootCallback, root, 2);
+        verifyPolled(parentCallback, parent, 2);
+        verifyPolled(childCallback, child, 2);
+        verifyPolled(otherCallback, other, 1);
+    }
+
+    @Test
+    public void testCommandWithChildrenExpiresThroughChildren() {
+        CommandEntity parent = createCommand(null, null);
+        CommandEntity child = createCommand(parent.getId(), parent.getId());
+        addCallback(parent);
+        when(coco.getChildCommandIds(parent.getId())).thenReturn(Collections.singletonList(child.getId()));
+        executor.trackExpiration(parent);
+        executor.trackExpiration(child);
+
+        long expired = TimeUnit.MINUTES.toMillis(LIFE_IN_MINUTES);
+        runLoop(expired);
+        verify(coco).updateCommandStatus(child.getId(), CommandStatus.FAILED);
+        verify(coco, never()).updateCommandStatus(parent.getId(), CommandStatus.FAILED);
+
+        // once its children are gone the parent expires by itself
+        when(coco.getChildCommandIds(parent.getId())).thenReturn(Collections.<Guid> emptyList());
+        runLoop(expired + TimeUnit.SECONDS.toMillis(8));
+        verify(coco).updateCommandStatus(parent.getId(), CommandStatus.FAILED);
+    }
+
+    @Test
+    public void testExpirationTrackingClearedOnceFinished() {
+        CommandEntity cmd = createCommand(null, null);
+        addCallback(cmd);
+        executor.trackExpiration(cmd);
+
+        cmd.setCommandStatus(CommandStatus.SUCCEEDED);
+        long expired = TimeUnit.MINUTES.toMillis(LIFE_IN_MINUTES);
+        runLoop(expired);
+        verify(coco, never()).updateCommandStatus(cmd.getId(), CommandStatus.FAILED);
+
+        // the command is tracked again once it is pending again
+        cmd.setCommandStatus(CommandStatus.ACTIVE);
+        executor.trackExpiration(cmd);
+        runLoop(expired);
+        verify(coco).updateCommandStatus(cmd.getId(), CommandStatus.FAILED);
+    }
+
+    private CommandEntity createCommand(Guid parentId, Guid rootId) {
+        CommandEntity cmd = new CommandEntity();
+        cmd.setId(Guid.newGuid());
+        cmd.setParentCommandId(parentId);
+        cmd.setRootCommandId(rootId);
+        cmd.setCommandStatus(CommandStatus.ACTIVE);
+        cmd.setExecuted(true);
+        cmd.setCreatedAt(new Date(START));
+        when(coco.getCommandEntity(cmd.getId())).thenReturn(cmd);
+        when(coco.getCommandStatus(cmd.getId())).thenReturn(CommandStatus.ACTIVE);
+        return cmd;
+    }
+
+    private CommandCallback addCallback(CommandEntity cmd) {
+        CommandCallback callback = mock(CommandCallback.class);
+        CommandBase<?> command = mock(CommandBase.class);
+        when(command.getCallback()).thenReturn(callback);
+        doReturn(command).when(coco).retrieveCommand(cmd.getId());
+        executor.addToCallbackMap(cmd);
+        return callback;
+    }
+
+    private void setTime(long time) {
+        doReturn(START + time).when(executor).currentTimeMillis();
+    }
+
+    private void runLoop(long time) {
+        setTime(time);
+        executor.invokeCallbackMethods();
+    }
+
+    private static void verifyPolled(CommandCallback callback, CommandEntity cmd, int times) {
+        verify(callback, times(times)).doPolling(eq(cmd.getId()), anyListOf(Guid.class));
+    }
+}
@@ -15,6 +15,7 @@ public class AddVmParameters extends VmManagementParametersBase {
     private TemplateProvisioningMethod templateProvisioningMethod = TemplateProvisioningMethod.THIN;
     private Guid diskOperatorAuthzPrincipalDbId;
     private Guid poolId;
+    private ArrayList<String> macAddresses;
 
     public AddVmParameters() {
     }
@@ -60,4 +61,16 @@ public class AddVmParameters extends VmManagementParametersBase {
         this.poolId = poolId;
     }
 
+    /**
+     * @return MACs allocated in advance for the interfaces of the VM, in the order of the interfaces, or
+     * <code>null</code> if the MACs should be allocated when the interfaces are added
+     */
+    public ArrayList<String> getMacAddresses() {
+        return macAddresses;
+    }
+
+    public void setMacAddresses(ArrayList<String> macAddresses) {
+        this.macAddresses = macAddresses;
+    }
+
 }
@@ -13,6 +13,7 @@ public class StorageDomainOvfInfo implements BusinessEntity<Guid> {
     private Guid ovfDiskId;
     private StorageDomainOvfInfoStatus status;
     private Date lastUpdated;
+    private String contentHash;
 
     public StorageDomainOvfInfo(Guid storageDomainId, List<Guid> storedOvfIds,
             Guid ovfDiskId, StorageDomainOvfInfoStatus status, Date lastUpdated) {
@@ -76,6 +77,17 @@ public class StorageDomainOvfInfo implements BusinessEntity<Guid> {
         this.lastUpdated = lastUpdated;
     }
 
+    /**
+     * @return the hash of the content last written to the OVF store, or null if it isn't known
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -87,6 +99,7 @@ public class StorageDomainOvfInfo implements BusinessEntity<Guid> {
         if (!ObjectUtils.objectsEqual(ovfDiskId, ovfInfo.ovfDiskId)) return false;
         if (!ObjectUtils.objectsEqual(storageDomainId, ovfInfo.storageDomainId)) return false;
         if (!ObjectUtils.objectsEqual(lastUpdated, ovfInfo.lastUpdated)) return false;
+        if (!ObjectUtils.objectsEqual(contentHash, ovfInfo.contentHash)) return false;
 
         return true;
     }
@@ -97,6 +110,7 @@ public class StorageDomainOvfInfo implements BusinessEntity<Guid> {
         result = 31 * result + (ovfDiskId != null ? ovfDiskId.hashCode() : 0);
         result = 31 * result + (status != null ? status.hashCode() : 0);
         result = 31 * result + (lastUpdated != null ? lastUpdated.hashCode() : 0);
+        result = 31 * result + (contentHash != null ? contentHash.hashCode() : 0);
         return result;
     }
 
@@ -108,6 +122,7 @@ public class StorageDomainOvfInfo implements BusinessEntity<Guid> {
                 .append("ovfDiskId", ovfDiskId)
                 .append("status", status)
                 .append("lastUpdated", lastUpdated)
+                .append("contentHash", contentHash)
                 .build();
     }
 }
@@ -2380,6 +2380,126 @@ public enum ConfigValues {
     @DefaultValueAttribute("")
     InstallationTime,
 
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("4")
+    VmsMonitoringAnalysisParallelism,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("50")
+    SchedulerHostsPerPartition,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("1")
+    VmStatisticsWriteTolerance,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("5")
+    VmMaxSuppressedWrites,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("500")
+    VmEventsCoalescingWindowInMilliSeconds,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("60")
+    VmStatsReconcileRefreshRateInSeconds,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("30")
+    QuotaConsumptionLockTimeoutInSeconds,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("50")
+    MonitoringThreadPoolSize,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("500")
+    MonitoringThreadPoolQueueSize,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("200")
+    StorageIoThreadPoolSize,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("1000")
+    StorageIoThreadPoolQueueSize,
+
+    /**
+     * Run each blocking call which finds all the storage and I/O threads busy on a new thread instead of queuing it
+     */
+    @TypeConverterAttribute(Boolean.class)
+    @DefaultValueAttribute("false")
+    StorageIoThreadPoolOnDemand,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("20")
+    EventsThreadPoolSize,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("500")
+    EventsThreadPoolQueueSize,
+
+    /**
+     * The number of compiled searches kept by the search query cache, the least recently used are evicted
+     */
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("1000")
+    SearchQueryCacheSize,
+
+    /**
+     * The number of threads generating the changed OVFs of a data center at once
+     */
+    @Reloadable
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("4")
+    OvfUpdateParallelism,
+
+    /**
+     * The number of audit log events waiting to be written to the database, beyond which logging waits for the queue
+     */
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("10000")
+    AuditLogWriterQueueSize,
+
+    /**
+     * The maximal number of audit log events written to the database by a single statement
+     */
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("500")
+    AuditLogWriterBatchSize,
+
+    /**
+     * How long logging waits for room in a full audit log queue before the event is dropped; dropped events are only
+     * written to the engine log
+     */
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("1000")
+    AuditLogWriterQueueTimeoutInMs,
+
+    /**
+     * The time range of each partition of the audit log, <code>day</code> or <code>week</code>, so aged out events are
+     * removed by dropping whole partitions, or <code>none</code> to keep all events in a single table
+     */
+    @TypeConverterAttribute(String.class)
+    @DefaultValueAttribute("none")
+    AuditLogPartitionInterval,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("50")
+    ScheduledJobsThreadPoolSize,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("1000")
+    ScheduledJobsThreadPoolQueueSize,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("16")
+    ParallelThreadPoolSize,
+
+    @TypeConverterAttribute(Integer.class)
+    @DefaultValueAttribute("100")
+    ParallelThreadPoolQueueSize,
+
     Invalid
 
 }
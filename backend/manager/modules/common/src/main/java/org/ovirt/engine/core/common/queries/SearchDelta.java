@@ -0,0 +1,58 @@
+package org.ovirt.engine.core.common.queries;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ovirt.engine.core.common.businessentities.IVdcQueryable;
+import org.ovirt.engine.core.compat.Guid;
+
+/**
+ * The result of a search run with {@link SearchParameters#setChangedSince(Long)}: the ids of all the entities found by
+ * the search, in the order of the search, and only the entities which were added or changed since the given change
+ * stamp. An entity the client holds whose id isn't returned was removed or no longer matches the search, an entity
+ * whose id is returned but isn't changed is the one the client already holds.
+ *
+ * @param <T> the type of the searched entities
+ */
+public class SearchDelta<T extends IVdcQueryable> implements Serializable {
+    private static final long serialVersionUID = -5360842186591305726L;
+
+    private List<Guid> ids;
+    private List<T> changed;
+    private long changeStamp;
+
+    /**
+     * For GWT serialization
+     */
+    public SearchDelta() {
+        this(new ArrayList<Guid>(), new ArrayList<T>(), 0);
+    }
+
+    public SearchDelta(List<Guid> ids, List<T> changed, long changeStamp) {
+        this.ids = ids;
+        this.changed = changed;
+        this.changeStamp = changeStamp;
+    }
+
+    /**
+     * @return the ids of all the entities found by the search, in the order of the search
+     */
+    public List<Guid> getIds() {
+        return ids;
+    }
+
+    /**
+     * @return the entities added or changed since the change stamp of the search
+     */
+    public List<T> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return the change stamp to pass to the next search, so it returns the entities changed since this one
+     */
+    public long getChangeStamp() {
+        return changeStamp;
+    }
+}
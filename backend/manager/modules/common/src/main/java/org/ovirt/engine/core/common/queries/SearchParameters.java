@@ -12,6 +12,8 @@ public class SearchParameters extends VdcQueryParametersBase implements Serializ
     private SearchType _searchType;
     private int _maxCount;
     private long searchFrom;
+    private long searchBefore;
+    private Long changedSince;
     private boolean caseSensitive;
 
     public SearchParameters() {
@@ -53,6 +55,31 @@ public class SearchParameters extends VdcQueryParametersBase implements Serializ
         return searchFrom;
     }
 
+    /**
+     * Only entities whose numeric primary key is lower than the given value are returned, which lets a listing sorted
+     * by descending key continue after the last entity it returned. Ignored when not positive.
+     */
+    public void setSearchBefore(long value) {
+        searchBefore = value;
+    }
+
+    public long getSearchBefore() {
+        return searchBefore;
+    }
+
+    /**
+     * Returns a {@link SearchDelta} holding only the entities changed since the given change stamp instead of the list
+     * of all the entities. The change stamp is taken from the delta returned by the previous search, 0 returns all the
+     * entities as changed. Only supported by VM searches, ignored when <code>null</code>.
+     */
+    public void setChangedSince(Long value) {
+        changedSince = value;
+    }
+
+    public Long getChangedSince() {
+        return changedSince;
+    }
+
     public boolean getCaseSensitive() {
         return caseSensitive;
     }
@@ -68,6 +95,8 @@ public class SearchParameters extends VdcQueryParametersBase implements Serializ
                 .append("searchPattern", getSearchPattern())
                 .append("caseSensitive", getCaseSensitive())
                 .append("from", getSearchFrom())
+                .append("before", getSearchBefore())
+                .append("changedSince", getChangedSince())
                 .append("max", getMaxCount());
     }
 }
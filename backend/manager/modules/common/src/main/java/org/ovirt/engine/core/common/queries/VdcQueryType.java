@@ -101,7 +101,9 @@ public enum VdcQueryType implements Serializable {
 
     // Vm Network
     GetVmInterfacesByVmId(VdcQueryAuthType.User),
+    GetVmInterfacesByVmIds(VdcQueryAuthType.User),
     GetVmGuestAgentInterfacesByVmId(VdcQueryAuthType.User),
+    GetVmGuestAgentInterfacesByVmIds(VdcQueryAuthType.User),
 
     // Vnic Profiles
     GetAllVnicProfiles(VdcQueryAuthType.User),
@@ -189,6 +191,7 @@ public enum VdcQueryType implements Serializable {
     GetImagesList(VdcQueryAuthType.User),
     GetImagesListByStoragePoolId(VdcQueryAuthType.User),
     GetAllDisksByVmId(VdcQueryAuthType.User),
+    GetAllDisksByVmIds(VdcQueryAuthType.User),
     GetAllAttachableDisksForVm(VdcQueryAuthType.User),
     GetFilteredAttachableDisks(VdcQueryAuthType.User),
     GetAllDisksByStorageDomainId,
@@ -239,6 +242,7 @@ public enum VdcQueryType implements Serializable {
     GetTagsByUserGroupId,
     GetTagsByUserId,
     GetTagsByVmId,
+    GetTagsByVmIds,
     GetTagsByTemplateId,
     GetTagsByVdsId,
 
@@ -9,6 +9,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -17,6 +21,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.compat.Version;
 import org.ovirt.engine.core.utils.SerializationFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,9 +34,14 @@ public final class BatchProcedureExecutionConnectionCallback implements Connecti
     private static final Logger log = LoggerFactory.getLogger(BatchProcedureExecutionConnectionCallback.class);
     private static ConcurrentMap<String, StoredProcedureMetaData> storedProceduresMap =
             new ConcurrentHashMap<>();
+    private static final String ARRAY_TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm:ss.SSSZ";
+    private static ConcurrentMap<Class<?>, Method> enumValueMethods = new ConcurrentHashMap<>();
 
     private String procName;
     private List<MapSqlParameterSource> executions;
+    private Collection<?> rows;
+    private BatchRowMapper<Object> rowMapper;
+    private boolean multiRow;
     private SimpleJdbcCallsHandler handler;
 
     public BatchProcedureExecutionConnectionCallback(SimpleJdbcCallsHandler handler,
@@ -42,6 +52,26 @@ public final class BatchProcedureExecutionConnectionCallback implements Connecti
         this.executions = executions;
     }
 
+    /**
+     * Creates a callback which maps the given entities one by one into a single reusable {@link BatchRow}
+     *
+     * @param multiRow
+     *            whether to call the procedure for all the entities in one statement, by passing the values as arrays
+     *            that are expanded together in the statement, instead of adding a call per entity to a JDBC batch
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BatchProcedureExecutionConnectionCallback(SimpleJdbcCallsHandler handler,
+            String procName,
+            Collection<T> rows,
+            BatchRowMapper<? super T> rowMapper,
+            boolean multiRow) {
+        this.handler = handler;
+        this.procName = procName;
+        this.rows = rows;
+        this.rowMapper = (BatchRowMapper<Object>) rowMapper;
+        this.multiRow = multiRow;
+    }
+
     @Override
     public Object doInConnection(Connection con) throws SQLException,
             DataAccessException {
@@ -49,16 +79,16 @@ public final class BatchProcedureExecutionConnectionCallback implements Connecti
         StoredProcedureMetaData procMetaData = getStoredProcedureMetaData(
                 procName, con);
 
-        try (CallableStatement stmt = con.prepareCall(procMetaData.getSqlCommand())) {
-
-            for (MapSqlParameterSource execution : executions) {
-                mapParams(stmt, execution,
-                        procMetaData.getParamatersMetaData());
-                stmt.addBatch();
+        long startTime = System.currentTimeMillis();
+        int rowsCount;
+        try {
+            if (rowMapper == null) {
+                rowsCount = executeBatch(con, procMetaData);
+            } else if (multiRow) {
+                rowsCount = executeMultiRow(con, procMetaData);
+            } else {
+                rowsCount = executeRowsBatch(con, procMetaData);
             }
-
-            stmt.executeBatch();
-            log.debug("Executed batch");
         } catch (SQLException e) {
             log.error("Can't execute batch: {}", e.getMessage());
             log.debug("Exception", e);
@@ -71,9 +101,80 @@ public final class BatchProcedureExecutionConnectionCallback implements Connecti
             throw e;
         }
 
+        log.debug("Executed batch of {} rows for procedure '{}' in {} ms",
+                rowsCount,
+                procName,
+                System.currentTimeMillis() - startTime);
         return null;
     }
 
+    private int executeBatch(Connection con, StoredProcedureMetaData procMetaData) throws SQLException {
+        try (CallableStatement stmt = con.prepareCall(procMetaData.getSqlCommand())) {
+
+            for (MapSqlParameterSource execution : executions) {
+                mapParams(stmt, execution,
+                        procMetaData.getOrderedParameters());
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+        }
+        return executions.size();
+    }
+
+    private int executeRowsBatch(Connection con, StoredProcedureMetaData procMetaData) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        BatchRow row = new BatchRow(procMetaData);
+        try (CallableStatement stmt = con.prepareCall(procMetaData.getSqlCommand())) {
+            for (Object entity : rows) {
+                row.clear();
+                rowMapper.mapRow(entity, row);
+                for (int i = 0; i < row.size(); i++) {
+                    setParam(stmt, row.getParameter(i).getOrdinal(), row.getJdbcValue(i), row.getParameter(i));
+                }
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+        }
+        return rows.size();
+    }
+
+    /**
+     * Calls the procedure once per row in a single statement: the values of every parameter are collected into a text
+     * array, the arrays are expanded together by their subscripts and each element is cast back to the parameter
+     * type.
+     */
+    private int executeMultiRow(Connection con, StoredProcedureMetaData procMetaData) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        BatchRow row = new BatchRow(procMetaData);
+        String[][] columns = new String[row.size()][rows.size()];
+        DateFormat timestampFormat = new SimpleDateFormat(ARRAY_TIMESTAMP_FORMAT);
+        int rowIndex = 0;
+        for (Object entity : rows) {
+            row.clear();
+            rowMapper.mapRow(entity, row);
+            for (int i = 0; i < row.size(); i++) {
+                columns[i][rowIndex] = toArrayElement(row.getJdbcValue(i), timestampFormat);
+            }
+            ++rowIndex;
+        }
+
+        try (PreparedStatement stmt = con.prepareStatement(procMetaData.getMultiRowSqlCommand())) {
+            for (int i = 0; i < columns.length; i++) {
+                stmt.setArray(i + 1, con.createArrayOf("text", columns[i]));
+            }
+            stmt.execute();
+        }
+        return rows.size();
+    }
+
     private StoredProcedureMetaData getStoredProcedureMetaData(
             String procName, Connection con) throws SQLException {
 
@@ -91,6 +192,8 @@ public final class BatchProcedureExecutionConnectionCallback implements Connecti
                 handler.createCallForModification(procName));
 
         Map<String, SqlCallParameter> paramOrder = new HashMap<>();
+        List<SqlCallParameter> orderedParameters = new ArrayList<>();
+        List<String> dbTypeNames = new ArrayList<>();
         String procNameFromDB = null;
         String procSchemaFromDB = null;
         StringBuilder params = new StringBuilder();
@@ -104,8 +207,11 @@ public final class BatchProcedureExecutionConnectionCallback implements Connecti
                 ProcData procData = fillProcData(rs2, internalCounter);
                 if (procData != null) {
                     ++internalCounter;
-                    paramOrder.put(procData.getColName(), new SqlCallParameter(
-                            procData.getOrdinal(), procData.getColName(), procData.getDataType()));
+                    SqlCallParameter sqlParam = new SqlCallParameter(
+                            procData.getOrdinal(), procData.getColName(), procData.getDataType());
+                    paramOrder.put(procData.getColName(), sqlParam);
+                    orderedParameters.add(sqlParam);
+                    dbTypeNames.add(procData.getDbTypeName());
                     procNameFromDB = procData.getProcName();
                     procSchemaFromDB = procData.getSchemaName();
                     params.append("CAST (? AS ").append(procData.getDbTypeName())
@@ -126,6 +232,29 @@ public final class BatchProcedureExecutionConnectionCallback implements Connecti
         procMetaData.setDbName(procNameFromDB);
         procMetaData.setParamatersMetaData(paramOrder);
         procMetaData.setSchemaName(procSchemaFromDB);
+        procMetaData.setOrderedParameters(orderedParameters.toArray(new SqlCallParameter[orderedParameters.size()]));
+        procMetaData.setParameterIndexes(createParameterIndexes(orderedParameters));
+        procMetaData.setMultiRowSqlCommand(handler.getDialect().createSqlMultiRowCallCommand(
+                procSchemaFromDB, procNameFromDB, dbTypeNames));
+    }
+
+    /**
+     * Resolves the lookup names of the parameters once per procedure, so binding a row never has to strip the dialect
+     * prefix from the parameter names again
+     */
+    private Map<String, Integer> createParameterIndexes(List<SqlCallParameter> orderedParameters) {
+        String prefix = handler.getDialect().getParamNamePrefix();
+        Map<String, Integer> parameterIndexes = new HashMap<>();
+        for (int i = 0; i < orderedParameters.size(); i++) {
+            String name = orderedParameters.get(i).getName();
+            parameterIndexes.put(name, i);
+            if (name.startsWith(prefix)) {
+                parameterIndexes.put(name.substring(prefix.length()), i);
+            } else {
+                parameterIndexes.put(prefix + name, i);
+            }
+        }
+        return parameterIndexes;
     }
 
     private ProcData fillProcData(ResultSet rs, int internalCounter) throws SQLException {
@@ -157,68 +286,93 @@ public final class BatchProcedureExecutionConnectionCallback implements Connecti
 
     private void mapParams(PreparedStatement stmt,
             MapSqlParameterSource paramSource,
-            Map<String, SqlCallParameter> paramOrder)
+            SqlCallParameter[] orderedParameters)
             throws SQLException {
 
         Map<String, Object> values = paramSource.getValues();
-        for (Map.Entry<String, SqlCallParameter> paramOrderEntry : paramOrder.entrySet())
-        {
-            String paramName = paramOrderEntry.getKey();
+        String prefix = handler.getDialect().getParamNamePrefix();
+        for (SqlCallParameter sqlParam : orderedParameters) {
+            String paramName = sqlParam.getName();
             Object value = values.get(paramName);
-            if (value == null && paramName.startsWith(DbFacade.getInstance().getDbEngineDialect().getParamNamePrefix())) {
-                value =
-                        values.get(paramName.substring(DbFacade.getInstance()
-                                .getDbEngineDialect()
-                                .getParamNamePrefix()
-                                .length()));
+            if (value == null && paramName.startsWith(prefix)) {
+                value = values.get(paramName.substring(prefix.length()));
             }
 
-            SqlCallParameter sqlParam = paramOrderEntry.getValue();
-
             if (value != null) {
-                if (value.getClass().isEnum()) {
-                    try {
-                        Method method = value.getClass().getMethod("getValue");
-                        value = method.invoke(value);
-                    } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
-                        log.error("Error mapping enum type '{}': {}", value, ex.getMessage());
-                        log.debug("Exception", ex);
-                    }
-                }
-
-                if (value instanceof Guid) {
-                    value = value.toString();
-                }
-
-                if (sqlParam.getDataType() == Types.TIMESTAMP) {
-                    value = new Timestamp(((Date) value).getTime());
-                }
-
-                if (value instanceof Map) {
-                    value = SerializationFactory.getSerializer().serialize(value);
-                }
+                value = toJdbcValue(value, sqlParam);
             } else {
                 if (sqlParam.getDataType() == Types.BOOLEAN || sqlParam.getDataType() == Types.BIT) {
                     value = false;
                 }
             }
 
-            int ordinal = sqlParam.getOrdinal();
-            try {
-                stmt.setObject(ordinal, value);
-            } catch (Exception e) {
-                log.error("Can't map '{}' of type '{}' to type '{}', mapping to null value for parameter '{}'.",
-                        value,
-                        value.getClass().getName(),
-                        sqlParam.getDataType(),
-                        sqlParam.getName());
-                stmt.setObject(ordinal, null);
-            }
+            setParam(stmt, sqlParam.getOrdinal(), value, sqlParam);
         }
 
         log.debug("Mapped params: {}", values.keySet());
     }
 
+    private static void setParam(PreparedStatement stmt, int ordinal, Object value, SqlCallParameter sqlParam)
+            throws SQLException {
+        try {
+            stmt.setObject(ordinal, value);
+        } catch (Exception e) {
+            log.error("Can't map '{}' of type '{}' to type '{}', mapping to null value for parameter '{}'.",
+                    value,
+                    value.getClass().getName(),
+                    sqlParam.getDataType(),
+                    sqlParam.getName());
+            stmt.setObject(ordinal, null);
+        }
+    }
+
+    /**
+     * Converts a non null parameter value to the representation passed to the JDBC driver
+     */
+    static Object toJdbcValue(Object value, SqlCallParameter sqlParam) {
+        if (value.getClass().isEnum()) {
+            value = extractEnumValue(value);
+        }
+
+        if (value instanceof Guid || value instanceof Version) {
+            value = value.toString();
+        }
+
+        if (sqlParam.getDataType() == Types.TIMESTAMP && value instanceof Date) {
+            value = new Timestamp(((Date) value).getTime());
+        }
+
+        if (value instanceof Map) {
+            value = SerializationFactory.getSerializer().serialize(value);
+        }
+        return value;
+    }
+
+    private static Object extractEnumValue(Object value) {
+        try {
+            Method method = enumValueMethods.get(value.getClass());
+            if (method == null) {
+                method = value.getClass().getMethod("getValue");
+                enumValueMethods.putIfAbsent(value.getClass(), method);
+            }
+            return method.invoke(value);
+        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
+            log.error("Error mapping enum type '{}': {}", value, ex.getMessage());
+            log.debug("Exception", ex);
+            return value;
+        }
+    }
+
+    private static String toArrayElement(Object value, DateFormat timestampFormat) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Date) {
+            return timestampFormat.format((Date) value);
+        }
+        return value.toString();
+    }
+
     private  static class ProcData {
         private String colName;
         private int ordinal;
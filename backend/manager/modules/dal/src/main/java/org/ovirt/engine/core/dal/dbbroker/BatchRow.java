@@ -0,0 +1,109 @@
+package org.ovirt.engine.core.dal.dbbroker;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+/**
+ * A single reusable row of a batch stored procedure call. Values are kept in an array indexed by the precomputed
+ * parameter position of the procedure instead of a map, values for unknown parameter names are ignored. Every
+ * mutator and accessor of {@link MapSqlParameterSource} is overridden so the map of the super class is never used.
+ */
+class BatchRow extends MapSqlParameterSource {
+
+    private final SqlCallParameter[] parameters;
+    private final Map<String, Integer> parameterIndexes;
+    private final Object[] values;
+
+    BatchRow(StoredProcedureMetaData procMetaData) {
+        this.parameters = procMetaData.getOrderedParameters();
+        this.parameterIndexes = procMetaData.getParameterIndexes();
+        this.values = new Object[parameters.length];
+    }
+
+    @Override
+    public MapSqlParameterSource addValue(String paramName, Object value) {
+        Integer index = parameterIndexes.get(paramName);
+        if (index != null) {
+            values[index] = value;
+        }
+        return this;
+    }
+
+    @Override
+    public MapSqlParameterSource addValue(String paramName, Object value, int sqlType) {
+        registerSqlType(paramName, sqlType);
+        return addValue(paramName, value);
+    }
+
+    @Override
+    public MapSqlParameterSource addValue(String paramName, Object value, int sqlType, String typeName) {
+        registerSqlType(paramName, sqlType);
+        registerTypeName(paramName, typeName);
+        return addValue(paramName, value);
+    }
+
+    @Override
+    public MapSqlParameterSource addValues(Map<String, ?> values) {
+        if (values != null) {
+            for (Entry<String, ?> entry : values.entrySet()) {
+                addValue(entry.getKey(), entry.getValue());
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public boolean hasValue(String paramName) {
+        return parameterIndexes.containsKey(paramName);
+    }
+
+    @Override
+    public Object getValue(String paramName) {
+        Integer index = parameterIndexes.get(paramName);
+        if (index == null) {
+            throw new IllegalArgumentException("No value registered for key '" + paramName + "'");
+        }
+        return values[index];
+    }
+
+    /**
+     * @return the values of the row by the parameter names of the procedure
+     */
+    @Override
+    public Map<String, Object> getValues() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < parameters.length; i++) {
+            result.put(parameters[i].getName(), values[i]);
+        }
+        return result;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    SqlCallParameter getParameter(int index) {
+        return parameters[index];
+    }
+
+    /**
+     * @return the value of the parameter at the given index converted to its JDBC representation
+     */
+    Object getJdbcValue(int index) {
+        Object value = values[index];
+        SqlCallParameter parameter = parameters[index];
+        if (value == null) {
+            return parameter.getDataType() == Types.BOOLEAN || parameter.getDataType() == Types.BIT ? false : null;
+        }
+        return BatchProcedureExecutionConnectionCallback.toJdbcValue(value, parameter);
+    }
+}
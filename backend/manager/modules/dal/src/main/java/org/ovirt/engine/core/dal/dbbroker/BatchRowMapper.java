@@ -0,0 +1,11 @@
+package org.ovirt.engine.core.dal.dbbroker;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+/**
+ * Maps an entity into a reusable batch row. Unlike {@link MapSqlParameterMapper} the row is supplied by the caller and
+ * reused for every entity of the batch, so no parameter map is allocated per entity.
+ */
+public interface BatchRowMapper<T> {
+    public void mapRow(T entity, MapSqlParameterSource row);
+}
@@ -1,5 +1,7 @@
 package org.ovirt.engine.core.dal.dbbroker;
 
+import java.util.List;
+
 import javax.sql.DataSource;
 
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -55,4 +57,14 @@ public interface DbEngineDialect {
      */
     public String createSqlCallCommand(String procSchemaFromDB,
             String procNameFromDB, String params);
+
+    /**
+     * This function creates a single SQL command which calls a specific procedure once for every row of its
+     * parameters. The values of each parameter are passed as a text array, all the arrays must have the same length.
+     * @param procSchemaFromDB
+     * @param procNameFromDB
+     * @param paramTypeNames the database type names of the procedure parameters, in call order
+     */
+    public String createSqlMultiRowCallCommand(String procSchemaFromDB,
+            String procNameFromDB, List<String> paramTypeNames);
 }
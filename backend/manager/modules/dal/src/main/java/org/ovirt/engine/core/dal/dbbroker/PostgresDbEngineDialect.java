@@ -204,4 +204,31 @@ public class PostgresDbEngineDialect implements DbEngineDialect {
                 .append(procNameFromDB).append("(").append(params).append(")}");
         return sqlCommand.toString();
     }
+
+    /**
+     * Zips the parameter arrays by the subscripts of the first one rather than by a multi-argument {@code unnest},
+     * which only exists since PostgreSQL 9.4; {@code generate_subscripts} is available since 8.4.
+     */
+    @Override
+    public String createSqlMultiRowCallCommand(String procSchemaFromDB,
+            String procNameFromDB, List<String> paramTypeNames) {
+        StringBuilder callParams = new StringBuilder();
+        StringBuilder arrays = new StringBuilder();
+        for (int i = 1; i <= paramTypeNames.size(); i++) {
+            callParams.append("CAST ((r.p").append(i).append(")[r.i] AS ").append(paramTypeNames.get(i - 1))
+                    .append("),");
+            arrays.append("CAST (? AS text[]) AS p").append(i).append(",");
+        }
+        if (callParams.length() > 0) {
+            callParams.deleteCharAt(callParams.length() - 1);
+            arrays.deleteCharAt(arrays.length() - 1);
+        }
+
+        StringBuilder sqlCommand = new StringBuilder();
+        sqlCommand.append("SELECT ").append(procSchemaFromDB).append(".").append(procNameFromDB)
+                .append("(").append(callParams).append(")")
+                .append(" FROM (SELECT a.*, generate_subscripts(a.p1, 1) AS i")
+                .append(" FROM (SELECT ").append(arrays).append(") AS a) AS r");
+        return sqlCommand.toString();
+    }
 }
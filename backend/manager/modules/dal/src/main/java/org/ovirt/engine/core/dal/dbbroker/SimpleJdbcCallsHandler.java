@@ -76,6 +76,35 @@ public class SimpleJdbcCallsHandler {
         executeStoredProcAsBatch(procedureName, sqlParams);
     }
 
+    /**
+     * Runs a set of stored procedure calls in a batch. Only useful for update procedures that return no value. The
+     * parameters are bound by their precomputed positions from a single row that is reused for all the values.
+     * @param procedureName the procedure name
+     * @param paramValues list of objects to be mapped into the batch row
+     * @param mapper mapper to use to fill the batch row from each param value object
+     */
+    public <T> void executeStoredProcAsBatch(final String procedureName,
+            Collection<T> paramValues,
+            BatchRowMapper<T> mapper) {
+        jdbcTemplate.execute(new BatchProcedureExecutionConnectionCallback(this, procedureName, paramValues, mapper,
+                false));
+    }
+
+    /**
+     * Runs a set of stored procedure calls as a single multi-row statement, which calls the procedure once for each
+     * row of the expanded parameter arrays. Only useful for update procedures that return no value and
+     * which are called with many rows at once.
+     * @param procedureName the procedure name
+     * @param paramValues list of objects to be mapped into the batch row
+     * @param mapper mapper to use to fill the batch row from each param value object
+     */
+    public <T> void executeStoredProcAsMultiRowCall(final String procedureName,
+            Collection<T> paramValues,
+            BatchRowMapper<T> mapper) {
+        jdbcTemplate.execute(new BatchProcedureExecutionConnectionCallback(this, procedureName, paramValues, mapper,
+                true));
+    }
+
     public Map<String, Object> executeModification(final String procedureName, final MapSqlParameterSource paramSource) {
         return executeImpl(procedureName, paramSource, createCallForModification(procedureName));
     }
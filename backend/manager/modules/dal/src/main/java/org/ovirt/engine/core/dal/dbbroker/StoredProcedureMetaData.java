@@ -7,6 +7,9 @@ public class StoredProcedureMetaData {
     private String dbName;
     private String sqlCommand;
     private Map<String, SqlCallParameter> paramatersMetaData;
+    private SqlCallParameter[] orderedParameters;
+    private Map<String, Integer> parameterIndexes;
+    private String multiRowSqlCommand;
 
     public String getSchemaName() {
         return schemaName;
@@ -41,4 +44,35 @@ public class StoredProcedureMetaData {
         this.paramatersMetaData = paramatersMetaData;
     }
 
+    /**
+     * @return the procedure parameters in call order, the index of each parameter matches its position in
+     *         {@link #getParameterIndexes()}
+     */
+    public SqlCallParameter[] getOrderedParameters() {
+        return orderedParameters;
+    }
+
+    public void setOrderedParameters(SqlCallParameter[] orderedParameters) {
+        this.orderedParameters = orderedParameters;
+    }
+
+    /**
+     * @return the index of each parameter in {@link #getOrderedParameters()}, keyed both by the parameter name as
+     *         reported by the database and by the name without the dialect prefix
+     */
+    public Map<String, Integer> getParameterIndexes() {
+        return parameterIndexes;
+    }
+
+    public void setParameterIndexes(Map<String, Integer> parameterIndexes) {
+        this.parameterIndexes = parameterIndexes;
+    }
+
+    public String getMultiRowSqlCommand() {
+        return multiRowSqlCommand;
+    }
+
+    public void setMultiRowSqlCommand(String multiRowSqlCommand) {
+        this.multiRowSqlCommand = multiRowSqlCommand;
+    }
 }
@@ -89,8 +89,22 @@ public class AuditLogDirector {
         } else {
             setPropertiesFromAuditLogableBase(auditLogable, auditLog);
 
-            getDbFacadeInstance().getAuditLogDao().save(auditLog);
             logMessage(severity, getMessageToLog(loggerString, auditLog));
+            save(auditLog);
+        }
+    }
+
+    /**
+     * Queues the event to the {@link AuditLogWriter} once it's started. External events are written right away, as
+     * the command adding them reads them back, and so are alerts, as {@link AlertDirector} removes them synchronously
+     * and a queued alert would be written after its removal.
+     */
+    private void save(AuditLog auditLog) {
+        AuditLogWriter writer = AuditLogWriter.getInstance();
+        if (writer == null || auditLog.isExternal() || auditLog.getSeverity() == AuditLogSeverity.ALERT) {
+            getDbFacadeInstance().getAuditLogDao().save(auditLog);
+        } else {
+            writer.write(auditLog);
         }
     }
 
@@ -148,11 +162,11 @@ public class AuditLogDirector {
                     auditLogable.getUserId(),
                     auditLogable.getUserName(),
                     auditLogable.getVmIdRef(),
-                    auditLogable.getVmIdRef() != null ? getDbFacadeInstance().getVmDao().get(auditLogable.getVmIdRef()).getName() : null,
+                    auditLogable.getVmIdRef() != null ? auditLogable.getVmName() : null,
                     auditLogable.getVdsIdRef(),
-                    auditLogable.getVdsIdRef() != null ? getDbFacadeInstance().getVdsDao().get(auditLogable.getVdsIdRef()).getName() : null,
+                    auditLogable.getVdsIdRef() != null ? auditLogable.getVdsName() : null,
                     auditLogable.getVmTemplateIdRef(),
-                    auditLogable.getVmTemplateIdRef() != null ? getDbFacadeInstance().getVmTemplateDao().get(auditLogable.getVmTemplateIdRef()).getName() : null,
+                    auditLogable.getVmTemplateIdRef() != null ? auditLogable.getVmTemplateName() : null,
                     auditLogable.getOrigin(),
                     auditLogable.getCustomEventId(),
                     auditLogable.getEventFloodInSec(),
@@ -0,0 +1,275 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.ovirt.engine.core.common.BackendService;
+import org.ovirt.engine.core.common.businessentities.AuditLog;
+import org.ovirt.engine.core.common.config.Config;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.dao.AuditLogDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the audit log events to the database on a dedicated thread, so logging doesn't wait for the database. The
+ * events are kept in a bounded queue and written in batches of up to {@link ConfigValues#AuditLogWriterBatchSize}, each
+ * batch by a single statement, in the order they were logged.
+ * <p>
+ * When the queue is full, logging waits for room up to {@link ConfigValues#AuditLogWriterQueueTimeoutInMs} and then
+ * drops the event, which {@link AuditLogDirector} has already written to the engine log. The events still queued when
+ * the engine stops are written before the writer is destroyed.
+ */
+@Singleton
+public class AuditLogWriter implements BackendService, AuditLogWriterMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long STOP_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static volatile AuditLogWriter instance;
+
+    @Inject
+    private AuditLogDao auditLogDao;
+
+    private BlockingQueue<AuditLog> queue;
+    private int batchSize;
+    private long queueTimeoutMs;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong writtenBatches = new AtomicLong();
+    private final AtomicLong blockedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
+    public AuditLogWriter() {
+    }
+
+    AuditLogWriter(AuditLogDao auditLogDao) {
+        this.auditLogDao = auditLogDao;
+    }
+
+    /**
+     * @return the started writer, or null if the audit log events are to be written by the thread logging them, as
+     * before the writer is started and once it is stopped
+     */
+    public static AuditLogWriter getInstance() {
+        return instance;
+    }
+
+    @PostConstruct
+    public void init() {
+        start(Config.<Integer> getValue(ConfigValues.AuditLogWriterQueueSize),
+                Config.<Integer> getValue(ConfigValues.AuditLogWriterBatchSize),
+                Config.<Integer> getValue(ConfigValues.AuditLogWriterQueueTimeoutInMs));
+        registerInJMX();
+        instance = this;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        instance = null;
+        stop();
+        unregisterFromJMX();
+    }
+
+    void start(int queueSize, int batchSize, long queueTimeoutMs) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.queueTimeoutMs = queueTimeoutMs;
+        running = true;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeQueuedEvents();
+            }
+        }, "AuditLogWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stops the writer thread once it wrote the queued events, and writes the events it didn't get to.
+     */
+    void stop() {
+        running = false;
+        try {
+            writerThread.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("Audit log writer stopped, {} events written, {} dropped, {} failed",
+                writtenEvents.get(),
+                droppedEvents.get(),
+                failedEvents.get());
+    }
+
+    /**
+     * Queues the event to be written to the database, waiting for room if the queue is full.
+     *
+     * @return whether the event was queued, false if it was dropped
+     */
+    public boolean write(AuditLog auditLog) {
+        if (!queue.offer(auditLog)) {
+            blockedEvents.incrementAndGet();
+            boolean queued;
+            try {
+                queued = queue.offer(auditLog, queueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                droppedEvents.incrementAndGet();
+                log.warn("Audit log queue is full, event '{}' is not written to the database",
+                        auditLog.getLogType());
+                return false;
+            }
+        }
+
+        if (!running) {
+            // The writer thread may have already stopped, in which case nobody else writes the event
+            flush();
+        }
+        return true;
+    }
+
+    private void writeQueuedEvents() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            AuditLog first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            save(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the queued events on the calling thread.
+     */
+    void flush() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            save(batch);
+            batch.clear();
+        }
+    }
+
+    private void save(List<AuditLog> batch) {
+        try {
+            auditLogDao.saveAll(batch);
+            writtenBatches.incrementAndGet();
+            writtenEvents.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} audit log events at once, writing them one by one: {}",
+                    batch.size(),
+                    e.getMessage());
+            log.debug("Exception", e);
+            for (AuditLog auditLog : batch) {
+                save(auditLog);
+            }
+        }
+    }
+
+    private void save(AuditLog auditLog) {
+        try {
+            auditLogDao.save(auditLog);
+            writtenBatches.incrementAndGet();
+            writtenEvents.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedEvents.incrementAndGet();
+            log.error("Failed to write audit log event '{}': {}", auditLog.toStringForLogging(), e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    private void registerInJMX() {
+        try {
+            objectName = new ObjectName("AuditLogWriter:type=" + this.getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Failed to register the audit log writer monitoring in JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    private void unregisterFromJMX() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            platformMBeanServer.unregisterMBean(objectName);
+        } catch (Exception e) {
+            log.warn("Failed to unregister the audit log writer monitoring from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @Override
+    public int getQueuedEvents() {
+        return queue.size();
+    }
+
+    @Override
+    public long getWrittenEvents() {
+        return writtenEvents.get();
+    }
+
+    @Override
+    public long getWrittenBatches() {
+        return writtenBatches.get();
+    }
+
+    @Override
+    public long getBlockedEvents() {
+        return blockedEvents.get();
+    }
+
+    @Override
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @Override
+    public long getFailedEvents() {
+        return failedEvents.get();
+    }
+
+    @Override
+    public void reset() {
+        writtenEvents.set(0);
+        writtenBatches.set(0);
+        blockedEvents.set(0);
+        droppedEvents.set(0);
+        failedEvents.set(0);
+    }
+}
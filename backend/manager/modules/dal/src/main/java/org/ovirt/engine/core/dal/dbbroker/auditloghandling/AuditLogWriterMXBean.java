@@ -0,0 +1,42 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+/**
+ * The following interface is used as interface for JMX bean
+ */
+public interface AuditLogWriterMXBean {
+
+    /**
+     * @return the number of audit log events waiting to be written to the database
+     */
+    int getQueuedEvents();
+
+    /**
+     * @return the number of audit log events written to the database
+     */
+    long getWrittenEvents();
+
+    /**
+     * @return the number of statements which wrote the audit log events to the database
+     */
+    long getWrittenBatches();
+
+    /**
+     * @return the number of times logging had to wait for room in a full queue
+     */
+    long getBlockedEvents();
+
+    /**
+     * @return the number of audit log events dropped because the queue stayed full
+     */
+    long getDroppedEvents();
+
+    /**
+     * @return the number of audit log events which failed to be written to the database
+     */
+    long getFailedEvents();
+
+    /**
+     * The following method will allow to reset the counters via JMX console
+     */
+    void reset();
+}
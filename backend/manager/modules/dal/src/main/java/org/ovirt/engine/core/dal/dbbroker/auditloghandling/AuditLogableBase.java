@@ -243,7 +243,7 @@ public class AuditLogableBase extends TimeoutBase {
         return vmName;
     }
 
-    protected void setVmName(final String value) {
+    public void setVmName(final String value) {
         vmName = value;
     }
 
@@ -292,7 +292,7 @@ public class AuditLogableBase extends TimeoutBase {
         return vdsName;
     }
 
-    protected void setVdsName(final String value) {
+    public void setVdsName(final String value) {
         vdsName = value;
     }
 
@@ -1,5 +1,6 @@
 package org.ovirt.engine.core.dao;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -118,6 +119,15 @@ public interface AuditLogDao extends Dao, SearchDao<AuditLog> {
      */
     void save(AuditLog entry);
 
+    /**
+     * Saves the provided audit logs in a single statement, in their order. External events aren't supported, as they
+     * are saved by a different procedure.
+     *
+     * @param entries
+     *            the entries
+     */
+    void saveAll(Collection<AuditLog> entries);
+
     /**
      * Updates the provided audit log entry.
      *
@@ -142,6 +152,32 @@ public interface AuditLogDao extends Dao, SearchDao<AuditLog> {
      */
     void removeAllBeforeDate(Date cutoff);
 
+    /**
+     * Creates the partitions of the audit log up to the specified time, each holding the entries of a single interval
+     *
+     * @param interval
+     *            the time range of each partition, <code>day</code> or <code>week</code>
+     * @param until
+     *            the time up to which entries are to be logged into a partition
+     */
+    void createPartitions(String interval, Date until);
+
+    /**
+     * Removes the partitions of the audit log whose entries are all before the specified cutoff date, and the
+     * entries before it which aren't in any partition
+     *
+     * @param cutoff
+     *            the cutoff date
+     */
+    void removePartitionsBeforeDate(Date cutoff);
+
+    /**
+     * Checks if the audit log has partitions
+     *
+     * @return true if partitions were created and not all dropped yet, else false
+     */
+    boolean hasPartitions();
+
     /**
      * Removes all entries for the given VDS id.
      *
@@ -2,6 +2,7 @@ package org.ovirt.engine.core.dao;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +18,7 @@ import org.ovirt.engine.core.common.businessentities.AuditLog;
 import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dal.dbbroker.BatchRowMapper;
 import org.ovirt.engine.core.dal.dbbroker.DbEngineDialect;
 import org.ovirt.engine.core.dal.dbbroker.DbFacadeUtils;
 import org.springframework.jdbc.core.RowMapper;
@@ -138,13 +140,27 @@ public class AuditLogDaoImpl extends BaseDao implements AuditLogDao {
         }
     }
 
+    @Override
+    public void saveAll(Collection<AuditLog> events) {
+        getCallsHandler().executeStoredProcAsMultiRowCall("InsertAuditLog", events, new BatchRowMapper<AuditLog>() {
+            @Override
+            public void mapRow(AuditLog event, MapSqlParameterSource row) {
+                mapParameters(row, event);
+            }
+        });
+    }
+
     @Override
     public void update(AuditLog event) {
         throw new UnsupportedOperationException();
     }
 
     private MapSqlParameterSource getSqlMapper(AuditLog event) {
-        return getCustomMapSqlParameterSource()
+        return mapParameters(getCustomMapSqlParameterSource(), event);
+    }
+
+    private static MapSqlParameterSource mapParameters(MapSqlParameterSource parameterSource, AuditLog event) {
+        return parameterSource
                 .addValue("audit_log_id", event.getAuditLogId())
                 .addValue("log_time", event.getLogTime())
                 .addValue("log_type", event.getLogType())
@@ -201,6 +217,30 @@ public class AuditLogDaoImpl extends BaseDao implements AuditLogDao {
         getCallsHandler().executeModification("DeleteAuditLogOlderThenDate", parameterSource);
     }
 
+    @Override
+    public void createPartitions(String interval, Date until) {
+        MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
+                .addValue("interval", interval)
+                .addValue("until", until);
+
+        getCallsHandler().executeModification("CreateAuditLogPartitions", parameterSource);
+    }
+
+    @Override
+    public void removePartitionsBeforeDate(Date cutoff) {
+        MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
+                .addValue("date", cutoff);
+
+        getCallsHandler().executeModification("DropAuditLogPartitionsOlderThenDate", parameterSource);
+    }
+
+    @Override
+    public boolean hasPartitions() {
+        return getCallsHandler().executeRead("CheckIfAuditLogHasPartitions",
+                createBooleanMapper(),
+                getCustomMapSqlParameterSource());
+    }
+
     @Override
     public void removeAllForVds(Guid id, boolean removeConfigAlerts) {
         MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
@@ -124,11 +124,11 @@ public class CommandEntityDaoImpl extends DefaultGenericDao<CommandEntity, Guid>
     }
 
     private String serializeReturnValue(VdcReturnValueBase retVal) {
-        return SerializationFactory.getSerializer().serialize(retVal);
+        return SerializationFactory.getCompactSerializer().serialize(retVal);
     }
 
     private String serializeParameters(VdcActionParametersBase params) {
-        return SerializationFactory.getSerializer().serialize(params);
+        return SerializationFactory.getCompactSerializer().serialize(params);
     }
 
     @SuppressWarnings("unchecked")
@@ -137,7 +137,7 @@ public class CommandEntityDaoImpl extends DefaultGenericDao<CommandEntity, Guid>
             return null;
         }
         Class<Serializable> retValueClass = (Class<Serializable>) ReflectionUtils.getClassFor(className);
-        return (VdcReturnValueBase) SerializationFactory.getDeserializer().deserialize(payload,
+        return (VdcReturnValueBase) SerializationFactory.getCompactDeserializer().deserialize(payload,
                 retValueClass);
     }
 
@@ -147,7 +147,7 @@ public class CommandEntityDaoImpl extends DefaultGenericDao<CommandEntity, Guid>
             return null;
         }
         Class<Serializable> actionParamsClass = (Class<Serializable>) ReflectionUtils.getClassFor(className);
-        return (VdcActionParametersBase) SerializationFactory.getDeserializer().deserialize(payload,
+        return (VdcActionParametersBase) SerializationFactory.getCompactDeserializer().deserialize(payload,
                 actionParamsClass);
     }
 
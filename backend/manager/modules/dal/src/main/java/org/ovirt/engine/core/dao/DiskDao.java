@@ -28,6 +28,19 @@ public interface DiskDao extends ReadDao<Disk, Guid>, SearchDao<Disk> {
      */
     Map<Guid, List<Disk>> getAllForVms(Collection<Guid> vmIds);
 
+    /**
+     * Retrieves all disks for each vm passed, with optional filtering
+     *
+     * @param vmIds
+     *              list of VM ids
+     * @param userID
+     *            the ID of the user requesting the information
+     * @param isFiltered
+     *            Whether the results should be filtered according to the user's permissions
+     * @return map storing disks for each VM
+     */
+    Map<Guid, List<Disk>> getAllForVms(Collection<Guid> vmIds, Guid userID, boolean isFiltered);
+
     /**
      * Retrieves all disks for the specified virtual machine id.
      *
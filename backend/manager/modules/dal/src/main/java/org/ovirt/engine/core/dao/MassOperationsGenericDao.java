@@ -8,6 +8,7 @@ import java.util.List;
 
 import org.ovirt.engine.core.common.businessentities.BusinessEntity;
 import org.ovirt.engine.core.common.businessentities.comparators.BusinessEntityComparator;
+import org.ovirt.engine.core.dal.dbbroker.BatchRowMapper;
 import org.ovirt.engine.core.dal.dbbroker.MapSqlParameterMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 
@@ -55,11 +56,38 @@ public abstract class MassOperationsGenericDao<T extends BusinessEntity<ID>, ID
             Collection<T> paramValues,
             MapSqlParameterMapper<T> mapper) {
 
+        getCallsHandler().executeStoredProcAsBatch(procedureName == null ? getProcedureNameForUpdate() : procedureName,
+                sortForUpdate(paramValues), mapper);
+    }
+
+    /**
+     * Same as {@link #updateAllInBatch(String, Collection, MapSqlParameterMapper)}, binding all the entities through a
+     * single reused batch row.
+     */
+    protected void updateAllInBatch(String procedureName,
+            Collection<T> paramValues,
+            BatchRowMapper<T> mapper) {
+        getCallsHandler().executeStoredProcAsBatch(procedureName == null ? getProcedureNameForUpdate() : procedureName,
+                sortForUpdate(paramValues), mapper);
+    }
+
+    /**
+     * Updates all the entities with a single multi-row call of the update procedure instead of a batch of calls. Meant
+     * for the frequently updated entities, like statistics, which are updated in large numbers at once.
+     */
+    protected void updateAllAsMultiRowCall(String procedureName,
+            Collection<T> paramValues,
+            BatchRowMapper<T> mapper) {
+        getCallsHandler().executeStoredProcAsMultiRowCall(
+                procedureName == null ? getProcedureNameForUpdate() : procedureName,
+                sortForUpdate(paramValues), mapper);
+    }
+
+    private List<T> sortForUpdate(Collection<T> paramValues) {
         // To overcome possible deadlocks, we need to sort the collection
         List<T> sortedParamValues = new ArrayList<>(paramValues);
         Collections.sort(sortedParamValues, BusinessEntityComparator.<T, ID> newInstance());
-        getCallsHandler().executeStoredProcAsBatch(procedureName == null ? getProcedureNameForUpdate() : procedureName,
-                sortedParamValues, mapper);
+        return sortedParamValues;
     }
 
     @Override
@@ -155,6 +155,37 @@ public interface PermissionDao extends GenericDao<Permission, Guid> {
                                               VdcObjectType vdcObjectType,
                                               boolean ignoreEveryone);
 
+    /**
+     * Retrieves the permissions of the user, the given groups and, unless ignored, everyone, that grant the given
+     * action group, on any object.
+     *
+     * @param userId
+     *            the user
+     * @param groupIds
+     *            the comma separated ids of the groups of the user
+     * @param actionGroup
+     *            the action group
+     * @param ignoreEveryone
+     *            if true, the permissions of "everyone" are not retrieved
+     * @return the list of permissions, only their id, role, element and object are set
+     */
+    List<Permission> getAllGrantingActionGroupForUserAndGroups(Guid userId,
+            String groupIds,
+            ActionGroup actionGroup,
+            boolean ignoreEveryone);
+
+    /**
+     * Retrieves the ids of the given object and of all its parents, up to the system root, which are the objects whose
+     * permissions apply to the given object.
+     *
+     * @param objectId
+     *            the object
+     * @param vdcObjectType
+     *            the type of the object
+     * @return the list of ids
+     */
+    List<Guid> getEntityParents(Guid objectId, VdcObjectType vdcObjectType);
+
     /**
      * Removes all permissions for the given entity.
      *
@@ -220,6 +220,31 @@ public class PermissionDaoImpl extends BaseDao implements PermissionDao {
                 parameterSource);
     }
 
+    @Override
+    public List<Permission> getAllGrantingActionGroupForUserAndGroups(Guid userId,
+            String groupIds,
+            ActionGroup actionGroup,
+            boolean ignoreEveryone) {
+        MapSqlParameterSource parameterSource =
+                getCustomMapSqlParameterSource().addValue("user_id", userId)
+                        .addValue("group_ids", groupIds)
+                        .addValue("action_group_id", actionGroup.getId())
+                        .addValue("ignore_everyone", ignoreEveryone);
+
+        return getCallsHandler().executeReadList("GetPermittedObjectsForUserAndGroups",
+                GrantingPermissionRowMapper.instance,
+                parameterSource);
+    }
+
+    @Override
+    public List<Guid> getEntityParents(Guid objectId, VdcObjectType vdcObjectType) {
+        MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
+                .addValue("object_id", objectId)
+                .addValue("object_type_id", vdcObjectType.getValue());
+
+        return getCallsHandler().executeReadList("GetEntityParents", createGuidMapper(), parameterSource);
+    }
+
     @Override
     public void save(Permission permission) {
         MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
@@ -282,4 +307,22 @@ public class PermissionDaoImpl extends BaseDao implements PermissionDao {
         }
     }
 
+    /**
+     * Maps the rows of the permissions table, which lack the names and the role type of the permissions view.
+     */
+    private static class GrantingPermissionRowMapper implements RowMapper<Permission> {
+        public static final GrantingPermissionRowMapper instance = new GrantingPermissionRowMapper();
+
+        @Override
+        public Permission mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Permission entity = new Permission();
+            entity.setId(getGuidDefaultEmpty(rs, "id"));
+            entity.setRoleId(getGuidDefaultEmpty(rs, "role_id"));
+            entity.setAdElementId(getGuidDefaultEmpty(rs, "ad_element_id"));
+            entity.setObjectId(getGuidDefaultEmpty(rs, "object_id"));
+            entity.setObjectType(VdcObjectType.forValue(rs.getInt("object_type_id")));
+            return entity;
+        }
+    }
+
 }
@@ -55,6 +55,7 @@ public class StorageDomainOvfInfoImpl extends DefaultGenericDao<StorageDomainOvf
             if (timestamp != null) {
                 toReturn.setLastUpdated(new Date(timestamp.getTime()));
             }
+            toReturn.setContentHash(resultSet.getString("content_hash"));
             String storedOvfs = resultSet.getString("stored_ovfs_ids");
             if (storedOvfs != null && !storedOvfs.isEmpty()) {
                 toReturn.setStoredOvfIds(GuidUtils.getGuidListFromString(resultSet.getString("stored_ovfs_ids")));
@@ -70,6 +71,7 @@ public class StorageDomainOvfInfoImpl extends DefaultGenericDao<StorageDomainOvf
         return createIdParameterMapper(entity.getId()).addValue("storage_domain_id", entity.getStorageDomainId())
                 .addValue("status", entity.getStatus().getValue())
                 .addValue("last_updated", entity.getLastUpdated())
+                .addValue("content_hash", entity.getContentHash())
                 .addValue("stored_ovfs_ids", StringUtils.join(entity.getStoredOvfIds(), ','));
     }
 
@@ -1,6 +1,8 @@
 package org.ovirt.engine.core.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.ovirt.engine.core.common.businessentities.Tags;
 import org.ovirt.engine.core.common.businessentities.TagsTemplateMap;
@@ -97,6 +99,15 @@ public interface TagDao extends Dao {
      */
     List<Tags> getAllForVm(String ids);
 
+    /**
+     * Retrieves the tags of each of the given VMs.
+     *
+     * @param vmIds
+     *            the VM ids
+     * @return map storing the tags of each VM
+     */
+    Map<Guid, List<Tags>> getAllForVms(Collection<Guid> vmIds);
+
     /**
      * Retrieves the list of tags for the given Template ids.
      *
@@ -2,7 +2,11 @@ package org.ovirt.engine.core.dao;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -15,6 +19,7 @@ import org.ovirt.engine.core.common.businessentities.TagsUserMap;
 import org.ovirt.engine.core.common.businessentities.TagsVdsMap;
 import org.ovirt.engine.core.common.businessentities.TagsVmMap;
 import org.ovirt.engine.core.common.businessentities.TagsVmPoolMap;
+import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -55,6 +60,16 @@ public class TagDaoImpl extends BaseDao implements TagDao {
         }
     }
 
+    private static class TagsForVmsRowMapper implements RowMapper<Pair<Guid, Tags>> {
+        public static final TagsForVmsRowMapper instance = new TagsForVmsRowMapper();
+
+        @Override
+        public Pair<Guid, Tags> mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Tags tag = TagRowMapper.instance.mapRow(rs, rowNum);
+            return new Pair<>(getGuidDefaultEmpty(rs, "vm_id"), tag);
+        }
+    }
+
     @Override
     public Tags get(Guid id) {
         MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
@@ -153,6 +168,24 @@ public class TagDaoImpl extends BaseDao implements TagDao {
                 .executeReadList("GetTagsByVmId", TagRowMapper.instance, parameterSource);
     }
 
+    @Override
+    public Map<Guid, List<Tags>> getAllForVms(Collection<Guid> vmIds) {
+        MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
+                .addValue("vm_ids", createArrayOfUUIDs(vmIds));
+
+        List<Pair<Guid, Tags>> pairs = getCallsHandler()
+                .executeReadList("GetTagsByVmIds", TagsForVmsRowMapper.instance, parameterSource);
+
+        Map<Guid, List<Tags>> resultMap = new HashMap<>();
+        for (Pair<Guid, Tags> pair : pairs) {
+            if (!resultMap.containsKey(pair.getFirst())) {
+                resultMap.put(pair.getFirst(), new ArrayList<Tags>());
+            }
+            resultMap.get(pair.getFirst()).add(pair.getSecond());
+        }
+        return resultMap;
+    }
+
     /**
      * In the database both TemplateTags and VmTags share the same tables and
      * functions
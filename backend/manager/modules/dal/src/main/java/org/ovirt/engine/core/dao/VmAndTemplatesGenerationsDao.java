@@ -48,6 +48,17 @@ public interface VmAndTemplatesGenerationsDao extends Dao {
      */
     public List<Pair<Guid, String>> loadOvfDataForIds(List<Guid> ids);
 
+    /**
+     * Get the size in bytes of the UTF-8 encoded ovf data of the given ids, without loading the ovf data itself. Ids
+     * without ovf data aren't returned.
+     */
+    public List<Pair<Guid, Long>> loadOvfSizesForIds(List<Guid> ids);
+
+    /**
+     * Get the generation of the ovf data of the given ids. Ids without ovf data aren't returned.
+     */
+    public List<Pair<Guid, Long>> loadOvfGenerationsForIds(List<Guid> ids);
+
     /**
      * Get ids for ovf deletion from storage
      *
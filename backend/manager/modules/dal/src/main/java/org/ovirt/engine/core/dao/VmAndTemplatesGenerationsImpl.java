@@ -73,4 +73,32 @@ public class VmAndTemplatesGenerationsImpl extends BaseDao implements VmAndTempl
                 ovfDataRowMapper,
                 getCustomMapSqlParameterSource().addValue("ids", StringUtils.join(ids, ',')));
     }
+
+    private static final RowMapper<Pair<Guid, Long>> ovfSizeRowMapper = new RowMapper<Pair<Guid, Long>>() {
+        @Override
+        public Pair<Guid, Long> mapRow(ResultSet resultSet, int i) throws SQLException {
+            return new Pair<>(getGuid(resultSet, "vm_guid"), resultSet.getLong("ovf_size"));
+        }
+    };
+
+    @Override
+    public List<Pair<Guid, Long>> loadOvfSizesForIds(List<Guid> ids) {
+        return getCallsHandler().executeReadList("LoadOvfSizesForIds",
+                ovfSizeRowMapper,
+                getCustomMapSqlParameterSource().addValue("ids", StringUtils.join(ids, ',')));
+    }
+
+    private static final RowMapper<Pair<Guid, Long>> ovfGenerationRowMapper = new RowMapper<Pair<Guid, Long>>() {
+        @Override
+        public Pair<Guid, Long> mapRow(ResultSet resultSet, int i) throws SQLException {
+            return new Pair<>(getGuid(resultSet, "vm_guid"), resultSet.getLong("ovf_generation"));
+        }
+    };
+
+    @Override
+    public List<Pair<Guid, Long>> loadOvfGenerationsForIds(List<Guid> ids) {
+        return getCallsHandler().executeReadList("LoadOvfGenerationsForIds",
+                ovfGenerationRowMapper,
+                getCustomMapSqlParameterSource().addValue("ids", StringUtils.join(ids, ',')));
+    }
 }
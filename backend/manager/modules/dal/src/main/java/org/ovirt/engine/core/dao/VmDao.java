@@ -1,6 +1,7 @@
 package org.ovirt.engine.core.dao;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -176,6 +177,16 @@ public interface VmDao extends Dao {
      */
     List<VM> getAllUsingQuery(String query);
 
+    /**
+     * Finds the ids of the VMs found by the supplied query, in the order of the query, with the last time each of them
+     * changed. Only the ids and the change dates are read, not the whole VMs.
+     *
+     * @param query
+     *            the SQL query
+     * @return the ids and the change dates of the VMs
+     */
+    List<Pair<Guid, Date>> getChangeDatesUsingQuery(String query);
+
     /**
      * Retrieves the list of VMs for the given storage domain.
      *
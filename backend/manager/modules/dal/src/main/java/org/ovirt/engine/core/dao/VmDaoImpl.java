@@ -4,6 +4,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -167,6 +168,18 @@ public class VmDaoImpl extends BaseDao implements VmDao {
         return getJdbcTemplate().query(query, VMRowMapper.instance);
     }
 
+    @Override
+    public List<Pair<Guid, Date>> getChangeDatesUsingQuery(String query) {
+        return getJdbcTemplate().query("SELECT vm_guid, _change_date FROM (" + query + ") AS changes",
+                new RowMapper<Pair<Guid, Date>>() {
+                    @Override
+                    public Pair<Guid, Date> mapRow(ResultSet rs, int rowNum) throws SQLException {
+                        return new Pair<>(getGuidDefaultEmpty(rs, "vm_guid"),
+                                DbFacadeUtils.fromDate(rs.getTimestamp("_change_date")));
+                    }
+                });
+    }
+
     @Override
     public List<VM> getAllForStorageDomain(Guid id) {
         return getCallsHandler().executeReadList("GetVmsByStorageDomainId",
@@ -2,6 +2,7 @@ package org.ovirt.engine.core.dao;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +21,7 @@ import org.ovirt.engine.core.common.businessentities.VmExitReason;
 import org.ovirt.engine.core.common.businessentities.VmExitStatus;
 import org.ovirt.engine.core.common.businessentities.VmPauseStatus;
 import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dal.dbbroker.BatchRowMapper;
 import org.ovirt.engine.core.dal.dbbroker.DbFacadeUtils;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -94,9 +96,23 @@ public class VmDynamicDaoImpl extends MassOperationsGenericDao<VmDynamic, Guid>
 
     @Override
     protected MapSqlParameterSource createFullParametersMapper(VmDynamic vm) {
+        return mapFullParameters(getCustomMapSqlParameterSource(), vm);
+    }
+
+    @Override
+    public void updateAllInBatch(Collection<VmDynamic> vms) {
+        updateAllInBatch(getProcedureNameForUpdate(), vms, new BatchRowMapper<VmDynamic>() {
+            @Override
+            public void mapRow(VmDynamic entity, MapSqlParameterSource row) {
+                mapFullParameters(row, entity);
+            }
+        });
+    }
+
+    private static MapSqlParameterSource mapFullParameters(MapSqlParameterSource parameterSource, VmDynamic vm) {
         GraphicsInfo spice = vm.getGraphicsInfos().get(GraphicsType.SPICE);
         GraphicsInfo vnc = vm.getGraphicsInfos().get(GraphicsType.VNC);
-        return createIdParameterMapper(vm.getId())
+        return parameterSource.addValue("vm_guid", vm.getId())
                 .addValue("app_list", vm.getAppList())
                 .addValue("guest_cur_user_name", vm.getGuestCurrentUserName())
                 .addValue("console_cur_user_name", vm.getConsoleCurrentUserName())
@@ -1,6 +1,8 @@
 package org.ovirt.engine.core.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.ovirt.engine.core.common.businessentities.VmGuestAgentInterface;
 import org.ovirt.engine.core.compat.Guid;
@@ -31,6 +33,18 @@ public interface VmGuestAgentInterfaceDao extends Dao {
      */
     List<VmGuestAgentInterface> getAllForVm(Guid vmId, Guid userId, boolean filtered);
 
+    /**
+     * Returns the VmGuestAgentInterfaces of each of the given VM Ids
+     * @param vmIds
+     *            the VMs' IDs
+     * @param userId
+     *            the ID of the user requesting the information
+     * @param filtered
+     *            Whether the results should be filtered according to the user's permissions
+     * @return map storing the VmGuestAgentInterfaces of each VM
+     */
+    Map<Guid, List<VmGuestAgentInterface>> getAllForVms(Collection<Guid> vmIds, Guid userId, boolean filtered);
+
     /**
      * Removes all the VmGuestAgentInterfaces of the given VM
      * @param vmId
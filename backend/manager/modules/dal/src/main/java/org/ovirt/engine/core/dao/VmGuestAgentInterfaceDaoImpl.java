@@ -2,8 +2,12 @@ package org.ovirt.engine.core.dao;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -34,6 +38,24 @@ public class VmGuestAgentInterfaceDaoImpl extends BaseDao implements VmGuestAgen
                         .addValue("filtered", filtered));
     }
 
+    @Override
+    public Map<Guid, List<VmGuestAgentInterface>> getAllForVms(Collection<Guid> vmIds, Guid userId, boolean filtered) {
+        List<VmGuestAgentInterface> interfaces = getCallsHandler().executeReadList("GetVmGuestAgentInterfacesByVmIds",
+                VmGuestAgentInterfaceRowMapper.instance,
+                getCustomMapSqlParameterSource().addValue("vm_ids", createArrayOfUUIDs(vmIds))
+                        .addValue("user_id", userId)
+                        .addValue("filtered", filtered));
+
+        Map<Guid, List<VmGuestAgentInterface>> resultMap = new HashMap<>();
+        for (VmGuestAgentInterface iface : interfaces) {
+            if (!resultMap.containsKey(iface.getVmId())) {
+                resultMap.put(iface.getVmId(), new ArrayList<VmGuestAgentInterface>());
+            }
+            resultMap.get(iface.getVmId()).add(iface);
+        }
+        return resultMap;
+    }
+
     @Override
     public void save(VmGuestAgentInterface vmGuestAgentInterface) {
         getCallsHandler().executeModification("InsertVmGuestAgentInterface",
@@ -3,6 +3,7 @@ package org.ovirt.engine.core.dao;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -13,6 +14,7 @@ import org.apache.commons.lang.NotImplementedException;
 import org.apache.commons.lang.StringUtils;
 import org.ovirt.engine.core.common.businessentities.VmStatistics;
 import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dal.dbbroker.BatchRowMapper;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 
@@ -38,7 +40,22 @@ public class VmStatisticsDaoImpl extends MassOperationsGenericDao<VmStatistics,
 
     @Override
     protected MapSqlParameterSource createFullParametersMapper(VmStatistics statistics) {
-        return createIdParameterMapper(statistics.getId())
+        return mapFullParameters(getCustomMapSqlParameterSource(), statistics);
+    }
+
+    @Override
+    public void updateAllInBatch(Collection<VmStatistics> statistics) {
+        updateAllAsMultiRowCall(getProcedureNameForUpdate(), statistics, new BatchRowMapper<VmStatistics>() {
+            @Override
+            public void mapRow(VmStatistics entity, MapSqlParameterSource row) {
+                mapFullParameters(row, entity);
+            }
+        });
+    }
+
+    private static MapSqlParameterSource mapFullParameters(MapSqlParameterSource parameterSource,
+            VmStatistics statistics) {
+        return parameterSource.addValue("vm_guid", statistics.getId())
                 .addValue("cpu_sys", statistics.getcpu_sys())
                 .addValue("cpu_user", statistics.getcpu_user())
                 .addValue("elapsed_time", statistics.getelapsed_time())
@@ -2,7 +2,6 @@ package org.ovirt.engine.core.dao.network;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.ovirt.engine.core.common.businessentities.network.InterfaceStatus;
@@ -21,7 +20,7 @@ public abstract class NetworkStatisticsDaoImpl<T extends NetworkStatistics> exte
     @Override
     protected MapSqlParameterSource createFullParametersMapper(T stats) {
         NetworkStatisticsParametersMapper<T> mapper = new NetworkStatisticsParametersMapper<>();
-        return getCustomMapSqlParameterSource().addValues(mapper.createParametersMap(stats));
+        return mapper.mapParameters(getCustomMapSqlParameterSource(), stats);
     }
 
     @Override
@@ -32,19 +31,21 @@ public abstract class NetworkStatisticsDaoImpl<T extends NetworkStatistics> exte
     public static class NetworkStatisticsParametersMapper<T extends NetworkStatistics> {
 
         public Map<String, Object> createParametersMap(T stats) {
-            Map<String, Object> map = new HashMap<>();
-            map.put("id", stats.getId());
-            map.put("rx_drop", stats.getReceiveDropRate());
-            map.put("rx_rate", stats.getReceiveRate());
-            map.put("rx_total", stats.getReceivedBytes());
-            map.put("rx_offset", stats.getReceivedBytesOffset());
-            map.put("tx_drop", stats.getTransmitDropRate());
-            map.put("tx_rate", stats.getTransmitRate());
-            map.put("tx_total", stats.getTransmittedBytes());
-            map.put("tx_offset", stats.getTransmittedBytesOffset());
-            map.put("iface_status", stats.getStatus());
-            map.put("sample_time", stats.getSampleTime());
-            return map;
+            return mapParameters(new MapSqlParameterSource(), stats).getValues();
+        }
+
+        public MapSqlParameterSource mapParameters(MapSqlParameterSource parameterSource, T stats) {
+            return parameterSource.addValue("id", stats.getId())
+                    .addValue("rx_drop", stats.getReceiveDropRate())
+                    .addValue("rx_rate", stats.getReceiveRate())
+                    .addValue("rx_total", stats.getReceivedBytes())
+                    .addValue("rx_offset", stats.getReceivedBytesOffset())
+                    .addValue("tx_drop", stats.getTransmitDropRate())
+                    .addValue("tx_rate", stats.getTransmitRate())
+                    .addValue("tx_total", stats.getTransmittedBytes())
+                    .addValue("tx_offset", stats.getTransmittedBytesOffset())
+                    .addValue("iface_status", stats.getStatus())
+                    .addValue("sample_time", stats.getSampleTime());
         }
     }
 
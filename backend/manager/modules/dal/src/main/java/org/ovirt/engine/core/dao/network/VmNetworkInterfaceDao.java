@@ -1,6 +1,8 @@
 package org.ovirt.engine.core.dao.network;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
 import org.ovirt.engine.core.compat.Guid;
@@ -30,6 +32,19 @@ public interface VmNetworkInterfaceDao extends ReadDao<VmNetworkInterface, Guid>
      */
     List<VmNetworkInterface> getAllForVm(Guid id, Guid userID, boolean isFiltered);
 
+    /**
+     * Retrieves all interfaces for each of the given VM ids, with optional filtering
+     *
+     * @param vmIds
+     *            the Vm ids
+     * @param userID
+     *            the ID of the user requesting the information
+     * @param isFiltered
+     *            Whether the results should be filtered according to the user's permissions
+     * @return map storing the interfaces of each VM
+     */
+    Map<Guid, List<VmNetworkInterface>> getAllForVms(Collection<Guid> vmIds, Guid userID, boolean isFiltered);
+
     /**
      * Retrieves all interfaces for the given template id.
      *
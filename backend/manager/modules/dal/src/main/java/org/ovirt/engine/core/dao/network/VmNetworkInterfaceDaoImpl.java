@@ -2,8 +2,12 @@ package org.ovirt.engine.core.dao.network;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -43,6 +47,32 @@ public class VmNetworkInterfaceDaoImpl extends DefaultReadDao<VmNetworkInterface
         return results;
     }
 
+    @Override
+    public Map<Guid, List<VmNetworkInterface>> getAllForVms(Collection<Guid> vmIds, Guid userId, boolean filtered) {
+        MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
+                .addValue("vm_ids", createArrayOfUUIDs(vmIds))
+                .addValue("user_id", userId)
+                .addValue("is_filtered", filtered);
+
+        List<VmNetworkInterface> results =
+                getCallsHandler().executeReadList("GetVmNetworkInterfaceViewByVmIds",
+                        VmNetworkInterfaceRowMapper.INSTANCE,
+                        parameterSource);
+
+        Map<Guid, List<VmNetworkInterface>> resultMap = new HashMap<>();
+        for (VmNetworkInterface iface : results) {
+            if (!resultMap.containsKey(iface.getVmId())) {
+                resultMap.put(iface.getVmId(), new ArrayList<VmNetworkInterface>());
+            }
+            resultMap.get(iface.getVmId()).add(iface);
+        }
+        InterfaceComparerByMAC comparer = new InterfaceComparerByMAC();
+        for (List<VmNetworkInterface> interfaces : resultMap.values()) {
+            Collections.sort(interfaces, comparer);
+        }
+        return resultMap;
+    }
+
     @Override
     public List<VmNetworkInterface> getAllForTemplate(Guid id) {
         return getAllForTemplate(id, null, false);
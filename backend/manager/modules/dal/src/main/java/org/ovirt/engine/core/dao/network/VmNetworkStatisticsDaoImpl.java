@@ -1,5 +1,6 @@
 package org.ovirt.engine.core.dao.network;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.inject.Named;
@@ -7,6 +8,7 @@ import javax.inject.Singleton;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.ovirt.engine.core.common.businessentities.network.VmNetworkStatistics;
+import org.ovirt.engine.core.dal.dbbroker.BatchRowMapper;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 
@@ -31,6 +33,17 @@ public class VmNetworkStatisticsDaoImpl extends NetworkStatisticsDaoImpl<VmNetwo
                 .addValue("vm_id", stats.getVmId());
     }
 
+    @Override
+    public void updateAllInBatch(Collection<VmNetworkStatistics> statistics) {
+        final NetworkStatisticsParametersMapper<VmNetworkStatistics> mapper = new NetworkStatisticsParametersMapper<>();
+        updateAllAsMultiRowCall(getProcedureNameForUpdate(), statistics, new BatchRowMapper<VmNetworkStatistics>() {
+            @Override
+            public void mapRow(VmNetworkStatistics entity, MapSqlParameterSource row) {
+                mapper.mapParameters(row, entity).addValue("vm_id", entity.getVmId());
+            }
+        });
+    }
+
     @Override
     protected RowMapper<VmNetworkStatistics> createEntityRowMapper() {
         return VmNetworkStatisticsRowMapper.INSTANCE;
@@ -0,0 +1,112 @@
+package org.ovirt.engine.core.dal.dbbroker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ovirt.engine.core.compat.Guid;
+
+/** A test case for the {@link BatchRow} */
+public class BatchRowTest {
+
+    private BatchRow row;
+
+    public static enum TestEnumWithGetValue {
+        ONE,
+        TWO;
+
+        public int getValue() {
+            return ordinal() + 10;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        SqlCallParameter[] parameters = new SqlCallParameter[] {
+                new SqlCallParameter(1, "v_id", Types.OTHER),
+                new SqlCallParameter(2, "v_status", Types.INTEGER),
+                new SqlCallParameter(3, "v_enabled", Types.BOOLEAN),
+                new SqlCallParameter(4, "v_time", Types.TIMESTAMP)
+        };
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < parameters.length; i++) {
+            indexes.put(parameters[i].getName(), i);
+            indexes.put(parameters[i].getName().substring(2), i);
+        }
+
+        StoredProcedureMetaData procMetaData = new StoredProcedureMetaData();
+        procMetaData.setOrderedParameters(parameters);
+        procMetaData.setParameterIndexes(indexes);
+        row = new BatchRow(procMetaData);
+    }
+
+    @Test
+    public void testValuesAreConverted() {
+        Guid id = Guid.newGuid();
+        Date time = new Date();
+        row.addValue("id", id)
+                .addValue("status", TestEnumWithGetValue.TWO)
+                .addValue("v_enabled", true)
+                .addValue("time", time);
+
+        assertEquals(id.toString(), row.getJdbcValue(0));
+        assertEquals(11, row.getJdbcValue(1));
+        assertEquals(true, row.getJdbcValue(2));
+        assertEquals(new Timestamp(time.getTime()), row.getJdbcValue(3));
+    }
+
+    @Test
+    public void testUnknownParameterIgnored() {
+        row.addValue("unknown", 1);
+        for (int i = 0; i < row.size(); i++) {
+            assertEquals(i == 2 ? false : null, row.getJdbcValue(i));
+        }
+    }
+
+    @Test
+    public void testValueWithSqlTypeStoredInRow() {
+        row.addValue("status", 5, Types.INTEGER).addValue("v_time", null, Types.TIMESTAMP, "timestamp");
+
+        assertEquals(5, row.getJdbcValue(1));
+        assertEquals(5, row.getValue("v_status"));
+        assertEquals(Types.INTEGER, row.getSqlType("status"));
+        assertEquals("timestamp", row.getTypeName("v_time"));
+        assertNull(row.getJdbcValue(3));
+    }
+
+    @Test
+    public void testAccessors() {
+        row.addValues(Collections.<String, Object> singletonMap("status", 5));
+
+        assertTrue(row.hasValue("status"));
+        assertFalse(row.hasValue("unknown"));
+        assertNull(row.getValue("id"));
+        Map<String, Object> values = row.getValues();
+        assertEquals(4, values.size());
+        assertEquals(5, values.get("v_status"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownParameterValue() {
+        row.getValue("unknown");
+    }
+
+    @Test
+    public void testClear() {
+        row.addValue("status", 5).addValue("enabled", true);
+        row.clear();
+
+        assertNull(row.getJdbcValue(1));
+        assertEquals(false, row.getJdbcValue(2));
+    }
+}
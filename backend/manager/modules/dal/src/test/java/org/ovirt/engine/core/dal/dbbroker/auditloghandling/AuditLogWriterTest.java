@@ -0,0 +1,146 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.ovirt.engine.core.common.AuditLogSeverity;
+import org.ovirt.engine.core.common.AuditLogType;
+import org.ovirt.engine.core.common.businessentities.AuditLog;
+import org.ovirt.engine.core.dao.AuditLogDao;
+
+public class AuditLogWriterTest {
+
+    private AuditLogDao auditLogDao;
+    private AuditLogWriter writer;
+    private List<List<AuditLog>> savedBatches;
+    private List<AuditLog> savedEvents;
+
+    @Before
+    public void setUp() {
+        auditLogDao = mock(AuditLogDao.class);
+        writer = new AuditLogWriter(auditLogDao);
+        savedBatches = Collections.synchronizedList(new ArrayList<List<AuditLog>>());
+        savedEvents = Collections.synchronizedList(new ArrayList<AuditLog>());
+        doAnswer(new Answer<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(InvocationOnMock invocation) {
+                // The batch is reused by the writer, so it's copied
+                List<AuditLog> batch = new ArrayList<>((Collection<AuditLog>) invocation.getArguments()[0]);
+                savedBatches.add(batch);
+                savedEvents.addAll(batch);
+                return null;
+            }
+        }).when(auditLogDao).saveAll(anyCollectionOf(AuditLog.class));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                savedEvents.add((AuditLog) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(auditLogDao).save(any(AuditLog.class));
+    }
+
+    @Test
+    public void testEventsAreWrittenInBatchesInOrder() {
+        writer.start(100, 10, 0);
+        List<AuditLog> events = createEvents(25);
+        for (AuditLog event : events) {
+            assertTrue(writer.write(event));
+        }
+        writer.stop();
+
+        assertEquals(events, savedEvents);
+        for (List<AuditLog> batch : savedBatches) {
+            assertTrue(batch.size() <= 10);
+        }
+        assertEquals(25, writer.getWrittenEvents());
+        assertEquals(savedBatches.size(), writer.getWrittenBatches());
+        assertEquals(0, writer.getDroppedEvents());
+    }
+
+    @Test
+    public void testEventIsDroppedWhenQueueStaysFull() throws Exception {
+        final CountDownLatch saving = new CountDownLatch(1);
+        final CountDownLatch saved = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                savedEvents.addAll((Collection<AuditLog>) invocation.getArguments()[0]);
+                saving.countDown();
+                saved.await();
+                return null;
+            }
+        }).when(auditLogDao).saveAll(anyCollectionOf(AuditLog.class));
+        writer.start(1, 1, 0);
+        List<AuditLog> events = createEvents(3);
+
+        assertTrue(writer.write(events.get(0)));
+        assertTrue(saving.await(10, TimeUnit.SECONDS));
+        assertTrue(writer.write(events.get(1)));
+        assertFalse(writer.write(events.get(2)));
+        saved.countDown();
+        writer.stop();
+
+        assertEquals(events.subList(0, 2), savedEvents);
+        assertEquals(1, writer.getBlockedEvents());
+        assertEquals(1, writer.getDroppedEvents());
+    }
+
+    @Test
+    public void testFailedBatchIsWrittenEventByEvent() {
+        List<AuditLog> events = createEvents(3);
+        doThrow(new RuntimeException()).when(auditLogDao).saveAll(anyCollectionOf(AuditLog.class));
+        doThrow(new RuntimeException()).when(auditLogDao).save(events.get(1));
+        writer.start(10, 10, 0);
+
+        for (AuditLog event : events) {
+            writer.write(event);
+        }
+        writer.stop();
+
+        assertEquals(2, writer.getWrittenEvents());
+        assertEquals(1, writer.getFailedEvents());
+    }
+
+    @Test
+    public void testEventsAreWrittenAfterStop() {
+        writer.start(10, 10, 0);
+        writer.stop();
+        List<AuditLog> events = createEvents(2);
+
+        for (AuditLog event : events) {
+            assertTrue(writer.write(event));
+        }
+
+        assertEquals(events, savedEvents);
+    }
+
+    private static List<AuditLog> createEvents(int count) {
+        List<AuditLog> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AuditLog event = new AuditLog(AuditLogType.VM_DOWN, AuditLogSeverity.NORMAL);
+            event.setMessage("Event " + i);
+            events.add(event);
+        }
+        return events;
+    }
+}
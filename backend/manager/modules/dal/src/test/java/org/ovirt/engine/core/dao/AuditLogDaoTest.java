@@ -10,6 +10,7 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -19,6 +20,7 @@ import org.ovirt.engine.core.common.businessentities.AuditLog;
 import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.compat.Guid;
+import org.springframework.dao.DataIntegrityViolationException;
 
 /**
  * <code>AuditLogDaoTest</code> performs tests against the {@link AuditLogDao} type.
@@ -249,6 +251,48 @@ public class AuditLogDaoTest extends BaseDaoTestCase {
         assertEquals(1, result.size());
     }
 
+    @Test
+    public void testRemovePartitionsBeforeDate() {
+        Date now = new Date();
+        dao.createPartitions("day", new Date(now.getTime() + TimeUnit.DAYS.toMillis(2)));
+        newAuditLog.setLogTime(now);
+        dao.save(newAuditLog);
+        Date cutoff = new Date(now.getTime() - 1);
+        assertEquals(1, dao.getAllAfterDate(cutoff).size());
+
+        dao.removePartitionsBeforeDate(new Date(now.getTime() + TimeUnit.DAYS.toMillis(3)));
+
+        assertTrue(dao.getAllAfterDate(cutoff).isEmpty());
+        assertTrue(dao.getAll(PRIVILEGED_USER_ID, true).isEmpty());
+        assertFalse(dao.hasPartitions());
+    }
+
+    /**
+     * Ensures that an external event is unique over audit_log and its partitions, the unique index of each covering
+     * only its own events.
+     */
+    @Test(expected = DataIntegrityViolationException.class)
+    public void testExternalEventUniqueAcrossPartitions() {
+        dao.createPartitions("day", new Date(new Date().getTime() + TimeUnit.DAYS.toMillis(1)));
+        newAuditLog.setExternal(true);
+        newAuditLog.setOrigin("external");
+        newAuditLog.setCustomEventId(CUSTOM_BAKUP_EVENT_ID);
+
+        // logged into audit_log itself, before the first partition
+        dao.save(newAuditLog);
+
+        // logged into the partition of today
+        newAuditLog.setLogTime(new Date());
+        dao.save(newAuditLog);
+    }
+
+    @Test
+    public void testHasPartitions() {
+        assertFalse(dao.hasPartitions());
+        dao.createPartitions("day", new Date(new Date().getTime() + TimeUnit.DAYS.toMillis(1)));
+        assertTrue(dao.hasPartitions());
+    }
+
     @Test
     public void testRemoveAllForVds()
             throws Exception {
@@ -286,6 +330,24 @@ public class AuditLogDaoTest extends BaseDaoTestCase {
         assertEquals(countBefore + 1, countAfter);
     }
 
+    /**
+     * Ensures that saving several AuditLogs at once saves all of them.
+     */
+    @Test
+    public void testSaveAll() {
+        Date newAuditLogDateCuttoff = newAuditLog.getLogTime();
+        newAuditLogDateCuttoff.setTime(newAuditLogDateCuttoff.getTime() - 1);
+        int countBefore = dao.getAllAfterDate(newAuditLogDateCuttoff).size();
+
+        AuditLog otherAuditLog = new AuditLog(AuditLogType.VM_DOWN, AuditLogSeverity.NORMAL, "VM is down",
+                null, null, VM_ID, VM_NAME, VDS_ID, VDS_NAME, null, null);
+        otherAuditLog.setLogTime(newAuditLog.getLogTime());
+        dao.saveAll(Arrays.asList(newAuditLog, otherAuditLog));
+
+        List<AuditLog> after = dao.getAllAfterDate(newAuditLogDateCuttoff);
+        assertEquals(countBefore + 2, after.size());
+    }
+
     /**
      * Ensures that saving a AuditLog with long message works as expected.
      * <strong>Note:</strong> Since inserting a new AuditLog autogenerates its
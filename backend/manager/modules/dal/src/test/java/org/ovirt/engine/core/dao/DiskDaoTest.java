@@ -137,6 +137,14 @@ public class DiskDaoTest extends BaseReadDaoTestCase<Guid, Disk, DiskDao> {
         assertFullGetAllForVMResult(vmDisksMap.get(FixturesTool.VM_RHEL5_POOL_57));
     }
 
+    @Test
+    public void testGetAllForVMsFilteredWithoutPermissions() {
+        Map<Guid, List<Disk>> vmDisksMap =
+                dao.getAllForVms(Arrays.asList(FixturesTool.VM_RHEL5_POOL_57), UNPRIVILEGED_USER_ID, true);
+
+        assertTrue(vmDisksMap.isEmpty());
+    }
+
     @Test
     public void testGetAllAttachableDisksByPoolIdNoDisks() {
         List<Disk> result =
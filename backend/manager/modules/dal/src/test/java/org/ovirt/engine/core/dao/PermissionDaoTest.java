@@ -585,6 +585,35 @@ public class PermissionDaoTest extends BaseDaoTestCase {
                 false));
     }
 
+    @Test
+    public void testGetAllGrantingActionGroupForUserAndGroups() {
+        List<Permission> result = dao.getAllGrantingActionGroupForUserAndGroups(Guid.newGuid(),
+                DIRECTORY_ELEMENT_ID_WITH_BASIC_PERMISSIONS.toString(),
+                ActionGroup.RUN_VM,
+                true);
+
+        assertFalse(result.isEmpty());
+        for (Permission permission : result) {
+            assertEquals(DIRECTORY_ELEMENT_ID_WITH_BASIC_PERMISSIONS, permission.getAdElementId());
+        }
+
+        // One of the granting permissions must be on the VM or one of its parents, as the user can run it
+        List<Guid> parents = dao.getEntityParents(VM_TEMPLATE_ENTITY_ID, VdcObjectType.VM);
+        boolean granted = false;
+        for (Permission permission : result) {
+            granted |= parents.contains(permission.getObjectId());
+        }
+        assertTrue(granted);
+    }
+
+    @Test
+    public void testGetEntityParents() {
+        List<Guid> result = dao.getEntityParents(VM_TEMPLATE_ENTITY_ID, VdcObjectType.VM);
+
+        assertTrue(result.contains(VM_TEMPLATE_ENTITY_ID));
+        assertTrue(result.size() > 1);
+    }
+
     /**
      * Ensures that saving a permission works as expected.
      */
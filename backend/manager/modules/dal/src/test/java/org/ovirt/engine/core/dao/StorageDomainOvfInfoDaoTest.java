@@ -23,6 +23,7 @@ public class StorageDomainOvfInfoDaoTest extends BaseGenericDaoTestCase<Guid, St
     protected void updateExistingEntity() {
         existingEntity.setStatus(StorageDomainOvfInfoStatus.DISABLED);
         existingEntity.setLastUpdated(new Date(System.currentTimeMillis()));
+        existingEntity.setContentHash("5e6b3e1c0c0a1b0a5b8f4d1e9f0b6c7a8d9e0f1a");
     }
 
     @Override
@@ -6,7 +6,9 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -276,6 +278,17 @@ public class TagDaoTest extends BaseDaoTestCase {
     }
 
 
+    /**
+     * Ensures that the tags are returned per VM.
+     */
+    @Test
+    public void testGetAllForVms() {
+        Map<Guid, List<Tags>> result = dao.getAllForVms(Arrays.asList(EXISTING_VM_ID, Guid.newGuid()));
+
+        assertEquals(1, result.size());
+        assertFalse(result.get(EXISTING_VM_ID).isEmpty());
+    }
+
     /**
      * Ensures that a collection of tags is returned.
      */
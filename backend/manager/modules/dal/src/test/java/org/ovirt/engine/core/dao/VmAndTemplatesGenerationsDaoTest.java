@@ -11,6 +11,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.junit.Test;
+import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 
 public class VmAndTemplatesGenerationsDaoTest extends BaseDaoTestCase{
@@ -364,4 +365,30 @@ public class VmAndTemplatesGenerationsDaoTest extends BaseDaoTestCase{
         assertTrue("the list of guids for deletion doesn't contain an expected guid",
                 guidsToDelete.contains(FixturesTool.VM_TEMPLATE_RHEL6_2));
     }
+
+    @Test
+    public void testLoadOvfSizesForIds() {
+        vmAndTemplatesGenerationsDao.updateOvfGenerations(Collections.singletonList(FixturesTool.VM_RHEL5_POOL_50),
+                Collections.singletonList(Long.valueOf(2)),
+                Arrays.asList("<ovf>\u00e9</ovf>"));
+
+        List<Pair<Guid, Long>> sizes = vmAndTemplatesGenerationsDao.loadOvfSizesForIds(
+                Arrays.asList(FixturesTool.VM_RHEL5_POOL_50, FixturesTool.VM_RHEL5_POOL_51));
+        assertEquals("only the vm with ovf data should be returned", 1, sizes.size());
+        assertEquals(FixturesTool.VM_RHEL5_POOL_50, sizes.get(0).getFirst());
+        assertEquals("the size should be of the UTF-8 encoded ovf data", 13L, sizes.get(0).getSecond().longValue());
+    }
+
+    @Test
+    public void testLoadOvfGenerationsForIds() {
+        vmAndTemplatesGenerationsDao.updateOvfGenerations(Collections.singletonList(FixturesTool.VM_RHEL5_POOL_50),
+                Collections.singletonList(Long.valueOf(7)),
+                Arrays.asList("a"));
+
+        List<Pair<Guid, Long>> generations = vmAndTemplatesGenerationsDao.loadOvfGenerationsForIds(
+                Arrays.asList(FixturesTool.VM_RHEL5_POOL_50, FixturesTool.VM_RHEL5_POOL_51));
+        assertEquals("only the vm with ovf data should be returned", 1, generations.size());
+        assertEquals(FixturesTool.VM_RHEL5_POOL_50, generations.get(0).getFirst());
+        assertEquals(7L, generations.get(0).getSecond().longValue());
+    }
 }
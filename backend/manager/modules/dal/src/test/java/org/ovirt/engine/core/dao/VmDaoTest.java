@@ -9,6 +9,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -24,6 +25,7 @@ import org.ovirt.engine.core.common.businessentities.VmDynamic;
 import org.ovirt.engine.core.common.businessentities.VmStatic;
 import org.ovirt.engine.core.common.businessentities.VmStatistics;
 import org.ovirt.engine.core.common.businessentities.VmTemplate;
+import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 
 public class VmDaoTest extends BaseDaoTestCase {
@@ -375,6 +377,22 @@ public class VmDaoTest extends BaseDaoTestCase {
         assertFalse(result.isEmpty());
     }
 
+    /**
+     * Ensures that the change dates of the VMs found by a query are returned in the order of the query.
+     */
+    @Test
+    public void testGetChangeDatesUsingQuery() {
+        List<Pair<Guid, Date>> result =
+                dao.getChangeDatesUsingQuery("SELECT * FROM vms ORDER BY vm_name DESC");
+
+        List<VM> vms = dao.getAllUsingQuery("SELECT * FROM vms ORDER BY vm_name DESC");
+        assertEquals(vms.size(), result.size());
+        for (int i = 0; i < vms.size(); i++) {
+            assertEquals(vms.get(i).getId(), result.get(i).getFirst());
+            assertNotNull(result.get(i).getSecond());
+        }
+    }
+
 
     /**
      * Ensures the VMs related to the specified template are returned.
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import org.ovirt.engine.core.common.businessentities.VmGuestAgentInterface;
@@ -54,6 +55,21 @@ public class VmGuestAgentInterfaceDaoTest extends BaseDaoTestCase {
         assertVmGuestAgentInterfaceForVm(interfaces);
     }
 
+    @Test
+    public void getAllForVms() {
+        Map<Guid, List<VmGuestAgentInterface>> interfaces =
+                dao.getAllForVms(Arrays.asList(EXISTING_VM_ID, Guid.Empty), null, false);
+        assertEquals(1, interfaces.size());
+        assertVmGuestAgentInterfaceForVm(interfaces.get(EXISTING_VM_ID));
+    }
+
+    @Test
+    public void getAllForVmsForUnprivilegedUser() {
+        Map<Guid, List<VmGuestAgentInterface>> interfaces =
+                dao.getAllForVms(Arrays.asList(EXISTING_VM_ID), UNPRIVILEGED_USER_ID, true);
+        assertTrue(interfaces.isEmpty());
+    }
+
     @Test
     public void removeAllForVm() {
         List<VmGuestAgentInterface> interfaces = dao.getAllForVm(EXISTING_VM_ID);
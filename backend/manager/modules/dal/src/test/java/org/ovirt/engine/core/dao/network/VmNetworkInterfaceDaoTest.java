@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -162,6 +163,29 @@ public class VmNetworkInterfaceDaoTest extends BaseDaoTestCase {
         }
     }
 
+    /**
+     * Ensures that the interfaces of each of the specified VMs are returned.
+     */
+    @Test
+    public void testGetAllInterfacesForVms() {
+        Map<Guid, List<VmNetworkInterface>> result =
+                dao.getAllForVms(Arrays.asList(VM_ID, Guid.newGuid()), null, false);
+
+        assertEquals(1, result.size());
+        assertEquals(dao.getAllForVm(VM_ID), result.get(VM_ID));
+    }
+
+    /**
+     * Ensures that no interfaces are returned for an unprivileged user
+     */
+    @Test
+    public void testGetAllInterfacesForVmsFilteredWithoutPermissions() {
+        Map<Guid, List<VmNetworkInterface>> result =
+                dao.getAllForVms(Arrays.asList(VM_ID), UNPRIVILEGED_USER_ID, true);
+
+        assertTrue(result.isEmpty());
+    }
+
     /**
      * Ensures that the VMs for a privileged user are returned
      */
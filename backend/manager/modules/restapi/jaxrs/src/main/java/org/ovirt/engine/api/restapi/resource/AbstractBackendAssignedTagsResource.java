@@ -46,8 +46,12 @@ public abstract class AbstractBackendAssignedTagsResource
     }
 
     public org.ovirt.engine.api.model.Tags list() {
+        return mapCollection(getCollection());
+    }
+
+    protected org.ovirt.engine.api.model.Tags mapCollection(List<Tags> entities) {
         org.ovirt.engine.api.model.Tags ret = new org.ovirt.engine.api.model.Tags();
-        for (Tags tag : getCollection()) {
+        for (Tags tag : entities) {
             ret.getTags().add(addLinks(populate(map(tag), tag)));
         }
         return ret;
@@ -1,8 +1,10 @@
 package org.ovirt.engine.api.restapi.resource;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.ws.rs.core.Response;
@@ -19,8 +21,10 @@ import org.ovirt.engine.core.common.action.VdcActionParametersBase;
 import org.ovirt.engine.core.common.action.VdcActionType;
 import org.ovirt.engine.core.common.action.VdcReturnValueBase;
 import org.ovirt.engine.core.common.interfaces.SearchType;
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
 import org.ovirt.engine.core.common.queries.SearchParameters;
 import org.ovirt.engine.core.common.queries.VdcQueryParametersBase;
+import org.ovirt.engine.core.common.queries.VdcQueryReturnValue;
 import org.ovirt.engine.core.common.queries.VdcQueryType;
 import org.ovirt.engine.core.compat.Guid;
 import org.slf4j.Logger;
@@ -33,6 +37,7 @@ public abstract class AbstractBackendCollectionResource<R extends BaseResource,
     private static final String CREATION_STATUS_REL = "creation_status";
     public static final String FROM_CONSTRAINT_PARAMETER = "from";
     public static final String CASE_SENSITIVE_CONSTRAINT_PARAMETER = "case_sensitive";
+    public static final String STREAM_CONSTRAINT_PARAMETER = "stream";
     private static final Logger log = LoggerFactory.getLogger(AbstractBackendCollectionResource.class);
 
     protected AbstractBackendCollectionResource(Class<R> modelType, Class<Q> entityType, String... subCollections) {
@@ -49,7 +54,7 @@ public abstract class AbstractBackendCollectionResource<R extends BaseResource,
                 getSearchParameters(searchType, constraint));
     }
 
-    private SearchParameters getSearchParameters(SearchType searchType, String constraint) {
+    protected SearchParameters getSearchParameters(SearchType searchType, String constraint) {
         SearchParameters searchParams = new SearchParameters(constraint, searchType);
         HashMap<String, String> matrixConstraints = QueryHelper.getMatrixConstraints(getUriInfo(),
                                                                                      CASE_SENSITIVE_CONSTRAINT_PARAMETER,
@@ -105,6 +110,15 @@ public abstract class AbstractBackendCollectionResource<R extends BaseResource,
         return getBackendCollection(entityType, query, queryParams);
     }
 
+    /**
+     * Checks the "stream" matrix parameter, which asks for the collection to be written to the response while it is
+     * being loaded from the backend, see {@link StreamingList}.
+     */
+    protected boolean isStreaming() {
+        return getUriInfo() != null
+                && Boolean.parseBoolean(QueryHelper.getMatrixConstraint(getUriInfo(), STREAM_CONSTRAINT_PARAMETER));
+    }
+
     /**
      * get the entities according to the filter and intersect them with those resulted from running the search query
      * @param query
@@ -124,6 +138,39 @@ public abstract class AbstractBackendCollectionResource<R extends BaseResource,
         }
     }
 
+    /**
+     * Loads a collection for each of the given entities using a single query, for example the disks of all the VMs
+     * of a listed page, instead of running a query per entity.
+     *
+     * @param query
+     *            a query taking {@link IdsQueryParameters} and returning the collections mapped by entity id
+     * @param ids
+     *            the ids of the entities
+     * @return the collections mapped by entity id, every given id is mapped to a list
+     */
+    protected <T> Map<Guid, List<T>> getBackendCollectionsByIds(VdcQueryType query, List<Guid> ids) {
+        try {
+            Map<Guid, List<T>> collections = new HashMap<>();
+            VdcQueryReturnValue result = runQuery(query, new IdsQueryParameters(ids));
+            if (result != null) {
+                if (!result.getSucceeded()) {
+                    backendFailure(result.getExceptionString());
+                }
+                if (result.getReturnValue() != null) {
+                    collections.putAll(result.<Map<Guid, List<T>>> getReturnValue());
+                }
+            }
+            for (Guid id : ids) {
+                if (!collections.containsKey(id)) {
+                    collections.put(id, new ArrayList<T>());
+                }
+            }
+            return collections;
+        } catch (Exception e) {
+            return handleError(e, false);
+        }
+    }
+
     protected final <T> Response performCreate(VdcActionType task,
             VdcActionParametersBase taskParams,
             IResolver<T, Q> entityResolver,
@@ -1,9 +1,12 @@
 package org.ovirt.engine.api.restapi.resource;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.lang.StringUtils;
+import org.ovirt.engine.api.common.util.QueryHelper;
 import org.ovirt.engine.api.model.Action;
 import org.ovirt.engine.api.model.EntityExternalStatus;
 import org.ovirt.engine.api.model.Event;
@@ -17,22 +20,88 @@ import org.ovirt.engine.core.common.action.VdcActionType;
 import org.ovirt.engine.core.common.businessentities.AuditLog;
 import org.ovirt.engine.core.common.interfaces.SearchType;
 import org.ovirt.engine.core.common.queries.GetAuditLogByIdParameters;
+import org.ovirt.engine.core.common.queries.SearchParameters;
 import org.ovirt.engine.core.common.queries.VdcQueryParametersBase;
 import org.ovirt.engine.core.common.queries.VdcQueryType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class BackendEventsResource
     extends AbstractBackendCollectionResource<Event, AuditLog>
     implements EventsResource {
 
+    public static final String BEFORE_CONSTRAINT_PARAMETER = "before";
+    private static final int STREAMING_PAGE_SIZE = 1000;
+    /** search clauses that change the order of the events, which the streamed pages rely on **/
+    private static final Pattern ORDER_CLAUSE = Pattern.compile("\\b(sortby|page)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Logger log = LoggerFactory.getLogger(BackendEventsResource.class);
+
     public BackendEventsResource() {
         super(Event.class, AuditLog.class);
     }
 
     @Override
     public Events list() {
+        if (isStreaming() && !isFiltered()) {
+            String constraint = QueryHelper.getConstraint(getUriInfo(), "", modelType);
+            // The events are listed as usual when the search sorts or pages them
+            if (!ORDER_CLAUSE.matcher(constraint).find()) {
+                return streamCollection(constraint);
+            }
+        }
         return mapCollection(getBackendCollection());
     }
 
+    /**
+     * Streams the events matching the search, newest first. Every page continues before the id of the last event of
+     * the previous page, so a client can resume an interrupted listing by passing the id of the last event it received
+     * in the "before" matrix parameter.
+     */
+    private Events streamCollection(final String constraint) {
+        int limit = NO_LIMIT;
+        try {
+            limit = getMaxResults();
+        } catch (MalformedNumberException ex) {
+            handleError(ex, false);
+        }
+        return new StreamedEvents(new StreamingList<Event, AuditLog>(STREAMING_PAGE_SIZE, limit) {
+            @Override
+            protected List<AuditLog> loadPage(AuditLog last, int pageSize) {
+                SearchParameters searchParams = getSearchParameters(SearchType.AuditLog, constraint);
+                searchParams.setMaxCount(pageSize);
+                if (last != null) {
+                    searchParams.setSearchBefore(last.getAuditLogId());
+                }
+                return getBackendCollection(AuditLog.class, VdcQueryType.Search, searchParams);
+            }
+
+            @Override
+            protected Event map(AuditLog entity) {
+                return addLinks(BackendEventsResource.this.map(entity));
+            }
+        });
+    }
+
+    /**
+     * Adds the "before" matrix parameter, which is accepted only by the events as their ids follow the order they are
+     * listed in.
+     */
+    @Override
+    protected SearchParameters getSearchParameters(SearchType searchType, String constraint) {
+        SearchParameters searchParams = super.getSearchParameters(searchType, constraint);
+        String beforeParameter = QueryHelper.getMatrixConstraint(getUriInfo(), BEFORE_CONSTRAINT_PARAMETER);
+        if (StringUtils.isNotBlank(beforeParameter)) {
+            try {
+                searchParams.setSearchBefore(Long.parseLong(beforeParameter));
+            } catch (Exception ex) {
+                log.error("Unwrapping of '{}' matrix search parameter failed: {}",
+                        BEFORE_CONSTRAINT_PARAMETER, ex.getMessage());
+                log.error("Exception", ex);
+            }
+        }
+        return searchParams;
+    }
+
     private Events mapCollection(List<AuditLog> entities) {
         Events collection = new Events();
         for (AuditLog entity : entities) {
@@ -59,6 +128,15 @@ public class BackendEventsResource
         }
     }
 
+    /**
+     * An events collection backed by the given list, which the generated model class doesn't allow to replace.
+     */
+    private static class StreamedEvents extends Events {
+        StreamedEvents(List<Event> events) {
+            event = events;
+        }
+    }
+
     @Override
     public Response add(Event event) {
         validateParameters(event, "origin", "severity", "customId", "description");
@@ -41,12 +41,21 @@ public abstract class BackendNicsResource
 
     @Override
     public Nics list() {
-        Nics nics = new Nics();
         List<VmNetworkInterface> entities = getBackendCollection(queryType, queryParams);
         Guid clusterId = getClusterId();
         List<org.ovirt.engine.core.common.businessentities.network.Network> networks = getBackendCollection(org.ovirt.engine.core.common.businessentities.network.Network.class,
              VdcQueryType.GetAllNetworksByClusterId,
              new IdQueryParameters(clusterId));
+        return mapCollection(entities, clusterId, networks);
+    }
+
+    /**
+     * Maps already loaded interfaces, resolving their networks in the given networks of the cluster.
+     */
+    protected Nics mapCollection(List<VmNetworkInterface> entities,
+            Guid clusterId,
+            List<org.ovirt.engine.core.common.businessentities.network.Network> networks) {
+        Nics nics = new Nics();
         for (VmNetworkInterface entity : entities) {
             org.ovirt.engine.core.common.businessentities.network.Network network = null;
             if (entity.getNetworkName() != null) {
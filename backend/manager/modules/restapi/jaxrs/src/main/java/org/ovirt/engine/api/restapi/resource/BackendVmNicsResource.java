@@ -33,6 +33,8 @@ import org.ovirt.engine.core.compat.Guid;
 
 public class BackendVmNicsResource extends BackendNicsResource implements VmNicsResource {
 
+    private List<VmGuestAgentInterface> guestAgentInterfaces;
+
     public BackendVmNicsResource(Guid parentId) {
         super(parentId,
               VdcQueryType.GetVmInterfacesByVmId,
@@ -159,11 +161,22 @@ public class BackendVmNicsResource extends BackendNicsResource implements VmNics
     }
 
     private List<VmGuestAgentInterface> getDevicesCollection(Guid vmId) {
+        if (guestAgentInterfaces != null) {
+            return guestAgentInterfaces;
+        }
         return getBackendCollection(VmGuestAgentInterface.class,
                 VdcQueryType.GetVmGuestAgentInterfacesByVmId,
                 new IdQueryParameters(vmId));
     }
 
+    /**
+     * Sets the guest agent interfaces of the VM when they were already loaded, so that the reported devices of the
+     * NICs are not queried again
+     */
+    void setGuestAgentInterfaces(List<VmGuestAgentInterface> guestAgentInterfaces) {
+        this.guestAgentInterfaces = guestAgentInterfaces;
+    }
+
     @Override
     protected VdcActionParametersBase getAddParameters(VmNetworkInterface entity, NIC nic) {
         return new AddVmInterfaceParameters(parentId,
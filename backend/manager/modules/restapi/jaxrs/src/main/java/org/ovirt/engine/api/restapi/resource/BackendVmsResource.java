@@ -28,6 +28,7 @@ import org.ovirt.engine.api.model.Payload;
 import org.ovirt.engine.api.model.Payloads;
 import org.ovirt.engine.api.model.Snapshot;
 import org.ovirt.engine.api.model.Snapshots;
+import org.ovirt.engine.api.model.Statistic;
 import org.ovirt.engine.api.model.Statistics;
 import org.ovirt.engine.api.model.Tags;
 import org.ovirt.engine.api.model.Template;
@@ -44,6 +45,7 @@ import org.ovirt.engine.api.restapi.types.VmMapper;
 import org.ovirt.engine.api.restapi.util.DisplayHelper;
 import org.ovirt.engine.api.restapi.util.IconHelper;
 import org.ovirt.engine.api.restapi.util.VmHelper;
+import org.ovirt.engine.api.utils.LinkHelper;
 import org.ovirt.engine.core.common.FeatureSupported;
 import org.ovirt.engine.core.common.action.AddVmFromSnapshotParameters;
 import org.ovirt.engine.core.common.action.AddVmParameters;
@@ -55,11 +57,14 @@ import org.ovirt.engine.core.common.businessentities.InstanceType;
 import org.ovirt.engine.core.common.businessentities.VDSGroup;
 import org.ovirt.engine.core.common.businessentities.VmDevice;
 import org.ovirt.engine.core.common.businessentities.VmDeviceGeneralType;
+import org.ovirt.engine.core.common.businessentities.VmGuestAgentInterface;
 import org.ovirt.engine.core.common.businessentities.VmInit;
 import org.ovirt.engine.core.common.businessentities.VmPayload;
 import org.ovirt.engine.core.common.businessentities.VmRngDevice;
 import org.ovirt.engine.core.common.businessentities.VmStatic;
 import org.ovirt.engine.core.common.businessentities.VmTemplate;
+import org.ovirt.engine.core.common.businessentities.network.Network;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
 import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
 import org.ovirt.engine.core.common.interfaces.SearchType;
 import org.ovirt.engine.core.common.osinfo.OsRepository;
@@ -504,18 +509,84 @@ public class BackendVmsResource extends
     }
 
     protected VM addInlineDetails(Set<String> details, VM vm) {
-        if (details.contains("disks")) {
+        if (details.contains("disks") && !vm.isSetDisks()) {
             addInlineDisks(vm);
         }
-        if (details.contains("nics")) {
+        if (details.contains("nics") && !vm.isSetNics()) {
             addInlineNics(vm);
         }
-        if (details.contains("tags")) {
+        if (details.contains("tags") && !vm.isSetTags()) {
             addInlineTags(vm);
         }
         return vm;
     }
 
+    /**
+     * Adds the inline details of a listed page of VMs. Each kind of detail is loaded for all the VMs at once, rather
+     * than through the sub-collection resources of every VM, which would run several queries per VM.
+     */
+    private void addInlineDetails(Set<String> details,
+            List<VM> vms,
+            List<org.ovirt.engine.core.common.businessentities.VM> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        List<Guid> ids = Entities.getIds(entities);
+        if (details.contains("disks")) {
+            Map<Guid, List<org.ovirt.engine.core.common.businessentities.storage.Disk>> disks =
+                    getBackendCollectionsByIds(VdcQueryType.GetAllDisksByVmIds, ids);
+            for (int i = 0; i < entities.size(); i++) {
+                Guid vmId = entities.get(i).getId();
+                BackendVmDisksResource disksResource = inject(new BackendVmDisksResource(vmId,
+                        VdcQueryType.GetAllDisksByVmId,
+                        new IdQueryParameters(vmId)));
+                vms.get(i).setDisks(disksResource.mapCollection(disks.get(vmId)));
+            }
+        }
+        if (details.contains("nics")) {
+            Map<Guid, List<VmNetworkInterface>> nics = getBackendCollectionsByIds(VdcQueryType.GetVmInterfacesByVmIds, ids);
+            Map<Guid, List<VmGuestAgentInterface>> guestAgentInterfaces =
+                    getBackendCollectionsByIds(VdcQueryType.GetVmGuestAgentInterfacesByVmIds, ids);
+            Map<Guid, List<Network>> clusterNetworks = new HashMap<>();
+            for (int i = 0; i < entities.size(); i++) {
+                Guid vmId = entities.get(i).getId();
+                Guid clusterId = entities.get(i).getVdsGroupId();
+                if (!clusterNetworks.containsKey(clusterId)) {
+                    clusterNetworks.put(clusterId, getBackendCollection(Network.class,
+                            VdcQueryType.GetAllNetworksByClusterId,
+                            new IdQueryParameters(clusterId)));
+                }
+                BackendVmNicsResource nicsResource = inject(new BackendVmNicsResource(vmId));
+                nicsResource.setGuestAgentInterfaces(guestAgentInterfaces.get(vmId));
+                vms.get(i).setNics(nicsResource.mapCollection(nics.get(vmId), clusterId, clusterNetworks.get(clusterId)));
+            }
+        }
+        if (details.contains("tags")) {
+            Map<Guid, List<org.ovirt.engine.core.common.businessentities.Tags>> tags =
+                    getBackendCollectionsByIds(VdcQueryType.GetTagsByVmIds, ids);
+            for (int i = 0; i < entities.size(); i++) {
+                Guid vmId = entities.get(i).getId();
+                BackendVmTagsResource tagsResource = inject(new BackendVmTagsResource(vmId.toString()));
+                vms.get(i).setTags(tagsResource.mapCollection(tags.get(vmId)));
+            }
+        }
+        if (details.contains("statistics")) {
+            for (int i = 0; i < entities.size(); i++) {
+                addInlineStatistics(vms.get(i), entities.get(i));
+            }
+        }
+    }
+
+    private void addInlineStatistics(VM model, org.ovirt.engine.core.common.businessentities.VM entity) {
+        model.setStatistics(new Statistics());
+        VmStatisticalQuery query = new VmStatisticalQuery(newModel(model.getId()));
+        List<Statistic> statistics = query.getStatistics(entity);
+        for (Statistic statistic : statistics) {
+            LinkHelper.addLinks(uriInfo, statistic, query.getParentType());
+        }
+        model.getStatistics().getStatistics().addAll(statistics);
+    }
+
     private void addInlineStatistics(VM vm) {
         EntityIdResolver<Guid> resolver = new QueryIdResolver<Guid>(VdcQueryType.GetVmByVmId, IdQueryParameters.class);
         VmStatisticalQuery query = new VmStatisticalQuery(resolver, newModel(vm.getId()));
@@ -566,11 +637,16 @@ public class BackendVmsResource extends
 
         VMs collection = new VMs();
         if (includeData) {
+            List<VM> vms = new ArrayList<>(entities.size());
             for (org.ovirt.engine.core.common.businessentities.VM entity : entities) {
                 VM vm = map(entity);
                 DisplayHelper.adjustDisplayData(this, vm);
                 removeRestrictedInfo(vm);
-                collection.getVMs().add(addLinks(populate(vm, entity)));
+                vms.add(vm);
+            }
+            addInlineDetails(details, vms, entities);
+            for (int i = 0; i < entities.size(); i++) {
+                collection.getVMs().add(addLinks(populate(vms.get(i), entities.get(i))));
             }
         }
         if (includeSize) {
@@ -709,7 +785,7 @@ public class BackendVmsResource extends
     protected VM deprecatedPopulate(VM model, org.ovirt.engine.core.common.businessentities.VM entity) {
         Set<String> details = DetailHelper.getDetails(httpHeaders, uriInfo);
         model = addInlineDetails(details, model);
-        if (details.contains("statistics")) {
+        if (details.contains("statistics") && !model.isSetStatistics()) {
             addInlineStatistics(model);
         }
         return model;
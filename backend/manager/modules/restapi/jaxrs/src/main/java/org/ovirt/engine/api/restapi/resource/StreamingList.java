@@ -0,0 +1,139 @@
+package org.ovirt.engine.api.restapi.resource;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A list of models that is filled while it is being iterated: the entities are loaded from the backend one page at a
+ * time, and each entity is mapped only when the iteration reaches it. When it is used as the content of a collection,
+ * the message body writers write every model to the response as soon as it is mapped, so only a page of entities is
+ * held in memory instead of the entities and the models of the whole collection.
+ *
+ * The list is meant to be iterated, each iteration loads the pages again. Its size isn't known in advance, so the
+ * first call to {@link #size()} or {@link #get(int)} loads all the models and keeps them, and the list is backed by
+ * them from then on, without querying the backend again.
+ *
+ * @param <R> the model type
+ * @param <Q> the entity type
+ */
+public abstract class StreamingList<R, Q> extends AbstractList<R> {
+
+    private final int pageSize;
+    private final int limit;
+    private List<Q> firstPage;
+    private List<R> models;
+
+    /**
+     * @param pageSize the number of entities loaded by each page
+     * @param limit the maximum number of models to return, a negative value means no limit
+     */
+    protected StreamingList(int pageSize, int limit) {
+        this.pageSize = pageSize;
+        this.limit = limit;
+    }
+
+    /**
+     * Loads the page that follows the given entity.
+     *
+     * @param last the last entity of the previous page, null for the first page
+     * @param pageSize the maximum number of entities to return
+     * @return the entities of the page, a page smaller than the page size is the last one
+     */
+    protected abstract List<Q> loadPage(Q last, int pageSize);
+
+    /**
+     * Maps the given entity to the model returned by the list.
+     */
+    protected abstract R map(Q entity);
+
+    @Override
+    public Iterator<R> iterator() {
+        if (models != null) {
+            return Collections.unmodifiableList(models).iterator();
+        }
+        return new PageIterator();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (models != null) {
+            return models.isEmpty();
+        }
+        return getFirstPage().isEmpty() || limit == 0;
+    }
+
+    @Override
+    public int size() {
+        return getModels().size();
+    }
+
+    @Override
+    public R get(int index) {
+        return getModels().get(index);
+    }
+
+    private List<R> getModels() {
+        if (models == null) {
+            List<R> loaded = new ArrayList<>();
+            for (Iterator<R> iterator = new PageIterator(); iterator.hasNext();) {
+                loaded.add(iterator.next());
+            }
+            models = loaded;
+            firstPage = null;
+        }
+        return models;
+    }
+
+    /**
+     * The first page is kept, so checking whether the list is empty doesn't load it again when it's iterated.
+     */
+    private List<Q> getFirstPage() {
+        if (firstPage == null) {
+            firstPage = nullToEmpty(loadPage(null, pageSize));
+        }
+        return firstPage;
+    }
+
+    private static <Q> List<Q> nullToEmpty(List<Q> page) {
+        return page != null ? page : Collections.<Q> emptyList();
+    }
+
+    private class PageIterator implements Iterator<R> {
+
+        private List<Q> page;
+        private int index;
+        private int returned;
+
+        @Override
+        public boolean hasNext() {
+            if (limit >= 0 && returned >= limit) {
+                return false;
+            }
+            if (page == null) {
+                page = getFirstPage();
+            } else if (index == page.size() && page.size() >= pageSize) {
+                page = nullToEmpty(loadPage(page.get(page.size() - 1), pageSize));
+                index = 0;
+            }
+            return index < page.size();
+        }
+
+        @Override
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            returned++;
+            return map(page.get(index++));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
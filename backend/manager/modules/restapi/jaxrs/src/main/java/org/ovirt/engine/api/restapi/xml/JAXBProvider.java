@@ -197,8 +197,12 @@ public class JAXBProvider implements MessageBodyReader<Object>, MessageBodyWrite
     public void writeTo(Object object, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
             MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
             throws IOException, WebApplicationException {
-        // Find the factory method used to create the JAXB element with the right tag:
-        Method factoryMethod = factoryMethods.get(type);
+        // Find the factory method used to create the JAXB element with the right tag, looking also at the super
+        // classes, as streamed collections are subclasses of the model classes:
+        Method factoryMethod = null;
+        for (Class<?> current = type; factoryMethod == null && current != null; current = current.getSuperclass()) {
+            factoryMethod = factoryMethods.get(current);
+        }
         if (factoryMethod == null) {
             throw new IOException("Can't find factory method for type \"" + type.getName() + "\".");
         }
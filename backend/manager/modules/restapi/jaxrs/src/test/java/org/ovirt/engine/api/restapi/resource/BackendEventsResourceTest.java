@@ -2,9 +2,13 @@ package org.ovirt.engine.api.restapi.resource;
 
 import static org.easymock.EasyMock.expect;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
@@ -97,6 +101,43 @@ public class BackendEventsResourceTest extends AbstractBackendCollectionResource
         verifyCollection(getCollection());
     }
 
+    @Test
+    public void testListStreaming() throws Exception {
+        UriInfo uriInfo = setUpUriExpectations(null);
+        setUpStreamingExpectations(uriInfo);
+
+        setUpQueryExpectations("");
+        collection.setUriInfo(uriInfo);
+        List<Event> events = getCollection();
+        assertFalse(events instanceof ArrayList);
+        verifyCollection(events);
+    }
+
+    @Test
+    public void testListStreamingSorted() throws Exception {
+        String query = "sortby time asc";
+        UriInfo uriInfo = setUpBasicUriExpectations();
+        MultivaluedMap<String, String> queries = new SimpleMultivaluedMap<>();
+        queries.putSingle("search", query);
+        expect(uriInfo.getQueryParameters()).andReturn(queries).anyTimes();
+        setUpStreamingExpectations(uriInfo);
+
+        setUpQueryExpectations(query);
+        collection.setUriInfo(uriInfo);
+        List<Event> events = getCollection();
+        // Listed as usual, as the streamed pages follow the order of the ids
+        assertTrue(events instanceof ArrayList);
+        verifyCollection(events);
+    }
+
+    private void setUpStreamingExpectations(UriInfo uriInfo) {
+        MultivaluedMap<String, String> matrixParams = new SimpleMultivaluedMap<>();
+        matrixParams.putSingle("stream", "true");
+        PathSegment segment = control.createMock(PathSegment.class);
+        expect(segment.getMatrixParameters()).andReturn(matrixParams).anyTimes();
+        expect(uriInfo.getPathSegments()).andReturn(Arrays.asList(segment)).anyTimes();
+    }
+
     @Test
     public void testUndelete() throws Exception {
 
@@ -6,6 +6,7 @@ import static org.easymock.EasyMock.expect;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,7 @@ import org.ovirt.engine.core.common.businessentities.GraphicsDevice;
 import org.ovirt.engine.core.common.businessentities.GraphicsInfo;
 import org.ovirt.engine.core.common.businessentities.GraphicsType;
 import org.ovirt.engine.core.common.businessentities.OriginType;
+import org.ovirt.engine.core.common.businessentities.Tags;
 import org.ovirt.engine.core.common.businessentities.VDS;
 import org.ovirt.engine.core.common.businessentities.VDSGroup;
 import org.ovirt.engine.core.common.businessentities.VdsStatic;
@@ -100,24 +102,6 @@ public class BackendVmsResourceTest
             accepts.add("application/xml; detail=statistics");
             UriInfo uriInfo = setUpUriExpectations(null);
 
-            org.ovirt.engine.core.common.businessentities.VM vm = new org.ovirt.engine.core.common.businessentities.VM();
-            VmStatistics vmStatistics = new VmStatistics();
-            vmStatistics.setcpu_sys(0D);
-            vmStatistics.setcpu_user(0D);
-            vmStatistics.setelapsed_time(0D);
-            vmStatistics.setRoundedElapsedTime(0D);
-            vmStatistics.setusage_cpu_percent(0);
-            vmStatistics.setusage_mem_percent(0);
-            vmStatistics.setusage_network_percent(0);
-            vm.setStatisticsData(vmStatistics);
-            vm.setMigrationProgressPercent(50);
-            for (int i=0; i<GUIDS.length-1; i++) {
-                setUpGetEntityExpectations(VdcQueryType.GetVmByVmId,
-                        IdQueryParameters.class,
-                        new String[] { "Id" },
-                        new Object[] { GUIDS[i] },
-                        vm);
-            }
             setUpGetGraphicsExpectations(3);
             setUpQueryExpectations("");
             collection.setUriInfo(uriInfo);
@@ -129,6 +113,33 @@ public class BackendVmsResourceTest
         }
     }
 
+    @Test
+    public void testListIncludeTags() throws Exception {
+        try {
+            accepts.add("application/xml; detail=tags");
+            UriInfo uriInfo = setUpUriExpectations(null);
+
+            Map<Guid, List<Tags>> tags = new HashMap<>();
+            tags.put(GUIDS[0], Collections.singletonList(new Tags(DESCRIPTIONS[1], null, false, GUIDS[1], NAMES[1])));
+            setUpEntityQueryExpectations(VdcQueryType.GetTagsByVmIds,
+                    IdsQueryParameters.class,
+                    new String[] {},
+                    new Object[] {},
+                    tags);
+            setUpGetGraphicsExpectations(3);
+            setUpQueryExpectations("");
+            collection.setUriInfo(uriInfo);
+            List<VM> vms = getCollection();
+            assertEquals(1, vms.get(0).getTags().getTags().size());
+            assertEquals(GUIDS[1].toString(), vms.get(0).getTags().getTags().get(0).getId());
+            assertTrue(vms.get(1).isSetTags());
+            assertTrue(vms.get(1).getTags().getTags().isEmpty());
+            verifyCollection(vms);
+        } finally {
+            accepts.clear();
+        }
+    }
+
     @Test
     public void testAddAsyncPending() throws Exception {
         doTestAddAsync(AsyncTaskStatusEnum.init, CreationStatus.PENDING);
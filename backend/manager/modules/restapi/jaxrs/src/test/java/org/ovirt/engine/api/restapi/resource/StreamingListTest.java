@@ -0,0 +1,76 @@
+package org.ovirt.engine.api.restapi.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StreamingListTest {
+
+    private static final List<Integer> ENTITIES = Arrays.asList(5, 4, 3, 2, 1);
+
+    @Test
+    public void testIteratesAllPages() {
+        TestStreamingList list = new TestStreamingList(2, -1);
+        assertEquals(Arrays.asList("5", "4", "3", "2", "1"), copy(list));
+        assertEquals(3, list.loadedPages);
+    }
+
+    @Test
+    public void testLimit() {
+        TestStreamingList list = new TestStreamingList(2, 3);
+        assertEquals(Arrays.asList("5", "4", "3"), copy(list));
+        assertEquals(2, list.loadedPages);
+    }
+
+    @Test
+    public void testSizeAndGetLoadPagesOnce() {
+        TestStreamingList list = new TestStreamingList(2, -1);
+        assertEquals(5, list.size());
+        assertEquals("3", list.get(2));
+        assertEquals(5, list.size());
+        assertFalse(list.isEmpty());
+        assertEquals(Arrays.asList("5", "4", "3", "2", "1"), copy(list));
+        assertEquals(3, list.loadedPages);
+    }
+
+    private static List<String> copy(List<String> list) {
+        List<String> copy = new ArrayList<>();
+        for (String model : list) {
+            copy.add(model);
+        }
+        return copy;
+    }
+
+    /**
+     * Pages through the entities by their descending value
+     */
+    private static class TestStreamingList extends StreamingList<String, Integer> {
+        private int loadedPages;
+
+        public TestStreamingList(int pageSize, int limit) {
+            super(pageSize, limit);
+        }
+
+        @Override
+        protected List<Integer> loadPage(Integer last, int pageSize) {
+            loadedPages++;
+            List<Integer> page = new ArrayList<>();
+            for (Integer entity : ENTITIES) {
+                if ((last == null || entity < last) && page.size() < pageSize) {
+                    page.add(entity);
+                }
+            }
+            return page;
+        }
+
+        @Override
+        protected String map(Integer entity) {
+            return String.valueOf(entity);
+        }
+    }
+}
@@ -59,7 +59,7 @@ public class JobWrapper implements Job {
         }
     }
 
-    private void invokeMethod(final Object instance, final Method methodToRun, final Object[] methodParams)
+    static void invokeMethod(final Object instance, final Method methodToRun, final Object[] methodParams)
             throws Exception, IllegalAccessException, InvocationTargetException {
         OnTimerMethodAnnotation annotation = methodToRun.getAnnotation(OnTimerMethodAnnotation.class);
         if (annotation.transactional()) {
@@ -97,7 +97,7 @@ public class JobWrapper implements Job {
      *            annotation
      * @return the Method to run
      */
-    private Method getMethodToRun(Object instance, String methodId) {
+    static Method getMethodToRun(Object instance, String methodId) {
         Method methodToRun = null;
         Method[] methods = instance.getClass().getMethods();
         for (Method method : methods) {
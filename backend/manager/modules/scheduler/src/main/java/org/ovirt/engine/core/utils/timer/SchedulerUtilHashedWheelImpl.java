@@ -0,0 +1,580 @@
+package org.ovirt.engine.core.utils.timer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory scheduler for the frequent non persistent jobs, like the periodic refresh of every host and its VMs.
+ * The due times of the jobs are kept in a hashed timer wheel advanced by a single thread, which hands the due jobs to
+ * the {@link ThreadPoolType#SCHEDULED_JOBS} pool. Scheduling, cancelling and expiring a job take constant time however
+ * many jobs are scheduled.
+ * <p>
+ * The first run of a fixed delay job is delayed by a random part of its delay, so the jobs scheduled together, like
+ * the refresh of all the hosts when the engine starts, are spread over the delay instead of running at once. The time
+ * each job runs after it was due is recorded, and exposed by JMX.
+ * <p>
+ * Jobs given as a {@link Runnable} are run directly. Jobs given as an instance and the value of the
+ * {@link OnTimerMethodAnnotation} of one of its methods are looked up once, when scheduled. It only supports fixed
+ * delay and one time jobs, so it isn't a {@link SchedulerUtil}: cron jobs, configurable delays and Quartz triggers are
+ * to be scheduled by {@link SchedulerUtilQuartzImpl}.
+ */
+@Singleton
+public class SchedulerUtilHashedWheelImpl implements SchedulerUtilHashedWheelMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulerUtilHashedWheelImpl.class);
+    private static final long TICK_DURATION_MS = 100;
+    private static final int WHEEL_SIZE = 512;
+
+    private final ConcurrentMap<String, ScheduledJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequenceNumber = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong rejectedExecutions = new AtomicLong();
+
+    private List<Queue<Timeout>> wheel;
+    private Executor executor;
+    private long tickDurationMs;
+    private long startTime;
+    private volatile boolean running;
+    private Thread workerThread;
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
+    /**
+     * A scheduled job and its run statistics
+     */
+    private static class ScheduledJob {
+        private final String id;
+        private final Runnable task;
+        private final long delayMs;
+        private final boolean periodic;
+
+        // Every scheduling of the job gets a new generation, the timeouts of former generations are skipped
+        private volatile int generation;
+        private boolean cancelled;
+        private boolean paused;
+        private boolean parked;
+
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong totalLatenessMs = new AtomicLong();
+        private final AtomicLong maxLatenessMs = new AtomicLong();
+
+        public ScheduledJob(String id, Runnable task, long delayMs, boolean periodic) {
+            this.id = id;
+            this.task = task;
+            this.delayMs = delayMs;
+            this.periodic = periodic;
+        }
+
+        public void recordLateness(long latenessMs) {
+            executions.incrementAndGet();
+            totalLatenessMs.addAndGet(latenessMs);
+            long max = maxLatenessMs.get();
+            while (latenessMs > max && !maxLatenessMs.compareAndSet(max, latenessMs)) {
+                max = maxLatenessMs.get();
+            }
+        }
+
+        public void resetStatistics() {
+            executions.set(0);
+            totalLatenessMs.set(0);
+            maxLatenessMs.set(0);
+        }
+    }
+
+    /**
+     * A due time of a job in the wheel
+     */
+    private static class Timeout {
+        private final ScheduledJob job;
+        private final int generation;
+        private final long deadline;
+        private long remainingRounds;
+
+        public Timeout(ScheduledJob job, int generation, long deadline) {
+            this.job = job;
+            this.generation = generation;
+            this.deadline = deadline;
+        }
+
+        public boolean isStale() {
+            return generation != job.generation;
+        }
+    }
+
+    /**
+     * Runs the method of the instance with the given {@link OnTimerMethodAnnotation} value
+     */
+    private static class MethodInvoker implements Runnable {
+        private final Object instance;
+        private final Method method;
+        private final Object[] inputParams;
+
+        public MethodInvoker(Object instance, String methodName, Object[] inputParams) {
+            this.instance = instance;
+            this.method = JobWrapper.getMethodToRun(instance, methodName);
+            this.inputParams = inputParams;
+            if (method == null) {
+                throw new IllegalArgumentException(String.format("No method '%s' to schedule on '%s'",
+                        methodName,
+                        instance.getClass().getName()));
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                JobWrapper.invokeMethod(instance, method, inputParams);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Starts the scheduler.
+     */
+    @PostConstruct
+    public void create() {
+        start(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                ThreadPoolUtil.execute(ThreadPoolType.SCHEDULED_JOBS, command);
+            }
+        }, TICK_DURATION_MS);
+        registerInJMX();
+    }
+
+    void start(Executor executor, long tickDurationMs) {
+        this.executor = executor;
+        this.tickDurationMs = tickDurationMs;
+        wheel = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayDeque<Timeout>());
+        }
+        startTime = System.currentTimeMillis();
+        running = true;
+        workerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                advanceWheel();
+            }
+        }, "SchedulerUtilHashedWheel");
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+    /**
+     * Stops the scheduler and drops all the jobs. The scheduler cannot be re-started.
+     */
+    @PreDestroy
+    public void shutDown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        workerThread.interrupt();
+        try {
+            workerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        jobs.clear();
+        unregisterFromJMX();
+    }
+
+    /**
+     * Schedules a fixed-delay job to run the given task.
+     *
+     * @param jobName
+     *            - the name of the job, the prefix of its id
+     * @param task
+     *            - the task to run
+     * @param initialDelay
+     *            - the initial delay before the first activation, to which a random part of taskDelay is added
+     * @param taskDelay
+     *            - the delay between the end of a run and the start of the next one
+     * @param timeUnit
+     *            - the unit of time used for initialDelay and taskDelay.
+     * @return the scheduled job id
+     */
+    public String scheduleAFixedDelayJob(String jobName,
+            Runnable task,
+            long initialDelay,
+            long taskDelay,
+            TimeUnit timeUnit) {
+        return scheduleJob(jobName, task, initialDelay, taskDelay, timeUnit, true);
+    }
+
+    /**
+     * Schedules a one time job to run the given task.
+     *
+     * @param jobName
+     *            - the name of the job, the prefix of its id
+     * @param task
+     *            - the task to run
+     * @param initialDelay
+     *            - the delay before the job activation
+     * @param timeUnit
+     *            - the unit of time used for initialDelay.
+     * @return the scheduled job id
+     */
+    public String scheduleAOneTimeJob(String jobName, Runnable task, long initialDelay, TimeUnit timeUnit) {
+        return scheduleJob(jobName, task, initialDelay, 0, timeUnit, false);
+    }
+
+    /**
+     * Schedules a fixed-delay job to run the method of the given instance with the given
+     * {@link OnTimerMethodAnnotation} value.
+     *
+     * @param instance
+     *            - the instance to activate a method on upon timeout
+     * @param methodName
+     *            - the {@link OnTimerMethodAnnotation} value of the method to activate on the instance
+     * @param inputTypes
+     *            - the method input types
+     * @param inputParams
+     *            - the method input parameters
+     * @param initialDelay
+     *            - the initial delay before the first activation, to which a random part of taskDelay is added
+     * @param taskDelay
+     *            - the delay between the end of a run and the start of the next one
+     * @param timeUnit
+     *            - the unit of time used for initialDelay and taskDelay.
+     * @return the scheduled job id
+     */
+    public String scheduleAFixedDelayJob(Object instance,
+            String methodName,
+            Class<?>[] inputTypes,
+            Object[] inputParams,
+            long initialDelay,
+            long taskDelay,
+            TimeUnit timeUnit) {
+        return scheduleJob(getJobName(instance, methodName),
+                new MethodInvoker(instance, methodName, inputParams),
+                initialDelay,
+                taskDelay,
+                timeUnit,
+                true);
+    }
+
+    /**
+     * Schedules a one time job to run the method of the given instance with the given
+     * {@link OnTimerMethodAnnotation} value.
+     *
+     * @param instance
+     *            - the instance to activate the method on timeout
+     * @param methodName
+     *            - the {@link OnTimerMethodAnnotation} value of the method to activate on the instance
+     * @param inputTypes
+     *            - the method input types
+     * @param inputParams
+     *            - the method input parameters
+     * @param initialDelay
+     *            - the delay before the job activation
+     * @param timeUnit
+     *            - the unit of time used for initialDelay.
+     * @return the scheduled job id
+     */
+    public String scheduleAOneTimeJob(Object instance,
+            String methodName,
+            Class<?>[] inputTypes,
+            Object[] inputParams,
+            long initialDelay,
+            TimeUnit timeUnit) {
+        return scheduleJob(getJobName(instance, methodName),
+                new MethodInvoker(instance, methodName, inputParams),
+                initialDelay,
+                0,
+                timeUnit,
+                false);
+    }
+
+    private static String getJobName(Object instance, String methodName) {
+        return instance.getClass().getName() + "." + methodName;
+    }
+
+    private String scheduleJob(String jobName,
+            Runnable task,
+            long initialDelay,
+            long taskDelay,
+            TimeUnit timeUnit,
+            boolean periodic) {
+        String jobId = jobName + "#" + sequenceNumber.incrementAndGet();
+        ScheduledJob job = new ScheduledJob(jobId, task, timeUnit.toMillis(taskDelay), periodic);
+        long delayMs = timeUnit.toMillis(initialDelay);
+        if (periodic) {
+            long jitterMs = job.delayMs;
+            delayMs += jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs) : 0;
+        }
+        jobs.put(jobId, job);
+        schedule(job, System.currentTimeMillis() + delayMs);
+        return jobId;
+    }
+
+    private void schedule(ScheduledJob job, long deadline) {
+        Timeout timeout;
+        synchronized (job) {
+            if (job.cancelled) {
+                return;
+            }
+            job.generation++;
+            timeout = new Timeout(job, job.generation, deadline);
+        }
+        pendingTimeouts.add(timeout);
+    }
+
+    private void advanceWheel() {
+        long tick = 0;
+        while (running) {
+            long sleepMs = startTime + (tick + 1) * tickDurationMs - System.currentTimeMillis();
+            if (sleepMs > 0) {
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            transferPendingTimeouts(tick);
+            expireTimeouts(wheel.get((int) (tick % WHEEL_SIZE)));
+            tick++;
+        }
+    }
+
+    /**
+     * Puts the newly scheduled timeouts in the bucket of the tick they are due on, or of the current tick if they are
+     * already due. Only the wheel thread accesses the buckets.
+     */
+    private void transferPendingTimeouts(long currentTick) {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isStale()) {
+                continue;
+            }
+            // The bucket of a tick is expired once the tick ends
+            long dueTick = (timeout.deadline - startTime + tickDurationMs - 1) / tickDurationMs - 1;
+            dueTick = Math.max(dueTick, currentTick);
+            timeout.remainingRounds = (dueTick - currentTick) / WHEEL_SIZE;
+            wheel.get((int) (dueTick % WHEEL_SIZE)).add(timeout);
+        }
+    }
+
+    private void expireTimeouts(Queue<Timeout> bucket) {
+        for (int i = bucket.size(); i > 0; i--) {
+            Timeout timeout = bucket.poll();
+            if (timeout.isStale()) {
+                continue;
+            }
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.add(timeout);
+            } else {
+                dispatch(timeout.job, timeout.deadline);
+            }
+        }
+    }
+
+    private void dispatch(final ScheduledJob job, final long deadline) {
+        synchronized (job) {
+            if (job.paused) {
+                // Runs once the job is resumed
+                job.parked = true;
+                return;
+            }
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runJob(job, deadline);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedExecutions.incrementAndGet();
+            log.warn("Scheduled job '{}' was rejected, all the threads are busy", job.id);
+            rescheduleOrRemove(job);
+        }
+    }
+
+    private void runJob(ScheduledJob job, long deadline) {
+        executions.incrementAndGet();
+        job.recordLateness(Math.max(0, System.currentTimeMillis() - deadline));
+        try {
+            job.task.run();
+        } catch (Throwable t) {
+            log.error("Failed to invoke scheduled job '{}': {}", job.id, t.getMessage());
+            log.debug("Exception", t);
+        } finally {
+            rescheduleOrRemove(job);
+        }
+    }
+
+    private void rescheduleOrRemove(ScheduledJob job) {
+        if (!job.periodic) {
+            jobs.remove(job.id, job);
+        } else if (jobs.get(job.id) == job) {
+            schedule(job, System.currentTimeMillis() + job.delayMs);
+        }
+    }
+
+    /**
+     * Pauses the job with the given jobId. A run which becomes due while the job is paused is run once it's resumed.
+     *
+     * @param jobId
+     *            - the id of the job to be paused
+     */
+    public void pauseJob(String jobId) {
+        ScheduledJob job = jobs.get(jobId);
+        if (job != null) {
+            synchronized (job) {
+                job.paused = true;
+            }
+        }
+    }
+
+    /**
+     * Resumes the job with the given jobId.
+     *
+     * @param jobId
+     *            - the id of the job to be resumed
+     */
+    public void resumeJob(String jobId) {
+        ScheduledJob job = jobs.get(jobId);
+        if (job != null) {
+            boolean due;
+            synchronized (job) {
+                job.paused = false;
+                due = job.parked;
+                job.parked = false;
+            }
+            if (due) {
+                schedule(job, System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Deletes the job with the given jobId. A run already in progress isn't interrupted, but the job isn't run again.
+     *
+     * @param jobId
+     *            - the id of the job to delete
+     */
+    public void deleteJob(String jobId) {
+        ScheduledJob job = jobs.remove(jobId);
+        if (job != null) {
+            synchronized (job) {
+                job.cancelled = true;
+                job.generation++;
+            }
+        }
+    }
+
+    /**
+     * Runs the job with the given jobId now.
+     *
+     * @param jobId
+     *            - the id of the job to be triggered
+     */
+    public void triggerJob(String jobId) {
+        ScheduledJob job = jobs.get(jobId);
+        if (job != null) {
+            schedule(job, System.currentTimeMillis());
+        } else {
+            log.error("failed to trigger a job with id={}, job does not exist", jobId);
+        }
+    }
+
+    private void registerInJMX() {
+        try {
+            objectName = new ObjectName("SchedulerUtilHashedWheel:type=" + this.getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Failed to register the scheduler monitoring in JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    private void unregisterFromJMX() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            platformMBeanServer.unregisterMBean(objectName);
+        } catch (Exception e) {
+            log.warn("Failed to unregister the scheduler monitoring from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @Override
+    public int getScheduledJobs() {
+        return jobs.size();
+    }
+
+    @Override
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    @Override
+    public long getRejectedExecutions() {
+        return rejectedExecutions.get();
+    }
+
+    @Override
+    public Map<String, Long> getAverageLatenessInMs() {
+        Map<String, Long> lateness = new HashMap<>();
+        for (ScheduledJob job : jobs.values()) {
+            long jobExecutions = job.executions.get();
+            lateness.put(job.id, jobExecutions == 0 ? 0 : job.totalLatenessMs.get() / jobExecutions);
+        }
+        return lateness;
+    }
+
+    @Override
+    public Map<String, Long> getMaxLatenessInMs() {
+        Map<String, Long> lateness = new HashMap<>();
+        for (ScheduledJob job : jobs.values()) {
+            lateness.put(job.id, job.maxLatenessMs.get());
+        }
+        return lateness;
+    }
+
+    @Override
+    public void reset() {
+        executions.set(0);
+        rejectedExecutions.set(0);
+        for (ScheduledJob job : jobs.values()) {
+            job.resetStatistics();
+        }
+    }
+}
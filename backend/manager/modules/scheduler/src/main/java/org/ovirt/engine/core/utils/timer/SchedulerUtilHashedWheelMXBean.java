@@ -0,0 +1,40 @@
+package org.ovirt.engine.core.utils.timer;
+
+import java.util.Map;
+
+/**
+ * The following interface is used as interface for JMX bean
+ */
+public interface SchedulerUtilHashedWheelMXBean {
+
+    /**
+     * @return the number of scheduled jobs
+     */
+    int getScheduledJobs();
+
+    /**
+     * @return the number of job runs
+     */
+    long getExecutions();
+
+    /**
+     * @return the number of job runs rejected because all the threads of the scheduled jobs pool were busy and its
+     * queue was full
+     */
+    long getRejectedExecutions();
+
+    /**
+     * @return the average time in milliseconds between the time each job was due and the time it ran, by job id
+     */
+    Map<String, Long> getAverageLatenessInMs();
+
+    /**
+     * @return the maximal time in milliseconds between the time each job was due and the time it ran, by job id
+     */
+    Map<String, Long> getMaxLatenessInMs();
+
+    /**
+     * The following method will allow to reset the counters via JMX console
+     */
+    void reset();
+}
@@ -0,0 +1,158 @@
+package org.ovirt.engine.core.utils.timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchedulerUtilHashedWheelImplTest {
+
+    private static final long TICK_DURATION_MS = 10;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private SchedulerUtilHashedWheelImpl scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new SchedulerUtilHashedWheelImpl();
+        scheduler.start(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, TICK_DURATION_MS);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutDown();
+    }
+
+    @Test
+    public void testOneTimeJobRunsOnce() throws Exception {
+        CountingTask task = new CountingTask(1);
+        scheduler.scheduleAOneTimeJob("once", task, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(task.await());
+        Thread.sleep(10 * TICK_DURATION_MS);
+        assertEquals(1, task.getRuns());
+        assertEquals(0, scheduler.getScheduledJobs());
+    }
+
+    @Test
+    public void testFixedDelayJobRunsRepeatedly() throws Exception {
+        CountingTask task = new CountingTask(3);
+        String jobId = scheduler.scheduleAFixedDelayJob("repeated", task, 0, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(task.await());
+        assertEquals(1, scheduler.getScheduledJobs());
+        assertTrue(scheduler.getMaxLatenessInMs().containsKey(jobId));
+        scheduler.deleteJob(jobId);
+        int runs = task.getRuns();
+        Thread.sleep(10 * TICK_DURATION_MS);
+        assertEquals(runs, task.getRuns());
+        assertEquals(0, scheduler.getScheduledJobs());
+    }
+
+    @Test
+    public void testDeletedJobDoesNotRun() throws Exception {
+        CountingTask task = new CountingTask(1);
+        String jobId = scheduler.scheduleAOneTimeJob("deleted", task, 50, TimeUnit.MILLISECONDS);
+        scheduler.deleteJob(jobId);
+
+        Thread.sleep(20 * TICK_DURATION_MS);
+        assertEquals(0, task.getRuns());
+    }
+
+    @Test
+    public void testPausedJobRunsOnResume() throws Exception {
+        CountingTask task = new CountingTask(1);
+        String jobId = scheduler.scheduleAOneTimeJob("paused", task, 20, TimeUnit.MILLISECONDS);
+        scheduler.pauseJob(jobId);
+
+        Thread.sleep(20 * TICK_DURATION_MS);
+        assertEquals(0, task.getRuns());
+        scheduler.resumeJob(jobId);
+        assertTrue(task.await());
+    }
+
+    @Test
+    public void testAnnotatedMethodIsInvoked() throws Exception {
+        MessageJob job = new MessageJob();
+        scheduler.scheduleAOneTimeJob(job,
+                "onTimer",
+                new Class[] { String.class },
+                new Object[] { "msg1" },
+                10,
+                TimeUnit.MILLISECONDS);
+
+        assertTrue(job.received.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("msg1", job.messages.get(0));
+    }
+
+    @Test
+    public void testRejectedRunIsRescheduled() throws Exception {
+        scheduler.shutDown();
+        final AtomicBoolean rejected = new AtomicBoolean();
+        scheduler = new SchedulerUtilHashedWheelImpl();
+        scheduler.start(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (rejected.compareAndSet(false, true)) {
+                    throw new RejectedExecutionException();
+                }
+                command.run();
+            }
+        }, TICK_DURATION_MS);
+        CountingTask task = new CountingTask(1);
+        scheduler.scheduleAFixedDelayJob("rejected", task, 0, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(task.await());
+        assertEquals(1, scheduler.getRejectedExecutions());
+    }
+
+    private static class CountingTask implements Runnable {
+        private final AtomicInteger runs = new AtomicInteger();
+        private final CountDownLatch latch;
+
+        public CountingTask(int expectedRuns) {
+            latch = new CountDownLatch(expectedRuns);
+        }
+
+        @Override
+        public void run() {
+            runs.incrementAndGet();
+            latch.countDown();
+        }
+
+        public boolean await() throws InterruptedException {
+            return latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        public int getRuns() {
+            return runs.get();
+        }
+    }
+
+    public static class MessageJob {
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch received = new CountDownLatch(1);
+
+        @OnTimerMethodAnnotation("onTimer")
+        public void onTimer(String message) {
+            messages.add(message);
+            received.countDown();
+        }
+    }
+}
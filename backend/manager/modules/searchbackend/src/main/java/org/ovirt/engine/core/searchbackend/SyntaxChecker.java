@@ -930,6 +930,9 @@ public class SyntaxChecker implements ISyntaxChecker {
             if (syntax.getSearchFrom() > 0) {
                 inQuery = StringFormat.format("%1$s and  %2$s >  %3$s", inQuery, primeryKey, syntax.getSearchFrom());
             }
+            if (syntax.getSearchBefore() > 0) {
+                inQuery = StringFormat.format("%1$s and  %2$s <  %3$s", inQuery, primeryKey, syntax.getSearchBefore());
+            }
             retval =
                     StringFormat.format(Config.<String> getValue(ConfigValues.DBSearchTemplate),
                             sortExpr.toString(),
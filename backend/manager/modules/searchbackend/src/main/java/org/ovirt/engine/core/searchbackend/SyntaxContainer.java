@@ -18,6 +18,7 @@ public class SyntaxContainer implements Iterable<SyntaxObject> {
     private final int[] errorPos = new int[2];
     private int privateMaxCount;
     private long searchFrom = 0;
+    private long searchBefore = 0;
     private boolean caseSensitive=true;
 
     public boolean isSearchUsingTags() {
@@ -43,6 +44,14 @@ public class SyntaxContainer implements Iterable<SyntaxObject> {
         searchFrom = value;
     }
 
+    public long getSearchBefore() {
+        return searchBefore;
+    }
+
+    public void setSearchBefore(long value) {
+        searchBefore = value;
+    }
+
     public boolean getvalid() {
         return valid;
     }
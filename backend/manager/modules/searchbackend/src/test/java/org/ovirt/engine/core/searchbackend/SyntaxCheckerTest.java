@@ -223,6 +223,17 @@ public class SyntaxCheckerTest {
                 "SELECT * FROM ((SELECT distinct audit_log.* FROM  audit_log   WHERE not deleted)  ORDER BY audit_log_id DESC ) as T1 OFFSET (1 -1) LIMIT 0");
     }
 
+    @Test
+    public void testEventsBefore() {
+        SyntaxChecker chkr = new SyntaxChecker(20);
+        ISyntaxChecker curSyntaxChecker = SyntaxCheckerFactory.createBackendSyntaxChecker("foo");
+        SyntaxContainer res = curSyntaxChecker.analyzeSyntaxState("Events: ", true);
+        res.setSearchBefore(100);
+        Assert.assertEquals(
+                "SELECT * FROM ((SELECT distinct audit_log.* FROM  audit_log   WHERE not deleted and  audit_log_id <  100)  ORDER BY audit_log_id DESC ) as T1 OFFSET (1 -1) LIMIT 0",
+                chkr.generateQueryFromSyntaxContainer(res, true));
+    }
+
     @Test
     public void testTemplate() {
         testValidSql("Template: ",
@@ -1,5 +1,7 @@
 package org.ovirt.engine.core.utils;
 
+import org.ovirt.engine.core.utils.serialization.json.JsonCompactObjectDeserializer;
+import org.ovirt.engine.core.utils.serialization.json.JsonCompactObjectSerializer;
 import org.ovirt.engine.core.utils.serialization.json.JsonObjectDeserializer;
 import org.ovirt.engine.core.utils.serialization.json.JsonObjectSerializer;
 
@@ -8,6 +10,8 @@ public class SerializationFactory {
 
     private static final JsonObjectSerializer serializer = new JsonObjectSerializer();
     private static final JsonObjectDeserializer deserializer = new JsonObjectDeserializer();
+    private static final JsonCompactObjectSerializer compactSerializer = new JsonCompactObjectSerializer();
+    private static final JsonCompactObjectDeserializer compactDeserializer = new JsonCompactObjectDeserializer();
 
     public static JsonObjectSerializer getSerializer() {
         return serializer;
@@ -16,4 +20,19 @@ public class SerializationFactory {
     public static JsonObjectDeserializer getDeserializer() {
         return deserializer;
     }
+
+    /**
+     * @return the serializer of the command parameters, return values and compensation snapshots
+     */
+    public static JsonCompactObjectSerializer getCompactSerializer() {
+        return compactSerializer;
+    }
+
+    /**
+     * @return the deserializer of the command parameters, return values and compensation snapshots, written either
+     * by the compact or by the formatted serializer
+     */
+    public static JsonCompactObjectDeserializer getCompactDeserializer() {
+        return compactDeserializer;
+    }
 }
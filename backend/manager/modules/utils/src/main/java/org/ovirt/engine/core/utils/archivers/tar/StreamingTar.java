@@ -0,0 +1,108 @@
+package org.ovirt.engine.core.utils.archivers.tar;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+/**
+ * Writes a tar archive of text entries straight into the given stream: an entry is encoded to UTF-8 while it's
+ * written, so neither the entry nor the archive is held as a byte array. The size of the archive can be known before
+ * it's written by using {@link #entrySize(long)} and {@link #archiveSize(long)}, as long as the entry names are shorter
+ * than 100 characters and don't need an extended header.
+ */
+public class StreamingTar implements AutoCloseable {
+    public static final int RECORD_SIZE = 512;
+    public static final int BLOCK_SIZE = 20 * RECORD_SIZE;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final TarArchiveOutputStream tarArchiveOutputStream;
+    private final Writer writer;
+
+    public StreamingTar(OutputStream outputStream) {
+        tarArchiveOutputStream = new TarArchiveOutputStream(outputStream, BLOCK_SIZE, RECORD_SIZE);
+        // The writer only encodes into the current entry, the archive is closed by close()
+        writer = new OutputStreamWriter(new FilterOutputStream(tarArchiveOutputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, UTF_8);
+    }
+
+    /**
+     * Adds an entry whose data is the UTF-8 encoding of the given content.
+     *
+     * @throws IOException
+     *             if writing to the underlying stream failed
+     */
+    public void addTarEntry(String content, String name) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(utf8Length(content));
+        tarArchiveOutputStream.putArchiveEntry(entry);
+        writer.write(content);
+        writer.flush();
+        tarArchiveOutputStream.closeArchiveEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        tarArchiveOutputStream.close();
+    }
+
+    /**
+     * @return the number of bytes an entry with the given size of data takes in the archive: its header record and its
+     *         data padded to whole records
+     */
+    public static long entrySize(long dataSize) {
+        return RECORD_SIZE + roundUp(dataSize, RECORD_SIZE);
+    }
+
+    /**
+     * @return the size of an archive whose entries take the given number of bytes: the entries and the two end of
+     *         archive records, padded to whole blocks
+     */
+    public static long archiveSize(long entriesSize) {
+        return roundUp(entriesSize + 2 * RECORD_SIZE, BLOCK_SIZE);
+    }
+
+    /**
+     * @return the number of bytes of the UTF-8 encoding of the given text, without encoding it
+     */
+    public static long utf8Length(CharSequence text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // An unpaired surrogate is encoded as the '?' replacement
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static long roundUp(long size, int unit) {
+        return (size + unit - 1) / unit * unit;
+    }
+}
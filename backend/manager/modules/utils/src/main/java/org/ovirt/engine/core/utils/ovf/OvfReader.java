@@ -54,8 +54,6 @@ import org.ovirt.engine.core.utils.ovf.xml.XmlNode;
 import org.ovirt.engine.core.utils.ovf.xml.XmlNodeList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 public abstract class OvfReader implements IOvfBuilder {
     private final static Logger log = LoggerFactory.getLogger(OvfReader.class);
@@ -1055,22 +1053,16 @@ public abstract class OvfReader implements IOvfBuilder {
     private static Map<String, Object> getMapNode(XmlNode node) {
         Map<String, Object> returnValue = new HashMap<String, Object>();
 
-        NodeList list = node.GetChildNodes();
-        for (int index = 0; index < list.getLength(); ++index) {
-            Node currNode = list.item(index);
-            short nodeType = currNode.getNodeType();
-            if (nodeType == Node.ELEMENT_NODE) {
-                NodeList childNodes = currNode.getChildNodes();
-                // If the element node has only one child, then it contains the value
-                if (childNodes.getLength() == 1) {
-                    Node valueNode = childNodes.item(0);
-                    if (valueNode.getNodeType() == Node.TEXT_NODE) {
-                        returnValue.put(currNode.getNodeName(), valueNode.getNodeValue());
-                    }
-                } else if (childNodes.getLength() > 1) {
-                    // In this case, we have a nested map, so we parse it
-                    returnValue.put(currNode.getNodeName(), getMapNode(new XmlNode(currNode)));
+        for (XmlNode currNode : node.GetChildNodes()) {
+            int childNodesCount = currNode.getChildNodesCount();
+            // If the element node has only one child, then it contains the value
+            if (childNodesCount == 1) {
+                if (currNode.hasSingleTextChild()) {
+                    returnValue.put(currNode.getName(), currNode.innerText);
                 }
+            } else if (childNodesCount > 1) {
+                // In this case, we have a nested map, so we parse it
+                returnValue.put(currNode.getName(), getMapNode(currNode));
             }
         }
 
@@ -1,14 +1,14 @@
 package org.ovirt.engine.core.utils.ovf.xml;
 
-import org.w3c.dom.Node;
+public class XmlAttribute {
 
-public class XmlAttribute extends XmlNode {
+    private String value;
 
-    public XmlAttribute(Node node) {
-        super(node);
+    public XmlAttribute(String value) {
+        this.value = value;
     }
 
     public String getValue() {
-        return node.getTextContent();
+        return value;
     }
 }
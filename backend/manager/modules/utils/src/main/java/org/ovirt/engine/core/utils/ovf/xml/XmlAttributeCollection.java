@@ -1,20 +1,19 @@
 package org.ovirt.engine.core.utils.ovf.xml;
 
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
+import java.util.Map;
 
 public class XmlAttributeCollection {
 
-    private NamedNodeMap nodesMap;
+    private Map<String, String> attributes;
 
-    public XmlAttributeCollection(NamedNodeMap nodesMap) {
-        this.nodesMap = nodesMap;
+    XmlAttributeCollection(Map<String, String> attributes) {
+        this.attributes = attributes;
     }
 
     public XmlAttribute get(String nodeName) {
-        Node temp = nodesMap.getNamedItem(nodeName);
-        if (temp != null) {
-            XmlAttribute returnValue = new XmlAttribute(temp);
+        String value = attributes.get(nodeName);
+        if (value != null) {
+            XmlAttribute returnValue = new XmlAttribute(value);
             return returnValue;
         }
         return null;
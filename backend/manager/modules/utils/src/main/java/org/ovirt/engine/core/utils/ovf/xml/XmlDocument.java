@@ -2,25 +2,21 @@ package org.ovirt.engine.core.utils.ovf.xml;
 
 import java.io.StringReader;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
-import org.ovirt.engine.core.uutils.xml.SecureDocumentBuilderFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
 
+/**
+ * A parsed OVF. The OVF is read with a single pass of a StAX reader into lightweight elements, which are queried with
+ * the subset of XPath described in {@link XmlPath}, so no DOM is built and no XPath engine is involved.
+ */
 public class XmlDocument {
 
-    private String outerXml;
-    public XmlNode[] childNodes;
+    private static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    private static final XMLInputFactory inputFactory = createInputFactory();
 
-    private Document doc;
+    private String outerXml;
+    private XmlElement root;
 
     public XmlDocument() {
     }
@@ -29,67 +25,43 @@ public class XmlDocument {
         LoadXml(xml);
     }
 
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        // CDATA sections are nodes of their own, as in the DOM, rather than text
+        if (factory.isPropertySupported(REPORT_CDATA_EVENT)) {
+            factory.setProperty(REPORT_CDATA_EVENT, true);
+        }
+        return factory;
+    }
+
     private void LoadXml(String ovfstring) throws Exception {
-        // load doc
-        DocumentBuilderFactory fact = SecureDocumentBuilderFactory.newDocumentBuilderFactory();
-        fact.setNamespaceAware(true);
-        DocumentBuilder builder = fact.newDocumentBuilder();
-        doc = builder.parse(new InputSource(new StringReader(ovfstring)));
-
-        // initialize all the child nodes
-        NodeList list = doc.getElementsByTagName("*");
-        childNodes = new XmlNode[list.getLength()];
-        for (int i = 0; i < list.getLength(); i++) {
-            childNodes[i] = new XmlNode(list.item(i));
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(ovfstring));
+        try {
+            root = XmlElement.read(reader);
+        } finally {
+            reader.close();
         }
 
         outerXml = ovfstring;
     }
 
     public XmlNode SelectSingleNode(String string) {
-        try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xPath = factory.newXPath();
-            Object o = xPath.evaluate(string, doc, XPathConstants.NODE);
-            return new XmlNode((Node) o);
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException("Failed to evaluate xpath: " + string, e);
-        }
+        return SelectSingleNode(string, null);
     }
 
     public XmlNode SelectSingleNode(String string, XmlNamespaceManager _xmlns) {
-        try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xPath = factory.newXPath();
-            xPath.setNamespaceContext(_xmlns);
-            Object o = xPath.evaluate(string, doc, XPathConstants.NODE);
-            return new XmlNode((Node) o);
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException("Failed to evaluate xpath: " + string, e);
-        }
+        return XmlNode.first(XmlPath.compile(string).select(root, null, _xmlns));
     }
 
     public XmlNodeList SelectNodes(String string) {
-        try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xPath = factory.newXPath();
-            Object o = xPath.evaluate(string, doc, XPathConstants.NODESET);
-            return new XmlNodeList((NodeList) o);
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException("Failed to evaluate xpath: " + string, e);
-        }
+        return SelectNodes(string, null);
     }
 
     public XmlNodeList SelectNodes(String string, XmlNamespaceManager _xmlns) {
-        try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xPath = factory.newXPath();
-            xPath.setNamespaceContext(_xmlns);
-            Object o = xPath.evaluate(string, doc, XPathConstants.NODESET);
-            return new XmlNodeList((NodeList) o);
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException("Failed to evaluate xpath: " + string, e);
-        }
+        return new XmlNodeList(XmlPath.compile(string).select(root, null, _xmlns));
     }
 
     public String getOuterXml() {
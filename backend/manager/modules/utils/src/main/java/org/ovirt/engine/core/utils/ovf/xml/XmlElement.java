@@ -0,0 +1,208 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * An element of a parsed OVF. The elements are built in a single pass over the events of a {@link XMLStreamReader},
+ * and keep just what the OVF readers look at: the names, the attributes and the content of the elements.
+ * <p>
+ * The content follows the child nodes of a DOM element: adjacent character data is a single text node, while CDATA
+ * sections, comments and processing instructions are nodes of their own.
+ */
+final class XmlElement {
+
+    /**
+     * A comment or a processing instruction, which count as child nodes but have no text content.
+     */
+    private static final Object OTHER_NODE = new Object();
+
+    private final XmlElement parent;
+    private final int index;
+    private final String namespaceUri;
+    private final String localName;
+    private final String name;
+    private final Map<String, String> attributes;
+    private final List<Object> content = new ArrayList<>();
+    private List<XmlElement> childElements;
+    private String textContent;
+
+    private XmlElement(XmlElement parent, int index, XMLStreamReader reader) {
+        this.parent = parent;
+        this.index = index;
+        namespaceUri = emptyToNull(reader.getNamespaceURI());
+        localName = reader.getLocalName();
+        name = qualifiedName(reader.getPrefix(), localName);
+
+        int namespaceCount = reader.getNamespaceCount();
+        int attributeCount = reader.getAttributeCount();
+        if (namespaceCount + attributeCount == 0) {
+            attributes = Collections.emptyMap();
+        } else {
+            attributes = new LinkedHashMap<>();
+            for (int i = 0; i < namespaceCount; i++) {
+                attributes.put(qualifiedName("xmlns", reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
+            }
+            for (int i = 0; i < attributeCount; i++) {
+                attributes.put(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                        reader.getAttributeValue(i));
+            }
+        }
+    }
+
+    /**
+     * Reads the document of the given reader.
+     *
+     * @return the root element of the document
+     */
+    static XmlElement read(XMLStreamReader reader) throws XMLStreamException {
+        XmlElement root = null;
+        XmlElement current = null;
+        int index = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                XmlElement element = new XmlElement(current, index++, reader);
+                if (current == null) {
+                    root = element;
+                } else {
+                    current.content.add(element);
+                }
+                current = element;
+            } else if (current == null) {
+                // Nothing but the root element is kept from the prolog and the epilog
+                continue;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                current = current.parent;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                current.appendText(reader.getText());
+            } else if (event == XMLStreamConstants.CDATA) {
+                current.content.add(new CData(reader.getText()));
+            } else if (event == XMLStreamConstants.COMMENT || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                current.content.add(OTHER_NODE);
+            }
+        }
+        return root;
+    }
+
+    private void appendText(String text) {
+        int last = content.size() - 1;
+        if (last >= 0 && content.get(last) instanceof StringBuilder) {
+            ((StringBuilder) content.get(last)).append(text);
+        } else {
+            content.add(new StringBuilder(text));
+        }
+    }
+
+    XmlElement getParent() {
+        return parent;
+    }
+
+    /**
+     * @return the position of the element in the document order
+     */
+    int getIndex() {
+        return index;
+    }
+
+    String getNamespaceUri() {
+        return namespaceUri;
+    }
+
+    String getLocalName() {
+        return localName;
+    }
+
+    /**
+     * @return the name of the element as it appears in the document, with its prefix
+     */
+    String getName() {
+        return name;
+    }
+
+    Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    List<XmlElement> getChildElements() {
+        if (childElements == null) {
+            List<XmlElement> children = new ArrayList<>();
+            for (Object node : content) {
+                if (node instanceof XmlElement) {
+                    children.add((XmlElement) node);
+                }
+            }
+            childElements = children.isEmpty() ? Collections.<XmlElement> emptyList() : children;
+        }
+        return childElements;
+    }
+
+    int getChildNodesCount() {
+        return content.size();
+    }
+
+    /**
+     * @return whether the only child node of the element is a text node
+     */
+    boolean hasSingleTextChild() {
+        return content.size() == 1 && content.get(0) instanceof StringBuilder;
+    }
+
+    /**
+     * @return the concatenated text of the element and of its descendants, as returned by the DOM
+     */
+    String getTextContent() {
+        if (textContent == null) {
+            if (content.size() == 1 && content.get(0) instanceof StringBuilder) {
+                textContent = content.get(0).toString();
+            } else {
+                StringBuilder builder = new StringBuilder();
+                appendTextContent(builder);
+                textContent = builder.toString();
+            }
+        }
+        return textContent;
+    }
+
+    private void appendTextContent(StringBuilder builder) {
+        for (Object node : content) {
+            if (node instanceof XmlElement) {
+                ((XmlElement) node).appendTextContent(builder);
+            } else if (node instanceof StringBuilder) {
+                builder.append((StringBuilder) node);
+            } else if (node instanceof CData) {
+                builder.append(((CData) node).text);
+            }
+        }
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        if (prefix == null || prefix.isEmpty()) {
+            return localName;
+        }
+        if (localName == null || localName.isEmpty()) {
+            // The declaration of the default namespace
+            return prefix;
+        }
+        return prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static class CData {
+        private final String text;
+
+        public CData(String text) {
+            this.text = text;
+        }
+    }
+}
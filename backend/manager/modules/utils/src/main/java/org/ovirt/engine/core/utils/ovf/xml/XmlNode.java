@@ -1,67 +1,68 @@
 package org.ovirt.engine.core.utils.ovf.xml;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.util.List;
 
 public class XmlNode {
 
     public String innerText;
     public XmlAttributeCollection attributes;
-    protected Node node;
+    private final XmlElement element;
 
-    public XmlNode(Node node) {
-        this.node = node;
-        this.innerText = node.getTextContent();
-        attributes = new XmlAttributeCollection(node.getAttributes());
+    XmlNode(XmlElement element) {
+        this.element = element;
+        this.innerText = element.getTextContent();
+        attributes = new XmlAttributeCollection(element.getAttributes());
+    }
 
+    static XmlNode first(List<XmlElement> elements) {
+        return elements.isEmpty() ? null : new XmlNode(elements.get(0));
     }
 
     public XmlNode SelectSingleNode(String string, XmlNamespaceManager _xmlns) {
-        try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xPath = factory.newXPath();
-            xPath.setNamespaceContext(_xmlns);
-            Object o = xPath.evaluate(string, node, XPathConstants.NODE);
-            if (o != null) {
-                return new XmlNode((Node) o);
-            }
-            return null;
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException("Failed to evaluate xpath: " + string, e);
-        }
+        return first(XmlPath.compile(string).select(getRoot(), element, _xmlns));
     }
 
     public XmlNode SelectSingleNode(String string) {
-        try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xPath = factory.newXPath();
-            Object o = xPath.evaluate(string, node, XPathConstants.NODE);
-            if (o != null) {
-                return new XmlNode((Node) o);
-            }
-            return null;
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException("Failed to evaluate xpath: " + string, e);
-        }
+        return SelectSingleNode(string, null);
     }
 
     public XmlNodeList SelectNodes(String string) {
-        try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xPath = factory.newXPath();
-            Object o = xPath.evaluate(string, node, XPathConstants.NODESET);
-            return new XmlNodeList((NodeList) o);
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException("Failed to evaluate xpath: " + string, e);
+        return new XmlNodeList(XmlPath.compile(string).select(getRoot(), element, null));
+    }
+
+    private XmlElement getRoot() {
+        XmlElement root = element;
+        while (root.getParent() != null) {
+            root = root.getParent();
         }
+        return root;
+    }
+
+    /**
+     * @return the name of the node as it appears in the document, with its prefix
+     */
+    public String getName() {
+        return element.getName();
+    }
+
+    /**
+     * @return the child elements of the node
+     */
+    public XmlNodeList GetChildNodes() {
+        return new XmlNodeList(element.getChildElements());
+    }
+
+    /**
+     * @return the number of the child nodes of the node, of any type
+     */
+    public int getChildNodesCount() {
+        return element.getChildNodesCount();
     }
 
-    public NodeList GetChildNodes() {
-        return node.getChildNodes();
+    /**
+     * @return whether the only child node of the node is a text node, which is then its {@link #innerText}
+     */
+    public boolean hasSingleTextChild() {
+        return element.hasSingleTextChild();
     }
 }
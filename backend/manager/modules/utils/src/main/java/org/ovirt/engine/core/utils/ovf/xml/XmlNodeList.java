@@ -1,25 +1,34 @@
 package org.ovirt.engine.core.utils.ovf.xml;
 
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
-import org.w3c.dom.NodeList;
-
 public class XmlNodeList implements Iterable<XmlNode> {
 
-    private NodeList nodeList;
+    private List<XmlElement> elements;
 
-    public XmlNodeList(NodeList nodeList) {
-        this.nodeList = nodeList;
+    XmlNodeList(List<XmlElement> elements) {
+        this.elements = elements;
     }
 
     @Override
     public Iterator<XmlNode> iterator() {
-        List<XmlNode> list = new LinkedList<XmlNode>();
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            list.add(new XmlNode(nodeList.item(i)));
-        }
-        return list.iterator();
+        final Iterator<XmlElement> iterator = elements.iterator();
+        return new Iterator<XmlNode>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public XmlNode next() {
+                return new XmlNode(iterator.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 }
@@ -0,0 +1,218 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.namespace.NamespaceContext;
+
+/**
+ * The subset of XPath the OVF readers select nodes with: an optional leading <code>//</code> followed by child steps
+ * separated by <code>/</code>. A step is <code>*</code>, a name or a prefixed name, optionally followed by a single
+ * predicate comparing a child element with a number or a quoted string, as in <code>//*&#47;Item[rasd:ResourceType=10]</code>.
+ * <p>
+ * The selected elements are the ones XPath selects, in document order. Unlike XPath the expressions are parsed once
+ * and kept, and are evaluated by walking the parsed elements rather than through a DOM.
+ */
+final class XmlPath {
+
+    private static final Pattern STEP_PATTERN =
+            Pattern.compile("(\\*|[\\w.-]+(?::[\\w.-]+)?)(?:\\[([\\w.-]+(?::[\\w.-]+)?)=(.+)\\])?");
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("-?(\\d+(\\.\\d*)?|\\.\\d+)");
+
+    private static final ConcurrentMap<String, XmlPath> paths = new ConcurrentHashMap<>();
+
+    private static final Comparator<XmlElement> DOCUMENT_ORDER = new Comparator<XmlElement>() {
+        @Override
+        public int compare(XmlElement element1, XmlElement element2) {
+            return Integer.compare(element1.getIndex(), element2.getIndex());
+        }
+    };
+
+    private final String expression;
+    private final boolean absolute;
+    private final List<Step> steps = new ArrayList<>();
+
+    private XmlPath(String expression) {
+        this.expression = expression;
+        absolute = expression.startsWith("//");
+        for (String step : (absolute ? expression.substring(2) : expression).split("/", -1)) {
+            steps.add(new Step(step));
+        }
+    }
+
+    static XmlPath compile(String expression) {
+        XmlPath path = paths.get(expression);
+        if (path == null) {
+            try {
+                path = new XmlPath(expression);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Failed to evaluate xpath: " + expression, e);
+            }
+            paths.putIfAbsent(expression, path);
+        }
+        return path;
+    }
+
+    /**
+     * Selects the elements of the path.
+     *
+     * @param root
+     *            the root element of the document
+     * @param context
+     *            the element the path is relative to, or <code>null</code> for the document
+     * @param namespaces
+     *            the namespaces of the prefixes of the path, may be <code>null</code> if it has no prefixes
+     * @return the selected elements in document order
+     */
+    List<XmlElement> select(XmlElement root, XmlElement context, NamespaceContext namespaces) {
+        List<XmlElement> selected = new ArrayList<>();
+        if (root == null) {
+            return selected;
+        }
+
+        Step first = steps.get(0);
+        if (absolute) {
+            selectDescendants(root, first, namespaces, selected);
+        } else if (context == null) {
+            if (first.matches(root, namespaces)) {
+                selected.add(root);
+            }
+        } else {
+            first.selectChildren(context, namespaces, selected);
+        }
+
+        for (int i = 1; i < steps.size() && !selected.isEmpty(); i++) {
+            List<XmlElement> parents = selected;
+            selected = new ArrayList<>();
+            for (XmlElement parent : parents) {
+                steps.get(i).selectChildren(parent, namespaces, selected);
+            }
+        }
+
+        // Only the descendants selected by the first step may be nested, so only then the children aren't in order
+        if (absolute && steps.size() > 1) {
+            Collections.sort(selected, DOCUMENT_ORDER);
+        }
+        return selected;
+    }
+
+    private static void selectDescendants(XmlElement element,
+            Step step,
+            NamespaceContext namespaces,
+            List<XmlElement> selected) {
+        if (step.matches(element, namespaces)) {
+            selected.add(element);
+        }
+        for (XmlElement child : element.getChildElements()) {
+            selectDescendants(child, step, namespaces, selected);
+        }
+    }
+
+    private static boolean nameMatches(XmlElement element,
+            String prefix,
+            String localName,
+            NamespaceContext namespaces,
+            String expression) {
+        if (localName.equals("*")) {
+            return true;
+        }
+        if (!localName.equals(element.getLocalName())) {
+            return false;
+        }
+        if (prefix == null) {
+            return element.getNamespaceUri() == null;
+        }
+        String namespaceUri = namespaces == null ? null : namespaces.getNamespaceURI(prefix);
+        if (namespaceUri == null) {
+            throw new RuntimeException("Failed to evaluate xpath: " + expression,
+                    new IllegalArgumentException("Unknown prefix " + prefix));
+        }
+        return namespaceUri.equals(element.getNamespaceUri());
+    }
+
+    private static double toNumber(String value) {
+        String trimmed = value.trim();
+        return NUMBER_PATTERN.matcher(trimmed).matches() ? Double.parseDouble(trimmed) : Double.NaN;
+    }
+
+    private class Step {
+        private final String prefix;
+        private final String localName;
+        private final String predicatePrefix;
+        private final String predicateLocalName;
+        private final String predicateString;
+        private final double predicateNumber;
+
+        public Step(String step) {
+            Matcher matcher = STEP_PATTERN.matcher(step);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Unsupported step '" + step + "'");
+            }
+            String[] name = splitName(matcher.group(1));
+            prefix = name[0];
+            localName = name[1];
+
+            if (matcher.group(2) == null) {
+                predicatePrefix = null;
+                predicateLocalName = null;
+                predicateString = null;
+                predicateNumber = Double.NaN;
+            } else {
+                String[] predicateName = splitName(matcher.group(2));
+                predicatePrefix = predicateName[0];
+                predicateLocalName = predicateName[1];
+                String literal = matcher.group(3);
+                if (literal.length() >= 2 && (literal.charAt(0) == '\'' || literal.charAt(0) == '"')
+                        && literal.charAt(literal.length() - 1) == literal.charAt(0)) {
+                    predicateString = literal.substring(1, literal.length() - 1);
+                    predicateNumber = Double.NaN;
+                } else if (NUMBER_PATTERN.matcher(literal).matches()) {
+                    predicateString = null;
+                    predicateNumber = Double.parseDouble(literal);
+                } else {
+                    throw new IllegalArgumentException("Unsupported predicate value '" + literal + "'");
+                }
+            }
+        }
+
+        private String[] splitName(String name) {
+            int colon = name.indexOf(':');
+            return colon == -1 ?
+                    new String[] { null, name } :
+                    new String[] { name.substring(0, colon), name.substring(colon + 1) };
+        }
+
+        void selectChildren(XmlElement parent, NamespaceContext namespaces, List<XmlElement> selected) {
+            for (XmlElement child : parent.getChildElements()) {
+                if (matches(child, namespaces)) {
+                    selected.add(child);
+                }
+            }
+        }
+
+        boolean matches(XmlElement element, NamespaceContext namespaces) {
+            if (!nameMatches(element, prefix, localName, namespaces, expression)) {
+                return false;
+            }
+            if (predicateLocalName == null) {
+                return true;
+            }
+            for (XmlElement child : element.getChildElements()) {
+                if (nameMatches(child, predicatePrefix, predicateLocalName, namespaces, expression)) {
+                    String value = child.getTextContent();
+                    if (predicateString != null ? predicateString.equals(value)
+                            : toNumber(value) == predicateNumber) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
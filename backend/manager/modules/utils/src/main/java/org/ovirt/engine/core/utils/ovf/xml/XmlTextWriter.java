@@ -10,14 +10,16 @@ import javax.xml.stream.XMLStreamWriter;
 
 public class XmlTextWriter {
 
+    // Looking up the factory is costly, while creating writers with it is thread safe
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
     private XMLStreamWriter writer;
     private StringWriter stream;
 
     public XmlTextWriter() {
         stream = new StringWriter();
         try {
-            XMLOutputFactory factory = XMLOutputFactory.newInstance();
-            writer = factory.createXMLStreamWriter(stream);
+            writer = outputFactory.createXMLStreamWriter(stream);
             writer.writeStartDocument("UTF-8", "1.0");
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize xml writer: ", e);
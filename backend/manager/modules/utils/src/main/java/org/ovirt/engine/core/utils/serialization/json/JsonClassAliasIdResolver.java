@@ -0,0 +1,88 @@
+package org.ovirt.engine.core.utils.serialization.json;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.map.jsontype.impl.ClassNameIdResolver;
+import org.codehaus.jackson.map.type.TypeFactory;
+import org.codehaus.jackson.type.JavaType;
+
+/**
+ * Type id resolver writing the class names of the most common packages with a short alias instead of the package,
+ * for example <code>~c.Guid</code> instead of <code>org.ovirt.engine.core.compat.Guid</code>. Full class names are
+ * still read, as well as written for classes of other packages.
+ * <p>
+ * The aliases are persisted, so an alias must never be changed nor removed, only new ones added.
+ */
+class JsonClassAliasIdResolver extends ClassNameIdResolver {
+
+    /**
+     * Prefix of the aliased ids, which can't start a class name.
+     */
+    private static final char ALIAS_PREFIX = '~';
+
+    private static final Map<String, String> aliasToPackage = new HashMap<>();
+    private static final Map<String, String> packageToAlias = new HashMap<>();
+    static {
+        addAlias("a", "org.ovirt.engine.core.common.action");
+        addAlias("b", "org.ovirt.engine.core.common.businessentities");
+        addAlias("bs", "org.ovirt.engine.core.common.businessentities.storage");
+        addAlias("bn", "org.ovirt.engine.core.common.businessentities.network");
+        addAlias("c", "org.ovirt.engine.core.compat");
+        addAlias("e", "org.ovirt.engine.core.common.errors");
+        addAlias("q", "org.ovirt.engine.core.common.queries");
+        addAlias("v", "org.ovirt.engine.core.common.vdscommands");
+        addAlias("j", "org.ovirt.engine.core.common.job");
+        addAlias("t", "org.ovirt.engine.core.common.asynctasks");
+        addAlias("u", "java.util");
+        addAlias("l", "java.lang");
+    }
+
+    public JsonClassAliasIdResolver(JavaType baseType, TypeFactory typeFactory) {
+        super(baseType, typeFactory);
+    }
+
+    private static void addAlias(String alias, String packageName) {
+        aliasToPackage.put(alias, packageName);
+        packageToAlias.put(packageName, alias);
+    }
+
+    @Override
+    public String idFromValue(Object value) {
+        return toAlias(super.idFromValue(value));
+    }
+
+    @Override
+    public String idFromValueAndType(Object value, Class<?> type) {
+        return toAlias(super.idFromValueAndType(value, type));
+    }
+
+    @Override
+    public JavaType typeFromId(String id) {
+        return super.typeFromId(fromAlias(id));
+    }
+
+    static String toAlias(String className) {
+        int lastDot = className.lastIndexOf('.');
+        // Generic types, as written for enum sets and maps, are kept as they are
+        if (lastDot == -1 || className.indexOf('<') != -1) {
+            return className;
+        }
+
+        String alias = packageToAlias.get(className.substring(0, lastDot));
+        return alias == null ? className : ALIAS_PREFIX + alias + className.substring(lastDot);
+    }
+
+    static String fromAlias(String id) {
+        if (id.isEmpty() || id.charAt(0) != ALIAS_PREFIX) {
+            return id;
+        }
+
+        int dot = id.indexOf('.');
+        String packageName = dot == -1 ? null : aliasToPackage.get(id.substring(1, dot));
+        if (packageName == null) {
+            throw new IllegalArgumentException("Unknown class alias in type id '" + id + "'");
+        }
+        return packageName + id.substring(dot);
+    }
+}
@@ -0,0 +1,88 @@
+package org.ovirt.engine.core.utils.serialization.json;
+
+import java.util.Collection;
+
+import org.codehaus.jackson.annotate.JsonTypeInfo;
+import org.codehaus.jackson.map.MapperConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectMapper.DefaultTyping;
+import org.codehaus.jackson.map.TypeResolverBuilder;
+import org.codehaus.jackson.map.introspect.AnnotatedClass;
+import org.codehaus.jackson.map.introspect.JacksonAnnotationIntrospector;
+import org.codehaus.jackson.map.jsontype.NamedType;
+import org.codehaus.jackson.map.jsontype.TypeIdResolver;
+import org.codehaus.jackson.map.jsontype.impl.StdTypeResolverBuilder;
+import org.codehaus.jackson.type.JavaType;
+
+/**
+ * Makes an {@link ObjectMapper} write the class names of the type ids with the aliases of
+ * {@link JsonClassAliasIdResolver}, both for the default typing and for the types annotated with {@link JsonTypeInfo}
+ * by the mix-ins.
+ */
+final class JsonClassAliasTypeResolvers {
+
+    private JsonClassAliasTypeResolvers() {
+    }
+
+    /**
+     * Replaces the annotation introspector of the mapper and enables its default typing, as
+     * {@link ObjectMapper#enableDefaultTyping()} does. Must be called before the mix-ins are added.
+     */
+    static void configure(ObjectMapper mapper) {
+        mapper.setAnnotationIntrospector(new AliasAnnotationIntrospector());
+        mapper.setDefaultTyping(new AliasDefaultTypeResolverBuilder()
+                .init(JsonTypeInfo.Id.CLASS, null)
+                .inclusion(JsonTypeInfo.As.WRAPPER_ARRAY));
+    }
+
+    private static TypeIdResolver aliasIdResolver(MapperConfig<?> config, JavaType baseType) {
+        return new JsonClassAliasIdResolver(baseType, config.getTypeFactory());
+    }
+
+    private static class AliasDefaultTypeResolverBuilder extends ObjectMapper.DefaultTypeResolverBuilder {
+
+        public AliasDefaultTypeResolverBuilder() {
+            super(DefaultTyping.OBJECT_AND_NON_CONCRETE);
+        }
+
+        @Override
+        protected TypeIdResolver idResolver(MapperConfig<?> config,
+                JavaType baseType,
+                Collection<NamedType> subtypes,
+                boolean forSer,
+                boolean forDeser) {
+            return aliasIdResolver(config, baseType);
+        }
+    }
+
+    private static class AliasTypeResolverBuilder extends StdTypeResolverBuilder {
+
+        @Override
+        protected TypeIdResolver idResolver(MapperConfig<?> config,
+                JavaType baseType,
+                Collection<NamedType> subtypes,
+                boolean forSer,
+                boolean forDeser) {
+            return aliasIdResolver(config, baseType);
+        }
+    }
+
+    private static class AliasAnnotationIntrospector extends JacksonAnnotationIntrospector {
+
+        @Override
+        public TypeResolverBuilder<?> findTypeResolver(MapperConfig<?> config,
+                AnnotatedClass ac,
+                JavaType baseType) {
+            TypeResolverBuilder<?> builder = super.findTypeResolver(config, ac, baseType);
+            JsonTypeInfo info = ac.getAnnotation(JsonTypeInfo.class);
+            if (builder == null || info == null || info.use() != JsonTypeInfo.Id.CLASS) {
+                return builder;
+            }
+
+            return new AliasTypeResolverBuilder()
+                    .init(JsonTypeInfo.Id.CLASS, null)
+                    .inclusion(info.include())
+                    .typeProperty(info.property());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.ovirt.engine.core.utils.serialization.json;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.apache.commons.lang.SerializationException;
+import org.codehaus.jackson.map.DeserializationConfig.Feature;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.ovirt.engine.core.common.action.AddVmTemplateParameters;
+import org.ovirt.engine.core.common.action.RunVmParams;
+import org.ovirt.engine.core.common.action.VdcActionParametersBase;
+import org.ovirt.engine.core.common.action.VmManagementParametersBase;
+import org.ovirt.engine.core.common.businessentities.IVdcQueryable;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.VmBase;
+import org.ovirt.engine.core.common.businessentities.VmStatic;
+import org.ovirt.engine.core.common.errors.EngineFault;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.Deserializer;
+import org.ovirt.engine.core.utils.SerializationExeption;
+import org.ovirt.engine.core.utils.SerializationFactory;
+
+/**
+ * {@link Deserializer} implementation for the content written by {@link JsonCompactObjectSerializer}. Content without
+ * the prefix of the format version was written by {@link JsonObjectSerializer} before, and is read by
+ * {@link JsonObjectDeserializer}.
+ */
+public class JsonCompactObjectDeserializer implements Deserializer {
+
+    private static final ObjectMapper mapper;
+    static {
+        mapper = new ObjectMapper();
+        JsonClassAliasTypeResolvers.configure(mapper);
+        mapper.getDeserializationConfig().addMixInAnnotations(Guid.class, JsonGuidMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(VdcActionParametersBase.class,
+                JsonVdcActionParametersBaseMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(IVdcQueryable.class,
+                JsonIVdcQueryableMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(VM.class, JsonVmMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(AddVmTemplateParameters.class,
+                JsonAddVmTemplateParametersMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(VmManagementParametersBase.class,
+                JsonVmManagementParametersBaseMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(VmBase.class, JsonVmBaseMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(VmStatic.class, JsonVmStaticMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(RunVmParams.class, JsonRunVmParamsMixIn.class);
+        mapper.getDeserializationConfig().addMixInAnnotations(EngineFault.class, JsonEngineFaultMixIn.class);
+
+        mapper.configure(Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Override
+    public <T extends Serializable> T deserialize(Object source, Class<T> type) throws SerializationExeption {
+        if (source == null) {
+            return null;
+        }
+
+        String content = source.toString();
+        if (!content.startsWith(JsonCompactObjectSerializer.FORMAT_PREFIX)) {
+            return SerializationFactory.getDeserializer().deserialize(content, type);
+        }
+
+        try {
+            return mapper.readValue(content.substring(JsonCompactObjectSerializer.FORMAT_PREFIX.length()), type);
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.ovirt.engine.core.utils.serialization.json;
+
+import java.io.IOException;
+
+import org.apache.commons.lang.SerializationException;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.ovirt.engine.core.common.action.AddVmTemplateParameters;
+import org.ovirt.engine.core.common.action.RunVmParams;
+import org.ovirt.engine.core.common.action.VdcActionParametersBase;
+import org.ovirt.engine.core.common.action.VmManagementParametersBase;
+import org.ovirt.engine.core.common.businessentities.IVdcQueryable;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.VmBase;
+import org.ovirt.engine.core.common.businessentities.VmPayload;
+import org.ovirt.engine.core.common.businessentities.VmStatic;
+import org.ovirt.engine.core.common.errors.EngineFault;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.SerializationExeption;
+import org.ovirt.engine.core.utils.Serializer;
+
+/**
+ * {@link Serializer} implementation for the command parameters, return values and compensation snapshots, which are
+ * written on every update of a command. It writes the same JSON as {@link JsonObjectSerializer}, but without
+ * indentation and with aliased class names (see {@link JsonClassAliasIdResolver}), after the prefix of the format
+ * version. {@link JsonCompactObjectDeserializer} reads both formats.
+ */
+public class JsonCompactObjectSerializer implements Serializer {
+
+    /**
+     * The prefix of the payloads of the current version of the format, which can't start a JSON value.
+     */
+    static final String FORMAT_PREFIX = "v1:";
+
+    private static final ObjectMapper mapper;
+    static {
+        mapper = new ObjectMapper();
+        JsonClassAliasTypeResolvers.configure(mapper);
+        mapper.getSerializationConfig().addMixInAnnotations(Guid.class, JsonGuidMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(VdcActionParametersBase.class,
+                JsonVdcActionParametersBaseMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(IVdcQueryable.class, JsonIVdcQueryableMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(VM.class, JsonVmMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(AddVmTemplateParameters.class,
+                JsonAddVmTemplateParametersMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(VmManagementParametersBase.class,
+                JsonVmManagementParametersBaseMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(VmBase.class, JsonVmBaseMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(VmStatic.class, JsonVmStaticMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(VmPayload.class, JsonVmPayloadMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(RunVmParams.class, JsonRunVmParamsMixIn.class);
+        mapper.getSerializationConfig().addMixInAnnotations(EngineFault.class, JsonEngineFaultMixIn.class);
+    }
+
+    @Override
+    public String serialize(Object payload) throws SerializationExeption {
+        if (payload == null) {
+            return null;
+        }
+
+        try {
+            return FORMAT_PREFIX + mapper.writeValueAsString(payload);
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.ovirt.engine.core.utils.threadpool;
+
+/**
+ * JMX view of a thread pool of {@link ThreadPoolUtil}
+ */
+public interface ThreadPoolMonitorMXBean {
+
+    String getPoolName();
+
+    int getPoolSize();
+
+    int getActiveThreads();
+
+    /**
+     * @return the number of tasks waiting in the queue of the pool
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the highest number of tasks which were waiting in the queue of the pool
+     */
+    int getMaxQueueDepth();
+
+    long getCompletedTasks();
+
+    long getRejectedTasks();
+
+    /**
+     * @return the average time in milliseconds a task waited in the queue before it started to run
+     */
+    double getAverageWaitTimeMillis();
+
+    long getMaxWaitTimeMillis();
+
+    /**
+     * @return the average time in milliseconds a task ran
+     */
+    double getAverageRunTimeMillis();
+
+    long getMaxRunTimeMillis();
+}
@@ -0,0 +1,87 @@
+package org.ovirt.engine.core.utils.threadpool;
+
+import org.ovirt.engine.core.common.config.ConfigValues;
+
+/**
+ * The thread pools of the engine. Each pool is sized separately, so a burst of work of one kind can not starve or
+ * be rejected because of another.
+ */
+public enum ThreadPoolType {
+    /**
+     * Command execution and any work which has no dedicated pool
+     */
+    COMMANDS("commands",
+            ConfigValues.DefaultMinThreadPoolSize,
+            ConfigValues.DefaultMaxThreadPoolSize,
+            ConfigValues.DefaultMaxThreadWaitQueueSize),
+
+    /**
+     * Hosts and VMs monitoring and the follow-ups it triggers
+     */
+    MONITORING("monitoring",
+            ConfigValues.MonitoringThreadPoolSize,
+            ConfigValues.MonitoringThreadPoolSize,
+            ConfigValues.MonitoringThreadPoolQueueSize),
+
+    /**
+     * Blocking calls to VDSM and storage operations
+     */
+    STORAGE_IO("storage-io",
+            ConfigValues.StorageIoThreadPoolSize,
+            ConfigValues.StorageIoThreadPoolSize,
+            ConfigValues.StorageIoThreadPoolQueueSize),
+
+    /**
+     * Handling of events, e.g. storage pool events and host and VM state change events
+     */
+    EVENTS("events",
+            ConfigValues.EventsThreadPoolSize,
+            ConfigValues.EventsThreadPoolSize,
+            ConfigValues.EventsThreadPoolQueueSize),
+
+    /**
+     * The jobs of the in-memory timer wheel scheduler, e.g. the periodic refresh of the hosts and their VMs
+     */
+    SCHEDULED_JOBS("scheduled-jobs",
+            ConfigValues.ScheduledJobsThreadPoolSize,
+            ConfigValues.ScheduledJobsThreadPoolSize,
+            ConfigValues.ScheduledJobsThreadPoolQueueSize),
+
+    /**
+     * The parts a task splits its work into and waits on, see
+     * {@link ThreadPoolUtil#invokeAllOrRunOnCaller(ThreadPoolType, java.util.Collection)}. The parts must not wait on
+     * work of their own submitted to this pool.
+     */
+    PARALLEL("parallel",
+            ConfigValues.ParallelThreadPoolSize,
+            ConfigValues.ParallelThreadPoolSize,
+            ConfigValues.ParallelThreadPoolQueueSize);
+
+    private final String poolName;
+    private final ConfigValues minSize;
+    private final ConfigValues maxSize;
+    private final ConfigValues queueSize;
+
+    private ThreadPoolType(String poolName, ConfigValues minSize, ConfigValues maxSize, ConfigValues queueSize) {
+        this.poolName = poolName;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.queueSize = queueSize;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public ConfigValues getMinSize() {
+        return minSize;
+    }
+
+    public ConfigValues getMaxSize() {
+        return maxSize;
+    }
+
+    public ConfigValues getQueueSize() {
+        return queueSize;
+    }
+}
@@ -1,19 +1,28 @@
 package org.ovirt.engine.core.utils.threadpool;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
 
 import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
@@ -21,38 +30,73 @@ import org.ovirt.engine.core.utils.CorrelationIdTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Runs tasks on the thread pools of the engine. The methods which do not accept a {@link ThreadPoolType} use the
+ * {@link ThreadPoolType#COMMANDS} pool. Each pool is created on its first use and is registered into JMX with its
+ * queue depth, wait time, run time and rejection counters.
+ */
 public class ThreadPoolUtil {
 
     private static final Logger log = LoggerFactory.getLogger(ThreadPoolUtil.class);
 
-    private static class InternalThreadExecutor extends ThreadPoolExecutor {
+    /**
+     * The pool of the current thread, if it is a thread of one of the pools
+     */
+    private static final ThreadLocal<ThreadPoolType> currentPool = new ThreadLocal<>();
+
+    private static class InternalThreadExecutor extends ThreadPoolExecutor implements ThreadPoolMonitorMXBean {
 
-        RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.CallerRunsPolicy();
+        private final ThreadPoolType type;
+        private final String poolName;
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong completedTasks = new AtomicLong();
+        private final AtomicLong rejectedTasks = new AtomicLong();
+        private final AtomicLong totalWaitTime = new AtomicLong();
+        private final AtomicLong maxWaitTime = new AtomicLong();
+        private final AtomicLong totalRunTime = new AtomicLong();
+        private final AtomicLong maxRunTime = new AtomicLong();
 
         /**
-         * The pool which will be created with corePoolSize equal to ConfigValues.DefaultMinThreadPoolSize
-         * maximumPoolSize equal to DefaultMaxThreadPoolSize
+         * The pool which will be created with corePoolSize, maximumPoolSize and queue size taken from the
+         * configuration values of the pool type
          */
-        public InternalThreadExecutor() {
-            super(Config.<Integer> getValue(ConfigValues.DefaultMinThreadPoolSize),
-                    Config.<Integer> getValue(ConfigValues.DefaultMaxThreadPoolSize),
+        public InternalThreadExecutor(ThreadPoolType type, int corePoolSize, int maximumPoolSize,
+                BlockingQueue<Runnable> queue) {
+            super(corePoolSize,
+                    maximumPoolSize,
                     60L,
                     TimeUnit.SECONDS,
-                    new ArrayBlockingQueue<Runnable>(Config.<Integer> getValue(ConfigValues.DefaultMaxThreadWaitQueueSize)));
+                    queue);
+            this.type = type;
+            this.poolName = type.getPoolName();
+            setRejectedExecutionHandler(new CountingAbortPolicy(this));
+        }
 
+        @Override
+        public void execute(Runnable command) {
+            super.execute(new TimedRunnable(command));
+            updateMax(maxQueueDepth, getQueue().size());
         }
 
         @Override
         protected void beforeExecute(Thread t, Runnable r) {
             super.beforeExecute(t, r);
+            currentPool.set(type);
             String threadName = t.getName();
             if (!threadName.startsWith("org.ovirt.thread.")) {
                 t.setName("org.ovirt.thread." + threadName);
             }
 
+            TimedRunnable task = (TimedRunnable) r;
+            task.startTime = System.nanoTime();
+            long waitTime = task.startTime - task.submitTime;
+            totalWaitTime.addAndGet(waitTime);
+            updateMax(maxWaitTime, waitTime);
+
             if (getQueue().size() > 5) {
-                log.warn("Executing a command '{}', but note that there are {} tasks in the queue.",
-                        r.getClass().getName(),
+                log.warn("Executing a command '{}' on the {} pool, but note that there are {} tasks in the queue.",
+                        task.job.getClass().getName(),
+                        poolName,
                         getQueue().size());
             }
         }
@@ -61,11 +105,117 @@ public class ThreadPoolUtil {
         protected void afterExecute(Runnable r, Throwable t) {
             super.afterExecute(r, t);
             CorrelationIdTracker.clean();
+            currentPool.remove();
+
+            long runTime = System.nanoTime() - ((TimedRunnable) r).startTime;
+            totalRunTime.addAndGet(runTime);
+            updateMax(maxRunTime, runTime);
+            completedTasks.incrementAndGet();
+        }
+
+        private static void updateMax(AtomicLong max, long value) {
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        private static void updateMax(AtomicInteger max, int value) {
+            int current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        @Override
+        public String getPoolName() {
+            return poolName;
+        }
+
+        @Override
+        public int getActiveThreads() {
+            return getActiveCount();
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return getQueue().size();
+        }
+
+        @Override
+        public int getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        @Override
+        public long getCompletedTasks() {
+            return completedTasks.get();
+        }
+
+        @Override
+        public long getRejectedTasks() {
+            return rejectedTasks.get();
+        }
+
+        @Override
+        public double getAverageWaitTimeMillis() {
+            return average(totalWaitTime.get(), completedTasks.get());
+        }
+
+        @Override
+        public long getMaxWaitTimeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get());
+        }
+
+        @Override
+        public double getAverageRunTimeMillis() {
+            return average(totalRunTime.get(), completedTasks.get());
+        }
+
+        @Override
+        public long getMaxRunTimeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxRunTime.get());
+        }
+
+        private static double average(long totalNanos, long count) {
+            return count == 0 ? 0 : (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * Counts the rejected tasks of the pool before failing their submission
+     */
+    private static class CountingAbortPolicy implements RejectedExecutionHandler {
+
+        private final InternalThreadExecutor executor;
+
+        public CountingAbortPolicy(InternalThreadExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+            executor.rejectedTasks.incrementAndGet();
+            throw new RejectedExecutionException("The " + executor.poolName + " thread pool is out of limit");
+        }
+    }
+
+    /**
+     * Keeps the times a task was submitted and started at, for the wait and run time statistics of the pool
+     */
+    private static class TimedRunnable implements Runnable {
+
+        private final Runnable job;
+        private final long submitTime = System.nanoTime();
+        private long startTime;
+
+        public TimedRunnable(Runnable job) {
+            this.job = job;
         }
 
         @Override
-        public RejectedExecutionHandler getRejectedExecutionHandler() {
-            return rejectedExecutionHandler;
+        public void run() {
+            job.run();
         }
     }
 
@@ -112,7 +262,51 @@ public class ThreadPoolUtil {
         }
     }
 
-    private static final ExecutorService es = new InternalThreadExecutor();
+    private static final ConcurrentMap<ThreadPoolType, InternalThreadExecutor> executors = new ConcurrentHashMap<>();
+
+    private static InternalThreadExecutor getExecutor(ThreadPoolType type) {
+        InternalThreadExecutor executor = executors.get(type);
+        if (executor == null) {
+            synchronized (executors) {
+                executor = executors.get(type);
+                if (executor == null) {
+                    executor = createExecutor(type);
+                    registerExecutor(executor);
+                    executors.put(type, executor);
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static InternalThreadExecutor createExecutor(ThreadPoolType type) {
+        int minSize = Config.<Integer> getValue(type.getMinSize());
+        int maxSize = Config.<Integer> getValue(type.getMaxSize());
+        if (type == ThreadPoolType.STORAGE_IO && Config.<Boolean> getValue(ConfigValues.StorageIoThreadPoolOnDemand)) {
+            // a thread for each blocking call which finds all the threads busy, rather than queuing it
+            return new InternalThreadExecutor(type, minSize, Integer.MAX_VALUE, new SynchronousQueue<Runnable>());
+        }
+
+        InternalThreadExecutor executor = new InternalThreadExecutor(type,
+                minSize,
+                maxSize,
+                new ArrayBlockingQueue<Runnable>(Config.<Integer> getValue(type.getQueueSize())));
+        if (minSize == maxSize) {
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private static void registerExecutor(InternalThreadExecutor executor) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(executor,
+                    new ObjectName("ThreadPoolUtil:type=" + ThreadPoolUtil.class.getName()
+                            + ",name=" + executor.getPoolName()));
+        } catch (Exception e) {
+            log.warn("Failed to register the {} thread pool into JMX: {}", executor.getPoolName(), e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
 
     /**
      * Creates a completion service to allow launching of tasks (callable objects)
@@ -121,7 +315,14 @@ public class ThreadPoolUtil {
      * @return
      */
     public static <V> ExecutorCompletionService<V> createCompletionService() {
-        return new ExecutorCompletionService<V>(es);
+        return createCompletionService(ThreadPoolType.COMMANDS);
+    }
+
+    /**
+     * Creates a completion service running its tasks on the given pool
+     */
+    public static <V> ExecutorCompletionService<V> createCompletionService(ThreadPoolType type) {
+        return new ExecutorCompletionService<V>(getExecutor(type));
     }
 
     private static <T> List<Callable<T>> buildSessionTasks(Collection<? extends Callable<T>> tasks) {
@@ -155,21 +356,29 @@ public class ThreadPoolUtil {
     }
 
     public static void execute(Runnable command) {
+        execute(ThreadPoolType.COMMANDS, command);
+    }
+
+    public static void execute(ThreadPoolType type, Runnable command) {
         try {
-            es.submit(new InternalWrapperRunnable(command,
+            getExecutor(type).submit(new InternalWrapperRunnable(command,
                     CorrelationIdTracker.getCorrelationId()));
         } catch (RejectedExecutionException e) {
-            log.warn("The thread pool is out of limit. A submitted task was rejected");
+            log.warn("The {} thread pool is out of limit. A submitted task was rejected", type.getPoolName());
             throw e;
         }
     }
 
-    @SuppressWarnings("unchecked")
     public static <V> Future<V> execute(FutureTask<V> command) {
+        return execute(ThreadPoolType.COMMANDS, command);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> Future<V> execute(ThreadPoolType type, FutureTask<V> command) {
         try {
-            return (Future<V>) es.submit(command);
+            return (Future<V>) getExecutor(type).submit(command);
         } catch (RejectedExecutionException e) {
-            log.warn("The thread pool is out of limit. The submitted event was rejected");
+            log.warn("The {} thread pool is out of limit. The submitted event was rejected", type.getPoolName());
             throw e;
         }
     }
@@ -181,10 +390,18 @@ public class ThreadPoolUtil {
      * @return
      */
     public static <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks) {
+        return invokeAll(ThreadPoolType.COMMANDS, tasks);
+    }
+
+    /**
+     * Executes the given tasks on the given pool, returning a list of results when all complete, in case of empty or
+     * null list a null will be return
+     */
+    public static <T> List<T> invokeAll(ThreadPoolType type, Collection<? extends Callable<T>> tasks) {
         if (tasks != null && !tasks.isEmpty()) {
             try {
                 List<Callable<T>> sessionedTask = buildSessionTasks(tasks);
-                List<Future<T>> resultFutureList = es.invokeAll(sessionedTask);
+                List<Future<T>> resultFutureList = getExecutor(type).invokeAll(sessionedTask);
                 List<T> resultList = new ArrayList<T>();
                 for (Future<T> future : resultFutureList) {
                     resultList.add(future.get());
@@ -198,4 +415,64 @@ public class ThreadPoolUtil {
         }
         return null;
     }
+
+    /**
+     * Executes the given tasks on the given pool, returning a list of results when all complete, in case of empty or
+     * null list a null will be return. Unlike {@link #invokeAll(ThreadPoolType, Collection)} the caller never fails
+     * or waits on a pool which has no room for the tasks: the tasks the pool rejects run on the calling thread, and
+     * all of them do when the calling thread is a thread of the pool itself.
+     */
+    public static <T> List<T> invokeAllOrRunOnCaller(ThreadPoolType type, Collection<? extends Callable<T>> tasks) {
+        if (tasks == null || tasks.isEmpty()) {
+            return null;
+        }
+        List<Callable<T>> callerTasks = new ArrayList<Callable<T>>(tasks);
+        List<Future<T>> futures = new ArrayList<Future<T>>(callerTasks.size());
+        int rejected = 0;
+        if (currentPool.get() == type) {
+            rejected = callerTasks.size();
+            futures.addAll(Collections.<Future<T>> nCopies(callerTasks.size(), null));
+        } else {
+            InternalThreadExecutor executor = getExecutor(type);
+            for (Callable<T> task : callerTasks) {
+                try {
+                    futures.add(executor.submit(new InternalCallable<T>(task)));
+                } catch (RejectedExecutionException e) {
+                    futures.add(null);
+                    rejected++;
+                }
+            }
+        }
+        if (rejected > 0) {
+            log.debug("Running {} of {} tasks on the calling thread instead of the {} thread pool",
+                    rejected,
+                    callerTasks.size(),
+                    type.getPoolName());
+        }
+
+        try {
+            List<T> resultList = new ArrayList<T>(Collections.<T> nCopies(callerTasks.size(), null));
+            // the rejected tasks run first, while the pool runs the others
+            for (int i = 0; i < callerTasks.size(); i++) {
+                if (futures.get(i) == null) {
+                    resultList.set(i, callerTasks.get(i).call());
+                }
+            }
+            for (int i = 0; i < callerTasks.size(); i++) {
+                if (futures.get(i) != null) {
+                    resultList.set(i, futures.get(i).get());
+                }
+            }
+            return resultList;
+        } catch (Exception e) {
+            for (Future<T> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+            log.warn("The thread pool failed to execute list of tasks: {}", e.getMessage());
+            log.debug("Exception", e);
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package org.ovirt.engine.core.utils.archivers.tar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.Test;
+
+public class StreamingTarTest {
+
+    @Test
+    public void testUtf8Length() throws Exception {
+        for (String text : new String[] { "", "ovf", "\u00e9t\u00e9", "\u20ac", "\ud83d\ude00", "a\ud83db" }) {
+            assertEquals(text, text.getBytes("UTF-8").length, StreamingTar.utf8Length(text));
+        }
+    }
+
+    @Test
+    public void testArchiveSize() throws Exception {
+        for (int length : new int[] { 0, 1, 511, 512, 513, 9000, 30000 }) {
+            String content = buildContent(length);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (StreamingTar tar = new StreamingTar(outputStream)) {
+                tar.addTarEntry("{}", "info.json");
+                tar.addTarEntry(content, "77296e00-0cad-4e5a-9299-008a7b6f4354.ovf");
+            }
+
+            long expectedSize = StreamingTar.archiveSize(StreamingTar.entrySize(2)
+                    + StreamingTar.entrySize(StreamingTar.utf8Length(content)));
+            assertEquals("wrong archive size for content of " + length + " characters",
+                    expectedSize,
+                    outputStream.size());
+        }
+    }
+
+    @Test
+    public void testEntriesReadBack() throws Exception {
+        String content = buildContent(20000);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (StreamingTar tar = new StreamingTar(outputStream)) {
+            tar.addTarEntry("{}", "info.json");
+            tar.addTarEntry(content, "vm.ovf");
+        }
+
+        try (TarArchiveInputStream inputStream =
+                new TarArchiveInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            assertEntry(inputStream, "info.json", "{}");
+            assertEntry(inputStream, "vm.ovf", content);
+            assertNull(inputStream.getNextTarEntry());
+        }
+    }
+
+    private static void assertEntry(TarArchiveInputStream inputStream, String name, String content)
+            throws IOException {
+        TarArchiveEntry entry = inputStream.getNextTarEntry();
+        assertEquals(name, entry.getName());
+        assertEquals(content.getBytes("UTF-8").length, entry.getSize());
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            data.write(buffer, 0, read);
+        }
+        assertEquals(content, data.toString("UTF-8"));
+    }
+
+    private static String buildContent(int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(i % 7 == 0 ? "\u00e9" : i % 11 == 0 ? "\ud83d\ude00" : "x");
+        }
+        return builder.toString();
+    }
+}
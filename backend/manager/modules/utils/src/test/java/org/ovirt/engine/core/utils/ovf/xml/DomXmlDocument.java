@@ -0,0 +1,56 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.ovirt.engine.core.uutils.xml.SecureDocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * The DOM and XPath based parsing {@link XmlDocument} used to do, kept as the reference the streaming parsing is
+ * compared with.
+ */
+public class DomXmlDocument {
+
+    private final Document document;
+
+    public DomXmlDocument(String xml) throws Exception {
+        DocumentBuilderFactory factory = SecureDocumentBuilderFactory.newDocumentBuilderFactory();
+        factory.setNamespaceAware(true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        document = builder.parse(new InputSource(new StringReader(xml)));
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    public List<Node> select(Node context, String expression, NamespaceContext namespaces) {
+        try {
+            XPath xPath = XPathFactory.newInstance().newXPath();
+            if (namespaces != null) {
+                xPath.setNamespaceContext(namespaces);
+            }
+            NodeList nodeList = (NodeList) xPath.evaluate(expression, context, XPathConstants.NODESET);
+            List<Node> nodes = new ArrayList<>();
+            for (int i = 0; i < nodeList.getLength(); i++) {
+                nodes.add(nodeList.item(i));
+            }
+            return nodes;
+        } catch (XPathExpressionException e) {
+            throw new RuntimeException("Failed to evaluate xpath: " + expression, e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Node;
+
+/**
+ * Compares reading an OVF the way the OVF readers do, through the DOM and XPath with {@link DomXmlDocument} and
+ * through the streaming {@link XmlDocument}. The disk item of the OVF in ovf/vm.ovf is replicated to the requested
+ * number of disks.
+ * <p>
+ * Run with: <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main XmlDocumentBenchmark -prof gc</code>
+ * to compare the allocation rate along with the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class XmlDocumentBenchmark {
+
+    private static final String[] ITEM_FIELDS = {
+            "rasd:InstanceId",
+            "rasd:ResourceType",
+            "rasd:HostResource",
+            "rasd:StorageId",
+            "Type",
+            "Device",
+            "BootOrder",
+            "IsPlugged",
+    };
+
+    @Param({ "1", "10", "100" })
+    private int disks;
+
+    private String ovf;
+    private XmlNamespaceManager namespaces;
+
+    @Setup
+    public void setUp() {
+        String recorded = XmlDocumentTest.readOvf();
+        int itemStart = recorded.lastIndexOf("<Item>", recorded.indexOf("<rasd:Caption>Drive 1"));
+        int itemEnd = recorded.indexOf("</Item>", itemStart) + "</Item>".length();
+        StringBuilder builder = new StringBuilder(recorded.substring(0, itemEnd));
+        for (int i = 1; i < disks; i++) {
+            builder.append(recorded, itemStart, itemEnd);
+        }
+        builder.append(recorded.substring(itemEnd));
+        ovf = builder.toString();
+
+        namespaces = new XmlNamespaceManager();
+        namespaces.addNamespace("ovf", "http://schemas.dmtf.org/ovf/envelope/1/");
+        namespaces.addNamespace("rasd", "http://schemas.dmtf.org/wbem/wscim/1/cim-schema/2/CIM_ResourceAllocationSettingData");
+    }
+
+    @Benchmark
+    public void dom(Blackhole blackhole) throws Exception {
+        DomXmlDocument document = new DomXmlDocument(ovf);
+        Node root = document.getDocument();
+        blackhole.consume(document.select(root, "//ovf:Envelope", namespaces));
+        blackhole.consume(document.select(root, "//*/File", namespaces));
+        blackhole.consume(document.select(root, "//*/Section/Disk", namespaces));
+        blackhole.consume(document.select(root, "//*/Nic", namespaces));
+        Node content = document.select(root, "//*/Content", namespaces).get(0);
+        blackhole.consume(document.select(content, "Name", namespaces));
+        blackhole.consume(document.select(content, "Description", namespaces));
+        for (Node section : document.select(content, "Section", namespaces)) {
+            List<Node> items = document.select(section, "Item", namespaces);
+            for (Node item : items) {
+                for (String field : ITEM_FIELDS) {
+                    List<Node> nodes = document.select(item, field, namespaces);
+                    if (!nodes.isEmpty()) {
+                        blackhole.consume(nodes.get(0).getTextContent());
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void stax(Blackhole blackhole) throws Exception {
+        XmlDocument document = new XmlDocument(ovf);
+        blackhole.consume(document.SelectSingleNode("//ovf:Envelope", namespaces));
+        blackhole.consume(document.SelectNodes("//*/File", namespaces));
+        blackhole.consume(document.SelectNodes("//*/Section/Disk", namespaces));
+        blackhole.consume(document.SelectNodes("//*/Nic", namespaces));
+        XmlNode content = document.SelectSingleNode("//*/Content", namespaces);
+        blackhole.consume(content.SelectSingleNode("Name"));
+        blackhole.consume(content.SelectSingleNode("Description"));
+        for (XmlNode section : content.SelectNodes("Section")) {
+            for (XmlNode item : section.SelectNodes("Item")) {
+                for (String field : ITEM_FIELDS) {
+                    XmlNode node = item.SelectSingleNode(field, namespaces);
+                    if (node != null) {
+                        blackhole.consume(node.innerText);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Checks that the nodes selected in a parsed OVF are the ones XPath selects in the DOM of the same OVF.
+ */
+public class XmlDocumentTest {
+
+    private static final String[] DOCUMENT_EXPRESSIONS = {
+            "//ovf:Envelope",
+            "//*/Section/Disk",
+            "//*/Nic",
+            "//*/File",
+            "//*/Content",
+            "//*/Content/Section",
+            "//*/Content/TemplateId",
+            "//*/Content/DedicatedVmForVds",
+            "//*/Item[rasd:ResourceType=10]",
+            "//*/Item[rasd:ResourceType='3']",
+            "//*/Item[rasd:ResourceType=17]",
+            "//*/Section",
+            "//*/Item/SpecParams/nested/deep",
+            "//Item",
+            "//*",
+            "ovf:Envelope",
+            "Content",
+            "//*/Missing",
+    };
+
+    private static final String[] CONTENT_EXPRESSIONS = {
+            "Name",
+            "Description",
+            "Comment",
+            "Section",
+            "VmInit",
+            "DedicatedVmForVds",
+            "exportonly_quota_name",
+            "DefaultDisplayType",
+            "Section/Item",
+            "*",
+            "Missing",
+    };
+
+    private static final String[] ITEM_EXPRESSIONS = {
+            "rasd:Caption",
+            "rasd:InstanceId",
+            "rasd:ResourceType",
+            "rasd:HostResource",
+            "rasd:StorageId",
+            "rasd:Address",
+            "rasd:ApplicationList",
+            "rasd:speed",
+            "Type",
+            "Device",
+            "BootOrder",
+            "SpecParams",
+            "SpecParams/nested",
+            "*",
+    };
+
+    private static final String[] SNAPSHOT_EXPRESSIONS = {
+            "Type",
+            "Description",
+            "CreationDate",
+            "Memory",
+            "VmConfiguration",
+            "ApplicationList",
+    };
+
+    private String ovf;
+    private XmlNamespaceManager namespaces;
+    private XmlDocument document;
+    private DomXmlDocument domDocument;
+
+    @Before
+    public void setUp() throws Exception {
+        ovf = readOvf();
+        namespaces = new XmlNamespaceManager();
+        namespaces.addNamespace("ovf", "http://schemas.dmtf.org/ovf/envelope/1/");
+        namespaces.addNamespace("rasd", "http://schemas.dmtf.org/wbem/wscim/1/cim-schema/2/CIM_ResourceAllocationSettingData");
+        namespaces.addNamespace("vssd", "http://schemas.dmtf.org/wbem/wscim/1/cim-schema/2/CIM_VirtualSystemSettingData");
+        namespaces.addNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+        document = new XmlDocument(ovf);
+        domDocument = new DomXmlDocument(ovf);
+    }
+
+    @Test
+    public void testDocumentSelections() {
+        for (String expression : DOCUMENT_EXPRESSIONS) {
+            List<Node> expected = domDocument.select(domDocument.getDocument(), expression, namespaces);
+            assertSameNodes(expression, expected, document.SelectNodes(expression, namespaces));
+
+            XmlNode first = document.SelectSingleNode(expression, namespaces);
+            if (expected.isEmpty()) {
+                assertNull(expression, first);
+            } else {
+                assertSameNode(expression, expected.get(0), first);
+            }
+        }
+    }
+
+    @Test
+    public void testRelativeSelections() {
+        assertRelativeSelections("//*/Content", CONTENT_EXPRESSIONS);
+        assertRelativeSelections("//*/Item", ITEM_EXPRESSIONS);
+        assertRelativeSelections("//*/Snapshot", SNAPSHOT_EXPRESSIONS);
+    }
+
+    @Test
+    public void testChildNodes() {
+        List<Node> expected = domDocument.select(domDocument.getDocument(), "//*/Item/SpecParams/*", namespaces);
+        XmlNode specParams = document.SelectSingleNode("//*/Item/SpecParams", namespaces);
+        Iterator<Node> expectedIterator = expected.iterator();
+        for (XmlNode child : specParams.GetChildNodes()) {
+            Node expectedChild = expectedIterator.next();
+            NodeList expectedChildNodes = expectedChild.getChildNodes();
+            assertEquals(expectedChild.getNodeName(), child.getName());
+            assertEquals(expectedChild.getNodeName(), expectedChildNodes.getLength(), child.getChildNodesCount());
+            assertEquals(expectedChild.getNodeName(),
+                    expectedChildNodes.getLength() == 1
+                            && expectedChildNodes.item(0).getNodeType() == Node.TEXT_NODE,
+                    child.hasSingleTextChild());
+        }
+        assertFalse(expectedIterator.hasNext());
+    }
+
+    @Test
+    public void testAttributes() {
+        XmlNode disk = document.SelectSingleNode("//*/Section/Disk", namespaces);
+        assertEquals("system & boot", disk.attributes.get("ovf:disk-description").getValue());
+        assertNull(disk.attributes.get("disk-description"));
+        assertNull(disk.attributes.get("ovf:missing"));
+        assertEquals("http://schemas.dmtf.org/ovf/envelope/1/",
+                document.SelectSingleNode("//ovf:Envelope", namespaces).attributes.get("xmlns:ovf").getValue());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUnknownPrefix() {
+        document.SelectNodes("//*/Item[rasd:ResourceType=10]");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUnsupportedExpression() {
+        document.SelectNodes("//*/Item[position()=1]", namespaces);
+    }
+
+    @Test
+    public void testOuterXml() {
+        assertEquals(ovf, document.getOuterXml());
+    }
+
+    private void assertRelativeSelections(String contextExpression, String[] expressions) {
+        List<Node> expectedContexts = domDocument.select(domDocument.getDocument(), contextExpression, namespaces);
+        List<XmlNode> contexts = toList(document.SelectNodes(contextExpression, namespaces));
+        assertEquals(contextExpression, expectedContexts.size(), contexts.size());
+
+        for (int i = 0; i < contexts.size(); i++) {
+            for (String expression : expressions) {
+                String description = contextExpression + "[" + i + "] " + expression;
+                List<Node> expected = domDocument.select(expectedContexts.get(i), expression, namespaces);
+                XmlNode first = contexts.get(i).SelectSingleNode(expression, namespaces);
+                if (expected.isEmpty()) {
+                    assertNull(description, first);
+                } else {
+                    assertSameNode(description, expected.get(0), first);
+                }
+                if (!expression.contains(":")) {
+                    assertSameNodes(description, expected, contexts.get(i).SelectNodes(expression));
+                }
+            }
+        }
+    }
+
+    private static void assertSameNodes(String description, List<Node> expected, XmlNodeList actual) {
+        List<XmlNode> nodes = toList(actual);
+        assertEquals(description, expected.size(), nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            assertSameNode(description + " #" + i, expected.get(i), nodes.get(i));
+        }
+    }
+
+    private static void assertSameNode(String description, Node expected, XmlNode actual) {
+        assertEquals(description, expected.getNodeName(), actual.getName());
+        assertEquals(description, expected.getTextContent(), actual.innerText);
+        NamedNodeMap attributes = expected.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            XmlAttribute actualAttribute = actual.attributes.get(attribute.getNodeName());
+            assertTrue(description + " " + attribute.getNodeName(), actualAttribute != null);
+            assertEquals(description + " " + attribute.getNodeName(),
+                    attribute.getNodeValue(),
+                    actualAttribute.getValue());
+        }
+    }
+
+    private static List<XmlNode> toList(XmlNodeList nodeList) {
+        List<XmlNode> nodes = new ArrayList<>();
+        for (XmlNode node : nodeList) {
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    static String readOvf() {
+        InputStream inputStream = XmlDocumentTest.class.getResourceAsStream("/ovf/vm.ovf");
+        try (Scanner scanner = new Scanner(inputStream, "UTF-8")) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.ovirt.engine.core.utils.serialization.json;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ovirt.engine.core.common.action.AddVmTemplateParameters;
+import org.ovirt.engine.core.common.action.RunVmParams;
+import org.ovirt.engine.core.common.action.VdcActionParametersBase;
+import org.ovirt.engine.core.common.businessentities.BootSequence;
+import org.ovirt.engine.core.common.businessentities.VmStatic;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.Deserializer;
+import org.ovirt.engine.core.utils.Serializer;
+
+/**
+ * Compares persisting command parameters in the formatted JSON of {@link JsonObjectSerializer} and in the compact
+ * JSON of {@link JsonCompactObjectSerializer}. The sizes of both forms are compared by
+ * {@link JsonCompactObjectSerializerTest#testSerializedFormIsSmaller()}.
+ * <p>
+ * Run with: <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main JsonCompactObjectSerializerBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JsonCompactObjectSerializerBenchmark {
+
+    @Param({ "RunVmParams", "AddVmTemplateParameters" })
+    private String parametersType;
+
+    private VdcActionParametersBase parameters;
+    private Serializer formattedSerializer;
+    private Deserializer formattedDeserializer;
+    private Serializer compactSerializer;
+    private Deserializer compactDeserializer;
+    private String formatted;
+    private String compact;
+
+    @Setup
+    public void setUp() {
+        parameters = "RunVmParams".equals(parametersType) ? createRunVmParams() : createAddVmTemplateParameters();
+        formattedSerializer = new JsonObjectSerializer();
+        formattedDeserializer = new JsonObjectDeserializer();
+        compactSerializer = new JsonCompactObjectSerializer();
+        compactDeserializer = new JsonCompactObjectDeserializer();
+
+        formatted = formattedSerializer.serialize(parameters);
+        compact = compactSerializer.serialize(parameters);
+    }
+
+    @Benchmark
+    public String serializeFormatted() {
+        return formattedSerializer.serialize(parameters);
+    }
+
+    @Benchmark
+    public String serializeCompact() {
+        return compactSerializer.serialize(parameters);
+    }
+
+    @Benchmark
+    public VdcActionParametersBase deserializeFormatted() {
+        return formattedDeserializer.deserialize(formatted, VdcActionParametersBase.class);
+    }
+
+    @Benchmark
+    public VdcActionParametersBase deserializeCompact() {
+        return compactDeserializer.deserialize(compact, VdcActionParametersBase.class);
+    }
+
+    private static VdcActionParametersBase createRunVmParams() {
+        RunVmParams params = new RunVmParams(Guid.newGuid());
+        params.setCommandId(Guid.newGuid());
+        params.setParentParameters(new VdcActionParametersBase());
+        params.setBootSequence(BootSequence.CDN);
+        params.setCustomProperties("sap_agent=true");
+        params.setRunAsStateless(true);
+        return params;
+    }
+
+    private static VdcActionParametersBase createAddVmTemplateParameters() {
+        VmStatic vm = new VmStatic();
+        vm.setId(Guid.newGuid());
+        vm.setName("vm1");
+        vm.setVdsGroupId(Guid.newGuid());
+        vm.setMemSizeMb(4096);
+        vm.setNumOfSockets(2);
+        vm.setDescription("Template source");
+
+        AddVmTemplateParameters params = new AddVmTemplateParameters(vm, "template1", "Template of vm1");
+        params.setCommandId(Guid.newGuid());
+        params.setDestinationStorageDomainId(Guid.newGuid());
+        return params;
+    }
+}
@@ -0,0 +1,106 @@
+package org.ovirt.engine.core.utils.serialization.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ovirt.engine.core.common.action.RunVmParams;
+import org.ovirt.engine.core.common.action.VdcActionParametersBase;
+import org.ovirt.engine.core.common.businessentities.BootSequence;
+import org.ovirt.engine.core.compat.Guid;
+
+/**
+ * Tests for {@link JsonCompactObjectSerializer} and {@link JsonCompactObjectDeserializer}.
+ */
+public class JsonCompactObjectSerializerTest {
+
+    @Test
+    public void testSerializeParameters() {
+        RunVmParams params = createRunVmParams();
+
+        String serialized = new JsonCompactObjectSerializer().serialize(params);
+        RunVmParams deserialized = new JsonCompactObjectDeserializer().deserialize(serialized, RunVmParams.class);
+
+        assertEquals(params, deserialized);
+        assertEquals(params.getCommandId(), deserialized.getCommandId());
+        assertEquals(params.getParentParameters().getCommandId(),
+                deserialized.getParentParameters().getCommandId());
+    }
+
+    @Test
+    public void testSerializedFormIsCompact() {
+        String serialized = new JsonCompactObjectSerializer().serialize(createRunVmParams());
+
+        assertTrue(serialized.startsWith(JsonCompactObjectSerializer.FORMAT_PREFIX));
+        assertFalse(serialized.contains("\n"));
+        assertTrue(serialized.contains("\"~c.Guid\""));
+        assertFalse(serialized.contains(Guid.class.getName()));
+    }
+
+    @Test
+    public void testSerializedFormIsSmaller() {
+        RunVmParams params = createRunVmParams();
+
+        String formatted = new JsonObjectSerializer().serialize(params);
+        String compact = new JsonCompactObjectSerializer().serialize(params);
+
+        assertTrue(compact.length() < formatted.length());
+    }
+
+    @Test
+    public void testDeserializeLegacyForm() {
+        RunVmParams params = createRunVmParams();
+
+        String serialized = new JsonObjectSerializer().serialize(params);
+        RunVmParams deserialized = new JsonCompactObjectDeserializer().deserialize(serialized, RunVmParams.class);
+
+        assertEquals(params, deserialized);
+        assertEquals(params.getCommandId(), deserialized.getCommandId());
+    }
+
+    @Test
+    public void testNullSerialize() {
+        assertNull(new JsonCompactObjectSerializer().serialize(null));
+        assertNull(new JsonCompactObjectDeserializer().deserialize(null, RunVmParams.class));
+    }
+
+    @Test
+    public void testClassAliases() {
+        assertEquals("~c.Guid", JsonClassAliasIdResolver.toAlias(Guid.class.getName()));
+        assertEquals(Guid.class.getName(), JsonClassAliasIdResolver.fromAlias("~c.Guid"));
+        assertEquals("~u.ArrayList", JsonClassAliasIdResolver.toAlias("java.util.ArrayList"));
+        assertEquals("~b.VmStatic$Inner",
+                JsonClassAliasIdResolver.toAlias("org.ovirt.engine.core.common.businessentities.VmStatic$Inner"));
+        assertEquals("org.ovirt.engine.core.common.businessentities.VmStatic$Inner",
+                JsonClassAliasIdResolver.fromAlias("~b.VmStatic$Inner"));
+        // Sub-packages of an aliased package have aliases of their own, or none
+        assertEquals("~bs.DiskImage",
+                JsonClassAliasIdResolver.toAlias("org.ovirt.engine.core.common.businessentities.storage.DiskImage"));
+        assertEquals("org.ovirt.engine.core.common.businessentities.aaa.DbUser",
+                JsonClassAliasIdResolver.toAlias("org.ovirt.engine.core.common.businessentities.aaa.DbUser"));
+        assertEquals("org.ovirt.engine.core.utils.Pair",
+                JsonClassAliasIdResolver.toAlias("org.ovirt.engine.core.utils.Pair"));
+        assertEquals("org.ovirt.engine.core.utils.Pair",
+                JsonClassAliasIdResolver.fromAlias("org.ovirt.engine.core.utils.Pair"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownClassAlias() {
+        JsonClassAliasIdResolver.fromAlias("~zz.Guid");
+    }
+
+    private static RunVmParams createRunVmParams() {
+        VdcActionParametersBase parentParams = new VdcActionParametersBase();
+        parentParams.setCommandId(Guid.newGuid());
+
+        RunVmParams params = new RunVmParams(Guid.newGuid());
+        params.setCommandId(Guid.newGuid());
+        params.setParentParameters(parentParams);
+        params.setBootSequence(BootSequence.CDN);
+        params.setCustomProperties("sap_agent=true");
+        params.setRunAsStateless(true);
+        return params;
+    }
+}
@@ -0,0 +1,160 @@
+package org.ovirt.engine.core.utils.threadpool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.ovirt.engine.core.utils.MockConfigRule.mockConfig;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.utils.MockConfigRule;
+
+public class ThreadPoolUtilTest {
+
+    @ClassRule
+    public static MockConfigRule mcr = new MockConfigRule(
+            mockConfig(ConfigValues.MonitoringThreadPoolSize, 2),
+            mockConfig(ConfigValues.MonitoringThreadPoolQueueSize, 1),
+            mockConfig(ConfigValues.EventsThreadPoolSize, 2),
+            mockConfig(ConfigValues.EventsThreadPoolQueueSize, 10),
+            mockConfig(ConfigValues.ParallelThreadPoolSize, 1),
+            mockConfig(ConfigValues.ParallelThreadPoolQueueSize, 1));
+
+    @Test
+    public void testInvokeAllCountsTasks() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return value;
+                }
+            });
+        }
+
+        List<Integer> results = ThreadPoolUtil.invokeAll(ThreadPoolType.EVENTS, tasks);
+
+        assertEquals(5, results.size());
+        ThreadPoolMonitorMXBean monitor = getMonitor(ThreadPoolType.EVENTS);
+        assertEquals("events", monitor.getPoolName());
+        assertTrue(monitor.getCompletedTasks() >= 5);
+        assertEquals(0, monitor.getRejectedTasks());
+    }
+
+    @Test
+    public void testRejectionCounted() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        try {
+            // two running and one queued task fill the monitoring pool
+            for (int i = 0; i < 3; i++) {
+                ThreadPoolUtil.execute(ThreadPoolType.MONITORING, blocking);
+            }
+            ThreadPoolUtil.execute(ThreadPoolType.MONITORING, blocking);
+        } catch (RejectedExecutionException expected) {
+            // the fourth task does not fit
+        } finally {
+            release.countDown();
+        }
+
+        ThreadPoolMonitorMXBean monitor = getMonitor(ThreadPoolType.MONITORING);
+        assertEquals(1, monitor.getRejectedTasks());
+        assertTrue(monitor.getMaxQueueDepth() >= 1);
+    }
+
+    @Test
+    public void testRejectedTasksRunOnCaller() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        // one running and one queued task fill the parallel pool
+        ThreadPoolUtil.execute(ThreadPoolType.PARALLEL, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                awaitQuietly(release);
+            }
+        });
+        started.await(10, TimeUnit.SECONDS);
+        ThreadPoolUtil.execute(ThreadPoolType.PARALLEL, new Runnable() {
+            @Override
+            public void run() {
+                // the queued task
+            }
+        });
+
+        try {
+            List<Thread> threads = ThreadPoolUtil.invokeAllOrRunOnCaller(ThreadPoolType.PARALLEL,
+                    Arrays.asList(new CurrentThread(), new CurrentThread()));
+
+            assertEquals(Arrays.asList(Thread.currentThread(), Thread.currentThread()), threads);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testTasksOfTheSamePoolRunOnCaller() throws Exception {
+        List<List<Thread>> results = ThreadPoolUtil.invokeAll(ThreadPoolType.EVENTS,
+                Collections.singletonList(new Callable<List<Thread>>() {
+                    @Override
+                    public List<Thread> call() {
+                        List<Thread> threads = new ArrayList<>();
+                        threads.add(Thread.currentThread());
+                        threads.addAll(ThreadPoolUtil.invokeAllOrRunOnCaller(ThreadPoolType.EVENTS,
+                                Arrays.asList(new CurrentThread(), new CurrentThread())));
+                        return threads;
+                    }
+                }));
+
+        List<Thread> threads = results.get(0);
+        assertEquals(Collections.nCopies(3, threads.get(0)), threads);
+    }
+
+    /**
+     * Returns the thread it is called on
+     */
+    private static class CurrentThread implements Callable<Thread> {
+        @Override
+        public Thread call() {
+            return Thread.currentThread();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadPoolMonitorMXBean getMonitor(ThreadPoolType type) throws Exception {
+        return JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName("ThreadPoolUtil:type=" + ThreadPoolUtil.class.getName() + ",name=" + type.getPoolName()),
+                ThreadPoolMonitorMXBean.class);
+    }
+}
@@ -6,6 +6,13 @@ public class PollAllVmStatsOnlyRefresher extends PollVmStatsRefresher {
         super(vdsManager, getRefreshRate());
     }
 
+    /**
+     * @param refreshRate the interval in milliseconds between fetching the statistics of all the VMs
+     */
+    public PollAllVmStatsOnlyRefresher(VdsManager vdsManager, int refreshRate) {
+        super(vdsManager, refreshRate);
+    }
+
     private static int getRefreshRate() {
         return VMS_REFRESH_RATE * NUMBER_VMS_REFRESHES_BEFORE_SAVE;
     }
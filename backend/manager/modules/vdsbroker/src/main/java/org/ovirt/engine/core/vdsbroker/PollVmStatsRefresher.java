@@ -6,8 +6,7 @@ import javax.inject.Inject;
 
 import org.ovirt.engine.core.common.config.Config;
 import org.ovirt.engine.core.common.config.ConfigValues;
-import org.ovirt.engine.core.utils.timer.OnTimerMethodAnnotation;
-import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
+import org.ovirt.engine.core.utils.timer.SchedulerUtilHashedWheelImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,7 +16,7 @@ public abstract class PollVmStatsRefresher extends VmStatsRefresher {
     protected static final int NUMBER_VMS_REFRESHES_BEFORE_SAVE = Config.<Integer> getValue(ConfigValues.NumberVmRefreshesBeforeSave);
 
     @Inject
-    private SchedulerUtilQuartzImpl scheduler;
+    private SchedulerUtilHashedWheelImpl scheduler;
     private String vmsMonitoringJobId;
     private final int refreshRate;
 
@@ -26,7 +25,6 @@ public abstract class PollVmStatsRefresher extends VmStatsRefresher {
         this.refreshRate = refreshRate;
     }
 
-    @OnTimerMethodAnnotation("poll")
     public void poll() {
         if (vdsManager.isMonitoringNeeded()) {
             VmsListFetcher fetcher = getVmsFetcher();
@@ -55,10 +53,13 @@ public abstract class PollVmStatsRefresher extends VmStatsRefresher {
     public void startMonitoring() {
         vmsMonitoringJobId =
                 scheduler.scheduleAFixedDelayJob(
-                        this,
-                        "poll",
-                        new Class[0],
-                        new Object[0],
+                        getClass().getName() + ".poll",
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                poll();
+                            }
+                        },
                         0,
                         refreshRate,
                         TimeUnit.MILLISECONDS);
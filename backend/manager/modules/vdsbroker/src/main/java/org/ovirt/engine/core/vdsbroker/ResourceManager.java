@@ -1,5 +1,6 @@
 package org.ovirt.engine.core.vdsbroker;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 import java.util.Collections;
 import java.util.Date;
@@ -16,6 +17,7 @@ import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.InjectionTarget;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.management.ObjectName;
 
 import org.apache.commons.lang.StringUtils;
 import org.ovirt.engine.core.common.AuditLogType;
@@ -74,6 +76,7 @@ public class ResourceManager implements BackendService {
     private final Set<Guid> asyncRunningVms =
             Collections.newSetFromMap(new ConcurrentHashMap<Guid, Boolean>());
     private final ConcurrentHashMap<Guid, VmManager> vmManagers = new ConcurrentHashMap<>();
+    private final VmsPersistenceStatistics vmsPersistenceStatistics = new VmsPersistenceStatistics();
 
     private static final String VDSCommandPrefix = "VDSCommand";
 
@@ -138,10 +141,21 @@ public class ResourceManager implements BackendService {
             AddVds(curVds, true);
         }
         IrsBrokerCommand.init();
+        registerVmsPersistenceStatistics();
 
         log.info("Finished initializing {}", getClass().getSimpleName());
     }
 
+    private void registerVmsPersistenceStatistics() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(vmsPersistenceStatistics,
+                    new ObjectName("ResourceManager:type=" + VmsPersistenceStatistics.class.getName()));
+        } catch (Exception e) {
+            log.warn("Failed to register the VMs persistence statistics into JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
     private void populateVdsAndVmsList() {
 
         final List<VM> vms = vmDao.getAll();
@@ -284,6 +298,7 @@ public class ResourceManager implements BackendService {
         // log VM transition to unknown status
         AuditLogableBase logable = new AuditLogableBase();
         logable.setVmId(vm.getId());
+        logable.setVmName(vm.getName());
         auditLogDirector.log(logable, AuditLogType.VM_SET_TO_UNKNOWN_STATUS);
 
         storeVm(vm);
@@ -500,6 +515,10 @@ public class ResourceManager implements BackendService {
         return null;
     }
 
+    public VmsPersistenceStatistics getVmsPersistenceStatistics() {
+        return vmsPersistenceStatistics;
+    }
+
     public VmManager getVmManager(Guid vmId) {
         if (!vmManagers.containsKey(vmId)) {
             vmManagers.putIfAbsent(vmId, new VmManager(vmId));
@@ -51,9 +51,11 @@ import org.ovirt.engine.core.utils.NumaUtils;
 import org.ovirt.engine.core.utils.crypt.EngineEncryptionUtils;
 import org.ovirt.engine.core.utils.lock.EngineLock;
 import org.ovirt.engine.core.utils.lock.LockManagerFactory;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
 import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.utils.timer.OnTimerMethodAnnotation;
 import org.ovirt.engine.core.utils.timer.SchedulerUtil;
+import org.ovirt.engine.core.utils.timer.SchedulerUtilHashedWheelImpl;
 import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
 import org.ovirt.engine.core.utils.transaction.TransactionMethod;
 import org.ovirt.engine.core.utils.transaction.TransactionSupport;
@@ -142,14 +144,17 @@ public class VdsManager {
     }
 
     public void scheduleJobs() {
-        SchedulerUtil sched = getSchedulUtil();
+        SchedulerUtilHashedWheelImpl sched = getMonitoringScheduler();
         int refreshRate = Config.<Integer> getValue(ConfigValues.VdsRefreshRate) * 1000;
 
         registeredJobs.add(sched.scheduleAFixedDelayJob(
-                this,
-                "onTimer",
-                new Class[0],
-                new Object[0],
+                VdsManager.class.getName() + ".onTimer",
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        onTimer();
+                    }
+                },
                 refreshRate,
                 refreshRate,
                 TimeUnit.MILLISECONDS));
@@ -159,10 +164,13 @@ public class VdsManager {
         long rateInMinutes = Math.round(availableUpdatesRefreshRate * HOURS_TO_MINUTES);
 
         registeredJobs.add(sched.scheduleAFixedDelayJob(
-                this,
-                "availableUpdates",
-                new Class[0],
-                new Object[0],
+                VdsManager.class.getName() + ".availableUpdates",
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        availableUpdates();
+                    }
+                },
                 RandomUtils.nextInt(HOURS_TO_MINUTES) + 1,
                 rateInMinutes,
                 TimeUnit.MINUTES));
@@ -179,6 +187,10 @@ public class VdsManager {
         return Injector.get(SchedulerUtilQuartzImpl.class);
     }
 
+    private SchedulerUtilHashedWheelImpl getMonitoringScheduler() {
+        return Injector.get(SchedulerUtilHashedWheelImpl.class);
+    }
+
     private void initVdsBroker() {
         log.info("Initialize vdsBroker '{}:{}'", cachedVds.getHostName(), cachedVds.getPort());
 
@@ -198,7 +210,6 @@ public class VdsManager {
                 heartbeat);
     }
 
-    @OnTimerMethodAnnotation("onTimer")
     public void onTimer() {
         if (LockManagerFactory.getLockManager().acquireLock(monitoringLock).getFirst()) {
             try {
@@ -280,7 +291,6 @@ public class VdsManager {
         setMonitoringNeeded();
     }
 
-    @OnTimerMethodAnnotation("availableUpdates")
     public void availableUpdates() {
         if (cachedVds.getStatus() != VDSStatus.Maintenance
                 && cachedVds.getStatus() != VDSStatus.Up
@@ -861,7 +871,7 @@ public class VdsManager {
     public void dispose() {
         log.info("vdsManager::disposing");
         for (String jobId : registeredJobs) {
-            getSchedulUtil().deleteJob(jobId);
+            getMonitoringScheduler().deleteJob(jobId);
         }
 
         vmsRefresher.stopMonitoring();
@@ -950,6 +960,7 @@ public class VdsManager {
             // log VM transition to unknown status
             AuditLogableBase logable = new AuditLogableBase();
             logable.setVmId(vm.getId());
+            logable.setVmName(vm.getName());
             auditLogDirector.log(logable, AuditLogType.VM_SET_TO_UNKNOWN_STATUS);
         }
     }
@@ -959,7 +970,7 @@ public class VdsManager {
             return;
         }
         // avoid nested locks by doing this in a separate thread
-        ThreadPoolUtil.execute(new Runnable() {
+        ThreadPoolUtil.execute(ThreadPoolType.MONITORING, new Runnable() {
             @Override
             public void run() {
                 VDSReturnValue returnValue = null;
@@ -1027,9 +1027,25 @@ public class VmAnalyzer {
     }
 
     protected void auditLog(AuditLogableBase auditLogable, AuditLogType logType) {
+        setNamesKnownByMonitoring(auditLogable);
         auditLogDirector.log(auditLogable, logType);
     }
 
+    /**
+     * Sets what's known by the monitoring about the host and the VM of the event, so they aren't loaded from the
+     * database just to log their names
+     */
+    private void setNamesKnownByMonitoring(AuditLogableBase auditLogable) {
+        VdsManager vdsManager = getVdsManager();
+        if (auditLogable.getVdsIdRef() != null && auditLogable.getVdsIdRef().equals(vdsManager.getVdsId())) {
+            auditLogable.setVdsName(vdsManager.getVdsName());
+            auditLogable.setVdsGroupId(vdsManager.getVdsGroupId());
+        }
+        if (dbVm != null && auditLogable.getVmIdRef() != null && auditLogable.getVmIdRef().equals(dbVm.getId())) {
+            auditLogable.setVmName(dbVm.getName());
+        }
+    }
+
     public boolean isRerun() {
         return rerun;
     }
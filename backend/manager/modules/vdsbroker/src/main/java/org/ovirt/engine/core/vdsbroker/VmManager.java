@@ -2,10 +2,12 @@ package org.ovirt.engine.core.vdsbroker;
 
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.common.businessentities.VMStatus;
 import org.ovirt.engine.core.common.businessentities.VmDynamic;
 import org.ovirt.engine.core.common.businessentities.VmStatistics;
 import org.ovirt.engine.core.common.businessentities.network.VmNetworkStatistics;
+import org.ovirt.engine.core.common.utils.ObjectUtils;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
 import org.ovirt.engine.core.dao.VmDynamicDao;
@@ -28,6 +30,13 @@ public class VmManager {
     private Double lastStatusEventTimestamp;
     private Guid lastStatusEventReporterId;
 
+    /** the last dynamic data persisted by the monitoring, null if unknown **/
+    private VmDynamic persistedDynamic;
+    /** the last statistics persisted by the monitoring, null if unknown **/
+    private VmStatistics persistedStatistics;
+    private int suppressedDynamicWrites;
+    private int suppressedStatisticsWrites;
+
     public VmManager(Guid id) {
         this.id = id;
         convertOperationProgress = -1;
@@ -47,10 +56,12 @@ public class VmManager {
 
     public void update(VmDynamic dynamic) {
         getVmDynamicDao().update(dynamic);
+        persistedDynamic = null;
     }
 
     public void update(VmStatistics statistics) {
         getVmStatisticsDao().update(statistics);
+        persistedStatistics = null;
     }
 
     public void update(VmNetworkStatistics networkStatistics) {
@@ -147,4 +158,116 @@ public class VmManager {
             lastStatusEventReporterId = null;
         }
     }
+
+    /**
+     * Drop the persisted data snapshots if they don't match the data that was loaded from the DB, i.e the VM data
+     * was updated by someone else since the monitoring persisted it. Only the dynamic fields which are reported by
+     * VDSM are compared, other changes are carried to the data the monitoring saves anyway.
+     *
+     * should be called while holding the manager lock
+     * @param dbVm - the VM as loaded from the DB, before it is modified by the monitoring
+     */
+    void verifyPersistedData(VM dbVm) {
+        VmDynamic dbDynamic = dbVm.getDynamicData();
+        if (persistedDynamic != null
+                && (persistedDynamic.getStatus() != dbDynamic.getStatus()
+                        || persistedDynamic.getExitStatus() != dbDynamic.getExitStatus()
+                        || !ObjectUtils.objectsEqual(persistedDynamic.getRunOnVds(), dbDynamic.getRunOnVds())
+                        || !ObjectUtils.objectsEqual(persistedDynamic.getMigratingToVds(),
+                                dbDynamic.getMigratingToVds()))) {
+            persistedDynamic = null;
+        }
+        // the DB keeps the cpu values rounded
+        if (persistedStatistics != null
+                && !isStatisticsWithinTolerance(dbVm.getStatisticsData(), persistedStatistics, 1)) {
+            persistedStatistics = null;
+        }
+    }
+
+    /**
+     * Check whether the given dynamic data needs to be written to the DB. A write is suppressed if the data equals
+     * the last persisted data, unless the writes of the VM were already suppressed maxSuppressedWrites times in a row.
+     *
+     * should be called while holding the manager lock
+     */
+    boolean isDynamicWriteNeeded(VmDynamic dynamic, int maxSuppressedWrites) {
+        if (persistedDynamic == null || suppressedDynamicWrites >= maxSuppressedWrites) {
+            return true;
+        }
+        // the disks are not persisted with the dynamic data, don't let their statistics fail the comparison
+        VmDynamic comparedDynamic = new VmDynamic(dynamic);
+        comparedDynamic.setDisks(persistedDynamic.getDisks());
+        if (!persistedDynamic.equals(comparedDynamic)) {
+            return true;
+        }
+        ++suppressedDynamicWrites;
+        return false;
+    }
+
+    /**
+     * Check whether the given statistics need to be written to the DB. A write is suppressed if the usage values
+     * moved by less than the given tolerance (in percentage points) from the last persisted values and the other
+     * values are equal, unless the writes of the VM were already suppressed maxSuppressedWrites times in a row.
+     *
+     * should be called while holding the manager lock
+     */
+    boolean isStatisticsWriteNeeded(VmStatistics statistics, int tolerance, int maxSuppressedWrites) {
+        if (persistedStatistics == null
+                || suppressedStatisticsWrites >= maxSuppressedWrites
+                || !isStatisticsWithinTolerance(statistics, persistedStatistics, tolerance)) {
+            return true;
+        }
+        ++suppressedStatisticsWrites;
+        return false;
+    }
+
+    /**
+     * keep a snapshot of the dynamic data which was written to the DB
+     */
+    void dynamicPersisted(VmDynamic dynamic) {
+        persistedDynamic = new VmDynamic(dynamic);
+        suppressedDynamicWrites = 0;
+    }
+
+    /**
+     * keep a snapshot of the statistics which were written to the DB
+     */
+    void statisticsPersisted(VmStatistics statistics) {
+        VmStatistics snapshot = new VmStatistics();
+        snapshot.setId(statistics.getId());
+        snapshot.setcpu_sys(statistics.getcpu_sys());
+        snapshot.setcpu_user(statistics.getcpu_user());
+        snapshot.setusage_cpu_percent(statistics.getusage_cpu_percent());
+        snapshot.setusage_mem_percent(statistics.getusage_mem_percent());
+        snapshot.setusage_network_percent(statistics.getusage_network_percent());
+        snapshot.setMigrationProgressPercent(statistics.getMigrationProgressPercent());
+        snapshot.setDisksUsage(statistics.getDisksUsage());
+        persistedStatistics = snapshot;
+        suppressedStatisticsWrites = 0;
+    }
+
+    /**
+     * The elapsed time and the usage history are not compared, they change on every cycle of a running VM and are
+     * refreshed once the writes of the VM were suppressed for the maximal number of cycles.
+     */
+    private static boolean isStatisticsWithinTolerance(VmStatistics statistics, VmStatistics persisted, int tolerance) {
+        return ObjectUtils.objectsEqual(statistics.getId(), persisted.getId())
+                && isWithinTolerance(statistics.getcpu_sys(), persisted.getcpu_sys(), tolerance)
+                && isWithinTolerance(statistics.getcpu_user(), persisted.getcpu_user(), tolerance)
+                && isWithinTolerance(statistics.getusage_cpu_percent(), persisted.getusage_cpu_percent(), tolerance)
+                && isWithinTolerance(statistics.getusage_mem_percent(), persisted.getusage_mem_percent(), tolerance)
+                && isWithinTolerance(statistics.getusage_network_percent(),
+                        persisted.getusage_network_percent(),
+                        tolerance)
+                && ObjectUtils.objectsEqual(statistics.getMigrationProgressPercent(),
+                        persisted.getMigrationProgressPercent())
+                && ObjectUtils.objectsEqual(statistics.getDisksUsage(), persisted.getDisksUsage());
+    }
+
+    private static boolean isWithinTolerance(Number value, Number persisted, int tolerance) {
+        if (value == null || persisted == null) {
+            return value == persisted;
+        }
+        return Math.abs(value.doubleValue() - persisted.doubleValue()) <= tolerance;
+    }
 }
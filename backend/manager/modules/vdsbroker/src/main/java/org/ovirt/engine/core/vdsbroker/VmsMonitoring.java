@@ -11,6 +11,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.ovirt.engine.core.common.FeatureSupported;
@@ -52,6 +55,8 @@ import org.ovirt.engine.core.compat.TransactionScopeOption;
 import org.ovirt.engine.core.compat.Version;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogDirector;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.utils.transaction.TransactionMethod;
 import org.ovirt.engine.core.utils.transaction.TransactionSupport;
 import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsBrokerObjectsBuilder;
@@ -103,24 +108,40 @@ public class VmsMonitoring {
     private List<VmAnalyzer> vmAnalyzers = new ArrayList<>();
 
     //*** data collectors ***//
-    private final Map<Guid, VmDynamic> vmDynamicToSave = new HashMap();
-    private final List<VmStatistics> vmStatisticsToSave = new ArrayList<>();
-    private final List<List<VmNetworkInterface>> vmInterfaceStatisticsToSave = new ArrayList<>();
-    private final Collection<Pair<Guid, DiskImageDynamic>> vmDiskImageDynamicToSave = new LinkedList<>();
+    // the collectors which are filled by the analyzers are thread safe, as the analyzers may run concurrently
+    private final Map<Guid, VmDynamic> vmDynamicToSave = new ConcurrentHashMap<>();
+    private final List<VmStatistics> vmStatisticsToSave = Collections.synchronizedList(new ArrayList<VmStatistics>());
+    private final List<List<VmNetworkInterface>> vmInterfaceStatisticsToSave =
+            Collections.synchronizedList(new ArrayList<List<VmNetworkInterface>>());
+    private final Collection<Pair<Guid, DiskImageDynamic>> vmDiskImageDynamicToSave =
+            Collections.synchronizedList(new LinkedList<Pair<Guid, DiskImageDynamic>>());
     private final List<VmDevice> vmDeviceToSave = new ArrayList<>();
-    private final Map<Guid, List<VmGuestAgentInterface>> vmGuestAgentNics = new HashMap<>();
+    private final Map<Guid, List<VmGuestAgentInterface>> vmGuestAgentNics =
+            Collections.synchronizedMap(new HashMap<Guid, List<VmGuestAgentInterface>>());
     private final List<VmDynamic> poweringUpVms = new ArrayList<>();
     private final List<VmDevice> newVmDevices = new ArrayList<>();
     private final List<VmDeviceId> removedDeviceIds = new ArrayList<>();
-    private final List<LUNs> vmLunDisksToSave = new ArrayList<>();
+    private final List<LUNs> vmLunDisksToSave = Collections.synchronizedList(new ArrayList<LUNs>());
     private final List<Guid> autoVmsToRun = new ArrayList<>();
     private final List<VmStatic> externalVmsToAdd = new ArrayList<>();
-    private final Map<Guid, VmJob> vmJobsToUpdate = new HashMap<>();
-    private final List<Guid> vmJobIdsToRemove = new ArrayList<>();
+    private final Map<Guid, VmJob> vmJobsToUpdate = new ConcurrentHashMap<>();
+    private final List<Guid> vmJobIdsToRemove = Collections.synchronizedList(new ArrayList<Guid>());
     private final List<Guid> existingVmJobIds = new ArrayList<>();
     private List<Pair<VM, VmInternalData>> externalVms = new ArrayList<>();
     //*** data collectors ***//
 
+    /**
+     * The minimal number of VMs analyzed by a single worker, below that there is no point in
+     * paying the thread hand-off price and the analysis is done on the monitoring thread
+     */
+    private static final int MIN_VMS_PER_ANALYSIS_SHARD = 20;
+
+    //*** cycle time metrics, in nanoseconds ***//
+    private long lockStageTime;
+    private long analyzeStageTime;
+    private long saveStageTime;
+    private long afterRefreshStageTime;
+
     private static final String EXTERNAL_VM_NAME_FORMAT = "external-%1$s";
     private static final Logger log = LoggerFactory.getLogger(VmsMonitoring.class);
 
@@ -163,20 +184,43 @@ public class VmsMonitoring {
      * take place accordingly.
      */
     public void perform() {
+        long cycleStart = System.nanoTime();
         try {
             refreshExistingVmJobList();
             refreshVmStats();
+            long afterRefreshStart = System.nanoTime();
             afterVMsRefreshTreatment();
+            afterRefreshStageTime = System.nanoTime() - afterRefreshStart;
             vdsManager.vmsMonitoringInitFinished();
         } catch (RuntimeException ex) {
             log.error("Failed during vms monitoring on host {} error is: {}", vdsManager.getVdsName(), ex);
             log.error("Exception:", ex);
         } finally {
             unlockVmsManager();
+            logCycleTime(System.nanoTime() - cycleStart);
         }
 
     }
 
+    private void logCycleTime(long cycleTime) {
+        long refreshRate = TimeUnit.SECONDS.toNanos(Config.<Integer> getValue(ConfigValues.VdsRefreshRate));
+        String message = "VMs monitoring cycle on host '{}' took {} ms for {} VMs"
+                + " (lock: {} ms, analyze: {} ms, save: {} ms, after refresh treatment: {} ms)";
+        Object[] args = new Object[] {
+                vdsManager.getVdsName(),
+                TimeUnit.NANOSECONDS.toMillis(cycleTime),
+                vmAnalyzers.size(),
+                TimeUnit.NANOSECONDS.toMillis(lockStageTime),
+                TimeUnit.NANOSECONDS.toMillis(analyzeStageTime),
+                TimeUnit.NANOSECONDS.toMillis(saveStageTime),
+                TimeUnit.NANOSECONDS.toMillis(afterRefreshStageTime) };
+        if (cycleTime > refreshRate) {
+            log.warn(message, args);
+        } else {
+            log.debug(message, args);
+        }
+    }
+
     protected boolean isTimeToUpdateVmStatistics() {
         return timeToUpdateVmStatistics;
     }
@@ -204,6 +248,9 @@ public class VmsMonitoring {
                 } else {
                     // store the locked managers to finally release them at the end of the cycle
                     vmManagers.put(vmId, vmManager);
+                    if (pair.getFirst() != null) {
+                        vmManager.verifyPersistedData(pair.getFirst());
+                    }
                     return true;
                 }
             } else {
@@ -228,22 +275,68 @@ public class VmsMonitoring {
      *   this filtering.
      */
     private void refreshVmStats() {
+        long lockStart = System.nanoTime();
+        // locking is done serially on the monitoring thread so the VmManager locks are always
+        // taken and released by the same thread
         for (Pair<VM, VmInternalData> monitoredVm : monitoredVms) {
             // TODO filter out migratingTo VMs if no action is taken on them
             if (tryLockVmForUpdate(monitoredVm)) {
-                VmAnalyzer vmAnalyzer = getVmAnalyzer(monitoredVm);
-                vmAnalyzers.add(vmAnalyzer);
-                vmAnalyzer.analyze();
+                vmAnalyzers.add(getVmAnalyzer(monitoredVm));
+            }
+        }
 
-                if (vmAnalyzer.isExternalVm()) {
-                    externalVms.add(new Pair<>(vmAnalyzer.getDbVm(), vmAnalyzer.getVdsmVm()));
-                }
+        long analyzeStart = System.nanoTime();
+        lockStageTime = analyzeStart - lockStart;
+        analyzeVms(vmAnalyzers);
+        for (VmAnalyzer vmAnalyzer : vmAnalyzers) {
+            if (vmAnalyzer.isExternalVm()) {
+                externalVms.add(new Pair<>(vmAnalyzer.getDbVm(), vmAnalyzer.getVdsmVm()));
             }
         }
+
+        long saveStart = System.nanoTime();
+        analyzeStageTime = saveStart - analyzeStart;
         updateHEcluster();
         processExternallyManagedVms();
         processVmsWithDevicesChange();
         saveVmsToDb();
+        saveStageTime = System.nanoTime() - saveStart;
+    }
+
+    /**
+     * Run the analyzers of the locked VMs. The analyzers are split into shards which are analyzed
+     * concurrently, each shard serially, while the results are collected into the shared data
+     * collectors and persisted at once by {@link #saveVmsToDb()}. The shards which the monitoring
+     * pool has no room for are analyzed on the monitoring thread of the host
+     */
+    protected void analyzeVms(List<VmAnalyzer> analyzers) {
+        int shardsCount = Math.min(getMaxAnalysisShards(), analyzers.size() / MIN_VMS_PER_ANALYSIS_SHARD);
+        if (shardsCount <= 1) {
+            for (VmAnalyzer vmAnalyzer : analyzers) {
+                vmAnalyzer.analyze();
+            }
+            return;
+        }
+
+        List<Callable<Void>> shards = new ArrayList<>(shardsCount);
+        int shardSize = (analyzers.size() + shardsCount - 1) / shardsCount;
+        for (int from = 0; from < analyzers.size(); from += shardSize) {
+            final List<VmAnalyzer> shard = analyzers.subList(from, Math.min(from + shardSize, analyzers.size()));
+            shards.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (VmAnalyzer vmAnalyzer : shard) {
+                        vmAnalyzer.analyze();
+                    }
+                    return null;
+                }
+            });
+        }
+        ThreadPoolUtil.invokeAllOrRunOnCaller(ThreadPoolType.MONITORING, shards);
+    }
+
+    protected int getMaxAnalysisShards() {
+        return Config.<Integer> getValue(ConfigValues.VmsMonitoringAnalysisParallelism);
     }
 
     protected VmAnalyzer getVmAnalyzer(Pair<VM, VmInternalData> pair) {
@@ -373,8 +466,11 @@ public class VmsMonitoring {
         }
     }
     private void saveVmsToDb() {
-        getDbFacade().getVmDynamicDao().updateAllInBatch(vmDynamicToSave.values());
-        getDbFacade().getVmStatisticsDao().updateAllInBatch(vmStatisticsToSave);
+        int maxSuppressedWrites = Config.<Integer> getValue(ConfigValues.VmMaxSuppressedWrites);
+        List<VmDynamic> changedVmDynamics = filterChangedVmDynamics(maxSuppressedWrites);
+        List<VmStatistics> changedVmStatistics = filterChangedVmStatistics(maxSuppressedWrites);
+        getDbFacade().getVmDynamicDao().updateAllInBatch(changedVmDynamics);
+        getDbFacade().getVmStatisticsDao().updateAllInBatch(changedVmStatistics);
 
         final List<VmNetworkStatistics> allVmInterfaceStatistics = new LinkedList<VmNetworkStatistics>();
         for (List<VmNetworkInterface> list : vmInterfaceStatisticsToSave) {
@@ -391,6 +487,55 @@ public class VmsMonitoring {
         saveVmDevicesToDb();
         saveVmGuestAgentNetworkDevices();
         saveVmJobsToDb();
+
+        // keep the snapshots of the persisted data on the locked VM managers, for the next cycles to compare with
+        for (VmDynamic vmDynamic : changedVmDynamics) {
+            VmManager vmManager = vmManagers.get(vmDynamic.getId());
+            if (vmManager != null) {
+                vmManager.dynamicPersisted(vmDynamic);
+            }
+        }
+        for (VmStatistics vmStatistics : changedVmStatistics) {
+            VmManager vmManager = vmManagers.get(vmStatistics.getId());
+            if (vmManager != null) {
+                vmManager.statisticsPersisted(vmStatistics);
+            }
+        }
+    }
+
+    /**
+     * @return the dynamic data of the VMs which differs from the data their {@link VmManager} persisted last
+     */
+    private List<VmDynamic> filterChangedVmDynamics(int maxSuppressedWrites) {
+        List<VmDynamic> changedVmDynamics = new ArrayList<>(vmDynamicToSave.size());
+        for (VmDynamic vmDynamic : vmDynamicToSave.values()) {
+            VmManager vmManager = vmManagers.get(vmDynamic.getId());
+            if (vmManager == null || vmManager.isDynamicWriteNeeded(vmDynamic, maxSuppressedWrites)) {
+                changedVmDynamics.add(vmDynamic);
+            }
+        }
+        getResourceManager().getVmsPersistenceStatistics().addVmDynamicWrites(changedVmDynamics.size(),
+                vmDynamicToSave.size() - changedVmDynamics.size());
+        return changedVmDynamics;
+    }
+
+    /**
+     * @return the statistics of the VMs which moved past the configured tolerance from the statistics their
+     *         {@link VmManager} persisted last
+     */
+    private List<VmStatistics> filterChangedVmStatistics(int maxSuppressedWrites) {
+        int tolerance = Config.<Integer> getValue(ConfigValues.VmStatisticsWriteTolerance);
+        List<VmStatistics> changedVmStatistics = new ArrayList<>(vmStatisticsToSave.size());
+        for (VmStatistics vmStatistics : vmStatisticsToSave) {
+            VmManager vmManager = vmManagers.get(vmStatistics.getId());
+            if (vmManager == null
+                    || vmManager.isStatisticsWriteNeeded(vmStatistics, tolerance, maxSuppressedWrites)) {
+                changedVmStatistics.add(vmStatistics);
+            }
+        }
+        getResourceManager().getVmsPersistenceStatistics().addVmStatisticsWrites(changedVmStatistics.size(),
+                vmStatisticsToSave.size() - changedVmStatistics.size());
+        return changedVmStatistics;
     }
 
     protected void setOsId(VmStatic vmStatic, String guestOsNameFromVdsm, int defaultArchOsId) {
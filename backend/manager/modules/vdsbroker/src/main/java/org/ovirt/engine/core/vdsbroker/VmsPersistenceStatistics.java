@@ -0,0 +1,60 @@
+package org.ovirt.engine.core.vdsbroker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the VM dynamic data and statistics writes done by the VMs monitoring and the writes which were suppressed
+ * since the data did not change from the data persisted last
+ */
+public class VmsPersistenceStatistics implements VmsPersistenceStatisticsMXBean {
+
+    private final AtomicLong vmDynamicWrites = new AtomicLong();
+    private final AtomicLong vmDynamicSuppressedWrites = new AtomicLong();
+    private final AtomicLong vmStatisticsWrites = new AtomicLong();
+    private final AtomicLong vmStatisticsSuppressedWrites = new AtomicLong();
+
+    public void addVmDynamicWrites(int written, int suppressed) {
+        vmDynamicWrites.addAndGet(written);
+        vmDynamicSuppressedWrites.addAndGet(suppressed);
+    }
+
+    public void addVmStatisticsWrites(int written, int suppressed) {
+        vmStatisticsWrites.addAndGet(written);
+        vmStatisticsSuppressedWrites.addAndGet(suppressed);
+    }
+
+    @Override
+    public long getVmDynamicWrites() {
+        return vmDynamicWrites.get();
+    }
+
+    @Override
+    public long getVmDynamicSuppressedWrites() {
+        return vmDynamicSuppressedWrites.get();
+    }
+
+    @Override
+    public long getVmStatisticsWrites() {
+        return vmStatisticsWrites.get();
+    }
+
+    @Override
+    public long getVmStatisticsSuppressedWrites() {
+        return vmStatisticsSuppressedWrites.get();
+    }
+
+    @Override
+    public double getVmDynamicSuppressionRatio() {
+        return ratio(getVmDynamicSuppressedWrites(), getVmDynamicWrites());
+    }
+
+    @Override
+    public double getVmStatisticsSuppressionRatio() {
+        return ratio(getVmStatisticsSuppressedWrites(), getVmStatisticsWrites());
+    }
+
+    private static double ratio(long suppressed, long written) {
+        long total = suppressed + written;
+        return total == 0 ? 0 : (double) suppressed / total;
+    }
+}
@@ -0,0 +1,25 @@
+package org.ovirt.engine.core.vdsbroker;
+
+/**
+ * JMX view of the VM data writes done by the VMs monitoring
+ */
+public interface VmsPersistenceStatisticsMXBean {
+
+    long getVmDynamicWrites();
+
+    long getVmDynamicSuppressedWrites();
+
+    long getVmStatisticsWrites();
+
+    long getVmStatisticsSuppressedWrites();
+
+    /**
+     * @return the ratio of the suppressed VM dynamic data writes out of all the checked writes
+     */
+    double getVmDynamicSuppressionRatio();
+
+    /**
+     * @return the ratio of the suppressed VM statistics writes out of all the checked writes
+     */
+    double getVmStatisticsSuppressionRatio();
+}
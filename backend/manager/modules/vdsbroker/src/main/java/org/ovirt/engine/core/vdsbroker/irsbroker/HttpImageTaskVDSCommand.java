@@ -22,6 +22,7 @@ import org.ovirt.engine.core.common.errors.VDSError;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.common.vdscommands.ImageHttpAccessVDSCommandParameters;
 import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
 import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.vdsbroker.ResourceManager;
 import org.ovirt.engine.core.vdsbroker.VdsManager;
@@ -72,7 +73,7 @@ public abstract class HttpImageTaskVDSCommand<T extends HttpMethodBase, P extend
                     return httpclient.executeMethod(method);
                 }
             });
-            Future<Integer> f = ThreadPoolUtil.execute(futureTask);
+            Future<Integer> f = ThreadPoolUtil.execute(ThreadPoolType.STORAGE_IO, futureTask);
             if (f.get(Config.<Integer> getValue(getConfigValueTimeLimitForOperation()), TimeUnit.MINUTES) == null) {
                 responseCode = futureTask.get();
             }
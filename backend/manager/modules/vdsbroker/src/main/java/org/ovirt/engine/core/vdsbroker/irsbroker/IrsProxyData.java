@@ -70,9 +70,11 @@ import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogableBase;
 import org.ovirt.engine.core.di.Injector;
 import org.ovirt.engine.core.utils.lock.EngineLock;
 import org.ovirt.engine.core.utils.lock.LockManagerFactory;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
 import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.utils.timer.OnTimerMethodAnnotation;
 import org.ovirt.engine.core.utils.timer.SchedulerUtil;
+import org.ovirt.engine.core.utils.timer.SchedulerUtilHashedWheelImpl;
 import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
 import org.ovirt.engine.core.utils.transaction.TransactionMethod;
 import org.ovirt.engine.core.utils.transaction.TransactionSupport;
@@ -174,14 +176,26 @@ public class IrsProxyData {
     public IrsProxyData(Guid storagePoolId) {
         _storagePoolId = storagePoolId;
         int storagePoolRefreshTime = Config.<Integer> getValue(ConfigValues.StoragePoolRefreshTimeInSeconds);
-        storagePoolRefreshJobId = getSchedulUtil().scheduleAFixedDelayJob(this,
-                "_updatingTimer_Elapsed", new Class[0], new Object[0], storagePoolRefreshTime,
-                storagePoolRefreshTime, TimeUnit.SECONDS);
+        storagePoolRefreshJobId = getMonitoringScheduler().scheduleAFixedDelayJob(
+                IrsProxyData.class.getName() + "._updatingTimer_Elapsed",
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        _updatingTimer_Elapsed();
+                    }
+                },
+                storagePoolRefreshTime,
+                storagePoolRefreshTime,
+                TimeUnit.SECONDS);
         domainRecoverOnHostJobId =
-                getSchedulUtil().scheduleAFixedDelayJob(this,
-                        "hostsStorageConnectionsAndPoolMetadataRefresh",
-                        new Class[0],
-                        new Object[0],
+                getMonitoringScheduler().scheduleAFixedDelayJob(
+                        IrsProxyData.class.getName() + ".hostsStorageConnectionsAndPoolMetadataRefresh",
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                hostsStorageConnectionsAndPoolMetadataRefresh();
+                            }
+                        },
                         Config.<Integer>getValue(ConfigValues.HostStorageConnectionAndPoolRefreshTimeInSeconds),
                         storagePoolRefreshTime,
                         TimeUnit.SECONDS);
@@ -191,6 +205,10 @@ public class IrsProxyData {
         return Injector.get(SchedulerUtilQuartzImpl.class);
     }
 
+    protected SchedulerUtilHashedWheelImpl getMonitoringScheduler() {
+        return Injector.get(SchedulerUtilHashedWheelImpl.class);
+    }
+
     private void updateStoragePoolStatus(Guid poolId, StoragePoolStatus status, AuditLogType auditLogType, EngineError error) {
         ResourceManager
                 .getInstance()
@@ -200,7 +218,6 @@ public class IrsProxyData {
                         error);
     }
 
-    @OnTimerMethodAnnotation("_updatingTimer_Elapsed")
     public void _updatingTimer_Elapsed() {
         try {
             synchronized (syncObj) {
@@ -658,7 +675,7 @@ public class IrsProxyData {
     }
 
     private void runStoragePoolUpEvent(final StoragePool storagePool) {
-        ThreadPoolUtil.execute(new Runnable() {
+        ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -1588,7 +1605,6 @@ public class IrsProxyData {
         return reportsToHandle;
     }
 
-    @OnTimerMethodAnnotation("hostsStorageConnectionsAndPoolMetadataRefresh")
     public void hostsStorageConnectionsAndPoolMetadataRefresh() {
         Map<Guid, Guid> reportsToHandle = procceedReportsThreatmenet();
 
@@ -1742,7 +1758,7 @@ public class IrsProxyData {
                                 domainIdTuple);
 
                         final Map<String, String> customLogValues = Collections.singletonMap("StorageDomainNames", storageDomain.getName());
-                        ThreadPoolUtil.execute(new Runnable() {
+                        ThreadPoolUtil.execute(ThreadPoolType.EVENTS, new Runnable() {
                             @Override
                             public void run() {
                                 ResourceManager
@@ -1899,8 +1915,8 @@ public class IrsProxyData {
         synchronized (syncObj) {
             log.info("IrsProxyData::disposing");
             resetIrs();
-            getSchedulUtil().deleteJob(storagePoolRefreshJobId);
-            getSchedulUtil().deleteJob(domainRecoverOnHostJobId);
+            getMonitoringScheduler().deleteJob(storagePoolRefreshJobId);
+            getMonitoringScheduler().deleteJob(domainRecoverOnHostJobId);
             _disposed = true;
         }
     }
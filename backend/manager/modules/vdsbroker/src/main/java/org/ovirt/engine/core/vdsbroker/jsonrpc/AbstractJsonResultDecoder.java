@@ -0,0 +1,146 @@
+package org.ovirt.engine.core.vdsbroker.jsonrpc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class of the decoders which populate entities while walking the tokens of the result. Each of the value
+ * decoding methods is called with the parser positioned on the value, and skips it if it is of an unexpected type.
+ *
+ * Numbers are accepted both as JSON numbers and as strings, the way VDSM reports most of them. Unlike the generic
+ * decomposition followed by {@link org.ovirt.engine.core.vdsbroker.vdsbroker.VdsBrokerObjectsBuilder}, which ignores
+ * a JSON integer where a floating point value is expected, {@link #decodeDouble(JsonParser)} returns its value.
+ */
+public abstract class AbstractJsonResultDecoder implements JsonResultDecoder {
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractJsonResultDecoder.class);
+
+    /**
+     * Decode a value the same way the generic response decomposition does: objects into maps, arrays into object
+     * arrays and scalars into their java counterparts
+     */
+    protected static Object decodeValue(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+        case START_OBJECT:
+            Map<String, Object> map = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                map.put(name, decodeValue(parser));
+            }
+            return map;
+        case START_ARRAY:
+            List<Object> list = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                list.add(decodeValue(parser));
+            }
+            return list.toArray();
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_NUMBER_INT:
+            return parser.getNumberValue();
+        case VALUE_NUMBER_FLOAT:
+            return parser.getDoubleValue();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        default:
+            return null;
+        }
+    }
+
+    protected static String decodeString(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * @return the value of a JSON number, either integer or floating point, or of a string holding a number
+     */
+    protected static Double decodeDouble(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+        case VALUE_NUMBER_INT:
+        case VALUE_NUMBER_FLOAT:
+            return parser.getDoubleValue();
+        case VALUE_STRING:
+            return Double.parseDouble(parser.getText());
+        default:
+            parser.skipChildren();
+            return null;
+        }
+    }
+
+    protected static Double decodeDoubleOrZero(JsonParser parser) throws IOException {
+        Double value = decodeDouble(parser);
+        return value == null ? 0.0 : value;
+    }
+
+    protected static Integer decodeInteger(JsonParser parser, String name) throws IOException {
+        switch (parser.getCurrentToken()) {
+        case VALUE_NUMBER_INT:
+            return parser.getIntValue();
+        case VALUE_STRING:
+            // in case the input is decimal and we need int
+            String text = parser.getText();
+            try {
+                return Integer.parseInt(integerPart(text));
+            } catch (NumberFormatException e) {
+                log.error("Failed to parse '{}' value '{}' to integer: {}", name, text, e.getMessage());
+                return null;
+            }
+        default:
+            parser.skipChildren();
+            return null;
+        }
+    }
+
+    protected static Long decodeLong(JsonParser parser, String name) throws IOException {
+        switch (parser.getCurrentToken()) {
+        case VALUE_NUMBER_INT:
+            return parser.getLongValue();
+        case VALUE_STRING:
+            String text = parser.getText();
+            try {
+                return Long.parseLong(integerPart(text));
+            } catch (NumberFormatException e) {
+                log.error("Failed to parse '{}' value '{}' to long: {}", name, text, e.getMessage());
+                return null;
+            }
+        default:
+            parser.skipChildren();
+            return null;
+        }
+    }
+
+    protected static Boolean decodeBoolean(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        case START_OBJECT:
+        case START_ARRAY:
+            parser.skipChildren();
+            return Boolean.FALSE;
+        default:
+            return Boolean.parseBoolean(parser.getText());
+        }
+    }
+
+    private static String integerPart(String text) {
+        int dot = text.indexOf('.');
+        return dot < 0 ? text : text.substring(0, dot);
+    }
+}
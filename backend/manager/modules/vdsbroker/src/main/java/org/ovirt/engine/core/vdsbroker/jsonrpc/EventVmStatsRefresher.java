@@ -3,15 +3,23 @@ package org.ovirt.engine.core.vdsbroker.jsonrpc;
 import static org.ovirt.engine.core.vdsbroker.VmsListFetcher.isDevicesChanged;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
 
 import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.common.businessentities.VmDynamic;
+import org.ovirt.engine.core.common.config.Config;
+import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
 import org.ovirt.engine.core.di.Injector;
+import org.ovirt.engine.core.utils.timer.OnTimerMethodAnnotation;
+import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
 import org.ovirt.engine.core.vdsbroker.PollAllVmStatsOnlyRefresher;
 import org.ovirt.engine.core.vdsbroker.ResourceManager;
 import org.ovirt.engine.core.vdsbroker.VdsManager;
@@ -25,6 +33,12 @@ import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Monitors the VMs of a host by the VM status events VDSM sends. Only the VMs and the fields contained in the events
+ * are applied to the monitoring; events of the same VM which arrive within a short window are merged and processed
+ * together. The statistics of all the VMs are still fetched, at a much longer interval than the polling monitoring
+ * uses, to reconcile whatever the events did not report.
+ */
 public class EventVmStatsRefresher extends VmStatsRefresher {
     private static final Logger log = LoggerFactory.getLogger(EventVmStatsRefresher.class);
     private Subscription subscription;
@@ -32,14 +46,35 @@ public class EventVmStatsRefresher extends VmStatsRefresher {
     private ResourceManager resourceManager;
     private PollAllVmStatsOnlyRefresher allVmStatsOnlyRefresher;
 
+    @Inject
+    private SchedulerUtilQuartzImpl scheduler;
+    private final int coalescingWindow;
+    private final Object pendingEventsLock = new Object();
+    private Map<Guid, Map<String, Object>> pendingVms = new HashMap<>();
+    private Map<Guid, Double> pendingNotifyTimes = new HashMap<>();
+    private String processEventsJobId;
+
     public EventVmStatsRefresher(VdsManager manager) {
         super(manager);
-        // we still want to fetch GetAllVmStats as we did before
-        this.allVmStatsOnlyRefresher = Injector.injectMembers(new PollAllVmStatsOnlyRefresher(vdsManager));
+        // we still want to fetch GetAllVmStats to reconcile, just not as often as when polling
+        int reconcileRate = Config.<Integer> getValue(ConfigValues.VmStatsReconcileRefreshRateInSeconds) * 1000;
+        this.allVmStatsOnlyRefresher = createAllVmStatsOnlyRefresher(reconcileRate);
+        coalescingWindow = Config.<Integer> getValue(ConfigValues.VmEventsCoalescingWindowInMilliSeconds);
         dbFacade = DbFacade.getInstance();
         resourceManager = ResourceManager.getInstance();
     }
 
+    /**
+     * @param refreshRate the interval in milliseconds between fetching the statistics of all the VMs
+     */
+    protected PollAllVmStatsOnlyRefresher createAllVmStatsOnlyRefresher(int refreshRate) {
+        return Injector.injectMembers(new PollAllVmStatsOnlyRefresher(vdsManager, refreshRate));
+    }
+
+    protected SchedulerUtilQuartzImpl getScheduler() {
+        return scheduler;
+    }
+
     @Override
     public void startMonitoring() {
         allVmStatsOnlyRefresher.startMonitoring();
@@ -56,15 +91,7 @@ public class EventVmStatsRefresher extends VmStatsRefresher {
             public void onNext(Map<String, Object> map) {
                 try {
                     printEventInDebug(map);
-
-                    List<Pair<VM, VmInternalData>> changedVms = new ArrayList<>();
-                    List<Pair<VM, VmInternalData>> devicesChangedVms = new ArrayList<>();
-
-                    convertEvent(changedVms, devicesChangedVms, map);
-
-                    if (!changedVms.isEmpty() || !devicesChangedVms.isEmpty()) {
-                        getVmsMonitoring(changedVms, devicesChangedVms).perform();
-                    }
+                    addEvent(map);
                 } finally {
                     subscription.request(1);
                 }
@@ -80,50 +107,6 @@ public class EventVmStatsRefresher extends VmStatsRefresher {
                 log.debug("processing event for host {} data:\n{}", vdsManager.getVdsName(), sb);
             }
 
-            private VmsMonitoring getVmsMonitoring(List<Pair<VM, VmInternalData>> changedVms, List<Pair<VM, VmInternalData>> devicesChangedVms) {
-                return new VmsMonitoring(vdsManager, changedVms, devicesChangedVms, auditLogDirector, System.nanoTime());
-            }
-
-            @SuppressWarnings("unchecked")
-            private void convertEvent(List<Pair<VM, VmInternalData>> changedVms,
-                    List<Pair<VM, VmInternalData>> devicesChangedVms, Map<String, Object> map) {
-                Double notifyTime = VdsBrokerObjectsBuilder.removeNotifyTimeFromVmStatusEvent(map);
-
-                for (Map.Entry<String, Object> entry : map.entrySet()) {
-                    Guid vmid = new Guid((String) entry.getKey());
-                    VM dbVm = dbFacade.getVmDao().get(vmid);
-                    VmInternalData vdsmVm;
-                    if (dbVm == null) {
-                        vdsmVm = createVmInternalData(vmid, (Map<String, Object>) map.get(vmid.toString()), notifyTime);
-                    } else {
-                        vdsmVm = createVmInternalData(dbVm, (Map<String, Object>) map.get(vmid.toString()), notifyTime);
-
-                        // if dbVm runs on different host, monitoring expect it to be null
-                        if (!vdsManager.getVdsId().equals(dbVm.getRunOnVds())) {
-                            dbVm = null;
-                        }
-                    }
-
-                    changedVms.add(new Pair<>(dbVm, vdsmVm));
-                    if (isDevicesChanged(dbVm, vdsmVm)) {
-                        devicesChangedVms.add(new Pair<>(dbVm, vdsmVm));
-                    }
-                }
-            }
-
-            private VmInternalData createVmInternalData(Guid vmId, Map<String, Object> xmlRpcStruct, Double notifyTime) {
-                VM fakeVm = new VM();
-                fakeVm.setId(vmId);
-                return createVmInternalData(fakeVm, xmlRpcStruct, notifyTime);
-            }
-
-            private VmInternalData createVmInternalData(VM dbVm, Map<String, Object> xmlRpcStruct, Double notifyTime) {
-                // send a clone of vm dynamic to be overridden with new data
-                VmDynamic clonedVmDynamic = new VmDynamic(dbVm.getDynamicData());
-                VdsBrokerObjectsBuilder.updateVMDynamicData(clonedVmDynamic, xmlRpcStruct, vdsManager.getCopyVds());
-                return new VmInternalData(clonedVmDynamic, dbVm.getStatisticsData(), notifyTime);
-            }
-
             @Override
             public void onError(Throwable t) {
                 // communication issue is delivered as a message so we need to request for more
@@ -136,9 +119,125 @@ public class EventVmStatsRefresher extends VmStatsRefresher {
         });
     }
 
+    /**
+     * Merge the VMs of the event into the pending VMs, the fields of a later event override those of an earlier one,
+     * and schedule their processing if it was not scheduled yet
+     */
+    @SuppressWarnings("unchecked")
+    void addEvent(Map<String, Object> map) {
+        Double notifyTime = VdsBrokerObjectsBuilder.removeNotifyTimeFromVmStatusEvent(map);
+        boolean scheduleProcessing;
+
+        synchronized (pendingEventsLock) {
+            scheduleProcessing = pendingVms.isEmpty();
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                Guid vmId = new Guid(entry.getKey());
+                Map<String, Object> pendingVm = pendingVms.get(vmId);
+                if (pendingVm == null) {
+                    pendingVm = new HashMap<>();
+                    pendingVms.put(vmId, pendingVm);
+                }
+                pendingVm.putAll((Map<String, Object>) entry.getValue());
+
+                Double pendingNotifyTime = pendingNotifyTimes.get(vmId);
+                if (pendingNotifyTime == null || (notifyTime != null && notifyTime > pendingNotifyTime)) {
+                    pendingNotifyTimes.put(vmId, notifyTime);
+                }
+            }
+            scheduleProcessing &= !pendingVms.isEmpty();
+        }
+
+        if (scheduleProcessing) {
+            if (coalescingWindow > 0) {
+                processEventsJobId = getScheduler().scheduleAOneTimeJob(this,
+                        "processEvents",
+                        new Class[0],
+                        new Object[0],
+                        coalescingWindow,
+                        TimeUnit.MILLISECONDS);
+            } else {
+                processEvents();
+            }
+        }
+    }
+
+    @OnTimerMethodAnnotation("processEvents")
+    public void processEvents() {
+        Map<Guid, Map<String, Object>> vms;
+        Map<Guid, Double> notifyTimes;
+        synchronized (pendingEventsLock) {
+            vms = pendingVms;
+            notifyTimes = pendingNotifyTimes;
+            pendingVms = new HashMap<>();
+            pendingNotifyTimes = new HashMap<>();
+        }
+
+        if (vms.isEmpty()) {
+            return;
+        }
+
+        List<Pair<VM, VmInternalData>> changedVms = new ArrayList<>(vms.size());
+        List<Pair<VM, VmInternalData>> devicesChangedVms = new ArrayList<>();
+        convertEvents(changedVms, devicesChangedVms, vms, notifyTimes);
+        performVmsMonitoring(changedVms, devicesChangedVms);
+    }
+
+    protected void performVmsMonitoring(List<Pair<VM, VmInternalData>> changedVms,
+            List<Pair<VM, VmInternalData>> devicesChangedVms) {
+        new VmsMonitoring(vdsManager, changedVms, devicesChangedVms, auditLogDirector, System.nanoTime()).perform();
+    }
+
+    private void convertEvents(List<Pair<VM, VmInternalData>> changedVms,
+            List<Pair<VM, VmInternalData>> devicesChangedVms,
+            Map<Guid, Map<String, Object>> vms,
+            Map<Guid, Double> notifyTimes) {
+        Map<Guid, VM> dbVms = new HashMap<>();
+        for (VM dbVm : dbFacade.getVmDao().getVmsByIds(new ArrayList<>(vms.keySet()))) {
+            dbVms.put(dbVm.getId(), dbVm);
+        }
+
+        for (Map.Entry<Guid, Map<String, Object>> entry : vms.entrySet()) {
+            Guid vmid = entry.getKey();
+            VM dbVm = dbVms.get(vmid);
+            Double notifyTime = notifyTimes.get(vmid);
+            VmInternalData vdsmVm;
+            if (dbVm == null) {
+                vdsmVm = createVmInternalData(vmid, entry.getValue(), notifyTime);
+            } else {
+                vdsmVm = createVmInternalData(dbVm, entry.getValue(), notifyTime);
+
+                // if dbVm runs on different host, monitoring expect it to be null
+                if (!vdsManager.getVdsId().equals(dbVm.getRunOnVds())) {
+                    dbVm = null;
+                }
+            }
+
+            changedVms.add(new Pair<>(dbVm, vdsmVm));
+            if (isDevicesChanged(dbVm, vdsmVm)) {
+                devicesChangedVms.add(new Pair<>(dbVm, vdsmVm));
+            }
+        }
+    }
+
+    private VmInternalData createVmInternalData(Guid vmId, Map<String, Object> xmlRpcStruct, Double notifyTime) {
+        VM fakeVm = new VM();
+        fakeVm.setId(vmId);
+        return createVmInternalData(fakeVm, xmlRpcStruct, notifyTime);
+    }
+
+    private VmInternalData createVmInternalData(VM dbVm, Map<String, Object> xmlRpcStruct, Double notifyTime) {
+        // send a clone of vm dynamic to be overridden with new data
+        VmDynamic clonedVmDynamic = new VmDynamic(dbVm.getDynamicData());
+        VdsBrokerObjectsBuilder.updateVMDynamicData(clonedVmDynamic, xmlRpcStruct, vdsManager.getCopyVds());
+        return new VmInternalData(clonedVmDynamic, dbVm.getStatisticsData(), notifyTime);
+    }
+
     @Override
     public void stopMonitoring() {
         allVmStatsOnlyRefresher.stopMonitoring();
         subscription.cancel();
+        if (processEventsJobId != null) {
+            getScheduler().deleteJob(processEventsJobId);
+        }
     }
 }
@@ -52,6 +52,7 @@ public class FutureMap implements Map<String, Object> {
     };
     private Class<?> clazz = STATUS_DONE.getClass();
     private Class<?> subTypeClazz;
+    private JsonResultDecoder resultDecoder;
     private boolean ignoreResponseKey = false;
     private long timeout = 0;
     private TimeUnit unit = TimeUnit.MILLISECONDS;
@@ -128,6 +129,8 @@ public class FutureMap implements Map<String, Object> {
         ResponseDecomposer decomposer = new ResponseDecomposer(response);
         if (decomposer.isError()) {
             this.responseMap = decomposer.decomposeError();
+        } else if (this.resultDecoder != null) {
+            updateResponse(this.resultDecoder.decode(response.getResult()));
         } else if (Object[].class.equals(clazz) && this.subtypeKey != null && !this.subtypeKey.trim().isEmpty()
                 && this.subTypeClazz != null) {
             Object[] array = (Object[]) decomposer.decomposeResponse(this.clazz);
@@ -297,6 +300,15 @@ public class FutureMap implements Map<String, Object> {
         return this;
     }
 
+    /**
+     * @param resultDecoder - Decoder of the result which will be used instead of the default decomposition.
+     * @return this <code>FutureMap</code>.
+     */
+    public FutureMap withResultDecoder(JsonResultDecoder resultDecoder) {
+        this.resultDecoder = resultDecoder;
+        return this;
+    }
+
     /**
      * @param clazz - type of the subtype.
      * @return this <code>FutureMap</code>.
@@ -0,0 +1,11 @@
+package org.ovirt.engine.core.vdsbroker.jsonrpc;
+
+import org.codehaus.jackson.JsonNode;
+
+/**
+ * Decodes the result of a successful response into the value kept by {@link FutureMap}, instead of the generic
+ * decomposition of the result into maps and arrays
+ */
+public interface JsonResultDecoder {
+    Object decode(JsonNode result);
+}
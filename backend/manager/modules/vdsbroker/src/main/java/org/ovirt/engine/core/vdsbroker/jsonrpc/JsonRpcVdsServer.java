@@ -13,6 +13,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.httpclient.HttpClient;
 import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
 import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.vdsbroker.gluster.GlusterHookContentInfoReturnForXmlRpc;
 import org.ovirt.engine.core.vdsbroker.gluster.GlusterHooksListReturnForXmlRpc;
@@ -285,7 +286,8 @@ public class JsonRpcVdsServer implements IVdsServer {
     public VDSInfoReturnForXmlRpc getVdsStats() {
         JsonRpcRequest request = new RequestBuilder("Host.getStats").build();
         Map<String, Object> response =
-                new FutureMap(this.client, request).withResponseKey("info");
+                new FutureMap(this.client, request).withResponseKey("info")
+                        .withResultDecoder(new VdsStatsJsonDecoder());
         return new VDSInfoReturnForXmlRpc(response);
     }
 
@@ -332,7 +334,7 @@ public class JsonRpcVdsServer implements IVdsServer {
         JsonRpcRequest request = new RequestBuilder("Host.getAllVmStats").build();
         Map<String, Object> response =
                 new FutureMap(this.client, request).withResponseKey("statsList")
-                        .withResponseType(Object[].class);
+                        .withResultDecoder(new VmStatsJsonDecoder());
         return new VMInfoListReturnForXmlRpc(response);
     }
 
@@ -525,7 +527,7 @@ public class JsonRpcVdsServer implements IVdsServer {
                 return false;
             }
         };
-        ThreadPoolUtil.execute(future);
+        ThreadPoolUtil.execute(ThreadPoolType.STORAGE_IO, future);
         return future;
     }
 
@@ -1041,7 +1043,7 @@ public class JsonRpcVdsServer implements IVdsServer {
                     }
                 };
 
-        ThreadPoolUtil.execute(future);
+        ThreadPoolUtil.execute(ThreadPoolType.STORAGE_IO, future);
         return future;
     }
 
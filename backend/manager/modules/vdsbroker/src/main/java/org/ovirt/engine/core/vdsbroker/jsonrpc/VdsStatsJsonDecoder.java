@@ -0,0 +1,104 @@
+package org.ovirt.engine.core.vdsbroker.jsonrpc;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.ovirt.engine.core.common.businessentities.VdsStatistics;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsBrokerObjectsBuilder;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsProperties;
+
+/**
+ * Decodes the result of Host.getStats by walking its tokens. The CPU, memory, swap and KSM statistics of the host
+ * are populated directly from the tokens into a {@link VdsStatistics}, kept in the host struct under
+ * {@link VdsBrokerObjectsBuilder#DECODED_VDS_STATISTICS}. The other properties, like the network interfaces whose
+ * statistics depend on the interfaces the engine knows, are decoded into the host struct as the generic
+ * decomposition does, to be handled by {@link VdsBrokerObjectsBuilder}.
+ */
+public class VdsStatsJsonDecoder extends AbstractJsonResultDecoder {
+
+    @Override
+    public Object decode(JsonNode result) {
+        try (JsonParser parser = result.traverse()) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new HashMap<String, Object>();
+            }
+            return decodeHost(parser);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to decode host statistics", e);
+        }
+    }
+
+    private static Map<String, Object> decodeHost(JsonParser parser) throws IOException {
+        Map<String, Object> host = new HashMap<>();
+        VdsStatistics statistics = new VdsStatistics();
+        Double cpuLoad = null;
+        Boolean ksmState = Boolean.FALSE;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+            case VdsProperties.mem_usage:
+                statistics.setUsageMemPercent(decodeInteger(parser, name));
+                break;
+            case VdsProperties.cpu_sys:
+                statistics.setCpuSys(decodeDouble(parser));
+                break;
+            case VdsProperties.cpu_user:
+                statistics.setCpuUser(decodeDouble(parser));
+                break;
+            case VdsProperties.cpu_load:
+                cpuLoad = decodeDouble(parser);
+                break;
+            case VdsProperties.cpu_idle:
+                statistics.setCpuIdle(decodeDouble(parser));
+                break;
+            case VdsProperties.mem_available:
+                statistics.setMemAvailable(decodeLong(parser, name));
+                break;
+            case VdsProperties.memFree:
+                statistics.setMemFree(decodeLong(parser, name));
+                break;
+            case VdsProperties.mem_shared:
+                statistics.setMemShared(decodeLong(parser, name));
+                break;
+            case VdsProperties.swap_free:
+                statistics.setSwapFree(decodeLong(parser, name));
+                break;
+            case VdsProperties.swap_total:
+                statistics.setSwapTotal(decodeLong(parser, name));
+                break;
+            case VdsProperties.ksm_cpu_percent:
+                statistics.setKsmCpuPercent(decodeInteger(parser, name));
+                break;
+            case VdsProperties.ksm_pages:
+                statistics.setKsmPages(decodeLong(parser, name));
+                break;
+            case VdsProperties.ksm_state:
+                ksmState = decodeBoolean(parser);
+                break;
+            case VdsProperties.bootTime:
+                statistics.setBootTime(decodeLong(parser, name));
+                break;
+            default:
+                host.put(name, decodeValue(parser));
+                break;
+            }
+        }
+
+        if (statistics.getCpuSys() != null && statistics.getCpuUser() != null) {
+            statistics.setUsageCpuPercent((int) (statistics.getCpuSys() + statistics.getCpuUser()));
+        }
+        // CPU load reported by VDSM is in uptime-style format, i.e. normalized
+        // to unity, so that say an 8% load is reported as 0.08
+        statistics.setCpuLoad((cpuLoad != null ? cpuLoad : 0) * 100.0);
+        statistics.setKsmState(ksmState);
+
+        host.put(VdsBrokerObjectsBuilder.DECODED_VDS_STATISTICS, statistics);
+        return host;
+    }
+}
@@ -0,0 +1,195 @@
+package org.ovirt.engine.core.vdsbroker.jsonrpc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.ovirt.engine.core.common.businessentities.VmBalloonInfo;
+import org.ovirt.engine.core.common.businessentities.VmStatistics;
+import org.ovirt.engine.core.common.businessentities.network.NetworkStatistics;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsBrokerObjectsBuilder;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsProperties;
+
+/**
+ * Decodes the result of Host.getAllVmStats by walking its tokens. The VM statistics, including the statistics of the
+ * VM network interfaces, are populated directly from the tokens without building intermediate maps and numbers;
+ * the decoded {@link VmStatistics} is kept in the VM struct under
+ * {@link VdsBrokerObjectsBuilder#DECODED_VM_STATISTICS}. The other VM properties are decoded into the VM struct as
+ * the generic decomposition does, to be handled by {@link VdsBrokerObjectsBuilder}.
+ */
+public class VmStatsJsonDecoder extends AbstractJsonResultDecoder {
+
+    private static final int BALLOON_ENABLED_PROPERTIES = 4;
+
+    @Override
+    public Object decode(JsonNode result) {
+        try (JsonParser parser = result.traverse()) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return new Object[0];
+            }
+            List<Object> vms = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                vms.add(decodeVm(parser));
+            }
+            return vms.toArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to decode VMs statistics", e);
+        }
+    }
+
+    private static Map<String, Object> decodeVm(JsonParser parser) throws IOException {
+        Map<String, Object> vm = new HashMap<>();
+        VmStatistics statistics = new VmStatistics();
+        statistics.setelapsed_time(null);
+        statistics.setcpu_sys(null);
+        statistics.setcpu_user(null);
+        statistics.setVmBalloonInfo(decodeBalloonInfo(null));
+        statistics.setMigrationProgressPercent(0);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+            case VdsProperties.elapsed_time:
+                statistics.setelapsed_time(decodeDouble(parser));
+                break;
+            case VdsProperties.cpu_sys:
+                statistics.setcpu_sys(decodeDouble(parser));
+                break;
+            case VdsProperties.cpu_user:
+                statistics.setcpu_user(decodeDouble(parser));
+                break;
+            case VdsProperties.vm_usage_mem_percent:
+                statistics.setusage_mem_percent(decodeInteger(parser, name));
+                break;
+            case VdsProperties.vm_migration_progress_percent:
+                Integer migrationProgress = decodeInteger(parser, name);
+                statistics.setMigrationProgressPercent(migrationProgress != null ? migrationProgress : 0);
+                break;
+            case VdsProperties.vm_balloonInfo:
+                statistics.setVmBalloonInfo(decodeBalloonInfo(parser));
+                break;
+            case VdsProperties.VM_NETWORK:
+                statistics.setInterfaceStatistics(decodeInterfaces(parser));
+                break;
+            default:
+                vm.put(name, decodeValue(parser));
+                break;
+            }
+        }
+
+        vm.put(VdsBrokerObjectsBuilder.DECODED_VM_STATISTICS, statistics);
+        return vm;
+    }
+
+    private static ArrayList<VmNetworkInterface> decodeInterfaces(JsonParser parser) throws IOException {
+        ArrayList<VmNetworkInterface> interfaces = new ArrayList<>();
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return interfaces;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            VmNetworkInterface iface = new VmNetworkInterface();
+            NetworkStatistics stats = iface.getStatistics();
+            stats.setReceiveRate(0.0);
+            stats.setReceiveDropRate(0.0);
+            stats.setTransmitRate(0.0);
+            stats.setTransmitDropRate(0.0);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                switch (name) {
+                case VdsProperties.VM_INTERFACE_NAME:
+                    iface.setName(decodeString(parser));
+                    break;
+                case VdsProperties.MAC_ADDR:
+                    iface.setMacAddress(decodeString(parser));
+                    break;
+                case VdsProperties.rx_rate:
+                    stats.setReceiveRate(decodeDoubleOrZero(parser));
+                    break;
+                case VdsProperties.rx_dropped:
+                    stats.setReceiveDropRate(decodeDoubleOrZero(parser));
+                    break;
+                case VdsProperties.rx_total:
+                    stats.setReceivedBytes(decodeLong(parser, name));
+                    break;
+                case VdsProperties.tx_rate:
+                    stats.setTransmitRate(decodeDoubleOrZero(parser));
+                    break;
+                case VdsProperties.tx_dropped:
+                    stats.setTransmitDropRate(decodeDoubleOrZero(parser));
+                    break;
+                case VdsProperties.tx_total:
+                    stats.setTransmittedBytes(decodeLong(parser, name));
+                    break;
+                case VdsProperties.sample_time:
+                    stats.setSampleTime(decodeDouble(parser));
+                    break;
+                case VdsProperties.INTERFACE_SPEED:
+                    iface.setSpeed(decodeInteger(parser, name));
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+                }
+            }
+            interfaces.add(iface);
+        }
+        return interfaces;
+    }
+
+    /**
+     * @param parser positioned on the balloon info object, or null if the VM reports no balloon info
+     */
+    private static VmBalloonInfo decodeBalloonInfo(JsonParser parser) throws IOException {
+        VmBalloonInfo balloonInfo = new VmBalloonInfo();
+        balloonInfo.setBalloonDeviceEnabled(false);
+        if (parser == null || parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            if (parser != null) {
+                parser.skipChildren();
+            }
+            return balloonInfo;
+        }
+
+        int properties = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            ++properties;
+            switch (name) {
+            case VdsProperties.vm_balloon_cur:
+                balloonInfo.setCurrentMemory(decodeLong(parser, name));
+                break;
+            case VdsProperties.vm_balloon_max:
+                balloonInfo.setBalloonMaxMemory(decodeLong(parser, name));
+                break;
+            case VdsProperties.vm_balloon_target:
+                balloonInfo.setBalloonTargetMemory(decodeLong(parser, name));
+                break;
+            case VdsProperties.vm_balloon_min:
+                balloonInfo.setBalloonMinMemory(decodeLong(parser, name));
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+        // only if all 4 properties are found the balloon is considered enabled (available from 3.3)
+        balloonInfo.setBalloonDeviceEnabled(properties >= BALLOON_ENABLED_PROPERTIES);
+        return balloonInfo;
+    }
+}
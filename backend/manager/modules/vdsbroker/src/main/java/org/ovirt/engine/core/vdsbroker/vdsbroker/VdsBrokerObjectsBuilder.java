@@ -40,6 +40,7 @@ import org.ovirt.engine.core.common.businessentities.VDSDomainsData;
 import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.common.businessentities.VMStatus;
 import org.ovirt.engine.core.common.businessentities.VdsNumaNode;
+import org.ovirt.engine.core.common.businessentities.VdsStatistics;
 import org.ovirt.engine.core.common.businessentities.VdsTransparentHugePagesState;
 import org.ovirt.engine.core.common.businessentities.VmBalloonInfo;
 import org.ovirt.engine.core.common.businessentities.VmBlockJob;
@@ -109,6 +110,16 @@ public class VdsBrokerObjectsBuilder {
     private final static double NANO_SECONDS = 1000000000;
     private static final AuditLogDirector auditLogDirector = new AuditLogDirector();
 
+    /**
+     * The key of the {@link VmStatistics} which were already decoded from the response into the VM struct
+     */
+    public static final String DECODED_VM_STATISTICS = "engine_decodedVmStatistics";
+
+    /**
+     * The key of the {@link VdsStatistics} which were already decoded from the response into the host struct
+     */
+    public static final String DECODED_VDS_STATISTICS = "engine_decodedVdsStatistics";
+
     private static final Comparator<VdsNumaNode> numaNodeComparator = new Comparator<VdsNumaNode>() {
 
         @Override
@@ -326,6 +337,13 @@ public class VdsBrokerObjectsBuilder {
     }
 
     public static VmStatistics buildVMStatisticsData(Map<String, Object> xmlRpcStruct) {
+        Object decodedStatistics = xmlRpcStruct.get(DECODED_VM_STATISTICS);
+        if (decodedStatistics instanceof VmStatistics) {
+            VmStatistics vmStatistics = (VmStatistics) decodedStatistics;
+            updateVMStatisticsStructData(vmStatistics, xmlRpcStruct);
+            return vmStatistics;
+        }
+
         VmStatistics vmStatistics = new VmStatistics();
         updateVMStatisticsData(vmStatistics, xmlRpcStruct);
         return vmStatistics;
@@ -718,10 +736,6 @@ public class VdsBrokerObjectsBuilder {
     }
 
     public static void updateVMStatisticsData(VmStatistics vm, Map<String, Object> xmlRpcStruct) {
-        if (xmlRpcStruct.containsKey(VdsProperties.vm_guid)) {
-            vm.setId(new Guid((String) xmlRpcStruct.get(VdsProperties.vm_guid)));
-        }
-
         vm.setelapsed_time(assignDoubleValue(xmlRpcStruct, VdsProperties.elapsed_time));
 
         // ------------- vm network statistics -----------------------
@@ -743,10 +757,6 @@ public class VdsBrokerObjectsBuilder {
             }
         }
 
-        if (xmlRpcStruct.containsKey(VdsProperties.VM_DISKS_USAGE)) {
-            initDisksUsage(xmlRpcStruct, vm);
-        }
-
         // ------------- vm cpu statistics -----------------------
         vm.setcpu_sys(assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_sys));
         vm.setcpu_user(assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_user));
@@ -759,6 +769,22 @@ public class VdsBrokerObjectsBuilder {
         Integer migrationProgress = assignIntValue(xmlRpcStruct, VdsProperties.vm_migration_progress_percent);
         vm.setMigrationProgressPercent(migrationProgress != null ? migrationProgress : 0);
 
+        updateVMStatisticsStructData(vm, xmlRpcStruct);
+    }
+
+    /**
+     * Update the statistics which are not decoded by
+     * {@link org.ovirt.engine.core.vdsbroker.jsonrpc.VmStatsJsonDecoder}, those are always taken from the VM struct
+     */
+    private static void updateVMStatisticsStructData(VmStatistics vm, Map<String, Object> xmlRpcStruct) {
+        if (xmlRpcStruct.containsKey(VdsProperties.vm_guid)) {
+            vm.setId(new Guid((String) xmlRpcStruct.get(VdsProperties.vm_guid)));
+        }
+
+        if (xmlRpcStruct.containsKey(VdsProperties.VM_DISKS_USAGE)) {
+            initDisksUsage(xmlRpcStruct, vm);
+        }
+
         // ------------- vm jobs -------------
         vm.setVmJobs(getVmJobs(vm.getId(), xmlRpcStruct));
 
@@ -1099,8 +1125,12 @@ public class VdsBrokerObjectsBuilder {
     }
 
     public static void updateVDSStatisticsData(VDS vds, Map<String, Object> xmlRpcStruct) {
-        // ------------- vds memory usage ---------------------------
-        vds.setUsageMemPercent(assignIntValue(xmlRpcStruct, VdsProperties.mem_usage));
+        Object decodedStatistics = xmlRpcStruct.get(DECODED_VDS_STATISTICS);
+        if (decodedStatistics instanceof VdsStatistics) {
+            updateVDSResourceUsageData(vds, (VdsStatistics) decodedStatistics);
+        } else {
+            updateVDSResourceUsageData(vds, xmlRpcStruct);
+        }
 
         // ------------- vds network statistics ---------------------
         Map<String, Object> interfaces = (Map<String, Object>) xmlRpcStruct.get(VdsProperties.NETWORK);
@@ -1132,29 +1162,6 @@ public class VdsBrokerObjectsBuilder {
             vds.setUsageNetworkPercent(networkUsage);
         }
 
-        // ----------- vds cpu statistics info ---------------------
-        vds.setCpuSys(assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_sys));
-        vds.setCpuUser(assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_user));
-        if (vds.getCpuSys() != null && vds.getCpuUser() != null) {
-            vds.setUsageCpuPercent((int) (vds.getCpuSys() + vds.getCpuUser()));
-        }
-        // CPU load reported by VDSM is in uptime-style format, i.e. normalized
-        // to unity, so that say an 8% load is reported as 0.08
-
-        Double d = assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_load);
-        d = (d != null) ? d : 0;
-        vds.setCpuLoad(d.doubleValue() * 100.0);
-        vds.setCpuIdle(assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_idle));
-        vds.setMemAvailable(assignLongValue(xmlRpcStruct, VdsProperties.mem_available));
-        vds.setMemFree(assignLongValue(xmlRpcStruct, VdsProperties.memFree));
-        vds.setMemShared(assignLongValue(xmlRpcStruct, VdsProperties.mem_shared));
-
-        vds.setSwapFree(assignLongValue(xmlRpcStruct, VdsProperties.swap_free));
-        vds.setSwapTotal(assignLongValue(xmlRpcStruct, VdsProperties.swap_total));
-        vds.setKsmCpuPercent(assignIntValue(xmlRpcStruct, VdsProperties.ksm_cpu_percent));
-        vds.setKsmPages(assignLongValue(xmlRpcStruct, VdsProperties.ksm_pages));
-        vds.setKsmState(assignBoolValue(xmlRpcStruct, VdsProperties.ksm_state));
-
         // dynamic data got from GetVdsStats
         if (xmlRpcStruct.containsKey(VdsProperties.transparent_huge_pages_state)) {
             vds.setTransparentHugePagesState(EnumUtils.valueOf(VdsTransparentHugePagesState.class, xmlRpcStruct
@@ -1221,12 +1228,64 @@ public class VdsBrokerObjectsBuilder {
         vds.setHighlyAvailableGlobalMaintenance(haGlobalMaint != null ? haGlobalMaint : false);
         vds.setHighlyAvailableLocalMaintenance(haLocalMaint != null ? haLocalMaint : false);
 
-        vds.setBootTime(assignLongValue(xmlRpcStruct, VdsProperties.bootTime));
-
         updateNumaStatisticsData(vds, xmlRpcStruct);
         updateV2VJobs(vds, xmlRpcStruct);
     }
 
+    /**
+     * Update the statistics which {@link org.ovirt.engine.core.vdsbroker.jsonrpc.VdsStatsJsonDecoder} decodes, when
+     * the host struct was decomposed generically
+     */
+    private static void updateVDSResourceUsageData(VDS vds, Map<String, Object> xmlRpcStruct) {
+        // ------------- vds memory usage ---------------------------
+        vds.setUsageMemPercent(assignIntValue(xmlRpcStruct, VdsProperties.mem_usage));
+
+        // ----------- vds cpu statistics info ---------------------
+        vds.setCpuSys(assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_sys));
+        vds.setCpuUser(assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_user));
+        if (vds.getCpuSys() != null && vds.getCpuUser() != null) {
+            vds.setUsageCpuPercent((int) (vds.getCpuSys() + vds.getCpuUser()));
+        }
+        // CPU load reported by VDSM is in uptime-style format, i.e. normalized
+        // to unity, so that say an 8% load is reported as 0.08
+
+        Double d = assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_load);
+        d = (d != null) ? d : 0;
+        vds.setCpuLoad(d.doubleValue() * 100.0);
+        vds.setCpuIdle(assignDoubleValue(xmlRpcStruct, VdsProperties.cpu_idle));
+        vds.setMemAvailable(assignLongValue(xmlRpcStruct, VdsProperties.mem_available));
+        vds.setMemFree(assignLongValue(xmlRpcStruct, VdsProperties.memFree));
+        vds.setMemShared(assignLongValue(xmlRpcStruct, VdsProperties.mem_shared));
+
+        vds.setSwapFree(assignLongValue(xmlRpcStruct, VdsProperties.swap_free));
+        vds.setSwapTotal(assignLongValue(xmlRpcStruct, VdsProperties.swap_total));
+        vds.setKsmCpuPercent(assignIntValue(xmlRpcStruct, VdsProperties.ksm_cpu_percent));
+        vds.setKsmPages(assignLongValue(xmlRpcStruct, VdsProperties.ksm_pages));
+        vds.setKsmState(assignBoolValue(xmlRpcStruct, VdsProperties.ksm_state));
+
+        vds.setBootTime(assignLongValue(xmlRpcStruct, VdsProperties.bootTime));
+    }
+
+    private static void updateVDSResourceUsageData(VDS vds, VdsStatistics decodedStatistics) {
+        vds.setUsageMemPercent(decodedStatistics.getUsageMemPercent());
+        vds.setCpuSys(decodedStatistics.getCpuSys());
+        vds.setCpuUser(decodedStatistics.getCpuUser());
+        if (decodedStatistics.getCpuSys() != null && decodedStatistics.getCpuUser() != null) {
+            vds.setUsageCpuPercent(decodedStatistics.getUsageCpuPercent());
+        }
+        vds.setCpuLoad(decodedStatistics.getCpuLoad());
+        vds.setCpuIdle(decodedStatistics.getCpuIdle());
+        vds.setMemAvailable(decodedStatistics.getMemAvailable());
+        vds.setMemFree(decodedStatistics.getMemFree());
+        vds.setMemShared(decodedStatistics.getMemShared());
+        vds.setSwapFree(decodedStatistics.getSwapFree());
+        vds.setSwapTotal(decodedStatistics.getSwapTotal());
+        vds.setKsmCpuPercent(decodedStatistics.getKsmCpuPercent());
+        vds.setKsmPages(decodedStatistics.getKsmPages());
+        vds.setKsmState(decodedStatistics.getKsmState());
+        vds.setBootTime(decodedStatistics.getBootTime());
+    }
+
     private static void extractInterfaceStatistics(Map<String, Object> dict, NetworkInterface<?> iface) {
         NetworkStatistics stats = iface.getStatistics();
         stats.setReceiveRate(assignDoubleValueWithNullProtection(dict, VdsProperties.rx_rate));
@@ -46,6 +46,7 @@ import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.utils.CorrelationIdTracker;
 import org.ovirt.engine.core.utils.crypt.EngineEncryptionUtils;
 import org.ovirt.engine.core.utils.ssl.AuthSSLProtocolSocketFactory;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
 import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.vdsbroker.vdsbroker.FutureCall;
 import org.slf4j.Logger;
@@ -208,7 +209,7 @@ public class XmlRpcUtils {
                                 getMethod(m, annotation, proxy),
                                 args,
                                 CorrelationIdTracker.getCorrelationId()));
-                ThreadPoolUtil.execute(future);
+                ThreadPoolUtil.execute(ThreadPoolType.STORAGE_IO, future);
                 return future;
             } else {
                 future =
@@ -216,7 +217,7 @@ public class XmlRpcUtils {
                                 m,
                                 args,
                                 CorrelationIdTracker.getCorrelationId()));
-                ThreadPoolUtil.execute(future);
+                ThreadPoolUtil.execute(ThreadPoolType.STORAGE_IO, future);
                 try {
                     result = future.get(timeoutInMilisec, TimeUnit.MILLISECONDS);
                 } catch (Exception e) {
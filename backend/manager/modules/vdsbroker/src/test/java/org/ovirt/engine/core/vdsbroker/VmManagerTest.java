@@ -0,0 +1,103 @@
+package org.ovirt.engine.core.vdsbroker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ovirt.engine.core.common.businessentities.DiskImageDynamic;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.VMStatus;
+import org.ovirt.engine.core.common.businessentities.VmDynamic;
+import org.ovirt.engine.core.common.businessentities.VmStatistics;
+import org.ovirt.engine.core.compat.Guid;
+
+public class VmManagerTest {
+
+    private static final int MAX_SUPPRESSED_WRITES = 2;
+
+    private Guid vmId;
+    private VmManager vmManager;
+
+    @Before
+    public void setUp() {
+        vmId = Guid.newGuid();
+        vmManager = new VmManager(vmId);
+    }
+
+    @Test
+    public void dynamicWriteNeededWithoutSnapshot() {
+        assertTrue(vmManager.isDynamicWriteNeeded(createDynamic(VMStatus.Up), MAX_SUPPRESSED_WRITES));
+    }
+
+    @Test
+    public void unchangedDynamicWriteSuppressedUpToMax() {
+        vmManager.dynamicPersisted(createDynamic(VMStatus.Up));
+
+        assertFalse(vmManager.isDynamicWriteNeeded(createDynamic(VMStatus.Up), MAX_SUPPRESSED_WRITES));
+        assertFalse(vmManager.isDynamicWriteNeeded(createDynamic(VMStatus.Up), MAX_SUPPRESSED_WRITES));
+        assertTrue(vmManager.isDynamicWriteNeeded(createDynamic(VMStatus.Up), MAX_SUPPRESSED_WRITES));
+    }
+
+    @Test
+    public void changedDynamicWritten() {
+        vmManager.dynamicPersisted(createDynamic(VMStatus.Up));
+
+        assertTrue(vmManager.isDynamicWriteNeeded(createDynamic(VMStatus.Paused), MAX_SUPPRESSED_WRITES));
+    }
+
+    @Test
+    public void disksIgnoredByDynamicComparison() {
+        vmManager.dynamicPersisted(createDynamic(VMStatus.Up));
+        VmDynamic reported = createDynamic(VMStatus.Up);
+        ArrayList<DiskImageDynamic> disks = new ArrayList<>(Collections.singletonList(new DiskImageDynamic()));
+        reported.setDisks(disks);
+
+        assertFalse(vmManager.isDynamicWriteNeeded(reported, MAX_SUPPRESSED_WRITES));
+        // the reported data is kept as is
+        assertEquals(1, reported.getDisks().size());
+        // and the disks reported before don't change the snapshot
+        assertFalse(vmManager.isDynamicWriteNeeded(createDynamic(VMStatus.Up), MAX_SUPPRESSED_WRITES));
+    }
+
+    @Test
+    public void statisticsWithinToleranceSuppressed() {
+        vmManager.statisticsPersisted(createStatistics(10, 20));
+
+        assertFalse(vmManager.isStatisticsWriteNeeded(createStatistics(11, 20), 1, MAX_SUPPRESSED_WRITES));
+        assertTrue(vmManager.isStatisticsWriteNeeded(createStatistics(12, 20), 1, MAX_SUPPRESSED_WRITES));
+    }
+
+    @Test
+    public void snapshotsDroppedWhenDbDataChanged() {
+        vmManager.dynamicPersisted(createDynamic(VMStatus.Up));
+        vmManager.statisticsPersisted(createStatistics(10, 20));
+
+        VM dbVm = new VM();
+        dbVm.setDynamicData(createDynamic(VMStatus.PoweringDown));
+        dbVm.setStatisticsData(createStatistics(50, 20));
+        vmManager.verifyPersistedData(dbVm);
+
+        assertTrue(vmManager.isDynamicWriteNeeded(createDynamic(VMStatus.Up), MAX_SUPPRESSED_WRITES));
+        assertTrue(vmManager.isStatisticsWriteNeeded(createStatistics(10, 20), 1, MAX_SUPPRESSED_WRITES));
+    }
+
+    private VmDynamic createDynamic(VMStatus status) {
+        VmDynamic dynamic = new VmDynamic();
+        dynamic.setId(vmId);
+        dynamic.setStatus(status);
+        return dynamic;
+    }
+
+    private VmStatistics createStatistics(int cpuPercent, int memPercent) {
+        VmStatistics statistics = new VmStatistics();
+        statistics.setId(vmId);
+        statistics.setusage_cpu_percent(cpuPercent);
+        statistics.setusage_mem_percent(memPercent);
+        return statistics;
+    }
+}
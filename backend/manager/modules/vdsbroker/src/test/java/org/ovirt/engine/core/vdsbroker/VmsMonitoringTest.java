@@ -2,7 +2,10 @@ package org.ovirt.engine.core.vdsbroker;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -12,8 +15,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
@@ -34,16 +42,20 @@ import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.common.businessentities.VmDevice;
 import org.ovirt.engine.core.common.businessentities.VmDeviceGeneralType;
 import org.ovirt.engine.core.common.businessentities.VmDeviceId;
+import org.ovirt.engine.core.common.businessentities.VmDynamic;
 import org.ovirt.engine.core.common.businessentities.VmStatic;
 import org.ovirt.engine.core.common.config.ConfigCommon;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.common.utils.VmDeviceType;
+import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.compat.Version;
 import org.ovirt.engine.core.dal.dbbroker.DbFacade;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogDirector;
 import org.ovirt.engine.core.dao.VmDeviceDao;
 import org.ovirt.engine.core.utils.MockConfigRule;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolType;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsProperties;
 import org.ovirt.engine.core.vdsbroker.vdsbroker.entities.VmInternalData;
 
@@ -51,6 +63,8 @@ import org.ovirt.engine.core.vdsbroker.vdsbroker.entities.VmInternalData;
 public class VmsMonitoringTest {
 
     private static final Version vdsCompVersion = Version.v3_4;
+    private static final int MONITORING_THREADS = 4;
+    private static final int MONITORING_QUEUE_SIZE = 10;
 
     @ClassRule
     public static MockConfigRule mcr = new MockConfigRule(
@@ -59,9 +73,13 @@ public class VmsMonitoringTest {
                     true),
             mockConfig(ConfigValues.HostedEngineVmName,
                     ConfigCommon.defaultConfigurationVersion,
-                    "HostedEngine")
+                    "HostedEngine"),
+            mockConfig(ConfigValues.MonitoringThreadPoolSize, MONITORING_THREADS),
+            mockConfig(ConfigValues.MonitoringThreadPoolQueueSize, MONITORING_QUEUE_SIZE)
     );
 
+    private static final int ANALYZED_VMS = 100;
+
     VmsMonitoring vmsMonitoring;
 
     @Mock
@@ -182,6 +200,102 @@ public class VmsMonitoringTest {
         assertThat(deviceNames.contains(VmDeviceType.SPICE.name().toLowerCase()), is(false));
     }
 
+    @Test
+    public void shardedAnalysisMatchesSerialAnalysis() {
+        List<CountingVmAnalyzer> serial = analyzeVms(1);
+        verify(vmsMonitoring, times(ANALYZED_VMS)).addVmDynamicToList(any(VmDynamic.class));
+        List<CountingVmAnalyzer> sharded = analyzeVms(4);
+        verify(vmsMonitoring, times(2 * ANALYZED_VMS)).addVmDynamicToList(any(VmDynamic.class));
+
+        for (int i = 0; i < ANALYZED_VMS; i++) {
+            assertThat(serial.get(i).analyses.get(), is(1));
+            assertThat(sharded.get(i).analyses.get(), is(1));
+        }
+        assertThat(getAnalyzingThreads(serial), is(Collections.singleton(Thread.currentThread())));
+        assertThat(getAnalyzingThreads(sharded).contains(Thread.currentThread()), is(false));
+    }
+
+    @Test
+    public void shardsRejectedBySaturatedPoolAnalyzedOnCaller() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(MONITORING_THREADS);
+        final CountDownLatch finished = new CountDownLatch(MONITORING_THREADS + MONITORING_QUEUE_SIZE);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.countDown();
+            }
+        };
+
+        try {
+            // busy threads and a full queue leave no room in the monitoring pool
+            for (int i = 0; i < MONITORING_THREADS; i++) {
+                ThreadPoolUtil.execute(ThreadPoolType.MONITORING, blocking);
+            }
+            started.await(10, TimeUnit.SECONDS);
+            for (int i = 0; i < MONITORING_QUEUE_SIZE; i++) {
+                ThreadPoolUtil.execute(ThreadPoolType.MONITORING, blocking);
+            }
+
+            List<CountingVmAnalyzer> analyzers = analyzeVms(4);
+
+            for (CountingVmAnalyzer analyzer : analyzers) {
+                assertThat(analyzer.analyses.get(), is(1));
+            }
+            assertThat(getAnalyzingThreads(analyzers), is(Collections.singleton(Thread.currentThread())));
+        } finally {
+            // leave the pool drained for the other tests
+            release.countDown();
+            finished.await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Analyzes the VMs split into up to the given number of shards
+     */
+    private List<CountingVmAnalyzer> analyzeVms(int maxShards) {
+        doReturn(maxShards).when(vmsMonitoring).getMaxAnalysisShards();
+        List<CountingVmAnalyzer> analyzers = new ArrayList<>();
+        for (int i = 0; i < ANALYZED_VMS; i++) {
+            analyzers.add(new CountingVmAnalyzer());
+        }
+
+        vmsMonitoring.analyzeVms(new ArrayList<VmAnalyzer>(analyzers));
+        return analyzers;
+    }
+
+    private static Set<Thread> getAnalyzingThreads(List<CountingVmAnalyzer> analyzers) {
+        Set<Thread> threads = new HashSet<>();
+        for (CountingVmAnalyzer analyzer : analyzers) {
+            threads.add(analyzer.thread);
+        }
+        return threads;
+    }
+
+    private class CountingVmAnalyzer extends VmAnalyzer {
+        private final AtomicInteger analyses = new AtomicInteger();
+        private volatile Thread thread;
+
+        public CountingVmAnalyzer() {
+            super(new VM(), null, vmsMonitoring, auditLogDirector);
+        }
+
+        @Override
+        protected void analyze() {
+            analyses.incrementAndGet();
+            thread = Thread.currentThread();
+            VmDynamic vmDynamic = new VmDynamic();
+            vmDynamic.setId(Guid.newGuid());
+            vmsMonitoring.addVmDynamicToList(vmDynamic);
+        }
+    }
+
     private List<VmDeviceGeneralType> getDeviceTypes(List<VmDevice> devices) {
         List<VmDeviceGeneralType> deviceTypes = new ArrayList<>();
         for (VmDevice device : devices) {
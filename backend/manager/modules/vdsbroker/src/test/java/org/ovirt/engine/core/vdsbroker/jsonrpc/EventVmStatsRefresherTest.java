@@ -0,0 +1,269 @@
+package org.ovirt.engine.core.vdsbroker.jsonrpc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ovirt.engine.core.utils.MockConfigRule.mockConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.ovirt.engine.core.common.businessentities.VDS;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.VMStatus;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dal.dbbroker.DbFacade;
+import org.ovirt.engine.core.dao.VmDao;
+import org.ovirt.engine.core.utils.MockConfigRule;
+import org.ovirt.engine.core.utils.timer.SchedulerUtilQuartzImpl;
+import org.ovirt.engine.core.vdsbroker.PollAllVmStatsOnlyRefresher;
+import org.ovirt.engine.core.vdsbroker.VdsManager;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsProperties;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.entities.VmInternalData;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventVmStatsRefresherTest {
+
+    private static final int RECONCILE_RATE_IN_SECONDS = 60;
+    private static final int COALESCING_WINDOW = 100;
+
+    @ClassRule
+    public static MockConfigRule mcr = new MockConfigRule(
+            mockConfig(ConfigValues.VmStatsReconcileRefreshRateInSeconds, RECONCILE_RATE_IN_SECONDS),
+            mockConfig(ConfigValues.VmEventsCoalescingWindowInMilliSeconds, COALESCING_WINDOW),
+            mockConfig(ConfigValues.VdsRefreshRate, 3),
+            mockConfig(ConfigValues.NumberVmRefreshesBeforeSave, 5)
+    );
+
+    @Mock
+    private DbFacade dbFacade;
+
+    @Mock
+    private VmDao vmDao;
+
+    @Mock
+    private VdsManager vdsManager;
+
+    @Mock
+    private SchedulerUtilQuartzImpl scheduler;
+
+    @Captor
+    private ArgumentCaptor<List<Guid>> vmIds;
+
+    private Guid hostId;
+    private TestEventVmStatsRefresher refresher;
+
+    @Before
+    public void setUp() {
+        hostId = Guid.newGuid();
+        DbFacade.setInstance(dbFacade);
+        when(dbFacade.getVmDao()).thenReturn(vmDao);
+        when(vdsManager.getVdsId()).thenReturn(hostId);
+        when(vdsManager.getCopyVds()).thenReturn(new VDS());
+        refresher = new TestEventVmStatsRefresher(vdsManager, scheduler);
+    }
+
+    @Test
+    public void eventsOfTheSameVmMerged() {
+        Guid vmId = Guid.newGuid();
+        Guid otherVmId = Guid.newGuid();
+
+        refresher.addEvent(event(1000L, vmId, VMStatus.Up, "1"));
+        refresher.addEvent(event(2000L, vmId, VMStatus.Paused, null));
+        refresher.addEvent(event(1500L, otherVmId, VMStatus.Up, null));
+        refresher.processEvents();
+
+        assertThat(refresher.monitorings.size(), is(1));
+        Map<Guid, VmInternalData> vms = getMonitoredVms(0);
+        assertThat(vms.keySet(), is(ids(vmId, otherVmId)));
+        // a later event overrides the fields it reports and keeps the others
+        assertThat(vms.get(vmId).getVmDynamic().getStatus(), is(VMStatus.Paused));
+        assertThat(vms.get(vmId).getVmDynamic().getHash(), is("1"));
+        assertThat(vms.get(vmId).getTimestamp(), is(2000d));
+        assertThat(vms.get(otherVmId).getTimestamp(), is(1500d));
+    }
+
+    @Test
+    public void concurrentEventsMerged() throws InterruptedException {
+        final int threads = 4;
+        final int eventsPerThread = 25;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Guid> sentVmIds = Collections.synchronizedList(new ArrayList<Guid>());
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread sender = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int j = 0; j < eventsPerThread; j++) {
+                        Guid vmId = Guid.newGuid();
+                        sentVmIds.add(vmId);
+                        refresher.addEvent(event(1000L, vmId, VMStatus.Up, null));
+                    }
+                }
+            });
+            sender.start();
+            senders.add(sender);
+        }
+        start.countDown();
+        for (Thread sender : senders) {
+            sender.join(10000);
+        }
+
+        verifyProcessingScheduled(1);
+        refresher.processEvents();
+        assertThat(getMonitoredVms(0).keySet(), is((Set<Guid>) new HashSet<>(sentVmIds)));
+    }
+
+    @Test
+    public void singleProcessingJobScheduledPerWindow() {
+        refresher.addEvent(event(1000L, Guid.newGuid(), VMStatus.Up, null));
+        refresher.addEvent(event(1100L, Guid.newGuid(), VMStatus.Up, null));
+        verifyProcessingScheduled(1);
+
+        // the events that arrive once the pending ones are processed open a new window
+        refresher.processEvents();
+        refresher.addEvent(event(1200L, Guid.newGuid(), VMStatus.Up, null));
+        verifyProcessingScheduled(2);
+    }
+
+    @Test
+    public void processingWithoutPendingEventsSkipped() {
+        refresher.processEvents();
+
+        verify(vmDao, never()).getVmsByIds(anyListOf(Guid.class));
+        assertThat(refresher.monitorings.isEmpty(), is(true));
+    }
+
+    @Test
+    public void vmsLoadedAtOnce() {
+        Guid runningVmId = Guid.newGuid();
+        Guid migratedVmId = Guid.newGuid();
+        Guid unknownVmId = Guid.newGuid();
+        VM runningVm = createDbVm(runningVmId, hostId);
+        VM migratedVm = createDbVm(migratedVmId, Guid.newGuid());
+        when(vmDao.getVmsByIds(anyListOf(Guid.class))).thenReturn(Arrays.asList(runningVm, migratedVm));
+
+        refresher.addEvent(event(1000L, runningVmId, VMStatus.Up, null));
+        refresher.addEvent(event(1000L, migratedVmId, VMStatus.Up, null));
+        refresher.addEvent(event(1000L, unknownVmId, VMStatus.Up, null));
+        refresher.processEvents();
+
+        verify(vmDao).getVmsByIds(vmIds.capture());
+        verify(vmDao, never()).get(any(Guid.class));
+        assertThat(new HashSet<>(vmIds.getValue()), is(ids(runningVmId, migratedVmId, unknownVmId)));
+
+        // only a VM which runs on the host is passed to the monitoring as it is in the database
+        Map<Guid, VM> dbVms = new HashMap<>();
+        for (Pair<VM, VmInternalData> pair : refresher.monitorings.get(0)) {
+            dbVms.put(pair.getSecond().getVmDynamic().getId(), pair.getFirst());
+        }
+        assertThat(dbVms.get(runningVmId), is(runningVm));
+        assertThat(dbVms.containsKey(migratedVmId), is(true));
+        assertThat(dbVms.get(migratedVmId), is((VM) null));
+        assertThat(dbVms.get(unknownVmId), is((VM) null));
+    }
+
+    @Test
+    public void statisticsReconciledAtConfiguredRate() {
+        assertThat(refresher.reconcileRate, is((int) TimeUnit.SECONDS.toMillis(RECONCILE_RATE_IN_SECONDS)));
+    }
+
+    private void verifyProcessingScheduled(int times) {
+        verify(scheduler, times(times)).scheduleAOneTimeJob(eq(refresher),
+                eq("processEvents"),
+                any(Class[].class),
+                any(Object[].class),
+                eq((long) COALESCING_WINDOW),
+                eq(TimeUnit.MILLISECONDS));
+    }
+
+    private Map<Guid, VmInternalData> getMonitoredVms(int monitoring) {
+        Map<Guid, VmInternalData> vms = new HashMap<>();
+        for (Pair<VM, VmInternalData> pair : refresher.monitorings.get(monitoring)) {
+            vms.put(pair.getSecond().getVmDynamic().getId(), pair.getSecond());
+        }
+        return vms;
+    }
+
+    private static Set<Guid> ids(Guid... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    private static Map<String, Object> event(Long notifyTime, Guid vmId, VMStatus status, String hash) {
+        Map<String, Object> vm = new HashMap<>();
+        vm.put(VdsProperties.status, status.name());
+        if (hash != null) {
+            vm.put(VdsProperties.hash, hash);
+        }
+        Map<String, Object> event = new HashMap<>();
+        event.put(vmId.toString(), vm);
+        event.put(VdsProperties.notify_time, notifyTime);
+        return event;
+    }
+
+    private static VM createDbVm(Guid vmId, Guid runOnVds) {
+        VM vm = new VM();
+        vm.setId(vmId);
+        vm.setRunOnVds(runOnVds);
+        return vm;
+    }
+
+    private static class TestEventVmStatsRefresher extends EventVmStatsRefresher {
+        private final SchedulerUtilQuartzImpl scheduler;
+        private final List<List<Pair<VM, VmInternalData>>> monitorings = new ArrayList<>();
+        private int reconcileRate;
+
+        public TestEventVmStatsRefresher(VdsManager vdsManager, SchedulerUtilQuartzImpl scheduler) {
+            super(vdsManager);
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        protected PollAllVmStatsOnlyRefresher createAllVmStatsOnlyRefresher(int refreshRate) {
+            // called by the constructor of the refresher, before the fields of this class are set
+            reconcileRate = refreshRate;
+            return Mockito.mock(PollAllVmStatsOnlyRefresher.class);
+        }
+
+        @Override
+        protected SchedulerUtilQuartzImpl getScheduler() {
+            return scheduler;
+        }
+
+        @Override
+        protected void performVmsMonitoring(List<Pair<VM, VmInternalData>> changedVms,
+                List<Pair<VM, VmInternalData>> devicesChangedVms) {
+            monitorings.add(changedVms);
+        }
+    }
+}
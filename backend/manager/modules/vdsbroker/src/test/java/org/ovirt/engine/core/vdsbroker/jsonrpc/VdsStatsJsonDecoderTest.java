@@ -0,0 +1,95 @@
+package org.ovirt.engine.core.vdsbroker.jsonrpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.junit.Before;
+import org.junit.Test;
+import org.ovirt.engine.core.common.businessentities.VDS;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsBrokerObjectsBuilder;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsProperties;
+
+public class VdsStatsJsonDecoderTest {
+
+    private Map<String, Object> host;
+
+    @Before
+    public void setUp() throws IOException {
+        host = decode(readResult());
+    }
+
+    private static JsonNode readResult() throws IOException {
+        JsonNode response = new ObjectMapper().readTree(
+                VdsStatsJsonDecoderTest.class.getResourceAsStream("/vds_stats_response.json"));
+        return response.get("result");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> decode(JsonNode result) {
+        return (Map<String, Object>) new VdsStatsJsonDecoder().decode(result);
+    }
+
+    @Test
+    public void testStatisticsDecoded() {
+        VDS vds = new VDS();
+        VdsBrokerObjectsBuilder.updateVDSStatisticsData(vds, host);
+
+        assertEquals(1.25, vds.getCpuSys(), 0);
+        assertEquals(2.5, vds.getCpuUser(), 0);
+        assertEquals(Integer.valueOf(3), vds.getUsageCpuPercent());
+        assertEquals(8.0, vds.getCpuLoad(), 0.001);
+        assertEquals(Integer.valueOf(23), vds.getUsageMemPercent());
+        assertEquals(Long.valueOf(6904), vds.getMemAvailable());
+        assertEquals(Long.valueOf(2047), vds.getSwapFree());
+        assertEquals(Long.valueOf(100), vds.getKsmPages());
+        assertFalse(vds.getKsmState());
+        assertEquals(Long.valueOf(1444143652), vds.getBootTime());
+    }
+
+    @Test
+    public void testUsageCpuPercentKeptWithoutCpuUsage() throws IOException {
+        JsonNode result = readResult();
+        ((ObjectNode) result).remove(VdsProperties.cpu_sys);
+        ((ObjectNode) result).remove(VdsProperties.cpu_user);
+        VDS vds = new VDS();
+        vds.setUsageCpuPercent(42);
+        VdsBrokerObjectsBuilder.updateVDSStatisticsData(vds, decode(result));
+
+        assertEquals(Integer.valueOf(42), vds.getUsageCpuPercent());
+    }
+
+    @Test
+    public void testIntegerDecodedAsDouble() {
+        VDS vds = new VDS();
+        VdsBrokerObjectsBuilder.updateVDSStatisticsData(vds, host);
+
+        // The generic decomposition ignores a JSON integer where a floating point value is expected
+        assertEquals(96.0, vds.getCpuIdle(), 0);
+    }
+
+    @Test
+    public void testOtherPropertiesUpdatedFromStruct() {
+        VDS vds = new VDS();
+        VdsBrokerObjectsBuilder.updateVDSStatisticsData(vds, host);
+
+        assertEquals(2, vds.getVmCount());
+        assertEquals(1, vds.getOutgoingMigrations());
+        assertEquals(3400, vds.getHighlyAvailableScore());
+        assertTrue(vds.getHighlyAvailableIsActive());
+        assertEquals(Long.valueOf(7734), vds.getLocalDisksUsage().get("/tmp"));
+    }
+
+    @Test
+    public void testStatisticsNotKeptInStruct() {
+        assertFalse(host.containsKey(VdsProperties.cpu_sys));
+        assertFalse(host.containsKey(VdsProperties.mem_available));
+        assertTrue(host.get(VdsProperties.ha_stats) instanceof Map);
+    }
+}
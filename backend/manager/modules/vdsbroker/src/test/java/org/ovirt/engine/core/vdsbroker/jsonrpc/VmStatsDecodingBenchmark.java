@@ -0,0 +1,84 @@
+package org.ovirt.engine.core.vdsbroker.jsonrpc;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsBrokerObjectsBuilder;
+import org.ovirt.vdsm.jsonrpc.client.JsonRpcResponse;
+import org.ovirt.vdsm.jsonrpc.client.ResponseDecomposer;
+
+/**
+ * Compares the generic decomposition of a getAllVmStats response followed by the map based statistics building with
+ * {@link VmStatsJsonDecoder}. The recorded response in vm_stats_response.json is replicated to the requested number
+ * of VMs.
+ * <p>
+ * Run with: <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main VmStatsDecodingBenchmark -prof gc</code>
+ * to compare the allocation rate along with the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VmStatsDecodingBenchmark {
+
+    @Param({ "10", "100", "500" })
+    private int vms;
+
+    private JsonRpcResponse response;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode recorded = mapper.readTree(
+                VmStatsDecodingBenchmark.class.getResourceAsStream("/vm_stats_response.json"));
+        JsonNode recordedVms = recorded.get("result");
+
+        ArrayNode result = mapper.createArrayNode();
+        for (int i = 0; i < vms; i++) {
+            result.add(recordedVms.get(i % recordedVms.size()));
+        }
+        ObjectNode node = mapper.createObjectNode();
+        node.put("jsonrpc", "2.0");
+        node.put("id", recorded.get("id"));
+        node.put("result", result);
+        response = JsonRpcResponse.fromJsonNode(node);
+    }
+
+    @Benchmark
+    public void decomposeAndBuild(Blackhole blackhole) {
+        Object[] decomposed = (Object[]) new ResponseDecomposer(response).decomposeResponse(Object[].class);
+        build(decomposed, blackhole);
+    }
+
+    @Benchmark
+    public void decodeAndBuild(Blackhole blackhole) {
+        Object[] decoded = (Object[]) new VmStatsJsonDecoder().decode(response.getResult());
+        build(decoded, blackhole);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void build(Object[] vms, Blackhole blackhole) {
+        for (Object vm : vms) {
+            blackhole.consume(VdsBrokerObjectsBuilder.buildVMStatisticsData((Map<String, Object>) vm));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.ovirt.engine.core.vdsbroker.jsonrpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.ovirt.engine.core.common.businessentities.VmStatistics;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsBrokerObjectsBuilder;
+import org.ovirt.engine.core.vdsbroker.vdsbroker.VdsProperties;
+
+public class VmStatsJsonDecoderTest {
+
+    private Object[] vms;
+
+    @Before
+    public void setUp() throws IOException {
+        JsonNode response = new ObjectMapper().readTree(
+                VmStatsJsonDecoderTest.class.getResourceAsStream("/vm_stats_response.json"));
+        vms = (Object[]) new VmStatsJsonDecoder().decode(response.get("result"));
+    }
+
+    @Test
+    public void testStatisticsDecoded() {
+        assertEquals(2, vms.length);
+        VmStatistics statistics = VdsBrokerObjectsBuilder.buildVMStatisticsData(getVm(0));
+
+        assertEquals(Guid.createGuidFromString("aa63be3a-8760-4018-84b3-eb62f8eb4ba6"), statistics.getId());
+        assertEquals(3724.0, statistics.getelapsed_time(), 0);
+        assertEquals(0.53, statistics.getcpu_sys(), 0);
+        assertEquals(2.47, statistics.getcpu_user(), 0);
+        assertEquals(Integer.valueOf(31), statistics.getusage_mem_percent());
+        assertEquals(Integer.valueOf(0), statistics.getMigrationProgressPercent());
+        assertTrue(statistics.getVmBalloonInfo().isBalloonDeviceEnabled());
+        assertEquals(Long.valueOf(6291456), statistics.getVmBalloonInfo().getCurrentMemory());
+    }
+
+    @Test
+    public void testInterfaceStatisticsDecoded() {
+        VmStatistics statistics = VdsBrokerObjectsBuilder.buildVMStatisticsData(getVm(0));
+
+        assertEquals(1, statistics.getInterfaceStatistics().size());
+        VmNetworkInterface iface = statistics.getInterfaceStatistics().get(0);
+        assertEquals("vnet0", iface.getName());
+        assertEquals("00:1a:4a:16:01:51", iface.getMacAddress());
+        assertEquals(Integer.valueOf(1000), iface.getSpeed());
+        assertEquals(0.1, iface.getStatistics().getReceiveRate(), 0);
+        assertEquals(0.0, iface.getStatistics().getTransmitDropRate(), 0);
+        assertEquals(Long.valueOf(5483322), iface.getStatistics().getReceivedBytes());
+        assertEquals(4318.76, iface.getStatistics().getSampleTime(), 0);
+    }
+
+    @Test
+    public void testDecimalIntegerAndMissingBalloonInfo() {
+        VmStatistics statistics = VdsBrokerObjectsBuilder.buildVMStatisticsData(getVm(1));
+
+        assertEquals(Integer.valueOf(12), statistics.getusage_mem_percent());
+        assertFalse(statistics.getVmBalloonInfo().isBalloonDeviceEnabled());
+        assertNull(statistics.getDisksUsage());
+    }
+
+    @Test
+    public void testIntegerDecodedAsDouble() {
+        VmStatistics statistics = VdsBrokerObjectsBuilder.buildVMStatisticsData(getVm(1));
+
+        // The generic decomposition ignores a JSON integer where a floating point value is expected
+        assertEquals(118.0, statistics.getelapsed_time(), 0);
+    }
+
+    @Test
+    public void testOtherPropertiesKeptInStruct() {
+        Map<String, Object> vm = getVm(0);
+
+        assertEquals("Up", vm.get(VdsProperties.status));
+        assertEquals("aa63be3a-8760-4018-84b3-eb62f8eb4ba6", vm.get(VdsProperties.vm_guid));
+        assertTrue(vm.get(VdsProperties.vm_disks) instanceof Map);
+        assertTrue(vm.get(VdsProperties.VM_DISKS_USAGE) instanceof Object[]);
+        assertFalse(vm.containsKey(VdsProperties.VM_NETWORK));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getVm(int index) {
+        return (Map<String, Object>) vms[index];
+    }
+}
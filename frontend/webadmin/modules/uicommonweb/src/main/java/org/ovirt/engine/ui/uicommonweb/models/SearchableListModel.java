@@ -5,9 +5,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.SortedSet;
 import java.util.logging.Logger;
@@ -15,10 +17,13 @@ import java.util.logging.Logger;
 import org.ovirt.engine.core.common.businessentities.BusinessEntity;
 import org.ovirt.engine.core.common.businessentities.HasStoragePool;
 import org.ovirt.engine.core.common.businessentities.IVdcQueryable;
+import org.ovirt.engine.core.common.queries.SearchDelta;
+import org.ovirt.engine.core.common.queries.SearchParameters;
 import org.ovirt.engine.core.common.queries.VdcQueryParametersBase;
 import org.ovirt.engine.core.common.queries.VdcQueryReturnValue;
 import org.ovirt.engine.core.common.queries.VdcQueryType;
 import org.ovirt.engine.core.common.utils.ObjectUtils;
+import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.searchbackend.ISyntaxChecker;
 import org.ovirt.engine.core.searchbackend.SyntaxChecker;
 import org.ovirt.engine.core.searchbackend.SyntaxContainer;
@@ -64,6 +69,11 @@ public abstract class SearchableListModel<E, T> extends SortedListModel<T> imple
     private static final Logger logger = Logger.getLogger(SearchableListModel.class.getName());
     private static final String PAGE_STRING_REGEX = "[\\s]+page[\\s]+[1-9]+[0-9]*[\\s]*$"; //$NON-NLS-1$
     private static final String PAGE_NUMBER_REGEX = "[1-9]+[0-9]*$"; //$NON-NLS-1$
+    /**
+     * The number of delta searches after which all the items are loaded again, so they catch up with the changes which
+     * aren't stamped in the database, like the names of related entities or the locks held by the engine.
+     */
+    private static final int DELTA_SEARCHES_BETWEEN_FULL_SEARCHES = 12;
 
     private UICommand privateSearchCommand;
     private HandlerRegistration timerChangeHandler;
@@ -747,6 +757,66 @@ public abstract class SearchableListModel<E, T> extends SortedListModel<T> imple
         return result;
     }
 
+    /**
+     * Returns {@code true} if the search of this model supports {@linkplain SearchParameters#setChangedSince delta
+     * searches}, in which case the auto refresh loads only the items changed since the previous refresh and merges
+     * them into the current items.
+     */
+    protected boolean supportsDeltaSearch() {
+        return false;
+    }
+
+    private Long changeStamp;
+    private String changeStampSearch;
+    private int deltaSearches;
+
+    /**
+     * Returns the change stamp of the previous search if the given search is its refresh, or 0 to load all the items.
+     */
+    private Long getChangedSince(String search) {
+        if (getIsQueryFirstTime() || getItems() == null || changeStamp == null || !search.equals(changeStampSearch)
+                || ++deltaSearches > DELTA_SEARCHES_BETWEEN_FULL_SEARCHES) {
+            deltaSearches = 0;
+            return 0L;
+        }
+        return changeStamp;
+    }
+
+    /**
+     * Builds the items found by a delta search, in the order of the search: the changed items are taken from the delta
+     * and the others are the current items.
+     */
+    @SuppressWarnings("unchecked")
+    private Collection<T> mergeSearchDelta(SearchDelta<?> delta, String search) {
+        Map<Object, T> itemsById = new HashMap<>();
+        if (getItems() != null) {
+            for (T item : getItems()) {
+                if (item instanceof IVdcQueryable) {
+                    itemsById.put(((IVdcQueryable) item).getQueryableId(), item);
+                }
+            }
+        }
+        for (IVdcQueryable item : delta.getChanged()) {
+            itemsById.put(item.getQueryableId(), (T) item);
+        }
+
+        List<T> mergedItems = new ArrayList<>();
+        boolean complete = true;
+        for (Guid id : delta.getIds()) {
+            T item = itemsById.get(id);
+            if (item != null) {
+                mergedItems.add(item);
+            } else {
+                complete = false;
+            }
+        }
+        // An item missing from the current items, when they were replaced since the search was sent, is loaded by
+        // the next refresh, which loads all the items:
+        changeStamp = complete ? delta.getChangeStamp() : null;
+        changeStampSearch = search;
+        return mergedItems;
+    }
+
     /**
      * Returns {@code true} if this model's {@link #syncSearch} implementation supports server-side sorting.
      */
@@ -879,12 +949,24 @@ public abstract class SearchableListModel<E, T> extends SortedListModel<T> imple
     }
 
     public void syncSearch(VdcQueryType vdcQueryType, VdcQueryParametersBase vdcQueryParametersBase) {
+        final String deltaSearch = supportsDeltaSearch() && vdcQueryParametersBase instanceof SearchParameters
+                ? ((SearchParameters) vdcQueryParametersBase).getSearchPattern()
+                : null;
+        if (deltaSearch != null) {
+            ((SearchParameters) vdcQueryParametersBase).setChangedSince(getChangedSince(deltaSearch));
+        }
+
         AsyncQuery _asyncQuery = new AsyncQuery();
         _asyncQuery.setModel(this);
         _asyncQuery.asyncCallback = new INewAsyncCallback() {
             @Override
             public void onSuccess(Object model, Object ReturnValue) {
-                setItems((Collection<T>) ((VdcQueryReturnValue) ReturnValue).getReturnValue());
+                Object returnValue = ((VdcQueryReturnValue) ReturnValue).getReturnValue();
+                if (returnValue instanceof SearchDelta) {
+                    setItems(mergeSearchDelta((SearchDelta<?>) returnValue, deltaSearch));
+                } else {
+                    setItems((Collection<T>) returnValue);
+                }
             }
         };
 
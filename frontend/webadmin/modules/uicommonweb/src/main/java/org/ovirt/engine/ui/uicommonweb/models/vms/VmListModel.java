@@ -2418,6 +2418,11 @@ public class VmListModel<E> extends VmBaseListModel<E, VM> implements ISupportSy
         return true;
     }
 
+    @Override
+    protected boolean supportsDeltaSearch() {
+        return true;
+    }
+
     @Override
     protected Guid extractStoragePoolIdNullSafe(VM entity) {
         return entity.getStoragePoolId();
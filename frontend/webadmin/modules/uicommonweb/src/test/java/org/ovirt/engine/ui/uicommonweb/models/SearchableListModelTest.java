@@ -1,11 +1,28 @@
 package org.ovirt.engine.ui.uicommonweb.models;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.interfaces.SearchType;
+import org.ovirt.engine.core.common.queries.SearchDelta;
+import org.ovirt.engine.core.common.queries.SearchParameters;
+import org.ovirt.engine.core.common.queries.VdcQueryParametersBase;
+import org.ovirt.engine.core.common.queries.VdcQueryReturnValue;
+import org.ovirt.engine.core.common.queries.VdcQueryType;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.ui.frontend.AsyncQuery;
 import org.ovirt.engine.ui.uicommonweb.junit.UiCommonSetup;
 
 public class SearchableListModelTest {
@@ -29,4 +46,56 @@ public class SearchableListModelTest {
 
         assertEquals((Integer) 2, listModel.getSelectedItem());
     }
+
+    @Test
+    public void testDeltaSearchMerged() {
+        SearchableListModel<Void, VM> listModel = new SearchableListModel<Void, VM>() {
+            @Override
+            protected String getListName() {
+                return "test"; //$NON-NLS-1$
+            }
+
+            @Override
+            protected boolean supportsDeltaSearch() {
+                return true;
+            }
+        };
+        VM vm1 = newVm();
+        VM vm2 = newVm();
+        VM vm3 = newVm();
+
+        // The first search loads all the VMs:
+        SearchParameters parameters = runSearch(listModel,
+                new SearchDelta<>(Arrays.asList(vm1.getId(), vm2.getId()), Arrays.asList(vm1, vm2), 100));
+        assertEquals((Long) 0L, parameters.getChangedSince());
+        assertEquals(Arrays.asList(vm1, vm2), new ArrayList<>(listModel.getItems()));
+
+        // The refresh loads the added VM only, and drops the removed one:
+        parameters = runSearch(listModel,
+                new SearchDelta<>(Arrays.asList(vm1.getId(), vm3.getId()), Collections.singletonList(vm3), 200));
+        assertEquals((Long) 100L, parameters.getChangedSince());
+        List<VM> items = new ArrayList<>(listModel.getItems());
+        assertEquals(Arrays.asList(vm1, vm3), items);
+        assertSame(vm1, items.get(0));
+    }
+
+    private SearchParameters runSearch(SearchableListModel<Void, VM> listModel, SearchDelta<VM> delta) {
+        listModel.syncSearch(VdcQueryType.Search, new SearchParameters("Vms:", SearchType.VM)); //$NON-NLS-1$
+
+        ArgumentCaptor<VdcQueryParametersBase> parameters = ArgumentCaptor.forClass(VdcQueryParametersBase.class);
+        ArgumentCaptor<AsyncQuery> query = ArgumentCaptor.forClass(AsyncQuery.class);
+        verify(setup.getMocks().frontend(), atLeastOnce())
+                .runQuery(eq(VdcQueryType.Search), parameters.capture(), query.capture());
+        // The captors hold the arguments of the last search:
+        VdcQueryReturnValue returnValue = new VdcQueryReturnValue();
+        returnValue.setReturnValue(delta);
+        query.getValue().asyncCallback.onSuccess(listModel, returnValue);
+        return (SearchParameters) parameters.getValue();
+    }
+
+    private static VM newVm() {
+        VM vm = new VM();
+        vm.setId(Guid.newGuid());
+        return vm;
+    }
 }
@@ -52,14 +52,19 @@ END; $procedure$
 LANGUAGE plpgsql;
 
 CREATE OR REPLACE FUNCTION GetDisksVmGuids (
-  v_vm_guids UUID[]
+  v_vm_guids UUID[],
+  v_user_id UUID,
+  v_is_filtered BOOLEAN
 )
   RETURNS SETOF all_disks_for_vms STABLE AS $PROCEDURE$
 BEGIN
   RETURN QUERY
   SELECT *
   FROM all_disks_for_vms
-  WHERE vm_id = ANY(v_vm_guids);
+  WHERE vm_id = ANY(v_vm_guids)
+  AND (NOT v_is_filtered OR EXISTS (SELECT 1
+                                    FROM   user_disk_permissions_view
+                                    WHERE  user_id = v_user_id AND entity_id = disk_id));
 END;$PROCEDURE$
 LANGUAGE plpgsql;
 
@@ -106,6 +106,15 @@ BEGIN
    IF (v_max_message_length IS NOT NULL and length(v_message) > v_max_message_length) THEN
       v_truncated_message := substr(v_message, 1, v_max_message_length -3) || '...';
    END IF;
+
+   -- audit_log_origin_custom_event_id_idx only covers the table it is defined on, each partition has its own copy,
+   -- so the uniqueness of an external event is checked over audit_log and all of its partitions
+   IF (v_origin NOT ILIKE 'eayun' AND EXISTS(SELECT * FROM audit_log
+         WHERE origin = v_origin AND custom_event_id = v_custom_event_id)) THEN
+      RAISE unique_violation USING MESSAGE = 'An event with origin ' || v_origin || ' and custom event id '
+            || v_custom_event_id || ' already exists';
+   END IF;
+
    INSERT INTO audit_log(LOG_TIME, log_type, log_type_name, severity,message, user_id, USER_NAME, vds_id, VDS_NAME, vm_id, VM_NAME,vm_template_id,VM_TEMPLATE_NAME,storage_pool_id,STORAGE_POOL_NAME,storage_domain_id,STORAGE_DOMAIN_NAME,vds_group_id,vds_group_name, correlation_id, job_id, quota_id, quota_name, gluster_volume_id, gluster_volume_name, call_stack, origin, custom_event_id, event_flood_in_sec, custom_data, brick_id, brick_path)
 		VALUES(v_log_time, v_log_type, v_log_type_name, v_severity, v_truncated_message, v_user_id, v_user_name, v_vds_id, v_vds_name, v_vm_id, v_vm_name,v_vm_template_id,v_vm_template_name,v_storage_pool_id,v_storage_pool_name,v_storage_domain_id,v_storage_domain_name,v_vds_group_id,v_vds_group_name, v_correlation_id, v_job_id, v_quota_id, v_quota_name, v_gluster_volume_id, v_gluster_volume_name, v_call_stack, v_origin, v_custom_event_id, v_event_flood_in_sec, v_custom_data, v_brick_id, v_brick_path);
 
@@ -350,3 +359,111 @@ BEGIN
       WHERE gluster_volume_id = v_gluster_volume_id and log_type = v_log_type;
 END; $procedure$
 LANGUAGE plpgsql;
+
+----------------------------------------------------------------
+-- [audit_log] Partitions
+--
+-- The partitions inherit audit_log and hold the events logged in their time range, so queries on audit_log include
+-- them. An event is routed to its partition on insert, events without a partition stay in audit_log itself. The
+-- routing trigger only exists while there are partitions, so inserts don't look up partitions when there are none.
+
+Create or replace FUNCTION fn_audit_log_route_to_partition() RETURNS TRIGGER
+   AS $procedure$
+   DECLARE
+   v_partition_name VARCHAR(63);
+BEGIN
+      SELECT partition_name INTO v_partition_name
+      FROM audit_log_partitions
+      WHERE range_start <= NEW.log_time AND NEW.log_time < range_end;
+      IF (v_partition_name IS NULL) THEN
+         RETURN NEW;
+      END IF;
+      EXECUTE 'INSERT INTO ' || quote_ident(v_partition_name) || ' SELECT ($1).*' USING NEW;
+      RETURN NULL;
+END; $procedure$
+LANGUAGE plpgsql;
+
+-- Creates the partitions of the given interval ('day' or 'week') up to the given time, starting at the interval of
+-- the current time or where the last partition ends. Switching the interval doesn't create overlapping partitions.
+Create or replace FUNCTION CreateAuditLogPartitions(v_interval VARCHAR(10), v_until TIMESTAMP WITH TIME ZONE)
+RETURNS VOID
+   AS $procedure$
+   DECLARE
+   v_start TIMESTAMP WITH TIME ZONE;
+   v_end TIMESTAMP WITH TIME ZONE;
+   v_last_end TIMESTAMP WITH TIME ZONE;
+   v_partition_name VARCHAR(63);
+BEGIN
+      IF (v_interval NOT IN ('day', 'week')) THEN
+         RAISE EXCEPTION 'Unsupported audit log partition interval %', v_interval;
+      END IF;
+
+      v_start := date_trunc(v_interval, CURRENT_TIMESTAMP);
+      SELECT max(range_end) INTO v_last_end FROM audit_log_partitions;
+      IF (v_last_end > v_start) THEN
+         v_start := v_last_end;
+      END IF;
+
+      IF (v_start < v_until) THEN
+         -- The events of the partitions aren't seen by the foreign key, the notification history of removed events
+         -- is deleted by DropAuditLogPartitionsOlderThenDate and Deleteevent_notification_hist instead
+         PERFORM fn_db_drop_constraint('event_notification_hist', 'fk_event_notification_hist_audit_log');
+         IF NOT EXISTS (SELECT * FROM pg_trigger
+               WHERE tgname = 'route_audit_log_to_partition' AND tgrelid = 'audit_log'::regclass) THEN
+            CREATE TRIGGER route_audit_log_to_partition BEFORE INSERT ON audit_log FOR EACH ROW
+            EXECUTE PROCEDURE fn_audit_log_route_to_partition();
+         END IF;
+      END IF;
+
+      WHILE (v_start < v_until) LOOP
+         v_end := date_trunc(v_interval, v_start) + ('1 ' || v_interval)::interval;
+         v_partition_name := 'audit_log_' || to_char(v_start, 'YYYYMMDD');
+         EXECUTE 'CREATE TABLE ' || quote_ident(v_partition_name)
+               || ' (LIKE audit_log INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING INDEXES,'
+               || ' CHECK (log_time >= ' || quote_literal(v_start) || ' AND log_time < ' || quote_literal(v_end) || '))';
+         EXECUTE 'ALTER TABLE ' || quote_ident(v_partition_name) || ' INHERIT audit_log';
+         INSERT INTO audit_log_partitions(partition_name, range_start, range_end)
+               VALUES(v_partition_name, v_start, v_end);
+         v_start := v_end;
+      END LOOP;
+END; $procedure$
+LANGUAGE plpgsql;
+
+-- Drops the partitions whose events are all older than the given date, along with the routing trigger once the last
+-- one is gone, and deletes the older events of audit_log itself, the ones logged without a partition
+Create or replace FUNCTION DropAuditLogPartitionsOlderThenDate(v_date TIMESTAMP WITH TIME ZONE)
+RETURNS VOID
+   AS $procedure$
+   DECLARE
+   v_partition_name VARCHAR(63);
+   v_id BIGINT;
+BEGIN
+      FOR v_partition_name IN
+         SELECT partition_name FROM audit_log_partitions WHERE range_end <= v_date ORDER BY range_start
+      LOOP
+         EXECUTE 'DELETE FROM event_notification_hist WHERE audit_log_id IN (SELECT audit_log_id FROM '
+               || quote_ident(v_partition_name) || ')';
+         EXECUTE 'DROP TABLE ' || quote_ident(v_partition_name);
+         DELETE FROM audit_log_partitions WHERE partition_name = v_partition_name;
+      END LOOP;
+      IF (NOT EXISTS (SELECT * FROM audit_log_partitions)) THEN
+         DROP TRIGGER IF EXISTS route_audit_log_to_partition ON audit_log;
+      END IF;
+
+      -- get first the id from which to remove in order to use index
+      SELECT audit_log_id INTO v_id FROM ONLY audit_log WHERE log_time < v_date ORDER BY audit_log_id DESC LIMIT 1;
+      IF (v_id IS NOT NULL) THEN
+         DELETE FROM event_notification_hist WHERE audit_log_id <= v_id
+               AND audit_log_id IN (SELECT audit_log_id FROM ONLY audit_log WHERE audit_log_id <= v_id);
+         DELETE FROM ONLY audit_log WHERE audit_log_id <= v_id;
+      END IF;
+END; $procedure$
+LANGUAGE plpgsql;
+
+Create or replace FUNCTION CheckIfAuditLogHasPartitions()
+RETURNS SETOF booleanResultType STABLE
+   AS $procedure$
+BEGIN
+      RETURN QUERY SELECT EXISTS(SELECT * FROM audit_log_partitions);
+END; $procedure$
+LANGUAGE plpgsql;
@@ -1174,7 +1174,8 @@ SELECT
     vm_dynamic.guestos_distribution as guestos_distribution,
     vm_dynamic.guestos_kernel_version as guestos_kernel_version,
     vm_dynamic.guestos_type as guestos_type,
-    vm_dynamic.guestos_version as guestos_version
+    vm_dynamic.guestos_version as guestos_version,
+    GREATEST(vm_static._change_date, vm_dynamic._change_date, vm_statistics._change_date) AS _change_date
 FROM
     vm_static
 INNER JOIN vm_dynamic ON vm_static.vm_guid = vm_dynamic.vm_guid
@@ -389,6 +389,37 @@ BEGIN
 END; $procedure$
 LANGUAGE plpgsql;
 
+-- gets the permissions of the user, the groups and everyone (unless ignored) that grant the given action group,
+-- used by the engine to evaluate the permissions on all the objects of the hierarchy at once
+Create or replace FUNCTION GetPermittedObjectsForUserAndGroups(v_user_id UUID,v_group_ids text,v_action_group_id INTEGER,
+v_ignore_everyone BOOLEAN)
+RETURNS SETOF permissions STABLE
+   AS $procedure$
+   DECLARE
+   v_everyone_object_id  UUID;
+BEGIN
+   v_everyone_object_id := getGlobalIds('everyone'); -- hardcoded also in MLA Handler
+   RETURN QUERY
+   select   permissions.* from permissions where
+		-- get all roles of action
+   role_id in(select role_id from roles_groups where action_group_id = v_action_group_id)
+		-- get user and his groups
+   and ((NOT v_ignore_everyone and ad_element_id = v_everyone_object_id)
+   or ad_element_id = v_user_id
+   or ad_element_id in(select * from fnsplitteruuid(v_group_ids)));
+END; $procedure$
+LANGUAGE plpgsql;
+
+-- gets the object and all its parents up to the system root
+Create or replace FUNCTION GetEntityParents(v_object_id UUID,v_object_type_id INTEGER)
+RETURNS SETOF idUuidType STABLE
+   AS $procedure$
+BEGIN
+   RETURN QUERY
+   select * from fn_get_entity_parents(v_object_id,v_object_type_id);
+END; $procedure$
+LANGUAGE plpgsql;
+
 ----------------------------------------------------------------
 -- [roles_groups] Table
 --
@@ -745,6 +745,20 @@ END; $procedure$
 LANGUAGE plpgsql;
 
 
+Create or replace FUNCTION GetVmNetworkInterfaceViewByVmIds(v_vm_ids UUID[], v_user_id UUID, v_is_filtered BOOLEAN)
+RETURNS SETOF vm_interface_view STABLE
+AS $procedure$
+BEGIN
+   RETURN QUERY SELECT *
+   FROM vm_interface_view
+   WHERE vm_guid = ANY(v_vm_ids)
+   AND (NOT v_is_filtered OR EXISTS (SELECT 1
+   FROM   user_vm_permissions_view
+   WHERE  user_id = v_user_id AND entity_id = vm_guid));
+END; $procedure$
+LANGUAGE plpgsql;
+
+
 Create or replace FUNCTION GetVmNetworkInterfaceViewByTemplateId(v_template_id UUID, v_user_id UUID, v_is_filtered boolean)
 RETURNS SETOF vm_interface_view STABLE
 AS $procedure$
@@ -890,6 +904,20 @@ END; $procedure$
 LANGUAGE plpgsql;
 
 
+Create or replace FUNCTION GetVmGuestAgentInterfacesByVmIds(v_vm_ids UUID[], v_user_id UUID, v_filtered BOOLEAN)
+RETURNS SETOF vm_guest_agent_interfaces STABLE
+   AS $procedure$
+BEGIN
+RETURN QUERY SELECT *
+   FROM vm_guest_agent_interfaces
+   WHERE vm_id = ANY(v_vm_ids)
+   AND (NOT v_filtered OR EXISTS (SELECT 1
+                                  FROM   user_vm_permissions_view
+                                  WHERE  user_id = v_user_id AND entity_id = vm_guest_agent_interfaces.vm_id));
+END; $procedure$
+LANGUAGE plpgsql;
+
+
 Create or replace FUNCTION DeleteVmGuestAgentInterfacesByVmId(v_vm_id UUID)
 RETURNS VOID
    AS $procedure$
@@ -362,11 +362,12 @@ LANGUAGE plpgsql;
 
 
 Create or replace FUNCTION UpdateStorageDomainOvfInfo(v_storage_domain_id UUID, v_status INTEGER, v_ovf_disk_id UUID,
-v_stored_ovfs_ids TEXT, v_last_updated TIMESTAMP WITH TIME ZONE) RETURNS VOID
+v_stored_ovfs_ids TEXT, v_last_updated TIMESTAMP WITH TIME ZONE, v_content_hash VARCHAR(64)) RETURNS VOID
    AS $procedure$
 BEGIN
 UPDATE storage_domains_ovf_info SET status = v_status, storage_domain_id = v_storage_domain_id,
-ovf_disk_id = v_ovf_disk_id, stored_ovfs_ids = v_stored_ovfs_ids, last_updated = v_last_updated
+ovf_disk_id = v_ovf_disk_id, stored_ovfs_ids = v_stored_ovfs_ids, last_updated = v_last_updated,
+content_hash = v_content_hash
 WHERE ovf_disk_id = v_ovf_disk_id;
 END; $procedure$
 LANGUAGE plpgsql;
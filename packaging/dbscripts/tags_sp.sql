@@ -440,6 +440,18 @@ LANGUAGE plpgsql;
 
 
 
+Create or replace FUNCTION GetTagsByVmIds(v_vm_ids UUID[]) RETURNS SETOF tags_vm_map_view STABLE
+   AS $procedure$
+BEGIN
+      RETURN QUERY SELECT DISTINCT tags_vm_map_view.*
+      FROM tags_vm_map_view
+      WHERE vm_id = ANY(v_vm_ids);
+END; $procedure$
+LANGUAGE plpgsql;
+
+
+
+
 Create or replace FUNCTION GetVmTagsByTagId(v_tag_ids VARCHAR(4000)) RETURNS SETOF tags_vm_map_view STABLE
    AS $procedure$
 BEGIN
@@ -0,0 +1,5 @@
+-- The last time each part of a VM changed, so auto refreshing searches can load only the VMs which changed since
+-- their previous refresh. Updated by the fn_set_change_date trigger.
+select fn_db_add_column('vm_static', '_change_date', 'timestamp with time zone DEFAULT LOCALTIMESTAMP');
+select fn_db_add_column('vm_dynamic', '_change_date', 'timestamp with time zone DEFAULT LOCALTIMESTAMP');
+select fn_db_add_column('vm_statistics', '_change_date', 'timestamp with time zone DEFAULT LOCALTIMESTAMP');
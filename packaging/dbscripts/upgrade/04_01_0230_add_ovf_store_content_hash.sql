@@ -0,0 +1,3 @@
+-- The hash of the content last written to each OVF store, so an OVF store whose content didn't change isn't
+-- written again on the next OVF update.
+select fn_db_add_column('storage_domains_ovf_info', 'content_hash', 'varchar(64)');
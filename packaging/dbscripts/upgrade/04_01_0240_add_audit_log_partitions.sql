@@ -0,0 +1,13 @@
+-- The time ranges of the partitions of audit_log, which are created ahead of time by CreateAuditLogPartitions and
+-- dropped as a whole once all their events are aged out. Events of a time without a partition, as the ones logged
+-- before partitioning is enabled, stay in audit_log itself.
+CREATE TABLE audit_log_partitions
+(
+    partition_name VARCHAR(63) NOT NULL,
+    range_start TIMESTAMP WITH TIME ZONE NOT NULL,
+    range_end TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    CONSTRAINT pk_audit_log_partitions PRIMARY KEY (partition_name)
+);
+
+CREATE INDEX idx_audit_log_partitions_range ON audit_log_partitions (range_start, range_end);
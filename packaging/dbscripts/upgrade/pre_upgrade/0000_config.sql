@@ -805,6 +805,30 @@ select fn_db_add_config_value_for_versions_up_to('InitialSizeSparseDiskSupported
 select fn_db_add_config_value('CheckMixedRhelVersions','false','general');
 select fn_db_add_config_value_for_versions_up_to('CheckMixedRhelVersions','true','3.5');
 select fn_db_add_config_value('EnableAutomaticHostPowerManagement','true','general');
+select fn_db_add_config_value('VmsMonitoringAnalysisParallelism','4','general');
+select fn_db_add_config_value('SchedulerHostsPerPartition','50','general');
+select fn_db_add_config_value('VmStatisticsWriteTolerance','1','general');
+select fn_db_add_config_value('VmMaxSuppressedWrites','5','general');
+select fn_db_add_config_value('VmEventsCoalescingWindowInMilliSeconds','500','general');
+select fn_db_add_config_value('VmStatsReconcileRefreshRateInSeconds','60','general');
+select fn_db_add_config_value('QuotaConsumptionLockTimeoutInSeconds','30','general');
+select fn_db_add_config_value('MonitoringThreadPoolSize','50','general');
+select fn_db_add_config_value('MonitoringThreadPoolQueueSize','500','general');
+select fn_db_add_config_value('StorageIoThreadPoolSize','200','general');
+select fn_db_add_config_value('StorageIoThreadPoolQueueSize','1000','general');
+select fn_db_add_config_value('StorageIoThreadPoolOnDemand','false','general');
+select fn_db_add_config_value('EventsThreadPoolSize','20','general');
+select fn_db_add_config_value('EventsThreadPoolQueueSize','500','general');
+select fn_db_add_config_value('SearchQueryCacheSize','1000','general');
+select fn_db_add_config_value('OvfUpdateParallelism','4','general');
+select fn_db_add_config_value('AuditLogWriterQueueSize','10000','general');
+select fn_db_add_config_value('AuditLogWriterBatchSize','500','general');
+select fn_db_add_config_value('AuditLogWriterQueueTimeoutInMs','1000','general');
+select fn_db_add_config_value('AuditLogPartitionInterval','none','general');
+select fn_db_add_config_value('ScheduledJobsThreadPoolSize','50','general');
+select fn_db_add_config_value('ScheduledJobsThreadPoolQueueSize','1000','general');
+select fn_db_add_config_value('ParallelThreadPoolSize','16','general');
+select fn_db_add_config_value('ParallelThreadPoolQueueSize','100','general');
 ------------------------------------------------------------------------------------
 --                  Update with override section
 ------------------------------------------------------------------------------------
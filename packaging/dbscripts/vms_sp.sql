@@ -48,6 +48,40 @@ LANGUAGE plpgsql;
 
 
 
+DROP TYPE IF EXISTS ovf_size_rs CASCADE;
+CREATE TYPE ovf_size_rs AS (vm_guid UUID, ovf_size BIGINT);
+
+Create or replace FUNCTION LoadOvfSizesForIds(v_ids VARCHAR(5000)) RETURNS SETOF ovf_size_rs STABLE
+   AS $procedure$
+BEGIN
+RETURN QUERY SELECT ovf.vm_guid, octet_length(ovf.ovf_data)::BIGINT
+   FROM vm_ovf_generations ovf
+   WHERE ovf.vm_guid IN (SELECT * FROM fnSplitterUuid(v_ids))
+   AND ovf.ovf_data IS NOT NULL;
+END; $procedure$
+LANGUAGE plpgsql;
+
+
+
+
+
+DROP TYPE IF EXISTS ovf_generation_rs CASCADE;
+CREATE TYPE ovf_generation_rs AS (vm_guid UUID, ovf_generation BIGINT);
+
+Create or replace FUNCTION LoadOvfGenerationsForIds(v_ids VARCHAR(5000)) RETURNS SETOF ovf_generation_rs STABLE
+   AS $procedure$
+BEGIN
+RETURN QUERY SELECT ovf.vm_guid, ovf.ovf_generation
+   FROM vm_ovf_generations ovf
+   WHERE ovf.vm_guid IN (SELECT * FROM fnSplitterUuid(v_ids))
+   AND ovf.ovf_data IS NOT NULL;
+END; $procedure$
+LANGUAGE plpgsql;
+
+
+
+
+
 Create or replace FUNCTION GetIdsForOvfDeletion(v_storage_pool_id UUID) RETURNS SETOF UUID STABLE
    AS $procedure$
 BEGIN
@@ -1788,3 +1822,26 @@ BEGIN
         WHERE origin = ANY(v_origins);
 END; $procedure$
 LANGUAGE plpgsql;
+
+-- Stamps the rows of a VM which are actually changed by an update, so searches can return only the VMs which changed
+-- since a given time.
+CREATE OR REPLACE FUNCTION fn_set_change_date() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW IS DISTINCT FROM OLD THEN
+        NEW._change_date := LOCALTIMESTAMP;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS set_vm_static_change_date ON vm_static;
+CREATE TRIGGER set_vm_static_change_date BEFORE UPDATE ON vm_static FOR EACH ROW
+EXECUTE PROCEDURE fn_set_change_date();
+
+DROP TRIGGER IF EXISTS set_vm_dynamic_change_date ON vm_dynamic;
+CREATE TRIGGER set_vm_dynamic_change_date BEFORE UPDATE ON vm_dynamic FOR EACH ROW
+EXECUTE PROCEDURE fn_set_change_date();
+
+DROP TRIGGER IF EXISTS set_vm_statistics_change_date ON vm_statistics;
+CREATE TRIGGER set_vm_statistics_change_date BEFORE UPDATE ON vm_statistics FOR EACH ROW
+EXECUTE PROCEDURE fn_set_change_date();